@@ -0,0 +1,67 @@
+package com.asadmshah.hnclone.cache;
+
+import com.asadmshah.hnclone.models.Post;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.builder.fluent.Configurations;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 4)
+@Measurement(iterations = 4)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int KEY_COUNT = 10000;
+
+    @Param({"local", "redis"})
+    public String impl;
+
+    private Cache cache;
+    private String[] keys;
+    private Post post;
+
+    @Setup
+    public void setUp() throws Exception {
+        Configuration configuration = new Configurations().properties(CacheBenchmark.class.getClassLoader().getResource("test.properties"));
+
+        cache = CacheModule.LOCAL.equals(impl) ? new LocalCacheImpl(configuration) : new CacheImpl(configuration);
+
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = Integer.toString(i);
+        }
+
+        post = Post.newBuilder().setId(1).setTitle("Benchmark").setScore(1).build();
+        for (String key : keys) {
+            cache.put(Zone.POSTS, key, post, 1, TimeUnit.HOURS);
+            cache.put(Zone.BLOCKED_SESSIONS, key, 1L);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        cache.stop();
+    }
+
+    @Benchmark
+    public Long getLong() {
+        return cache.getLong(Zone.BLOCKED_SESSIONS, keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+    }
+
+    @Benchmark
+    public Post getMessage() {
+        return cache.get(Zone.POSTS, keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)], Post.parser());
+    }
+
+    @Benchmark
+    public void putMessage() {
+        cache.put(Zone.POSTS, keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)], post, 1, TimeUnit.HOURS);
+    }
+
+}
@@ -4,6 +4,10 @@ import java.time.LocalDateTime
 
 interface BlockedSessionsCache {
 
+    fun start()
+
+    fun stop()
+
     fun put(id: Int)
 
     fun contains(id: Int, issued: LocalDateTime): Boolean
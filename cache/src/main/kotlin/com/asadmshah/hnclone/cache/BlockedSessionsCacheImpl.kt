@@ -1,18 +1,106 @@
 package com.asadmshah.hnclone.cache
 
+import io.reactivex.Flowable
+import io.reactivex.disposables.CompositeDisposable
 import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.ArrayList
+import java.util.HashMap
 import java.util.concurrent.TimeUnit
 import javax.inject.Inject
 
-internal class BlockedSessionsCacheImpl @Inject constructor(private val cache: Cache, expireDuration: Long, expireUnit: TimeUnit) : BlockedSessionsCache {
+internal class BlockedSessionsCacheImpl
+@Inject
+constructor(private val cache: Cache,
+            expireDuration: Long,
+            expireUnit: TimeUnit,
+            private val resyncInterval: Long,
+            private val resyncUnit: TimeUnit) : BlockedSessionsCache {
+
+    constructor(cache: Cache, expireDuration: Long, expireUnit: TimeUnit) : this(cache, expireDuration, expireUnit, 0, TimeUnit.SECONDS)
+
+    private companion object {
+        const val KEY = "all"
+    }
 
     private val seconds = expireUnit.toSeconds(expireDuration)
+    private val millis = expireUnit.toMillis(expireDuration)
+
+    private val blocked = IntLongMap()
+    private val disposables = CompositeDisposable()
+
+    override fun start() {
+        disposables.add(cache.subscribe(Zone.BLOCKED_SESSIONS).subscribe({ onMessage(it) }, { }))
+
+        resync()
+
+        if (resyncInterval > 0) {
+            disposables.add(Flowable.interval(resyncInterval, resyncInterval, resyncUnit).subscribe({ resync() }, { }))
+        }
+    }
+
+    override fun stop() {
+        disposables.clear()
+    }
 
     override fun put(id: Int) {
-        cache.put(Zone.BLOCKED_SESSIONS, id.toString(), LocalDateTime.now(), LocalDateTime.now().plusSeconds(seconds))
+        val now = LocalDateTime.now()
+        cache.putField(Zone.BLOCKED_SESSIONS, KEY, id.toString(), now, now.plusSeconds(seconds))
+
+        val blockedAt = toMillis(now)
+        blocked.put(id, blockedAt)
+        cache.publish(Zone.BLOCKED_SESSIONS, "$id:$blockedAt")
     }
 
     override fun contains(id: Int, issued: LocalDateTime): Boolean {
-        return cache.getLocalDateTime(Zone.BLOCKED_SESSIONS, id.toString())?.isAfter(issued) ?: false
+        val blockedAt = blocked[id]
+        if (blockedAt == IntLongMap.NO_VALUE) return false
+
+        return blockedAt + millis > toMillis(LocalDateTime.now()) && blockedAt > toMillis(issued)
+    }
+
+    fun onMessage(message: String) {
+        val split = message.indexOf(':')
+        if (split <= 0) return
+
+        try {
+            val id = message.substring(0, split).toInt()
+            val blockedAt = message.substring(split + 1).toLong()
+            blocked.putAll(mapOf(id to blockedAt), { a, b -> Math.max(a, b) })
+        } catch (ignored: NumberFormatException) {
+
+        }
+    }
+
+    fun resync() {
+        try {
+            val expired = toMillis(LocalDateTime.now()) - millis
+
+            val entries = HashMap<Int, Long>()
+            val stale = ArrayList<String>()
+            for ((k, v) in cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, KEY)) {
+                val blockedAt = toMillis(v)
+                if (blockedAt <= expired) {
+                    stale.add(k)
+                    continue
+                }
+
+                try {
+                    entries.put(k.toInt(), blockedAt)
+                } catch (ignored: NumberFormatException) {
+                    stale.add(k)
+                }
+            }
+            cache.deleteFields(Zone.BLOCKED_SESSIONS, KEY, stale)
+
+            blocked.putAll(entries, { a, b -> Math.max(a, b) })
+            blocked.removeIf { k, v -> v <= expired }
+        } catch (ignored: Exception) {
+
+        }
+    }
+
+    private fun toMillis(time: LocalDateTime): Long {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli()
     }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package com.asadmshah.hnclone.cache
 
+import com.google.protobuf.MessageLite
+import com.google.protobuf.Parser
+import io.reactivex.Flowable
 import java.time.LocalDateTime
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.TimeUnit
 
 interface Cache {
 
@@ -17,4 +22,44 @@ interface Cache {
     fun getLong(z: Zone, k: String): Long?
 
     fun getLocalDateTime(z: Zone, k: String): LocalDateTime?
+
+    fun putAsync(z: Zone, k: String, v: Long): CompletionStage<Unit>
+
+    fun putAsync(z: Zone, k: String, v: Long, exp: LocalDateTime): CompletionStage<Unit>
+
+    fun putAsync(z: Zone, k: String, v: LocalDateTime): CompletionStage<Unit>
+
+    fun putAsync(z: Zone, k: String, v: LocalDateTime, exp: LocalDateTime): CompletionStage<Unit>
+
+    fun getLongAsync(z: Zone, k: String): CompletionStage<Long?>
+
+    fun getLocalDateTimeAsync(z: Zone, k: String): CompletionStage<LocalDateTime?>
+
+    fun putLongs(z: Zone, vs: Map<String, Long>)
+
+    fun putLongs(z: Zone, vs: Map<String, Long>, exp: LocalDateTime)
+
+    fun getLongs(z: Zone, ks: Collection<String>): Map<String, Long>
+
+    fun getLocalDateTimes(z: Zone, ks: Collection<String>): Map<String, LocalDateTime>
+
+    fun putField(z: Zone, k: String, f: String, v: LocalDateTime, exp: LocalDateTime)
+
+    fun getLocalDateTimeFields(z: Zone, k: String): Map<String, LocalDateTime>
+
+    fun deleteFields(z: Zone, k: String, fs: Collection<String>)
+
+    fun put(z: Zone, k: String, v: MessageLite, ttl: Long, unit: TimeUnit)
+
+    fun <T : MessageLite> get(z: Zone, k: String, parser: Parser<T>): T?
+
+    fun putMany(z: Zone, vs: Map<String, MessageLite>, ttl: Long, unit: TimeUnit)
+
+    fun <T : MessageLite> getMany(z: Zone, ks: Collection<String>, parser: Parser<T>): Map<String, T>
+
+    fun delete(z: Zone, k: String)
+
+    fun publish(z: Zone, message: String)
+
+    fun subscribe(z: Zone): Flowable<String>
 }
\ No newline at end of file
@@ -1,12 +1,27 @@
 package com.asadmshah.hnclone.cache
 
+import com.google.protobuf.InvalidProtocolBufferException
+import com.google.protobuf.MessageLite
+import com.google.protobuf.Parser
+import com.lambdaworks.redis.LettuceFutures
 import com.lambdaworks.redis.RedisClient
+import com.lambdaworks.redis.RedisFuture
 import com.lambdaworks.redis.RedisURI
 import com.lambdaworks.redis.api.StatefulRedisConnection
+import com.lambdaworks.redis.codec.ByteArrayCodec
+import com.lambdaworks.redis.pubsub.RedisPubSubAdapter
+import com.lambdaworks.redis.pubsub.StatefulRedisPubSubConnection
+import io.reactivex.BackpressureStrategy
+import io.reactivex.Flowable
 import org.apache.commons.configuration2.Configuration
 import java.time.Instant
 import java.time.LocalDateTime
 import java.time.ZoneOffset
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.LinkedHashMap
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.TimeUnit
 import javax.inject.Inject
 
 internal class CacheImpl
@@ -15,6 +30,9 @@ constructor(configuration: Configuration) : Cache {
 
     private val client: RedisClient
     private val conn: StatefulRedisConnection<String, String>
+    private val pool: ConnectionPool<String, String>
+    private val binaryPool: ConnectionPool<ByteArray, ByteArray>
+    private val timeout: Long
 
     init {
         val uri = RedisURI.Builder
@@ -25,37 +43,266 @@ constructor(configuration: Configuration) : Cache {
 
         client = RedisClient.create(uri)
         conn = client.connect()
+
+        val poolSize = configuration.getInt("redis.pool.size", Runtime.getRuntime().availableProcessors())
+        pool = ConnectionPool(poolSize, { client.connect() })
+        binaryPool = ConnectionPool(poolSize, { client.connect(ByteArrayCodec.INSTANCE) })
+
+        timeout = configuration.getLong("redis.timeout", 1000)
     }
 
+    private val connSubLazy = lazy { client.connectPubSub() }
+    private val connSub: StatefulRedisPubSubConnection<String, String>
+        get() = connSubLazy.value
+
     override fun stop() {
+        if (connSubLazy.isInitialized()) connSub.close()
+        pool.close()
+        binaryPool.close()
         conn.sync().close()
     }
 
+    private inline fun <T> borrow(block: (StatefulRedisConnection<String, String>) -> T): T {
+        return pool.borrow(block)
+    }
+
     override fun put(z: Zone, k: String, v: Long) {
-        conn.sync().set(z.key(k), v.toString())
+        borrow { it.sync().set(z.key(k), v.toString()) }
     }
 
     override fun put(z: Zone, k: String, v: Long, exp: LocalDateTime) {
-        val seconds = exp.toEpochSecond(ZoneOffset.UTC) - LocalDateTime.now().toEpochSecond(ZoneOffset.UTC)
-        conn.sync().setex(z.key(k), seconds, v.toString())
+        borrow { it.sync().setex(z.key(k), seconds(exp), v.toString()) }
     }
 
     override fun put(z: Zone, k: String, v: LocalDateTime) {
-        conn.sync().set(z.key(k), v.toEpochSecond(ZoneOffset.UTC).toString())
+        borrow { it.sync().set(z.key(k), toValue(v)) }
     }
 
     override fun put(z: Zone, k: String, v: LocalDateTime, exp: LocalDateTime) {
-        val seconds = exp.toEpochSecond(ZoneOffset.UTC) - LocalDateTime.now().toEpochSecond(ZoneOffset.UTC)
-        conn.sync().setex(z.key(k), seconds, v.toEpochSecond(ZoneOffset.UTC).toString())
+        borrow { it.sync().setex(z.key(k), seconds(exp), toValue(v)) }
     }
 
     override fun getLong(z: Zone, k: String): Long? {
-        return conn.sync().get(z.key(k))?.toLong()
+        return borrow { it.sync().get(z.key(k)) }?.toLong()
     }
 
     override fun getLocalDateTime(z: Zone, k: String): LocalDateTime? {
-        return conn.sync().get(z.key(k))?.let {
-            LocalDateTime.ofInstant(Instant.ofEpochSecond(it.toLong()), ZoneOffset.UTC)
+        return borrow { it.sync().get(z.key(k)) }?.let { toLocalDateTime(it) }
+    }
+
+    override fun putAsync(z: Zone, k: String, v: Long): CompletionStage<Unit> {
+        return conn.async().set(z.key(k), v.toString()).thenApply { Unit }
+    }
+
+    override fun putAsync(z: Zone, k: String, v: Long, exp: LocalDateTime): CompletionStage<Unit> {
+        return conn.async().setex(z.key(k), seconds(exp), v.toString()).thenApply { Unit }
+    }
+
+    override fun putAsync(z: Zone, k: String, v: LocalDateTime): CompletionStage<Unit> {
+        return conn.async().set(z.key(k), toValue(v)).thenApply { Unit }
+    }
+
+    override fun putAsync(z: Zone, k: String, v: LocalDateTime, exp: LocalDateTime): CompletionStage<Unit> {
+        return conn.async().setex(z.key(k), seconds(exp), toValue(v)).thenApply { Unit }
+    }
+
+    override fun getLongAsync(z: Zone, k: String): CompletionStage<Long?> {
+        return conn.async().get(z.key(k)).thenApply { it?.toLong() }
+    }
+
+    override fun getLocalDateTimeAsync(z: Zone, k: String): CompletionStage<LocalDateTime?> {
+        return conn.async().get(z.key(k)).thenApply { it?.let { toLocalDateTime(it) } }
+    }
+
+    override fun getLongs(z: Zone, ks: Collection<String>): Map<String, Long> {
+        val results = HashMap<String, Long>(ks.size)
+        mget(z, ks) { k, v -> results.put(k, v.toLong()) }
+        return results
+    }
+
+    override fun getLocalDateTimes(z: Zone, ks: Collection<String>): Map<String, LocalDateTime> {
+        val results = HashMap<String, LocalDateTime>(ks.size)
+        mget(z, ks) { k, v -> results.put(k, toLocalDateTime(v)) }
+        return results
+    }
+
+    override fun putLongs(z: Zone, vs: Map<String, Long>) {
+        if (vs.isEmpty()) return
+
+        val values = LinkedHashMap<String, String>(vs.size)
+        for (entry in vs) {
+            values.put(z.key(entry.key), entry.value.toString())
+        }
+        borrow { it.sync().mset(values) }
+    }
+
+    override fun putLongs(z: Zone, vs: Map<String, Long>, exp: LocalDateTime) {
+        if (vs.isEmpty()) return
+
+        val seconds = seconds(exp)
+        pipeline(pool) { connection ->
+            val futures = ArrayList<RedisFuture<*>>(vs.size)
+            for (entry in vs) {
+                futures.add(connection.async().setex(z.key(entry.key), seconds, entry.value.toString()))
+            }
+            futures
+        }
+    }
+
+    override fun put(z: Zone, k: String, v: MessageLite, ttl: Long, unit: TimeUnit) {
+        binaryPool.borrow {
+            if (ttl > 0) {
+                it.sync().psetex(z.bytes(k), unit.toMillis(ttl), v.toByteArray())
+            } else {
+                it.sync().set(z.bytes(k), v.toByteArray())
+            }
+        }
+    }
+
+    override fun <T : MessageLite> get(z: Zone, k: String, parser: Parser<T>): T? {
+        val value = binaryPool.borrow { it.sync().get(z.bytes(k)) } ?: return null
+        return parse(value, parser)
+    }
+
+    override fun putMany(z: Zone, vs: Map<String, MessageLite>, ttl: Long, unit: TimeUnit) {
+        if (vs.isEmpty()) return
+
+        val millis = unit.toMillis(ttl)
+        pipeline(binaryPool) { connection ->
+            val futures = ArrayList<RedisFuture<*>>(vs.size)
+            for (entry in vs) {
+                if (millis > 0) {
+                    futures.add(connection.async().psetex(z.bytes(entry.key), millis, entry.value.toByteArray()))
+                } else {
+                    futures.add(connection.async().set(z.bytes(entry.key), entry.value.toByteArray()))
+                }
+            }
+            futures
+        }
+    }
+
+    override fun <T : MessageLite> getMany(z: Zone, ks: Collection<String>, parser: Parser<T>): Map<String, T> {
+        val results = HashMap<String, T>(ks.size)
+        if (ks.isEmpty()) return results
+
+        val keys = arrayOfNulls<ByteArray>(ks.size)
+        var i = 0
+        for (k in ks) {
+            keys[i++] = z.bytes(k)
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        val values = binaryPool.borrow { it.sync().mget(*(keys as Array<ByteArray>)) }
+        val iterator = ks.iterator()
+        for (value in values) {
+            val k = iterator.next()
+            if (value == null) continue
+            val message = parse(value, parser) ?: continue
+            results.put(k, message)
+        }
+        return results
+    }
+
+    override fun delete(z: Zone, k: String) {
+        binaryPool.borrow { it.sync().del(z.bytes(k)) }
+    }
+
+    override fun putField(z: Zone, k: String, f: String, v: LocalDateTime, exp: LocalDateTime) {
+        val seconds = seconds(exp)
+        pipeline(pool) { connection ->
+            val commands = connection.async()
+            listOf(commands.multi(), commands.hset(z.key(k), f, toValue(v)), commands.expire(z.key(k), seconds), commands.exec())
+        }
+    }
+
+    override fun getLocalDateTimeFields(z: Zone, k: String): Map<String, LocalDateTime> {
+        val values = borrow { it.sync().hgetall(z.key(k)) }
+        val results = HashMap<String, LocalDateTime>(values.size)
+        for ((f, v) in values) {
+            results.put(f, toLocalDateTime(v))
+        }
+        return results
+    }
+
+    override fun deleteFields(z: Zone, k: String, fs: Collection<String>) {
+        if (fs.isEmpty()) return
+        borrow { it.sync().hdel(z.key(k), *fs.toTypedArray()) }
+    }
+
+    override fun publish(z: Zone, message: String) {
+        conn.async().publish(z.channel(), message)
+    }
+
+    override fun subscribe(z: Zone): Flowable<String> {
+        return Flowable.create<String>({ emitter ->
+            val listener = object : RedisPubSubAdapter<String, String>() {
+                override fun message(channel: String, message: String) {
+                    if (channel == z.channel()) emitter.onNext(message)
+                }
+            }
+
+            connSub.addListener(listener)
+            connSub.sync().subscribe(z.channel())
+
+            emitter.setCancellable {
+                connSub.removeListener(listener)
+                connSub.sync().unsubscribe(z.channel())
+            }
+        }, BackpressureStrategy.BUFFER)
+    }
+
+    private inline fun mget(z: Zone, ks: Collection<String>, consumer: (String, String) -> Unit) {
+        if (ks.isEmpty()) return
+
+        val keys = ArrayList<String>(ks.size)
+        for (k in ks) {
+            keys.add(z.key(k))
+        }
+
+        val values = borrow { it.sync().mget(*keys.toTypedArray()) }
+        val iterator = ks.iterator()
+        for (value in values) {
+            val k = iterator.next()
+            if (value != null) consumer(k, value)
+        }
+    }
+
+    private inline fun <K, V> pipeline(pool: ConnectionPool<K, V>, block: (StatefulRedisConnection<K, V>) -> List<RedisFuture<*>>) {
+        pool.borrow { connection ->
+            connection.setAutoFlushCommands(false)
+            try {
+                val futures = block(connection)
+                connection.flushCommands()
+                await(futures)
+            } finally {
+                connection.setAutoFlushCommands(true)
+            }
+        }
+    }
+
+    private fun await(futures: List<RedisFuture<*>>) {
+        if (!LettuceFutures.awaitAll(timeout, TimeUnit.MILLISECONDS, *futures.toTypedArray())) {
+            throw RuntimeException("Redis pipeline timed out.")
         }
     }
-}
\ No newline at end of file
+
+    private fun <T : MessageLite> parse(value: ByteArray, parser: Parser<T>): T? {
+        try {
+            return parser.parseFrom(value)
+        } catch (e: InvalidProtocolBufferException) {
+            return null
+        }
+    }
+
+    private fun seconds(exp: LocalDateTime): Long {
+        return exp.toEpochSecond(ZoneOffset.UTC) - LocalDateTime.now().toEpochSecond(ZoneOffset.UTC)
+    }
+
+    private fun toValue(v: LocalDateTime): String {
+        return v.toEpochSecond(ZoneOffset.UTC).toString()
+    }
+
+    private fun toLocalDateTime(v: String): LocalDateTime {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(v.toLong()), ZoneOffset.UTC)
+    }
+}
@@ -4,22 +4,32 @@ import dagger.Module
 import dagger.Provides
 import org.apache.commons.configuration2.Configuration
 import java.util.concurrent.TimeUnit
+import javax.inject.Provider
 import javax.inject.Singleton
 
 @Module
 internal class CacheModule {
 
+    companion object {
+        const val REDIS = "redis"
+        const val LOCAL = "local"
+    }
+
     @Provides
     @Singleton
-    internal fun providesCache(cache: CacheImpl): Cache {
-        return cache
+    internal fun providesCache(configuration: Configuration, redis: Provider<CacheImpl>, local: Provider<LocalCacheImpl>): Cache {
+        when (configuration.getString("cache.impl", REDIS)) {
+            LOCAL -> return local.get()
+            else -> return redis.get()
+        }
     }
 
     @Provides
     @Singleton
     internal fun providesBlockedSessionsCache(cache: Cache, configuration: Configuration): BlockedSessionsCache {
         val expiration = configuration.getLong("auth.request.expire", 10)
-        return BlockedSessionsCacheImpl(cache, expiration, TimeUnit.MINUTES)
+        val resync = configuration.getLong("auth.blocked.resync", 30)
+        return BlockedSessionsCacheImpl(cache, expiration, TimeUnit.MINUTES, resync, TimeUnit.SECONDS)
     }
 
 }
\ No newline at end of file
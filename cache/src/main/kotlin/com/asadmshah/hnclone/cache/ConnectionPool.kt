@@ -0,0 +1,39 @@
+package com.asadmshah.hnclone.cache
+
+import com.lambdaworks.redis.api.StatefulRedisConnection
+import java.util.concurrent.ArrayBlockingQueue
+
+internal class ConnectionPool<K, V>(size: Int, factory: () -> StatefulRedisConnection<K, V>) {
+
+    private val connections = ArrayBlockingQueue<StatefulRedisConnection<K, V>>(Math.max(1, size))
+
+    init {
+        for (i in 0 until Math.max(1, size)) {
+            connections.add(factory())
+        }
+    }
+
+    inline fun <T> borrow(block: (StatefulRedisConnection<K, V>) -> T): T {
+        val connection = take()
+        try {
+            return block(connection)
+        } finally {
+            release(connection)
+        }
+    }
+
+    fun take(): StatefulRedisConnection<K, V> {
+        return connections.take()
+    }
+
+    fun release(connection: StatefulRedisConnection<K, V>) {
+        connections.offer(connection)
+    }
+
+    fun close() {
+        while (true) {
+            val connection = connections.poll() ?: break
+            connection.close()
+        }
+    }
+}
\ No newline at end of file
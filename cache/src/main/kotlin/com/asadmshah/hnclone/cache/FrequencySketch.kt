@@ -0,0 +1,67 @@
+package com.asadmshah.hnclone.cache
+
+internal class FrequencySketch(maximumSize: Long) {
+
+    companion object {
+        private val SEEDS = longArrayOf(-0x3c5a4b2a3bd6c06dL, -0x4b47d5b1c8e9d6dfL, -0x61c8864680b583ebL, 0x165667b19e3779f9L)
+        private const val RESET_MASK = 0x7777777777777777L
+        private const val MAX_COUNT = 15L
+    }
+
+    private val table: LongArray
+    private val mask: Int
+    private val sampleSize: Long
+    private var additions = 0L
+
+    init {
+        var size = 1
+        while (size < Math.min(maximumSize, 1L shl 30)) {
+            size = size shl 1
+        }
+        table = LongArray(size)
+        mask = size - 1
+        sampleSize = 10L * Math.max(1L, maximumSize)
+    }
+
+    fun frequency(hash: Int): Int {
+        val start = (hash and 3) shl 2
+        var frequency = Int.MAX_VALUE
+        for (i in 0..3) {
+            val index = indexOf(hash, i)
+            val offset = (start + i) shl 2
+            val count = ((table[index] ushr offset) and MAX_COUNT).toInt()
+            frequency = Math.min(frequency, count)
+        }
+        return frequency
+    }
+
+    fun increment(hash: Int) {
+        val start = (hash and 3) shl 2
+        var added = false
+        for (i in 0..3) {
+            val index = indexOf(hash, i)
+            val offset = (start + i) shl 2
+            if (((table[index] ushr offset) and MAX_COUNT) != MAX_COUNT) {
+                table[index] += 1L shl offset
+                added = true
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            reset()
+        }
+    }
+
+    private fun reset() {
+        for (i in table.indices) {
+            table[i] = (table[i] ushr 1) and RESET_MASK
+        }
+        additions /= 2
+    }
+
+    private fun indexOf(hash: Int, i: Int): Int {
+        var h = (hash.toLong() + SEEDS[i]) * SEEDS[i]
+        h += h ushr 32
+        return h.toInt() and mask
+    }
+}
@@ -0,0 +1,97 @@
+package com.asadmshah.hnclone.cache
+
+import java.util.Arrays
+
+internal class IntLongMap {
+
+    companion object {
+        const val NO_VALUE = Long.MIN_VALUE
+        private const val EMPTY = Int.MIN_VALUE
+    }
+
+    private class Table(capacity: Int) {
+        val keys = IntArray(capacity)
+        val values = LongArray(capacity)
+        val mask = capacity - 1
+        var size = 0
+
+        init {
+            Arrays.fill(keys, EMPTY)
+        }
+
+        fun get(key: Int): Long {
+            var i = mix(key) and mask
+            while (true) {
+                val k = keys[i]
+                if (k == key) return values[i]
+                if (k == EMPTY) return NO_VALUE
+                i = (i + 1) and mask
+            }
+        }
+
+        fun put(key: Int, value: Long) {
+            var i = mix(key) and mask
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) and mask
+            }
+            if (keys[i] == EMPTY) size++
+            keys[i] = key
+            values[i] = value
+        }
+
+        private fun mix(key: Int): Int {
+            val h = key * -0x61c88647
+            return h xor (h ushr 16)
+        }
+    }
+
+    @Volatile private var table = Table(2)
+
+    val size: Int
+        get() = table.size
+
+    operator fun get(key: Int): Long {
+        return table.get(key)
+    }
+
+    @Synchronized
+    fun put(key: Int, value: Long) {
+        require(key != EMPTY)
+        val current = table
+        if (current.get(key) == value) return
+        table = copy(current.size + 1) { k, v -> true }.apply { put(key, value) }
+    }
+
+    @Synchronized
+    fun putAll(entries: Map<Int, Long>, merge: (Long, Long) -> Long) {
+        val next = copy(table.size + entries.size) { k, v -> true }
+        for ((key, value) in entries) {
+            require(key != EMPTY)
+            val existing = next.get(key)
+            next.put(key, if (existing == NO_VALUE) value else merge(existing, value))
+        }
+        table = next
+    }
+
+    @Synchronized
+    fun removeIf(predicate: (Int, Long) -> Boolean) {
+        table = copy(table.size) { k, v -> !predicate(k, v) }
+    }
+
+    private fun copy(expectedSize: Int, filter: (Int, Long) -> Boolean): Table {
+        val current = table
+        var capacity = 2
+        while (capacity < expectedSize * 2) {
+            capacity = capacity shl 1
+        }
+
+        val next = Table(capacity)
+        for (i in current.keys.indices) {
+            val k = current.keys[i]
+            if (k != EMPTY && filter(k, current.values[i])) {
+                next.put(k, current.values[i])
+            }
+        }
+        return next
+    }
+}
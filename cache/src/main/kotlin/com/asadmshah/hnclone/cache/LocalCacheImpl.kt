@@ -0,0 +1,419 @@
+package com.asadmshah.hnclone.cache
+
+import com.google.protobuf.InvalidProtocolBufferException
+import com.google.protobuf.MessageLite
+import com.google.protobuf.Parser
+import io.reactivex.Flowable
+import io.reactivex.processors.FlowableProcessor
+import io.reactivex.processors.PublishProcessor
+import org.apache.commons.configuration2.Configuration
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import javax.inject.Inject
+
+internal class LocalCacheImpl(private val maximumSize: Long,
+                              maintenanceInterval: Long,
+                              private val ticker: () -> Long) : Cache {
+
+    @Inject
+    constructor(configuration: Configuration) : this(
+            configuration.getLong("cache.local.size", 100000),
+            configuration.getLong("cache.local.maintenance", 1000),
+            { TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) })
+
+    companion object {
+        private const val NONE = 0
+        private const val WINDOW = 1
+        private const val PROBATION = 2
+        private const val PROTECTED = 3
+
+        private const val NO_EXPIRY = Long.MAX_VALUE
+    }
+
+    private class Node(val key: String, val hash: Int, val long: Long, val bytes: ByteArray?, expiresAt: Long) : TimerWheel.Timer(expiresAt) {
+        var queue = NONE
+        var accessPrev: Node? = null
+        var accessNext: Node? = null
+    }
+
+    private class AccessQueue {
+        val sentinel = Node("", 0, 0, null, NO_EXPIRY)
+        var size = 0L
+
+        init {
+            sentinel.accessPrev = sentinel
+            sentinel.accessNext = sentinel
+        }
+
+        fun peekLast(): Node? {
+            val last = sentinel.accessPrev!!
+            return if (last === sentinel) null else last
+        }
+
+        fun addFirst(node: Node) {
+            val first = sentinel.accessNext!!
+            node.accessPrev = sentinel
+            node.accessNext = first
+            first.accessPrev = node
+            sentinel.accessNext = node
+            size++
+        }
+
+        fun remove(node: Node) {
+            node.accessPrev!!.accessNext = node.accessNext
+            node.accessNext!!.accessPrev = node.accessPrev
+            node.accessPrev = null
+            node.accessNext = null
+            size--
+        }
+    }
+
+    private class Hash {
+        val fields = ConcurrentHashMap<String, Long>()
+        @Volatile var expiresAt = NO_EXPIRY
+    }
+
+    private val data = ConcurrentHashMap<String, Node>()
+    private val hashes = ConcurrentHashMap<String, Hash>()
+    private val lock = ReentrantLock()
+
+    private val windowMaximum = Math.max(1L, maximumSize / 100)
+    private val protectedMaximum = (maximumSize - windowMaximum) * 80 / 100
+
+    private val windowQueue = AccessQueue()
+    private val probationQueue = AccessQueue()
+    private val protectedQueue = AccessQueue()
+
+    private val sketch = FrequencySketch(maximumSize)
+    private val wheel = TimerWheel(ticker()) { remove(it as Node) }
+
+    private val processors = EnumMap<Zone, FlowableProcessor<String>>(Zone::class.java)
+
+    private val scheduler: ScheduledExecutorService?
+
+    init {
+        for (zone in Zone.values()) {
+            processors.put(zone, PublishProcessor.create<String>().toSerialized())
+        }
+
+        if (maintenanceInterval > 0) {
+            val executor = Executors.newSingleThreadScheduledExecutor(ThreadFactory { Thread(it, "cache-local-maintenance").apply { isDaemon = true } })
+            executor.scheduleWithFixedDelay({ cleanUp() }, maintenanceInterval, maintenanceInterval, TimeUnit.MILLISECONDS)
+            scheduler = executor
+        } else {
+            scheduler = null
+        }
+    }
+
+    override fun stop() {
+        scheduler?.shutdownNow()
+        processors.values.forEach { it.onComplete() }
+    }
+
+    val estimatedSize: Int
+        get() = data.size
+
+    fun cleanUp() {
+        lock.lock()
+        try {
+            wheel.advance(ticker())
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    override fun put(z: Zone, k: String, v: Long) {
+        write(z.key(k), v, null, NO_EXPIRY)
+    }
+
+    override fun put(z: Zone, k: String, v: Long, exp: LocalDateTime) {
+        write(z.key(k), v, null, expiresAt(exp))
+    }
+
+    override fun put(z: Zone, k: String, v: LocalDateTime) {
+        write(z.key(k), toValue(v), null, NO_EXPIRY)
+    }
+
+    override fun put(z: Zone, k: String, v: LocalDateTime, exp: LocalDateTime) {
+        write(z.key(k), toValue(v), null, expiresAt(exp))
+    }
+
+    override fun getLong(z: Zone, k: String): Long? {
+        val node = read(z.key(k)) ?: return null
+        return if (node.bytes == null) node.long else null
+    }
+
+    override fun getLocalDateTime(z: Zone, k: String): LocalDateTime? {
+        val node = read(z.key(k)) ?: return null
+        return if (node.bytes == null) toLocalDateTime(node.long) else null
+    }
+
+    override fun putAsync(z: Zone, k: String, v: Long): CompletionStage<Unit> {
+        put(z, k, v)
+        return CompletableFuture.completedFuture(Unit)
+    }
+
+    override fun putAsync(z: Zone, k: String, v: Long, exp: LocalDateTime): CompletionStage<Unit> {
+        put(z, k, v, exp)
+        return CompletableFuture.completedFuture(Unit)
+    }
+
+    override fun putAsync(z: Zone, k: String, v: LocalDateTime): CompletionStage<Unit> {
+        put(z, k, v)
+        return CompletableFuture.completedFuture(Unit)
+    }
+
+    override fun putAsync(z: Zone, k: String, v: LocalDateTime, exp: LocalDateTime): CompletionStage<Unit> {
+        put(z, k, v, exp)
+        return CompletableFuture.completedFuture(Unit)
+    }
+
+    override fun getLongAsync(z: Zone, k: String): CompletionStage<Long?> {
+        return CompletableFuture.completedFuture(getLong(z, k))
+    }
+
+    override fun getLocalDateTimeAsync(z: Zone, k: String): CompletionStage<LocalDateTime?> {
+        return CompletableFuture.completedFuture(getLocalDateTime(z, k))
+    }
+
+    override fun putLongs(z: Zone, vs: Map<String, Long>) {
+        for (entry in vs) {
+            put(z, entry.key, entry.value)
+        }
+    }
+
+    override fun putLongs(z: Zone, vs: Map<String, Long>, exp: LocalDateTime) {
+        val expiresAt = expiresAt(exp)
+        for (entry in vs) {
+            write(z.key(entry.key), entry.value, null, expiresAt)
+        }
+    }
+
+    override fun getLongs(z: Zone, ks: Collection<String>): Map<String, Long> {
+        val results = HashMap<String, Long>(ks.size)
+        for (k in ks) {
+            val v = getLong(z, k) ?: continue
+            results.put(k, v)
+        }
+        return results
+    }
+
+    override fun getLocalDateTimes(z: Zone, ks: Collection<String>): Map<String, LocalDateTime> {
+        val results = HashMap<String, LocalDateTime>(ks.size)
+        for (k in ks) {
+            val v = getLocalDateTime(z, k) ?: continue
+            results.put(k, v)
+        }
+        return results
+    }
+
+    override fun putField(z: Zone, k: String, f: String, v: LocalDateTime, exp: LocalDateTime) {
+        val hash = hashes.computeIfAbsent(z.key(k)) { Hash() }
+        hash.fields.put(f, toValue(v))
+        hash.expiresAt = expiresAt(exp)
+    }
+
+    override fun getLocalDateTimeFields(z: Zone, k: String): Map<String, LocalDateTime> {
+        val results = HashMap<String, LocalDateTime>()
+        val hash = hashes[z.key(k)] ?: return results
+        if (hash.expiresAt <= ticker()) {
+            hashes.remove(z.key(k), hash)
+            return results
+        }
+
+        for ((f, v) in hash.fields) {
+            results.put(f, toLocalDateTime(v))
+        }
+        return results
+    }
+
+    override fun deleteFields(z: Zone, k: String, fs: Collection<String>) {
+        val hash = hashes[z.key(k)] ?: return
+        fs.forEach { hash.fields.remove(it) }
+    }
+
+    override fun put(z: Zone, k: String, v: MessageLite, ttl: Long, unit: TimeUnit) {
+        write(z.key(k), 0, v.toByteArray(), expiresAt(ttl, unit))
+    }
+
+    override fun <T : MessageLite> get(z: Zone, k: String, parser: Parser<T>): T? {
+        val node = read(z.key(k)) ?: return null
+        val bytes = node.bytes ?: return null
+        try {
+            return parser.parseFrom(bytes)
+        } catch (e: InvalidProtocolBufferException) {
+            return null
+        }
+    }
+
+    override fun putMany(z: Zone, vs: Map<String, MessageLite>, ttl: Long, unit: TimeUnit) {
+        val expiresAt = expiresAt(ttl, unit)
+        for (entry in vs) {
+            write(z.key(entry.key), 0, entry.value.toByteArray(), expiresAt)
+        }
+    }
+
+    override fun <T : MessageLite> getMany(z: Zone, ks: Collection<String>, parser: Parser<T>): Map<String, T> {
+        val results = HashMap<String, T>(ks.size)
+        for (k in ks) {
+            val v = get(z, k, parser) ?: continue
+            results.put(k, v)
+        }
+        return results
+    }
+
+    override fun delete(z: Zone, k: String) {
+        lock.lock()
+        try {
+            val node = data[z.key(k)] ?: return
+            remove(node)
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    override fun publish(z: Zone, message: String) {
+        processors[z]!!.onNext(message)
+    }
+
+    override fun subscribe(z: Zone): Flowable<String> {
+        return processors[z]!!.onBackpressureBuffer()
+    }
+
+    private fun read(key: String): Node? {
+        val node = data[key] ?: return null
+        if (node.expiresAt <= ticker()) return null
+
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(node.hash)
+                onAccess(node)
+            } finally {
+                lock.unlock()
+            }
+        }
+        return node
+    }
+
+    private fun write(key: String, long: Long, bytes: ByteArray?, expiresAt: Long) {
+        val now = ticker()
+        lock.lock()
+        try {
+            if (expiresAt <= now) {
+                val existing = data[key]
+                if (existing != null) remove(existing)
+                return
+            }
+
+            val node = Node(key, spread(key.hashCode()), long, bytes, expiresAt)
+            val existing = data.put(key, node)
+            if (existing != null) unlink(existing)
+
+            sketch.increment(node.hash)
+            node.queue = WINDOW
+            windowQueue.addFirst(node)
+            if (expiresAt != NO_EXPIRY) wheel.schedule(node)
+
+            wheel.advance(now)
+            evict()
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    private fun onAccess(node: Node) {
+        when (node.queue) {
+            WINDOW -> {
+                windowQueue.remove(node)
+                windowQueue.addFirst(node)
+            }
+            PROBATION -> {
+                probationQueue.remove(node)
+                node.queue = PROTECTED
+                protectedQueue.addFirst(node)
+
+                while (protectedQueue.size > protectedMaximum) {
+                    val demoted = protectedQueue.peekLast() ?: break
+                    protectedQueue.remove(demoted)
+                    demoted.queue = PROBATION
+                    probationQueue.addFirst(demoted)
+                }
+            }
+            PROTECTED -> {
+                protectedQueue.remove(node)
+                protectedQueue.addFirst(node)
+            }
+        }
+    }
+
+    private fun evict() {
+        var candidate: Node? = null
+        while (windowQueue.size > windowMaximum) {
+            val node = windowQueue.peekLast() ?: break
+            windowQueue.remove(node)
+            node.queue = PROBATION
+            probationQueue.addFirst(node)
+            candidate = node
+        }
+
+        while (windowQueue.size + probationQueue.size + protectedQueue.size > maximumSize) {
+            val victim = probationQueue.peekLast() ?: protectedQueue.peekLast() ?: windowQueue.peekLast() ?: break
+
+            if (candidate == null || candidate === victim || candidate.queue != PROBATION) {
+                remove(victim)
+            } else if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                remove(victim)
+            } else {
+                remove(candidate)
+                candidate = null
+            }
+        }
+    }
+
+    private fun remove(node: Node) {
+        data.remove(node.key, node)
+        unlink(node)
+    }
+
+    private fun unlink(node: Node) {
+        when (node.queue) {
+            WINDOW -> windowQueue.remove(node)
+            PROBATION -> probationQueue.remove(node)
+            PROTECTED -> protectedQueue.remove(node)
+        }
+        node.queue = NONE
+        wheel.deschedule(node)
+    }
+
+    private fun spread(hash: Int): Int {
+        val h = hash * -0x61c88647
+        return h xor (h ushr 16)
+    }
+
+    private fun expiresAt(exp: LocalDateTime): Long {
+        val seconds = exp.toEpochSecond(ZoneOffset.UTC) - LocalDateTime.now().toEpochSecond(ZoneOffset.UTC)
+        return ticker() + TimeUnit.SECONDS.toMillis(seconds)
+    }
+
+    private fun expiresAt(ttl: Long, unit: TimeUnit): Long {
+        return if (ttl > 0) ticker() + unit.toMillis(ttl) else NO_EXPIRY
+    }
+
+    private fun toValue(v: LocalDateTime): Long {
+        return v.toEpochSecond(ZoneOffset.UTC)
+    }
+
+    private fun toLocalDateTime(v: Long): LocalDateTime {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(v), ZoneOffset.UTC)
+    }
+}
@@ -0,0 +1,96 @@
+package com.asadmshah.hnclone.cache
+
+internal class TimerWheel(private var time: Long, private val onExpired: (TimerWheel.Timer) -> Unit) {
+
+    companion object {
+        private val SHIFTS = intArrayOf(10, 16, 22, 27, 32)
+        private val BUCKETS = intArrayOf(64, 64, 32, 32, 1)
+    }
+
+    open class Timer(val expiresAt: Long) {
+        internal var prev: Timer? = null
+        internal var next: Timer? = null
+    }
+
+    private val wheel = Array(SHIFTS.size) { i -> Array(BUCKETS[i]) { sentinel() } }
+
+    fun schedule(timer: Timer) {
+        link(bucket(timer.expiresAt), timer)
+    }
+
+    fun deschedule(timer: Timer) {
+        val prev = timer.prev ?: return
+        val next = timer.next!!
+        prev.next = next
+        next.prev = prev
+        timer.prev = null
+        timer.next = null
+    }
+
+    fun advance(now: Long) {
+        val previous = time
+        if (now <= previous) return
+        time = now
+
+        for (i in SHIFTS.indices) {
+            val previousTicks = previous ushr SHIFTS[i]
+            val currentTicks = now ushr SHIFTS[i]
+            if (currentTicks - previousTicks <= 0) break
+            expire(i, previousTicks, currentTicks)
+        }
+    }
+
+    private fun expire(level: Int, previousTicks: Long, currentTicks: Long) {
+        val buckets = wheel[level]
+        val mask = buckets.size - 1
+        val steps = Math.min(currentTicks - previousTicks + 1, buckets.size.toLong()).toInt()
+
+        for (step in 0 until steps) {
+            val sentinel = buckets[((previousTicks + step) and mask.toLong()).toInt()]
+
+            var timer = sentinel.next!!
+            sentinel.next = sentinel
+            sentinel.prev = sentinel
+
+            while (timer !== sentinel) {
+                val next = timer.next!!
+                timer.prev = null
+                timer.next = null
+
+                if (timer.expiresAt > time) {
+                    schedule(timer)
+                } else {
+                    onExpired(timer)
+                }
+                timer = next
+            }
+        }
+    }
+
+    private fun bucket(expiresAt: Long): Timer {
+        val at = Math.max(expiresAt, time)
+        val duration = at - time
+        for (i in 0 until SHIFTS.size - 1) {
+            if (duration < 1L shl SHIFTS[i + 1]) {
+                val index = (at ushr SHIFTS[i]) and (BUCKETS[i] - 1).toLong()
+                return wheel[i][index.toInt()]
+            }
+        }
+        return wheel[SHIFTS.size - 1][0]
+    }
+
+    private fun link(sentinel: Timer, timer: Timer) {
+        val last = sentinel.prev!!
+        timer.prev = last
+        timer.next = sentinel
+        last.next = timer
+        sentinel.prev = timer
+    }
+
+    private fun sentinel(): Timer {
+        val sentinel = Timer(Long.MAX_VALUE)
+        sentinel.prev = sentinel
+        sentinel.next = sentinel
+        return sentinel
+    }
+}
@@ -2,10 +2,38 @@ package com.asadmshah.hnclone.cache
 
 enum class Zone(private val k: String) {
 
-    BLOCKED_SESSIONS("blockedsessions:");
+    BLOCKED_SESSIONS("blockedsessions:"),
+    POSTS("posts:"),
+    USERS("users:"),
+    COMMENT_TREES("commenttrees:"),
+    FEED_PAGES("feedpages:");
+
+    private val prefix = k.toByteArray()
 
     internal fun key(s: String): String {
         return k.plus(s)
     }
 
-}
\ No newline at end of file
+    fun bytes(s: String): ByteArray {
+        for (c in s) {
+            if (c.toInt() >= 0x80) return concat(s.toByteArray())
+        }
+
+        val bytes = prefix.copyOf(prefix.size + s.length)
+        for (i in 0 until s.length) {
+            bytes[prefix.size + i] = s[i].toByte()
+        }
+        return bytes
+    }
+
+    internal fun channel(): String {
+        return k.plus("events")
+    }
+
+    private fun concat(s: ByteArray): ByteArray {
+        val bytes = prefix.copyOf(prefix.size + s.size)
+        System.arraycopy(s, 0, bytes, prefix.size, s.size)
+        return bytes
+    }
+
+}
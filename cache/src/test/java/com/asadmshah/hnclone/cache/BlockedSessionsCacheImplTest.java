@@ -41,6 +41,45 @@ public class BlockedSessionsCacheImplTest {
         assertThat(blockedCache.contains(1, LocalDateTime.now().plusSeconds(1))).isFalse();
     }
 
+    @Test
+    public void shouldContainSessionBlockedByOtherInstance() throws Exception {
+        BlockedSessionsCacheImpl otherCache = new BlockedSessionsCacheImpl(cache, 1, TimeUnit.MINUTES);
+        otherCache.start();
+
+        blockedCache.put(2);
+        Thread.sleep(100);
+
+        assertThat(otherCache.contains(2, LocalDateTime.now().minusSeconds(1))).isTrue();
+
+        otherCache.stop();
+    }
+
+    @Test
+    public void shouldResyncFromCache() throws Exception {
+        blockedCache.put(3);
+
+        BlockedSessionsCacheImpl otherCache = new BlockedSessionsCacheImpl(cache, 1, TimeUnit.MINUTES);
+
+        assertThat(otherCache.contains(3, LocalDateTime.now().minusSeconds(5))).isFalse();
+
+        otherCache.resync();
+
+        assertThat(otherCache.contains(3, LocalDateTime.now().minusSeconds(5))).isTrue();
+    }
+
+    @Test
+    public void shouldDropExpiredEntriesOnResync() throws Exception {
+        cache.putField(Zone.BLOCKED_SESSIONS, "all", "4", LocalDateTime.now().minusMinutes(5), LocalDateTime.now().plusMinutes(1));
+        cache.putField(Zone.BLOCKED_SESSIONS, "all", "5", LocalDateTime.now(), LocalDateTime.now().plusMinutes(1));
+
+        BlockedSessionsCacheImpl otherCache = new BlockedSessionsCacheImpl(cache, 1, TimeUnit.MINUTES);
+        otherCache.resync();
+
+        assertThat(otherCache.contains(4, LocalDateTime.now().minusMinutes(10))).isFalse();
+        assertThat(otherCache.contains(5, LocalDateTime.now().minusMinutes(10))).isTrue();
+        assertThat(cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, "all")).doesNotContainKey("4");
+    }
+
     @Test
     public void shouldNotContainBecauseOfEviction() throws Exception {
         blockedCache.put(1);
@@ -1,5 +1,7 @@
 package com.asadmshah.hnclone.cache;
 
+import com.asadmshah.hnclone.models.Post;
+import com.google.common.collect.ImmutableMap;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.builder.fluent.Configurations;
 import org.junit.After;
@@ -7,6 +9,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -39,4 +46,75 @@ public class CacheImplTest {
         assertThat(cache.getLong(Zone.BLOCKED_SESSIONS, "foo")).isNull();
     }
 
+    @Test
+    public void getPutLongAsync_shouldComplete() throws Exception {
+        cache.putAsync(Zone.BLOCKED_SESSIONS, "foo", 11L).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertThat(cache.getLongAsync(Zone.BLOCKED_SESSIONS, "foo").toCompletableFuture().get(1, TimeUnit.SECONDS)).isEqualTo(11L);
+        assertThat(cache.getLongAsync(Zone.BLOCKED_SESSIONS, "missing").toCompletableFuture().get(1, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    public void getPutLongs_shouldComplete() throws Exception {
+        cache.putLongs(Zone.BLOCKED_SESSIONS, ImmutableMap.of("a", 1L, "b", 2L));
+
+        Map<String, Long> values = cache.getLongs(Zone.BLOCKED_SESSIONS, Arrays.asList("a", "b", "missing"));
+
+        assertThat(values).containsExactly("a", 1L, "b", 2L);
+    }
+
+    @Test
+    public void getPutLongsExpires_shouldComplete() throws Exception {
+        cache.putLongs(Zone.BLOCKED_SESSIONS, ImmutableMap.of("c", 3L, "d", 4L), LocalDateTime.now().plusSeconds(1));
+
+        assertThat(cache.getLongs(Zone.BLOCKED_SESSIONS, Arrays.asList("c", "d"))).hasSize(2);
+
+        Thread.sleep(1100);
+
+        assertThat(cache.getLongs(Zone.BLOCKED_SESSIONS, Arrays.asList("c", "d"))).isEmpty();
+    }
+
+    @Test
+    public void putField_shouldExpireWithKey() throws Exception {
+        LocalDateTime value = LocalDateTime.ofEpochSecond(1000, 0, ZoneOffset.UTC);
+        cache.putField(Zone.BLOCKED_SESSIONS, "fields", "e", value, LocalDateTime.now().plusSeconds(1));
+        cache.putField(Zone.BLOCKED_SESSIONS, "fields", "f", value, LocalDateTime.now().plusSeconds(1));
+        cache.deleteFields(Zone.BLOCKED_SESSIONS, "fields", Collections.singletonList("f"));
+
+        assertThat(cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, "fields")).containsExactly("e", value);
+
+        Thread.sleep(1100);
+
+        assertThat(cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, "fields")).isEmpty();
+    }
+
+    @Test
+    public void getPutMessage_shouldComplete() throws Exception {
+        Post post = Post.newBuilder().setId(1).setTitle("title").build();
+
+        cache.put(Zone.POSTS, "1", post, 1, TimeUnit.SECONDS);
+
+        assertThat(cache.get(Zone.POSTS, "1", Post.parser())).isEqualTo(post);
+        assertThat(cache.get(Zone.POSTS, "missing", Post.parser())).isNull();
+
+        cache.delete(Zone.POSTS, "1");
+
+        assertThat(cache.get(Zone.POSTS, "1", Post.parser())).isNull();
+    }
+
+    @Test
+    public void getPutMessages_shouldComplete() throws Exception {
+        Post post1 = Post.newBuilder().setId(1).setTitle("a").build();
+        Post post2 = Post.newBuilder().setId(2).setTitle("b").build();
+
+        cache.putMany(Zone.POSTS, ImmutableMap.of("1", post1, "2", post2), 1, TimeUnit.SECONDS);
+
+        Map<String, Post> values = cache.getMany(Zone.POSTS, Arrays.asList("1", "2", "missing"), Post.parser());
+
+        assertThat(values).containsExactly("1", post1, "2", post2);
+
+        Thread.sleep(1100);
+
+        assertThat(cache.getMany(Zone.POSTS, Arrays.asList("1", "2"), Post.parser())).isEmpty();
+    }
+
 }
@@ -0,0 +1,35 @@
+package com.asadmshah.hnclone.cache;
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void increment_shouldSaturateAtFifteen() throws Exception {
+        FrequencySketch sketch = new FrequencySketch(512);
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(42);
+        }
+
+        assertThat(sketch.frequency(42)).isEqualTo(15);
+        assertThat(sketch.frequency(43)).isEqualTo(0);
+    }
+
+    @Test
+    public void increment_shouldHalveCountsAfterSample() throws Exception {
+        FrequencySketch sketch = new FrequencySketch(16);
+
+        for (int i = 0; i < 8; i++) {
+            sketch.increment(7);
+        }
+        for (int i = 1000; i < 1200; i++) {
+            sketch.increment(i);
+        }
+
+        assertThat(sketch.frequency(7)).isLessThan(8);
+    }
+
+}
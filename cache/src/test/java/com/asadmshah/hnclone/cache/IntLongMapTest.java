@@ -0,0 +1,65 @@
+package com.asadmshah.hnclone.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class IntLongMapTest {
+
+    @Test
+    public void get_shouldReturnNoValueWhenMissing() throws Exception {
+        IntLongMap map = new IntLongMap();
+
+        assertThat(map.get(1)).isEqualTo(IntLongMap.NO_VALUE);
+        assertThat(map.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void put_shouldGrowAndOverwrite() throws Exception {
+        IntLongMap map = new IntLongMap();
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i * 10L);
+        }
+        map.put(500, 1L);
+        map.put(-5, 2L);
+
+        assertThat(map.getSize()).isEqualTo(1001);
+        assertThat(map.get(0)).isEqualTo(0L);
+        assertThat(map.get(999)).isEqualTo(9990L);
+        assertThat(map.get(500)).isEqualTo(1L);
+        assertThat(map.get(-5)).isEqualTo(2L);
+        assertThat(map.get(1000)).isEqualTo(IntLongMap.NO_VALUE);
+    }
+
+    @Test
+    public void putAll_shouldMergeExisting() throws Exception {
+        IntLongMap map = new IntLongMap();
+        map.put(1, 10L);
+        map.put(2, 20L);
+
+        map.putAll(ImmutableMap.of(1, 5L, 2, 25L, 3, 30L), Math::max);
+
+        assertThat(map.getSize()).isEqualTo(3);
+        assertThat(map.get(1)).isEqualTo(10L);
+        assertThat(map.get(2)).isEqualTo(25L);
+        assertThat(map.get(3)).isEqualTo(30L);
+    }
+
+    @Test
+    public void removeIf_shouldKeepProbeChainsIntact() throws Exception {
+        IntLongMap map = new IntLongMap();
+        for (int i = 1; i <= 100; i++) {
+            map.put(i, i);
+        }
+
+        map.removeIf((k, v) -> v % 2 == 0);
+
+        assertThat(map.getSize()).isEqualTo(50);
+        for (int i = 1; i <= 100; i++) {
+            assertThat(map.get(i)).isEqualTo(i % 2 == 0 ? IntLongMap.NO_VALUE : i);
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.asadmshah.hnclone.cache;
+
+import com.asadmshah.hnclone.models.Post;
+import com.google.common.collect.ImmutableMap;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LocalCacheImplTest {
+
+    private AtomicLong time;
+    private LocalCacheImpl cache;
+
+    @Before
+    public void setUp() throws Exception {
+        time = new AtomicLong(1000);
+        cache = new LocalCacheImpl(100, 0, () -> time.get());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.stop();
+    }
+
+    @Test
+    public void getPutLong_shouldComplete() throws Exception {
+        cache.put(Zone.BLOCKED_SESSIONS, "foo", 10L);
+
+        assertThat(cache.getLong(Zone.BLOCKED_SESSIONS, "foo")).isEqualTo(10L);
+        assertThat(cache.getLong(Zone.BLOCKED_SESSIONS, "missing")).isNull();
+        assertThat(cache.getLong(Zone.USERS, "foo")).isNull();
+    }
+
+    @Test
+    public void getPutLocalDateTime_shouldComplete() throws Exception {
+        LocalDateTime value = LocalDateTime.ofEpochSecond(1000, 0, ZoneOffset.UTC);
+        cache.put(Zone.BLOCKED_SESSIONS, "foo", value);
+
+        assertThat(cache.getLocalDateTime(Zone.BLOCKED_SESSIONS, "foo")).isEqualTo(value);
+    }
+
+    @Test
+    public void putField_shouldCollectFieldsUnderOneKey() throws Exception {
+        LocalDateTime value = LocalDateTime.ofEpochSecond(1000, 0, ZoneOffset.UTC);
+        LocalDateTime exp = LocalDateTime.now().plusSeconds(60);
+        cache.putField(Zone.BLOCKED_SESSIONS, "all", "foo", value, exp);
+        cache.putField(Zone.BLOCKED_SESSIONS, "all", "bar", value.plusSeconds(1), exp);
+
+        assertThat(cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, "all")).containsExactly("foo", value, "bar", value.plusSeconds(1));
+
+        cache.deleteFields(Zone.BLOCKED_SESSIONS, "all", Collections.singletonList("foo"));
+
+        assertThat(cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, "all")).containsExactly("bar", value.plusSeconds(1));
+        assertThat(cache.getLocalDateTimeFields(Zone.BLOCKED_SESSIONS, "missing")).isEmpty();
+    }
+
+    @Test
+    public void put_shouldExpireAfterDeadline() throws Exception {
+        cache.put(Zone.BLOCKED_SESSIONS, "foo", 10L, LocalDateTime.now().plusSeconds(60));
+        cache.put(Zone.POSTS, "1", post(1), 2, TimeUnit.SECONDS);
+
+        time.addAndGet(1999);
+        assertThat(cache.get(Zone.POSTS, "1", Post.parser())).isEqualTo(post(1));
+
+        time.addAndGet(1);
+        assertThat(cache.get(Zone.POSTS, "1", Post.parser())).isNull();
+        assertThat(cache.getLong(Zone.BLOCKED_SESSIONS, "foo")).isEqualTo(10L);
+
+        time.addAndGet(TimeUnit.SECONDS.toMillis(60));
+        assertThat(cache.getLong(Zone.BLOCKED_SESSIONS, "foo")).isNull();
+    }
+
+    @Test
+    public void cleanUp_shouldReclaimExpiredEntries() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            cache.put(Zone.POSTS, Integer.toString(i), post(i), 1 + i, TimeUnit.SECONDS);
+        }
+        cache.put(Zone.POSTS, "forever", post(100), 0, TimeUnit.SECONDS);
+
+        time.addAndGet(TimeUnit.SECONDS.toMillis(25));
+        cache.cleanUp();
+        assertThat(cache.getEstimatedSize()).isEqualTo(26);
+
+        time.addAndGet(TimeUnit.HOURS.toMillis(3));
+        cache.cleanUp();
+        assertThat(cache.getEstimatedSize()).isEqualTo(1);
+        assertThat(cache.get(Zone.POSTS, "forever", Post.parser())).isEqualTo(post(100));
+    }
+
+    @Test
+    public void put_shouldStayWithinMaximumSize() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Zone.BLOCKED_SESSIONS, Integer.toString(i), i);
+        }
+
+        assertThat(cache.getEstimatedSize()).isEqualTo(100);
+    }
+
+    @Test
+    public void put_shouldKeepFrequentlyReadEntries() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            cache.put(Zone.BLOCKED_SESSIONS, "hot" + i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getLong(Zone.BLOCKED_SESSIONS, "hot" + i);
+            }
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Zone.BLOCKED_SESSIONS, "cold" + i, i);
+        }
+
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getLong(Zone.BLOCKED_SESSIONS, "hot" + i) != null) retained++;
+        }
+        assertThat(retained).isEqualTo(50);
+    }
+
+    @Test
+    public void getPutMessages_shouldComplete() throws Exception {
+        cache.putMany(Zone.POSTS, ImmutableMap.of("1", post(1), "2", post(2)), 1, TimeUnit.MINUTES);
+        cache.putLongs(Zone.BLOCKED_SESSIONS, ImmutableMap.of("a", 1L));
+
+        assertThat(cache.getMany(Zone.POSTS, Arrays.asList("1", "2", "3"), Post.parser())).containsExactly("1", post(1), "2", post(2));
+        assertThat(cache.getLongs(Zone.BLOCKED_SESSIONS, Arrays.asList("a", "b"))).containsExactly("a", 1L);
+
+        cache.delete(Zone.POSTS, "1");
+
+        assertThat(cache.get(Zone.POSTS, "1", Post.parser())).isNull();
+        assertThat(cache.getEstimatedSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void publish_shouldDeliverToZoneSubscribers() throws Exception {
+        TestSubscriber<String> users = cache.subscribe(Zone.USERS).test();
+        TestSubscriber<String> posts = cache.subscribe(Zone.POSTS).test();
+
+        cache.publish(Zone.USERS, "1");
+
+        users.assertValues("1");
+        posts.assertNoValues();
+    }
+
+    private static Post post(int id) {
+        return Post.newBuilder().setId(id).setTitle("title").build();
+    }
+
+}
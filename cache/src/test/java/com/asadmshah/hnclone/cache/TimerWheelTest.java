@@ -0,0 +1,53 @@
+package com.asadmshah.hnclone.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TimerWheelTest {
+
+    @Test
+    public void advance_shouldExpireDueTimersAcrossLevels() throws Exception {
+        List<Long> expired = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(0, timer -> {
+            expired.add(timer.getExpiresAt());
+            return null;
+        });
+
+        long[] deadlines = {500, 3000, TimeUnit.MINUTES.toMillis(5), TimeUnit.HOURS.toMillis(3), TimeUnit.DAYS.toMillis(4)};
+        for (long deadline : deadlines) {
+            wheel.schedule(new TimerWheel.Timer(deadline));
+        }
+
+        wheel.advance(2000);
+        assertThat(expired).containsExactly(500L);
+
+        wheel.advance(TimeUnit.MINUTES.toMillis(6));
+        assertThat(expired).containsExactly(500L, 3000L, TimeUnit.MINUTES.toMillis(5)).inOrder();
+
+        wheel.advance(TimeUnit.DAYS.toMillis(5));
+        assertThat(expired).hasSize(5);
+    }
+
+    @Test
+    public void deschedule_shouldCancelTimer() throws Exception {
+        List<Long> expired = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(0, timer -> {
+            expired.add(timer.getExpiresAt());
+            return null;
+        });
+
+        TimerWheel.Timer timer = new TimerWheel.Timer(1500);
+        wheel.schedule(timer);
+        wheel.deschedule(timer);
+        wheel.deschedule(timer);
+
+        wheel.advance(5000);
+        assertThat(expired).isEmpty();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.asadmshah.hnclone.cache;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ZoneTest {
+
+    @Test
+    public void bytes_shouldPrefixAsciiKey() throws Exception {
+        assertThat(Zone.POSTS.bytes("123")).isEqualTo("posts:123".getBytes(StandardCharsets.UTF_8));
+        assertThat(Zone.FEED_PAGES.bytes("")).isEqualTo("feedpages:".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void bytes_shouldEncodeNonAsciiAsUtf8() throws Exception {
+        assertThat(Zone.USERS.bytes("caf\u00e9")).isEqualTo("users:caf\u00e9".getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -14,6 +14,8 @@ interface CommentsServiceClient {
 
     fun read(postId: Int, commentId: Int): Single<Comment>
 
+    fun readBatch(commentIds: List<Int>): Flowable<Comment>
+
     fun readStream(postId: Int): Flowable<Comment>
 
     fun readStream(postId: Int, commentId: Int): Flowable<Comment>
@@ -26,6 +28,8 @@ interface CommentsServiceClient {
 
     fun subscribeToCommentsStream(postId: Int): Flowable<Comment>
 
+    fun subscribeToCommentsStream(postId: Int, resumeFrom: String): Flowable<Comment>
+
     fun subscribeToCommentScoresStream(postId: Int): Flowable<CommentScore>
 
 }
\ No newline at end of file
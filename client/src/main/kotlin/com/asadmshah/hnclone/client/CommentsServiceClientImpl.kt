@@ -54,6 +54,21 @@ internal class CommentsServiceClientImpl(private val sessions: SessionStorage,
                 .firstOrError()
     }
 
+    override fun readBatch(commentIds: List<Int>): Flowable<Comment> {
+        return readBatch(CommentReadBatchRequest
+                .newBuilder()
+                .addAllCommentIds(commentIds)
+                .build())
+    }
+
+    internal fun readBatch(request: CommentReadBatchRequest): Flowable<Comment> {
+        val f1 = sessionsClient.refresh(force = false, nullable = true).toFlowable<Comment>()
+        val f2 = baseClient.call(sessions, CommentsServiceGrpc.METHOD_READ_BATCH, request, BackpressureStrategy.BUFFER)
+
+        return Flowable.concat(f1, f2)
+                .onStatusRuntimeErrorResumeNext()
+    }
+
     override fun readStream(postId: Int): Flowable<Comment> {
         return readStream(CommentReadListFromPostRequest
                 .newBuilder()
@@ -144,6 +159,14 @@ internal class CommentsServiceClientImpl(private val sessions: SessionStorage,
                 .build())
     }
 
+    override fun subscribeToCommentsStream(postId: Int, resumeFrom: String): Flowable<Comment> {
+        return subscribeToCommentsStream(CommentStreamRequest
+                .newBuilder()
+                .setPostId(postId)
+                .setResumeFrom(resumeFrom)
+                .build())
+    }
+
     internal fun subscribeToCommentsStream(request: CommentStreamRequest): Flowable<Comment> {
         val f1 = sessionsClient.refresh(force = false, nullable = true).toFlowable<Comment>()
         val f2 = baseClient.call(sessions, CommentsServiceGrpc.METHOD_COMMENT_STREAM, request, BackpressureStrategy.LATEST)
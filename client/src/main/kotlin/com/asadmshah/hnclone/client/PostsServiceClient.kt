@@ -3,6 +3,7 @@ package com.asadmshah.hnclone.client
 import com.asadmshah.hnclone.models.Post
 import com.asadmshah.hnclone.models.PostScore
 import com.asadmshah.hnclone.services.PostScoreResponse
+import com.google.protobuf.ByteString
 import io.reactivex.Flowable
 import io.reactivex.Single
 
@@ -12,6 +13,8 @@ interface PostsServiceClient {
 
     fun read(id: Int): Single<Post>
 
+    fun readBatch(ids: List<Int>): Flowable<Post>
+
     fun readNewStream(lim: Int, off: Int): Flowable<Post>
 
     fun readNewStream(userId: Int, lim: Int, off: Int): Flowable<Post>
@@ -20,6 +23,14 @@ interface PostsServiceClient {
 
     fun readHotStream(userId: Int, lim: Int, off: Int): Flowable<Post>
 
+    fun readNewStream(lim: Int, cursor: ByteString): Flowable<Post>
+
+    fun readNewStream(userId: Int, lim: Int, cursor: ByteString): Flowable<Post>
+
+    fun readHotStream(lim: Int, cursor: ByteString): Flowable<Post>
+
+    fun readHotStream(userId: Int, lim: Int, cursor: ByteString): Flowable<Post>
+
     fun voteIncrement(id: Int): Single<PostScoreResponse>
 
     fun voteDecrement(id: Int): Single<PostScoreResponse>
@@ -30,4 +41,6 @@ interface PostsServiceClient {
 
     fun subscribeToPostScoresStream(id: Int): Flowable<PostScore>
 
+    fun subscribeToPostScoresStream(id: Int, resumeFrom: String): Flowable<PostScore>
+
 }
\ No newline at end of file
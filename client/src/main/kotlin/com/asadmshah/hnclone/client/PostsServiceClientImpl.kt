@@ -3,6 +3,7 @@ package com.asadmshah.hnclone.client
 import com.asadmshah.hnclone.models.Post
 import com.asadmshah.hnclone.models.PostScore
 import com.asadmshah.hnclone.services.*
+import com.google.protobuf.ByteString
 import io.reactivex.BackpressureStrategy
 import io.reactivex.Flowable
 import io.reactivex.Single
@@ -47,6 +48,22 @@ internal class PostsServiceClientImpl(private val sessions: SessionStorage,
                 .onStatusRuntimeErrorResumeNext()
     }
 
+    override fun readBatch(ids: List<Int>): Flowable<Post> {
+        return readBatch(PostReadBatchRequest
+                .newBuilder()
+                .addAllIds(ids)
+                .build())
+    }
+
+    internal fun readBatch(request: PostReadBatchRequest): Flowable<Post> {
+        val f1 = sessionsClient.refresh(force = false, nullable = true).toFlowable<Post>()
+        val f2 = baseClient.call(sessions, PostsServiceGrpc.METHOD_READ_BATCH, request, BackpressureStrategy.BUFFER)
+
+        return Flowable
+                .concat(f1, f2)
+                .onStatusRuntimeErrorResumeNext()
+    }
+
     override fun readNewStream(lim: Int, off: Int): Flowable<Post> {
         return readNewStream(PostReadListRequest
                 .newBuilder()
@@ -117,6 +134,40 @@ internal class PostsServiceClientImpl(private val sessions: SessionStorage,
                 .onStatusRuntimeErrorResumeNext()
     }
 
+    override fun readNewStream(lim: Int, cursor: ByteString): Flowable<Post> {
+        return readNewStream(PostReadListRequest
+                .newBuilder()
+                .setLimit(lim)
+                .setCursor(cursor)
+                .build())
+    }
+
+    override fun readNewStream(userId: Int, lim: Int, cursor: ByteString): Flowable<Post> {
+        return readNewStream(PostReadListFromUserRequest
+                .newBuilder()
+                .setId(userId)
+                .setLimit(lim)
+                .setCursor(cursor)
+                .build())
+    }
+
+    override fun readHotStream(lim: Int, cursor: ByteString): Flowable<Post> {
+        return readHotStream(PostReadListRequest
+                .newBuilder()
+                .setLimit(lim)
+                .setCursor(cursor)
+                .build())
+    }
+
+    override fun readHotStream(userId: Int, lim: Int, cursor: ByteString): Flowable<Post> {
+        return readHotStream(PostReadListFromUserRequest
+                .newBuilder()
+                .setId(userId)
+                .setLimit(lim)
+                .setCursor(cursor)
+                .build())
+    }
+
     override fun voteIncrement(id: Int): Single<PostScoreResponse> {
         return voteIncrement(PostVoteIncrementRequest
                 .newBuilder()
@@ -179,6 +230,14 @@ internal class PostsServiceClientImpl(private val sessions: SessionStorage,
                 .build())
     }
 
+    override fun subscribeToPostScoresStream(id: Int, resumeFrom: String): Flowable<PostScore> {
+        return subscribeToPostScoresStream(PostScoreChangeRequest
+                .newBuilder()
+                .setId(id)
+                .setResumeFrom(resumeFrom)
+                .build())
+    }
+
     internal fun subscribeToPostScoresStream(request: PostScoreChangeRequest): Flowable<PostScore> {
         val f1 = sessionsClient.refresh(force = false, nullable = true).toFlowable<PostScore>()
         val f2 = baseClient.call(sessions, PostsServiceGrpc.METHOD_POST_SCORE_CHANGE_STREAM, request, BackpressureStrategy.LATEST)
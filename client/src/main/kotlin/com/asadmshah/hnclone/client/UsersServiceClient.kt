@@ -2,6 +2,7 @@ package com.asadmshah.hnclone.client
 
 import com.asadmshah.hnclone.models.User
 import io.reactivex.Completable
+import io.reactivex.Flowable
 import io.reactivex.Single
 
 interface UsersServiceClient {
@@ -10,6 +11,8 @@ interface UsersServiceClient {
 
     fun read(id: Int): Single<User>
 
+    fun readBatch(ids: List<Int>): Flowable<User>
+
     fun updateAbout(about: String): Single<String>
 
     fun updatePassword(password: String): Completable
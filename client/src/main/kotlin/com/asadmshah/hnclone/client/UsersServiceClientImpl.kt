@@ -48,6 +48,22 @@ UsersServiceClientImpl(private val sessions: SessionStorage,
                 .onStatusRuntimeErrorResumeNext()
     }
 
+    override fun readBatch(ids: List<Int>): Flowable<User> {
+        return readBatch(UserReadBatchRequest
+                .newBuilder()
+                .addAllIds(ids)
+                .build())
+    }
+
+    internal fun readBatch(request: UserReadBatchRequest): Flowable<User> {
+        val f1 = sessionsClient.refresh(force = false, nullable = true).toFlowable<User>()
+        val f2 = baseClient.call(sessions, UsersServiceGrpc.METHOD_READ_BATCH, request, BackpressureStrategy.BUFFER)
+
+        return Flowable
+                .concat(f1, f2)
+                .onStatusRuntimeErrorResumeNext()
+    }
+
     override fun updateAbout(about: String): Single<String> {
         return updateAbout(UserUpdateAboutRequest
                 .newBuilder()
@@ -3,13 +3,17 @@ package com.asadmshah.hnclone.client;
 import com.asadmshah.hnclone.cache.BlockedSessionsCache;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
 import com.asadmshah.hnclone.database.CommentsDatabase;
+import com.asadmshah.hnclone.database.PostsDatabase;
 import com.asadmshah.hnclone.models.Comment;
 import com.asadmshah.hnclone.models.CommentScore;
 import com.asadmshah.hnclone.models.RequestSession;
 import com.asadmshah.hnclone.models.SessionToken;
+import com.asadmshah.hnclone.pubsub.Conflator;
 import com.asadmshah.hnclone.pubsub.PubSub;
 import com.asadmshah.hnclone.server.ServerComponent;
 import com.asadmshah.hnclone.server.endpoints.CommentsServiceEndpoint;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.votes.DirectVotePipelineImpl;
 import com.asadmshah.hnclone.services.CommentScoreResponse;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
@@ -37,6 +41,7 @@ public class CommentsServiceClientImplTest {
     @Mock private SessionManager sessionManager;
     @Mock private CommentsDatabase commentsDatabase;
     @Mock private ServerComponent component;
+    @Mock private PostsDatabase postsDatabase;
     @Mock private SessionStorage sessionStorage;
     @Mock private BlockedSessionsCache blockedSessionsCache;
     @Mock private PubSub pubSub;
@@ -50,7 +55,10 @@ public class CommentsServiceClientImplTest {
         when(component.commentsDatabase()).thenReturn(commentsDatabase);
         when(component.sessionManager()).thenReturn(sessionManager);
         when(component.blockedSessionsCache()).thenReturn(blockedSessionsCache);
+        when(component.verifiedSessionCache()).thenReturn(new VerifiedSessionCache(0));
         when(component.pubSub()).thenReturn(pubSub);
+        when(component.scoreConflator()).thenReturn(new Conflator(0, TimeUnit.MILLISECONDS));
+        when(component.votePipeline()).thenReturn(new DirectVotePipelineImpl(postsDatabase, commentsDatabase));
 
         baseClient = TestBaseClient.create(CommentsServiceEndpoint.create(component));
         sessionsClient = new SessionsServiceClientImpl(sessionStorage, baseClient);
@@ -220,7 +228,7 @@ public class CommentsServiceClientImplTest {
             comments.add(Comment.newBuilder().setPostId(i % 2 + 1).setId(i+1).build());
         }
 
-        when(pubSub.subComments()).thenReturn(Flowable.fromIterable(comments).delay(100, TimeUnit.MILLISECONDS));
+        when(pubSub.subComments(1)).thenReturn(Flowable.fromIterable(comments).filter(it -> it.getPostId() == 1).delay(100, TimeUnit.MILLISECONDS));
 
         List<Comment> expComments = Observable.fromIterable(comments)
                 .filter(new Predicate<Comment>() {
@@ -249,7 +257,7 @@ public class CommentsServiceClientImplTest {
             commentScores.add(CommentScore.newBuilder().setPostId(i % 2 + 1).setCommentId(i+1).build());
         }
 
-        when(pubSub.subCommentScores()).thenReturn(Flowable.fromIterable(commentScores).delay(100, TimeUnit.MILLISECONDS));
+        when(pubSub.subCommentScores(1)).thenReturn(Flowable.fromIterable(commentScores).filter(it -> it.getPostId() == 1).delay(100, TimeUnit.MILLISECONDS));
 
         List<CommentScore> expCommentScores = Observable.fromIterable(commentScores)
                 .filter(new Predicate<CommentScore>() {
@@ -1,16 +1,25 @@
 package com.asadmshah.hnclone.client;
 
 import com.asadmshah.hnclone.cache.BlockedSessionsCache;
+import com.asadmshah.hnclone.cache.Zone;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
+import com.asadmshah.hnclone.database.CommentsDatabase;
 import com.asadmshah.hnclone.database.PostsDatabase;
 import com.asadmshah.hnclone.database.SessionsDatabase;
 import com.asadmshah.hnclone.models.Post;
 import com.asadmshah.hnclone.models.PostScore;
 import com.asadmshah.hnclone.models.RequestSession;
 import com.asadmshah.hnclone.models.SessionToken;
+import com.asadmshah.hnclone.pubsub.Conflator;
 import com.asadmshah.hnclone.pubsub.PubSub;
 import com.asadmshah.hnclone.server.ServerComponent;
 import com.asadmshah.hnclone.server.endpoints.PostsServiceEndpoint;
+import com.asadmshah.hnclone.server.feeds.FeedCacheImpl;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.reads.ReadCoalescer;
+import com.asadmshah.hnclone.server.reads.ReadThroughCache;
+import com.asadmshah.hnclone.server.reads.SingleFlight;
+import com.asadmshah.hnclone.server.votes.DirectVotePipelineImpl;
 import com.asadmshah.hnclone.services.PostReadListFromUserRequest;
 import com.asadmshah.hnclone.services.PostReadListRequest;
 import com.asadmshah.hnclone.services.PostReadRequest;
@@ -27,6 +36,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -43,6 +53,7 @@ public class PostsServiceClientImplTest {
     @Mock private PostsDatabase postsDatabase;
     @Mock private SessionsDatabase sessionsDatabase;
     @Mock private ServerComponent component;
+    @Mock private CommentsDatabase commentsDatabase;
     @Mock private SessionStorage sessionStorage;
     @Mock private BlockedSessionsCache blockedSessionsCache;
     @Mock private PubSub pubSub;
@@ -56,7 +67,14 @@ public class PostsServiceClientImplTest {
         when(component.postsDatabase()).thenReturn(postsDatabase);
         when(component.sessionManager()).thenReturn(sessionManager);
         when(component.blockedSessionsCache()).thenReturn(blockedSessionsCache);
+        when(component.verifiedSessionCache()).thenReturn(new VerifiedSessionCache(0));
         when(component.pubSub()).thenReturn(pubSub);
+        when(component.scoreConflator()).thenReturn(new Conflator(0, TimeUnit.MILLISECONDS));
+        when(component.votePipeline()).thenReturn(new DirectVotePipelineImpl(postsDatabase, commentsDatabase));
+        when(component.feedCache()).thenReturn(new FeedCacheImpl(postsDatabase, pubSub, 100, 1, 1, TimeUnit.SECONDS));
+        when(component.postReads()).thenReturn(new ReadCoalescer<>(0, TimeUnit.MILLISECONDS, 1, postsDatabase::read, postsDatabase::readMany));
+        when(component.postCache()).thenReturn(new ReadThroughCache<>(null, Zone.POSTS, Post.parser(), 0, 0, 0, TimeUnit.MILLISECONDS, Post::getId, id -> null, ids -> Collections.emptyMap()));
+        when(component.singleFlight()).thenReturn(new SingleFlight(true));
 
         baseClient = TestBaseClient.create(PostsServiceEndpoint.create(component));
         sessionsClient = new SessionsServiceClientImpl(sessionStorage, baseClient);
@@ -95,6 +113,20 @@ public class PostsServiceClientImplTest {
         assertThat(pidCaptor.getValue()).isEqualTo(20);
     }
 
+    @Test
+    public void readBatch_shouldCompleteNotLoggedIn() throws Exception {
+        Post expPost = Post
+                .newBuilder()
+                .setId(20)
+                .build();
+
+        when(postsDatabase.readMany(anyInt(), any(int[].class))).thenReturn(Collections.singletonMap(expPost.getId(), expPost));
+
+        List<Post> resPosts = postsServiceClient.readBatch(Arrays.asList(10, 20)).toList().blockingGet();
+
+        assertThat(resPosts).containsExactly(expPost);
+    }
+
     @Test
     public void readSinglePost_shouldCompleteLoggedIn() throws Exception {
         RequestSession requestSession = RequestSession
@@ -126,7 +158,8 @@ public class PostsServiceClientImplTest {
 
         assertThat(resPost).isEqualTo(expPost);
 
-        verify(postsDatabase).read(requestSession.getId(), request.getId());
+        verify(postsDatabase).read(-1, request.getId());
+        verify(postsDatabase).readVotes(requestSession.getId(), new int[] { request.getId() });
     }
 
     @Test
@@ -540,7 +573,7 @@ public class PostsServiceClientImplTest {
 
         PostScore expScore = scores.get(5);
 
-        when(pubSub.subPostScore()).thenReturn(Flowable.fromIterable(scores).delay(16, TimeUnit.MILLISECONDS));
+        when(pubSub.subPostScore(expScore.getId())).thenReturn(Flowable.just(expScore).delay(16, TimeUnit.MILLISECONDS));
 
         PostScore resScore = postsServiceClient.subscribeToPostScoresStream(expScore.getId()).blockingFirst();
 
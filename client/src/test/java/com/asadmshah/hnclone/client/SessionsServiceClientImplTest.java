@@ -23,6 +23,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -140,7 +141,7 @@ public class SessionsServiceClientImplTest {
 
     @Test(expected = UserNotFoundStatusException.class)
     public void create_shouldThrowUserNotFoundException() throws Exception {
-        when(usersDatabase.read(anyString(), anyString())).thenReturn(null);
+        when(usersDatabase.readAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
         sessionsClient.create("", "").blockingAwait();
     }
@@ -150,13 +151,13 @@ public class SessionsServiceClientImplTest {
         SessionToken ref = SessionToken.newBuilder().setData(ByteString.copyFrom("ref".getBytes())).build();
         SessionToken req = SessionToken.newBuilder().setData(ByteString.copyFrom("req".getBytes())).build();
 
-        when(usersDatabase.read(anyString(), anyString())).thenReturn(User.getDefaultInstance());
+        when(usersDatabase.readAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(User.getDefaultInstance()));
         when(sessionManager.createRequestToken(anyInt())).thenReturn(req);
         when(sessionManager.createRefreshToken(anyInt())).thenReturn(ref);
 
         sessionsClient.create("username", "password").blockingAwait();
 
-        verify(usersDatabase).read("username", "password");
+        verify(usersDatabase).readAsync("username", "password");
         verify(sessionStorage).putRequestKey(req);
         verify(sessionStorage).putRefreshKey(ref);
     }
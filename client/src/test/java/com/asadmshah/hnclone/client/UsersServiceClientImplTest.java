@@ -1,6 +1,7 @@
 package com.asadmshah.hnclone.client;
 
 import com.asadmshah.hnclone.cache.BlockedSessionsCache;
+import com.asadmshah.hnclone.cache.Zone;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
 import com.asadmshah.hnclone.database.UserExistsException;
 import com.asadmshah.hnclone.database.UsersDatabase;
@@ -10,6 +11,9 @@ import com.asadmshah.hnclone.models.SessionToken;
 import com.asadmshah.hnclone.models.User;
 import com.asadmshah.hnclone.server.ServerComponent;
 import com.asadmshah.hnclone.server.endpoints.UsersServiceEndpoint;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.reads.ReadCoalescer;
+import com.asadmshah.hnclone.server.reads.ReadThroughCache;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -19,6 +23,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -43,6 +49,9 @@ public class UsersServiceClientImplTest {
         when(component.sessionManager()).thenReturn(sessionManager);
         when(component.usersDatabase()).thenReturn(usersDatabase);
         when(component.blockedSessionsCache()).thenReturn(blockedSessionsCache);
+        when(component.verifiedSessionCache()).thenReturn(new VerifiedSessionCache(0));
+        when(component.userReads()).thenReturn(new ReadCoalescer<>(0, TimeUnit.MILLISECONDS, 1, (viewerId, id) -> usersDatabase.read(id), (viewerId, ids) -> usersDatabase.readMany(ids)));
+        when(component.userCache()).thenReturn(new ReadThroughCache<>(null, Zone.USERS, User.parser(), 0, 0, 0, TimeUnit.MILLISECONDS, User::getId, id -> usersDatabase.read(id), usersDatabase::readMany));
 
         baseClient = TestBaseClient.create(UsersServiceEndpoint.create(component));
         sessionsClient = new SessionsServiceClientImpl(sessions, baseClient);
@@ -56,11 +65,11 @@ public class UsersServiceClientImplTest {
 
     @Test
     public void create_shouldComplete() throws Exception {
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenReturn(User.getDefaultInstance());
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(User.getDefaultInstance()));
 
         User user = usersClient.create("username", "password", "").blockingGet();
 
-        verify(usersDatabase).create("username", "password", "");
+        verify(usersDatabase).createAsync("username", "password", "");
 
         assertThat(user).isNotNull();
     }
@@ -87,14 +96,14 @@ public class UsersServiceClientImplTest {
 
     @Test(expected = UsernameExistsStatusException.class)
     public void create_shouldThrowUserExistsException() throws Exception {
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenThrow(UserExistsException.class);
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(failed(new UserExistsException()));
 
         usersClient.create("username", "password", "").blockingGet();
     }
 
     @Test(expected = UnknownStatusException.class)
     public void create_shouldThrowUnknownException() throws Exception {
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenThrow(SQLException.class);
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(failed(new SQLException()));
 
         usersClient.create("username", "password", "").blockingGet();
     }
@@ -151,9 +160,15 @@ public class UsersServiceClientImplTest {
 
         when(sessions.getRequestKey()).thenReturn(requestT);
         when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(requestS);
-        when(usersDatabase.updatePassword(anyInt(), anyString())).thenReturn(true);
+        when(usersDatabase.updatePasswordAsync(anyInt(), anyString())).thenReturn(CompletableFuture.completedFuture(true));
 
         usersClient.updatePassword("password").blockingAwait();
     }
 
+    private static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
 }
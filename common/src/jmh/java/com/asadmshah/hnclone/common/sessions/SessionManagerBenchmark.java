@@ -0,0 +1,52 @@
+package com.asadmshah.hnclone.common.sessions;
+
+import com.asadmshah.hnclone.models.RequestSession;
+import com.asadmshah.hnclone.models.SessionToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 4)
+@Measurement(iterations = 4)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class SessionManagerBenchmark {
+
+    private SessionManager sessionManager;
+    private SessionToken token;
+    private byte[] tokenBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        sessionManager = new SessionManagerImpl("benchmark_req".getBytes(), "benchmark_ref".getBytes());
+        token = sessionManager.createRequestToken(1);
+        tokenBytes = token.toByteArray();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RequestSession verifySingleThread() {
+        return sessionManager.parseRequestToken(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RequestSession verifyContended() {
+        return sessionManager.parseRequestToken(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RequestSession verifyContendedFromBytes() {
+        return sessionManager.parseRequestToken(tokenBytes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public SessionToken signContended() {
+        return sessionManager.createRequestToken(1);
+    }
+
+}
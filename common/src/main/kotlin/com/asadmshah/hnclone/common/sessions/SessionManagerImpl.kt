@@ -5,10 +5,7 @@ import com.asadmshah.hnclone.models.RequestSession
 import com.asadmshah.hnclone.models.SessionToken
 import com.google.protobuf.ByteString
 import com.google.protobuf.InvalidProtocolBufferException
-import java.security.MessageDigest
 import java.util.concurrent.TimeUnit
-import javax.crypto.Mac
-import javax.crypto.spec.SecretKeySpec
 
 internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) : SessionManager {
 
@@ -19,15 +16,8 @@ internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) :
         private val REF_EXPIRE_AFTER = TimeUnit.DAYS.toMillis(90)
     }
 
-    private val reqmac: Mac
-    private val refmac: Mac
-
-    init {
-        reqmac = Mac.getInstance(ALG)
-        reqmac.init(SecretKeySpec(req, ALG))
-        refmac = Mac.getInstance(ALG)
-        refmac.init(SecretKeySpec(ref, ALG))
-    }
+    private val reqsigner = Signer(req, ALG)
+    private val refsigner = Signer(ref, ALG)
 
     override fun createRequestToken(id: Int): SessionToken {
         return createRequestToken(RequestSession
@@ -39,9 +29,8 @@ internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) :
     }
 
     override fun createRequestToken(session: RequestSession): SessionToken {
-        val data = session.toByteArray()
-        val sign = synchronized(reqmac, { reqmac.doFinal(data) })
-        return session(data, sign)
+        val data = session.toByteString()
+        return session(data, reqsigner.sign(data))
     }
 
     override fun parseRequestToken(token: ByteArray): RequestSession {
@@ -50,13 +39,11 @@ internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) :
 
     override fun parseRequestToken(token: SessionToken): RequestSession {
         try {
-            val pa = token.sign.toByteArray()
-            val pb = synchronized(reqmac, { reqmac.doFinal(token.data.toByteArray()) })
-            if (!MessageDigest.isEqual(pa, pb)) {
+            if (!reqsigner.verify(token.data, token.sign)) {
                 throw TamperedTokenException()
             }
 
-            val reqs = RequestSession.parseFrom(token.data.toByteArray())
+            val reqs = RequestSession.parseFrom(token.data)
             if (System.currentTimeMillis() > reqs.expire) {
                 throw ExpiredTokenException()
             }
@@ -77,9 +64,8 @@ internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) :
     }
 
     override fun createRefreshToken(session: RefreshSession): SessionToken {
-        val data = session.toByteArray()
-        val sign = synchronized(refmac, { refmac.doFinal(data) })
-        return session(data, sign)
+        val data = session.toByteString()
+        return session(data, refsigner.sign(data))
     }
 
     override fun parseRefreshToken(token: ByteArray): RefreshSession {
@@ -88,13 +74,11 @@ internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) :
 
     override fun parseRefreshToken(token: SessionToken): RefreshSession {
         try {
-            val pa = token.sign.toByteArray()
-            val pb = synchronized(refmac, { refmac.doFinal(token.data.toByteArray()) })
-            if (!MessageDigest.isEqual(pa, pb)) {
+            if (!refsigner.verify(token.data, token.sign)) {
                 throw TamperedTokenException()
             }
 
-            val reqs = RefreshSession.parseFrom(token.data.toByteArray())
+            val reqs = RefreshSession.parseFrom(token.data)
             if (System.currentTimeMillis() > reqs.expire) {
                 throw ExpiredTokenException()
             }
@@ -105,7 +89,7 @@ internal class SessionManagerImpl constructor(req: ByteArray, ref: ByteArray) :
         }
     }
 
-    internal fun session(data: ByteArray, sign: ByteArray): SessionToken {
-        return SessionToken.newBuilder().setData(ByteString.copyFrom(data)).setSign(ByteString.copyFrom(sign)).build()
+    internal fun session(data: ByteString, sign: ByteString): SessionToken {
+        return SessionToken.newBuilder().setData(data).setSign(sign).build()
     }
 }
\ No newline at end of file
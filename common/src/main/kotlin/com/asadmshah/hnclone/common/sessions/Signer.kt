@@ -0,0 +1,48 @@
+package com.asadmshah.hnclone.common.sessions
+
+import com.google.protobuf.ByteString
+import com.google.protobuf.UnsafeByteOperations
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+internal class Signer(key: ByteArray, private val algorithm: String) {
+
+    private val spec = SecretKeySpec(key, algorithm)
+    private val prototype = create()
+
+    private val macs = object : ThreadLocal<Mac>() {
+        override fun initialValue(): Mac {
+            try {
+                return synchronized(prototype, { prototype.clone() as Mac })
+            } catch (e: CloneNotSupportedException) {
+                return create()
+            }
+        }
+    }
+
+    fun sign(data: ByteString): ByteString {
+        val mac = macs.get()
+        mac.update(data.asReadOnlyByteBuffer())
+        return UnsafeByteOperations.unsafeWrap(mac.doFinal())
+    }
+
+    fun verify(data: ByteString, sign: ByteString): Boolean {
+        val mac = macs.get()
+        mac.update(data.asReadOnlyByteBuffer())
+        val expected = mac.doFinal()
+
+        if (sign.size() != expected.size) return false
+
+        var result = 0
+        for (i in expected.indices) {
+            result = result or (expected[i].toInt() xor sign.byteAt(i).toInt())
+        }
+        return result == 0
+    }
+
+    private fun create(): Mac {
+        val mac = Mac.getInstance(algorithm)
+        mac.init(spec)
+        return mac
+    }
+}
\ No newline at end of file
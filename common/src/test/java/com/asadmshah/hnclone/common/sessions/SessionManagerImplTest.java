@@ -9,6 +9,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -85,6 +90,44 @@ public class SessionManagerImplTest {
         assertThat(exception).isNotNull();
     }
 
+    @Test
+    public void requestToken_shouldCompleteConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    RequestSession exp = requestSession(ThreadLocalRandom.current().nextInt(), System.currentTimeMillis(), System.currentTimeMillis() + 1000);
+                    if (!sm.parseRequestToken(sm.createRequestToken(exp)).equals(exp)) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+
+        for (Future<Boolean> future : futures) {
+            assertThat(future.get()).isTrue();
+        }
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void requestToken_shouldThrowTamperedTokenExceptionForTruncatedSign() throws Exception {
+        SessionToken token = sm.createRequestToken(requestSession(10, System.currentTimeMillis(), System.currentTimeMillis() + 1000));
+        token = token.toBuilder().setSign(token.getSign().substring(1)).build();
+
+        RuntimeException exception = null;
+        try {
+            sm.parseRequestToken(token);
+        } catch (TamperedTokenException e) {
+            exception = e;
+        }
+
+        assertThat(exception).isNotNull();
+    }
+
     @Test
     public void refreshToken_shouldComplete() throws Exception {
         for (int i = 0; i < 10000; i++) {
@@ -0,0 +1,89 @@
+package com.asadmshah.hnclone.database;
+
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.User;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.builder.fluent.Configurations;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 4)
+@Measurement(iterations = 4)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ScoreAggregatorBenchmark {
+
+    private static final int USER_COUNT = 64;
+
+    @Param({"false", "true"})
+    public boolean aggregate;
+
+    private DataSource dataSource;
+    private ScoreAggregatorImpl scores;
+    private PostsDatabase postsDatabase;
+
+    private int[] userIds;
+    private int postId;
+
+    private final AtomicInteger voters = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Voter {
+        int index = -1;
+        int value = 1;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Configuration configuration = new Configurations().properties(ScoreAggregatorBenchmark.class.getClassLoader().getResource("test.properties"));
+        configuration.setProperty("database.pool.size", 16);
+
+        dataSource = new DatabaseModule().providesDataSource(configuration);
+        DataSourceRouter router = new DataSourceRouter(dataSource);
+        scores = new ScoreAggregatorImpl(dataSource, aggregate, 32, 100, TimeUnit.MILLISECONDS);
+        scores.start();
+
+        UsersDatabase usersDatabase = new UsersDatabaseImpl(router);
+        postsDatabase = new PostsDatabaseImpl(router, 50, scores, new WriteNotifier(false));
+
+        String prefix = "Benchmark " + System.nanoTime() + " ";
+        userIds = new int[USER_COUNT];
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = usersDatabase.create(prefix + i, "Password", "");
+            userIds[i] = user.getId();
+        }
+
+        Post post = postsDatabase.create(userIds[0], prefix, "Text", "http://www.test.com");
+        postId = post.getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        scores.stop();
+        ((HikariDataSource) dataSource).close();
+    }
+
+    @Benchmark
+    public Integer contendedVote(Voter voter) {
+        if (voter.index < 0) {
+            voter.index = voters.getAndIncrement() % USER_COUNT;
+        }
+
+        voter.value = -voter.value;
+
+        int userId = userIds[voter.index];
+        if (voter.value > 0) {
+            return postsDatabase.incrementScore(userId, postId);
+        } else {
+            return postsDatabase.decrementScore(userId, postId);
+        }
+    }
+
+}
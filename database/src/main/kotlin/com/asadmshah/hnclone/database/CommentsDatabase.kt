@@ -1,6 +1,7 @@
 package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.Comment
+import com.asadmshah.hnclone.models.Vote
 import io.reactivex.Flowable
 
 interface CommentsDatabase {
@@ -11,6 +12,12 @@ interface CommentsDatabase {
 
     fun readComment(viewerId: Int, postId: Int, commentId: Int): Comment?
 
+    fun readMany(viewerId: Int, commentIds: IntArray): Map<Int, Comment>
+
+    fun readVotes(viewerId: Int, commentIds: IntArray): Map<Int, Int>
+
+    fun readScore(postId: Int, commentId: Int): Int?
+
     fun readComments(viewerId: Int, postId: Int): Flowable<Comment>
 
     fun readComments(viewerId: Int, postId: Int, parentId: Int): Flowable<Comment>
@@ -21,4 +28,6 @@ interface CommentsDatabase {
 
     fun removeScore(userId: Int, postId: Int, commentId: Int): Int?
 
+    fun writeVotes(votes: List<Vote>)
+
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.Comment
+import com.asadmshah.hnclone.models.Vote
 import io.reactivex.Flowable
 import java.sql.ResultSet
+import java.util.*
 import javax.inject.Inject
-import javax.sql.DataSource
+import javax.inject.Named
 
 internal class CommentsDatabaseImpl
 @Inject
-constructor(private val dataSource: DataSource) : CommentsDatabase {
+constructor(private val router: DataSourceRouter,
+            @Named(DatabaseModule.FETCH_SIZE) private val fetchSize: Int,
+            private val scores: ScoreAggregatorImpl,
+            private val notifier: WriteNotifier) : CommentsDatabase {
 
     private companion object {
         // language=PostgreSQL
@@ -22,62 +27,114 @@ constructor(private val dataSource: DataSource) : CommentsDatabase {
         // language=PostgreSQL
         const val SQL_READ_COMMENT = "SELECT * FROM comments_read_comment(?, ?, ?);"
         // language=PostgreSQL
+        const val SQL_READ_COMMENTS = "SELECT * FROM comments_read_many(?, ?);"
+        // language=PostgreSQL
+        const val SQL_READ_VOTES = "SELECT * FROM comment_votes_read(?, ?);"
+        // language=PostgreSQL
         const val SQL_INCREMENT_SCORE = "SELECT * FROM comment_votes_upsert(?, ?, ?, 1);"
         // language=PostgreSQL
         const val SQL_DECREMENT_SCORE = "SELECT * FROM comment_votes_upsert(?, ?, ?, -1);"
         // language=PostgreSQL
         const val SQL_REMOVE_SCORE = "SELECT * FROM comment_votes_delete(?, ?, ?);"
+        // language=PostgreSQL
+        const val SQL_WRITE_VOTES = "SELECT * FROM comment_votes_write(?, ?, ?, ?);"
+        // language=PostgreSQL
+        const val SQL_SET_VOTE = "SELECT * FROM comment_votes_set(?, ?, ?, ?);"
     }
 
     override fun create(userId: Int, postId: Int, text: String): Comment? {
-        return dataSource
-                .executeSingle(SQL_CREATE_PARENT, {
+        return router.write(userId)
+                .executeSingleTransaction(SQL_CREATE_PARENT, {
                     it.setInt(1, userId)
                     it.setInt(2, postId)
                     it.setString(3, text)
-                }, ResultSet::getComment)
+                }, ResultSet::getComment, { conn, comment -> notifier.notify(conn, WriteNotifier.CHANNEL_COMMENTS, comment.toByteArray()) })
     }
 
     override fun create(userId: Int, postId: Int, parentId: Int, text: String): Comment? {
-        return dataSource
-                .executeSingle(SQL_CREATE_CHILD, {
+        return router.write(userId)
+                .executeSingleTransaction(SQL_CREATE_CHILD, {
                     it.setInt(1, userId)
                     it.setInt(2, postId)
                     it.setInt(3, parentId)
                     it.setString(4, text)
-                }, ResultSet::getComment)
+                }, ResultSet::getComment, { conn, comment -> notifier.notify(conn, WriteNotifier.CHANNEL_COMMENTS, comment.toByteArray()) })
     }
 
     override fun readComment(viewerId: Int, postId: Int, commentId: Int): Comment? {
-        return dataSource
+        val source = router.read(viewerId)
+        return source
                 .executeSingle(SQL_READ_COMMENT, {
                     it.setInt(1, viewerId)
                     it.setInt(2, postId)
                     it.setInt(3, commentId)
-                }, ResultSet::getComment)
+                }, { scores.commentScore(it.getComment(), router.isReplica(source)) })
+    }
+
+    override fun readMany(viewerId: Int, commentIds: IntArray): Map<Int, Comment> {
+        val comments = HashMap<Int, Comment>(commentIds.size)
+        if (commentIds.isEmpty()) return comments
+
+        val source = router.read(viewerId)
+        source
+                .execute(SQL_READ_COMMENTS, {
+                    it.setInt(1, viewerId)
+                    it.setArray(2, it.connection.createArrayOf("int4", commentIds.toTypedArray()))
+                }, {
+                    while (it != null && it.next()) {
+                        val comment = scores.commentScore(it.getComment(), router.isReplica(source))
+                        comments.put(comment.id, comment)
+                    }
+                })
+
+        return comments
+    }
+
+    override fun readVotes(viewerId: Int, commentIds: IntArray): Map<Int, Int> {
+        val votes = HashMap<Int, Int>(commentIds.size)
+        if (commentIds.isEmpty()) return votes
+
+        router.read(viewerId)
+                .execute(SQL_READ_VOTES, {
+                    it.setInt(1, viewerId)
+                    it.setArray(2, it.connection.createArrayOf("int4", commentIds.toTypedArray()))
+                }, {
+                    while (it != null && it.next()) {
+                        votes.put(it.getInt(1), it.getInt(2))
+                    }
+                })
+
+        return votes
     }
 
     override fun readComments(viewerId: Int, postId: Int): Flowable<Comment> {
-        return dataSource
-                .executeFlowable(SQL_READ_COMMENTS_OF_POST, {
+        val source = router.read(viewerId)
+        return source
+                .executeFlowable(SQL_READ_COMMENTS_OF_POST, fetchSize, {
                     it.setInt(1, viewerId)
                     it.setInt(2, postId)
-                }, ResultSet::getComment)
+                }, { scores.commentScore(it.getComment(), router.isReplica(source)) })
     }
 
     override fun readComments(viewerId: Int, postId: Int, parentId: Int): Flowable<Comment> {
-        return dataSource
-                .executeFlowable(SQL_READ_COMMENTS_OF_COMMENT, {
+        val source = router.read(viewerId)
+        return source
+                .executeFlowable(SQL_READ_COMMENTS_OF_COMMENT, fetchSize, {
                     it.setInt(1, viewerId)
                     it.setInt(2, postId)
                     it.setInt(3, parentId)
-                }, ResultSet::getComment)
+                }, { scores.commentScore(it.getComment(), router.isReplica(source)) })
+    }
+
+    override fun readScore(postId: Int, commentId: Int): Int? {
+        return readPrimary(0, postId, commentId)?.score
     }
 
     override fun incrementScore(userId: Int, postId: Int, commentId: Int): Int? {
-        if (readComment(userId, postId, commentId) == null) return null
+        if (scores.enabled) return setVote(userId, postId, commentId, 1)
+        if (readPrimary(userId, postId, commentId) == null) return null
 
-        return dataSource
+        return router.write(userId)
                 .executeSingle(SQL_INCREMENT_SCORE, {
                     it.setInt(1, userId)
                     it.setInt(2, postId)
@@ -86,9 +143,10 @@ constructor(private val dataSource: DataSource) : CommentsDatabase {
     }
 
     override fun decrementScore(userId: Int, postId: Int, commentId: Int): Int? {
-        if (readComment(userId, postId, commentId) == null) return null
+        if (scores.enabled) return setVote(userId, postId, commentId, -1)
+        if (readPrimary(userId, postId, commentId) == null) return null
 
-        return dataSource
+        return router.write(userId)
                 .executeSingle(SQL_DECREMENT_SCORE, {
                     it.setInt(1, userId)
                     it.setInt(2, postId)
@@ -97,13 +155,53 @@ constructor(private val dataSource: DataSource) : CommentsDatabase {
     }
 
     override fun removeScore(userId: Int, postId: Int, commentId: Int): Int? {
-        if (readComment(userId, postId, commentId) == null) return null
+        if (scores.enabled) return setVote(userId, postId, commentId, 0)
+        if (readPrimary(userId, postId, commentId) == null) return null
 
-        return dataSource
+        return router.write(userId)
                 .executeSingle(SQL_REMOVE_SCORE, {
                     it.setInt(1, userId)
                     it.setInt(2, postId)
                     it.setInt(3, commentId)
                 }, ResultSet::getInt)
     }
+
+    override fun writeVotes(votes: List<Vote>) {
+        if (votes.isEmpty()) return
+
+        votes.forEach { router.write(it.userId) }
+
+        router.primary
+                .execute(SQL_WRITE_VOTES, {
+                    it.setArray(1, it.connection.createArrayOf("int4", votes.map { it.userId }.toTypedArray()))
+                    it.setArray(2, it.connection.createArrayOf("int4", votes.map { it.postId }.toTypedArray()))
+                    it.setArray(3, it.connection.createArrayOf("int4", votes.map { it.commentId }.toTypedArray()))
+                    it.setArray(4, it.connection.createArrayOf("int4", votes.map { it.value }.toTypedArray()))
+                }, { })
+    }
+
+    private fun readPrimary(userId: Int, postId: Int, commentId: Int): Comment? {
+        return router.primary
+                .executeSingle(SQL_READ_COMMENT, {
+                    it.setInt(1, userId)
+                    it.setInt(2, postId)
+                    it.setInt(3, commentId)
+                }, { scores.commentScore(it.getComment(), false) })
+    }
+
+    private fun setVote(userId: Int, postId: Int, commentId: Int, value: Int): Int? {
+        val comment = readPrimary(userId, postId, commentId) ?: return null
+
+        val delta = router.write(userId)
+                .executeSingle(SQL_SET_VOTE, {
+                    it.setInt(1, userId)
+                    it.setInt(2, postId)
+                    it.setInt(3, commentId)
+                    it.setInt(4, value)
+                }, ResultSet::getInt) ?: 0
+
+        scores.addComment(commentId, delta)
+
+        return comment.score + delta
+    }
 }
\ No newline at end of file
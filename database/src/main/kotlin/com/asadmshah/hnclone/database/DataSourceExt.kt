@@ -1,11 +1,13 @@
 package com.asadmshah.hnclone.database
 
-import io.reactivex.BackpressureStrategy
 import io.reactivex.Flowable
+import io.reactivex.functions.BiConsumer
+import io.reactivex.functions.Consumer
 import java.sql.Connection
 import java.sql.PreparedStatement
 import java.sql.ResultSet
 import java.sql.Statement
+import java.util.concurrent.Callable
 import javax.sql.DataSource
 
 internal fun DataSource.execute(q: String, preparer: (PreparedStatement) -> Unit, mapper: (ResultSet?) -> Unit) {
@@ -53,6 +55,34 @@ internal fun <T> DataSource.executeSingle(q: String, preparer: (PreparedStatemen
     return response
 }
 
+internal fun <T> DataSource.executeSingleTransaction(q: String, preparer: (PreparedStatement) -> Unit, mapper: (ResultSet) -> T, after: (Connection, T) -> Unit): T? {
+    var conn: Connection? = null
+    var stmt: PreparedStatement? = null
+    var rslt: ResultSet? = null
+
+    try {
+        conn = connection
+        conn.autoCommit = false
+
+        stmt = conn.prepareStatement(q)
+        preparer(stmt)
+        rslt = stmt.executeQuery()
+        val response = if (rslt.next()) mapper(rslt) else null
+        if (response != null) after(conn, response)
+
+        conn.commit()
+        return response
+    } catch (e: Exception) {
+        try { conn?.rollback() } catch (ignored: Exception) {  }
+        throw e
+    } finally {
+        try { rslt?.close() } catch (ignored: Exception) {  }
+        try { stmt?.close() } catch (ignored: Exception) {  }
+        try { conn?.autoCommit = true } catch (ignored: Exception) {  }
+        try { conn?.close() } catch (ignored: Exception) {  }
+    }
+}
+
 internal fun <T> DataSource.executeSingle(q: String, function: (ResultSet) -> T): T? {
     var response: T? = null
     execute(q, {
@@ -61,39 +91,54 @@ internal fun <T> DataSource.executeSingle(q: String, function: (ResultSet) -> T)
     return response
 }
 
-internal fun <T> DataSource.executeFlowable(q: String, preparer: (PreparedStatement) -> Unit, mapper: (ResultSet) -> T): Flowable<T> {
-    val f = Flowable
-            .create<T>({ subscriber ->
-                execute(q, preparer, { resultSet ->
-                    if (resultSet != null) {
-                        while (resultSet.next()) {
-                            if (subscriber.isCancelled) break
-                            subscriber.onNext(mapper(resultSet))
-                        }
-                    }
-                    if (!subscriber.isCancelled) subscriber.onComplete()
-                })
-            }, BackpressureStrategy.BUFFER)
-
-
-    return Flowable.defer { f }
+internal fun <T> DataSource.executeFlowable(q: String, fetchSize: Int, preparer: (PreparedStatement) -> Unit, mapper: (ResultSet) -> T): Flowable<T> {
+    return Flowable.generate<T, StreamingCursor>(
+            Callable { StreamingCursor.open(this, q, fetchSize, preparer) },
+            BiConsumer { cursor, emitter ->
+                if (cursor.rslt.next()) {
+                    emitter.onNext(mapper(cursor.rslt))
+                } else {
+                    emitter.onComplete()
+                }
+            },
+            Consumer { it.close() })
 }
 
-internal fun <T> DataSource.executeFlowable(q: String, function: (ResultSet) -> T): Flowable<T> {
-    val f = Flowable
-            .create<T>({ subscriber ->
-                execute(q, { resultSet ->
-                    if (resultSet != null) {
-                        while (resultSet.next()) {
-                            if (subscriber.isCancelled) break
-
-                            subscriber.onNext(function(resultSet))
-                        }
-                    }
+internal fun <T> DataSource.executeFlowable(q: String, fetchSize: Int, function: (ResultSet) -> T): Flowable<T> {
+    return executeFlowable(q, fetchSize, {}, function)
+}
 
-                    if (!subscriber.isCancelled) subscriber.onComplete()
-                })
-            }, BackpressureStrategy.BUFFER)
+private class StreamingCursor private constructor(val conn: Connection, val stmt: PreparedStatement, val rslt: ResultSet) {
+
+    companion object {
+        fun open(dataSource: DataSource, q: String, fetchSize: Int, preparer: (PreparedStatement) -> Unit): StreamingCursor {
+            var conn: Connection? = null
+            var stmt: PreparedStatement? = null
+
+            try {
+                conn = dataSource.connection
+                conn.autoCommit = false
+
+                stmt = conn.prepareStatement(q)
+                stmt.fetchSize = fetchSize
+                preparer(stmt)
+
+                return StreamingCursor(conn, stmt, stmt.executeQuery())
+            } catch (e: Exception) {
+                try { stmt?.close() } catch (ignored: Exception) {  }
+                try { conn?.rollback() } catch (ignored: Exception) {  }
+                try { conn?.autoCommit = true } catch (ignored: Exception) {  }
+                try { conn?.close() } catch (ignored: Exception) {  }
+                throw e
+            }
+        }
+    }
 
-    return Flowable.defer{ f }
-}
\ No newline at end of file
+    fun close() {
+        try { rslt.close() } catch (ignored: Exception) {  }
+        try { stmt.close() } catch (ignored: Exception) {  }
+        try { conn.commit() } catch (ignored: Exception) {  }
+        try { conn.autoCommit = true } catch (ignored: Exception) {  }
+        try { conn.close() } catch (ignored: Exception) {  }
+    }
+}
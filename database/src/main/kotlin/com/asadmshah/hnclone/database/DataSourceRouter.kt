@@ -0,0 +1,114 @@
+package com.asadmshah.hnclone.database
+
+import java.sql.Connection
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import javax.sql.DataSource
+
+internal class DataSourceRouter(val primary: DataSource,
+                                replicas: List<DataSource>,
+                                stickiness: Long,
+                                unit: TimeUnit) {
+
+    private companion object {
+        const val MAX_STICKY_USERS = 10000
+    }
+
+    constructor(primary: DataSource) : this(primary, emptyList(), 0, TimeUnit.MILLISECONDS)
+
+    private val replicas = replicas.map { Replica(it) }
+    private val stickinessMillis = unit.toMillis(stickiness)
+    private val writes = ConcurrentHashMap<Int, Long>()
+    private val next = AtomicInteger()
+
+    fun write(userId: Int): DataSource {
+        if (userId > 0 && replicas.isNotEmpty() && stickinessMillis > 0) {
+            writes.put(userId, System.currentTimeMillis() + stickinessMillis)
+            if (writes.size > MAX_STICKY_USERS) prune()
+        }
+        return primary
+    }
+
+    fun read(userId: Int): DataSource {
+        if (replicas.isEmpty()) return primary
+
+        if (userId > 0) {
+            val until = writes[userId]
+            if (until != null) {
+                if (until > System.currentTimeMillis()) return primary
+                writes.remove(userId, until)
+            }
+        }
+
+        return leastLoaded()
+    }
+
+    fun isReplica(source: DataSource): Boolean {
+        return source !== primary
+    }
+
+    private fun leastLoaded(): DataSource {
+        if (replicas.size == 1) return replicas[0]
+
+        val start = next.getAndIncrement() and Int.MAX_VALUE
+        var best = replicas[start % replicas.size]
+        var bestLoad = best.active.get()
+        for (i in 1..replicas.size - 1) {
+            if (bestLoad == 0) break
+
+            val replica = replicas[(start + i) % replicas.size]
+            val load = replica.active.get()
+            if (load < bestLoad) {
+                best = replica
+                bestLoad = load
+            }
+        }
+        return best
+    }
+
+    private fun prune() {
+        val now = System.currentTimeMillis()
+        val iterator = writes.entries.iterator()
+        while (iterator.hasNext()) {
+            if (iterator.next().value <= now) iterator.remove()
+        }
+    }
+
+    private class Replica(private val delegate: DataSource) : DataSource by delegate {
+
+        val active = AtomicInteger()
+
+        override fun getConnection(): Connection {
+            return track { delegate.connection }
+        }
+
+        override fun getConnection(username: String?, password: String?): Connection {
+            return track { delegate.getConnection(username, password) }
+        }
+
+        private fun track(open: () -> Connection): Connection {
+            active.incrementAndGet()
+            try {
+                return TrackedConnection(open())
+            } catch (e: Exception) {
+                active.decrementAndGet()
+                throw e
+            }
+        }
+
+        private inner class TrackedConnection(private val connection: Connection) : Connection by connection {
+
+            private val closed = AtomicBoolean()
+
+            override fun close() {
+                try {
+                    connection.close()
+                } finally {
+                    if (closed.compareAndSet(false, true)) active.decrementAndGet()
+                }
+            }
+        }
+    }
+}
@@ -1,31 +1,99 @@
 package com.asadmshah.hnclone.database
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.zaxxer.hikari.HikariConfig
 import com.zaxxer.hikari.HikariDataSource
 import dagger.Module
 import dagger.Provides
 import org.apache.commons.configuration2.Configuration
+import java.lang.management.ManagementFactory
+import java.util.*
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
+import javax.inject.Named
 import javax.inject.Singleton
+import javax.management.ObjectName
 import javax.sql.DataSource
 
 @Module
 class DatabaseModule {
 
+    companion object {
+        const val FETCH_SIZE = "database.fetch.size"
+        const val USERS_EXECUTOR = "database.users.executor"
+
+        private val PASSWORD_HASHER_MBEAN = ObjectName("com.asadmshah.hnclone.database:type=PasswordHasher")
+    }
+
     @Provides
     @Singleton
     fun providesDataSource(configuration: Configuration): DataSource {
-        val hc = HikariConfig()
-        hc.connectionTimeout = TimeUnit.SECONDS.toMillis(30)
-        hc.maximumPoolSize = configuration.getInt("database.pool.size")
-        hc.dataSourceClassName = "com.impossibl.postgres.jdbc.PGDataSource"
-        hc.addDataSourceProperty("user", configuration.getString("database.user"))
-        hc.addDataSourceProperty("password", configuration.getString("database.pass"))
-        hc.addDataSourceProperty("database", configuration.getString("database.name"))
-        hc.addDataSourceProperty("host", configuration.getString("database.host"))
-        hc.addDataSourceProperty("port", configuration.getString("database.port"))
-        hc.addDataSourceProperty("parsedSqlCacheSize", "256")
-        return HikariDataSource(hc)
+        return createDataSource(configuration, "database")
+    }
+
+    @Provides
+    @Singleton
+    internal fun providesDataSourceRouter(dataSource: DataSource, configuration: Configuration): DataSourceRouter {
+        val replicas = ArrayList<DataSource>()
+        while (configuration.containsKey("database.replica.${replicas.size}.host")) {
+            replicas.add(createDataSource(configuration, "database.replica.${replicas.size}"))
+        }
+
+        val stickiness = configuration.getLong("database.replica.stickiness", 5000)
+        return DataSourceRouter(dataSource, replicas, stickiness, TimeUnit.MILLISECONDS)
+    }
+
+    @Provides
+    @Named(FETCH_SIZE)
+    fun providesFetchSize(configuration: Configuration): Int {
+        return configuration.getInt(FETCH_SIZE, 50)
+    }
+
+    @Provides
+    @Singleton
+    internal fun providesScoreAggregatorImpl(dataSource: DataSource, configuration: Configuration): ScoreAggregatorImpl {
+        val enabled = configuration.getBoolean("database.scores.aggregate", false)
+        val stripes = configuration.getInt("database.scores.stripes", Runtime.getRuntime().availableProcessors() * 2)
+        val interval = configuration.getLong("database.scores.interval", 1000)
+        return ScoreAggregatorImpl(dataSource, enabled, stripes, interval, TimeUnit.MILLISECONDS)
+    }
+
+    @Provides
+    @Singleton
+    internal fun providesScoreAggregator(scoreAggregator: ScoreAggregatorImpl): ScoreAggregator {
+        return scoreAggregator
+    }
+
+    @Provides
+    @Singleton
+    internal fun providesWriteNotifier(configuration: Configuration): WriteNotifier {
+        val enabled = configuration.getBoolean("database.notify", configuration.getString("pubsub.impl", "") == "postgres")
+        return WriteNotifier(enabled)
+    }
+
+    @Provides
+    @Singleton
+    internal fun providesPasswordHasher(configuration: Configuration): PasswordHasher {
+        val threads = configuration.getInt("database.bcrypt.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2))
+        val queue = configuration.getInt("database.bcrypt.queue", 64)
+        val rounds = configuration.getInt("database.bcrypt.rounds", UsersDatabaseImpl.LOG_ROUNDS)
+        val hasher = PasswordHasher(threads, queue, rounds)
+
+        val server = ManagementFactory.getPlatformMBeanServer()
+        if (server.isRegistered(PASSWORD_HASHER_MBEAN)) server.unregisterMBean(PASSWORD_HASHER_MBEAN)
+        server.registerMBean(hasher, PASSWORD_HASHER_MBEAN)
+
+        return hasher
+    }
+
+    @Provides
+    @Singleton
+    @Named(USERS_EXECUTOR)
+    fun providesUsersExecutor(configuration: Configuration): ExecutorService {
+        val threads = configuration.getInt("database.users.threads", 4)
+        val factory = ThreadFactoryBuilder().setNameFormat("users-database-%d").setDaemon(true).build()
+        return Executors.newFixedThreadPool(threads, factory)
     }
 
     @Provides
@@ -52,4 +120,20 @@ class DatabaseModule {
         return commentsDatabase
     }
 
-}
+    private fun createDataSource(configuration: Configuration, prefix: String): DataSource {
+        fun property(key: String) = configuration.getString("$prefix.$key", configuration.getString("database.$key"))
+
+        val hc = HikariConfig()
+        hc.connectionTimeout = TimeUnit.SECONDS.toMillis(30)
+        hc.maximumPoolSize = property("pool.size").toInt()
+        hc.dataSourceClassName = "com.impossibl.postgres.jdbc.PGDataSource"
+        hc.addDataSourceProperty("user", property("user"))
+        hc.addDataSourceProperty("password", property("pass"))
+        hc.addDataSourceProperty("database", property("name"))
+        hc.addDataSourceProperty("host", property("host"))
+        hc.addDataSourceProperty("port", property("port"))
+        hc.addDataSourceProperty("parsedSqlCacheSize", "256")
+        return HikariDataSource(hc)
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.asadmshah.hnclone.database
+
+import org.mindrot.jbcrypt.BCrypt
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+internal class PasswordHasher(threads: Int, queueSize: Int, private val logRounds: Int) : PasswordHasherMXBean {
+
+    private val executor: ThreadPoolExecutor?
+
+    private val counter = AtomicInteger()
+    private val completedCount = AtomicLong()
+    private val rejectedCount = AtomicLong()
+    private val totalLatency = AtomicLong()
+    private val lastLatency = AtomicLong()
+    private val maxLatency = AtomicLong()
+
+    init {
+        if (threads > 0) {
+            val factory = ThreadFactory {
+                val thread = Thread(it, "password-hasher-${counter.incrementAndGet()}")
+                thread.isDaemon = true
+                thread
+            }
+            executor = ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), factory, ThreadPoolExecutor.AbortPolicy())
+        } else {
+            executor = null
+        }
+    }
+
+    override val queueDepth: Int
+        get() = executor?.queue?.size ?: 0
+
+    override val activeCount: Int
+        get() = executor?.activeCount ?: 0
+
+    override val completed: Long
+        get() = completedCount.get()
+
+    override val rejected: Long
+        get() = rejectedCount.get()
+
+    override val lastHashLatencyMicros: Long
+        get() = TimeUnit.NANOSECONDS.toMicros(lastLatency.get())
+
+    override val maxHashLatencyMicros: Long
+        get() = TimeUnit.NANOSECONDS.toMicros(maxLatency.get())
+
+    override val averageHashLatencyMicros: Long
+        get() {
+            val count = completedCount.get()
+            return if (count == 0L) 0 else TimeUnit.NANOSECONDS.toMicros(totalLatency.get() / count)
+        }
+
+    fun hash(password: String): String {
+        return await(hashAsync(password))
+    }
+
+    fun check(password: String, hash: String): Boolean {
+        return await(checkAsync(password, hash))
+    }
+
+    fun hashAsync(password: String): CompletableFuture<String> {
+        return submit { BCrypt.hashpw(password, BCrypt.gensalt(logRounds)) }
+    }
+
+    fun checkAsync(password: String, hash: String): CompletableFuture<Boolean> {
+        return submit { BCrypt.checkpw(password, hash) }
+    }
+
+    fun stop() {
+        executor?.shutdown()
+    }
+
+    private fun <T> submit(task: () -> T): CompletableFuture<T> {
+        val future = CompletableFuture<T>()
+        val runnable = Runnable {
+            try {
+                future.complete(measure(task))
+            } catch (e: Throwable) {
+                future.completeExceptionally(e)
+            }
+        }
+
+        val executor = executor
+        if (executor == null) {
+            runnable.run()
+            return future
+        }
+
+        try {
+            executor.execute(runnable)
+        } catch (e: RejectedExecutionException) {
+            rejectedCount.incrementAndGet()
+            future.completeExceptionally(PasswordHasherBusyException())
+        }
+        return future
+    }
+
+    private fun <T> await(future: CompletableFuture<T>): T {
+        try {
+            return future.get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    private fun <T> measure(task: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return task()
+        } finally {
+            val latency = System.nanoTime() - start
+            lastLatency.set(latency)
+            totalLatency.addAndGet(latency)
+            completedCount.incrementAndGet()
+            while (true) {
+                val max = maxLatency.get()
+                if (latency <= max || maxLatency.compareAndSet(max, latency)) break
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,3 @@
+package com.asadmshah.hnclone.database
+
+class PasswordHasherBusyException internal constructor(message: String = "Password hasher busy.") : RuntimeException(message)
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.asadmshah.hnclone.database
+
+interface PasswordHasherMXBean {
+
+    val queueDepth: Int
+
+    val activeCount: Int
+
+    val completed: Long
+
+    val rejected: Long
+
+    val lastHashLatencyMicros: Long
+
+    val maxHashLatencyMicros: Long
+
+    val averageHashLatencyMicros: Long
+}
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostCursor
+import com.asadmshah.hnclone.models.Vote
 import io.reactivex.Flowable
 
 interface PostsDatabase {
@@ -15,11 +17,27 @@ interface PostsDatabase {
 
     fun readNew(viewerId: Int, userId: Int, lim: Int = 20, off: Int = 0): Flowable<Post>
 
+    fun readTop(viewerId: Int, cursor: PostCursor, lim: Int = 20): Flowable<Post>
+
+    fun readTop(viewerId: Int, userId: Int, cursor: PostCursor, lim: Int = 20): Flowable<Post>
+
+    fun readNew(viewerId: Int, cursor: PostCursor, lim: Int = 20): Flowable<Post>
+
+    fun readNew(viewerId: Int, userId: Int, cursor: PostCursor, lim: Int = 20): Flowable<Post>
+
     fun read(viewerId: Int, postId: Int): Post?
 
+    fun readMany(viewerId: Int, postIds: IntArray): Map<Int, Post>
+
+    fun readVotes(viewerId: Int, postIds: IntArray): Map<Int, Int>
+
+    fun readScore(postId: Int): Int?
+
     fun incrementScore(viewerId: Int, postId: Int): Int?
 
     fun decrementScore(viewerId: Int, postId: Int): Int?
 
     fun removeScore(viewerId: Int, postId: Int): Int?
+
+    fun writeVotes(votes: List<Vote>)
 }
\ No newline at end of file
@@ -1,14 +1,22 @@
 package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostCursor
+import com.asadmshah.hnclone.models.Vote
 import io.reactivex.Flowable
+import java.sql.PreparedStatement
 import java.sql.ResultSet
+import java.sql.Types
+import java.util.*
 import javax.inject.Inject
-import javax.sql.DataSource
+import javax.inject.Named
 
 internal class PostsDatabaseImpl
 @Inject
-constructor(private val dataSource: DataSource): PostsDatabase {
+constructor(private val router: DataSourceRouter,
+            @Named(DatabaseModule.FETCH_SIZE) private val fetchSize: Int,
+            private val scores: ScoreAggregatorImpl,
+            private val notifier: WriteNotifier) : PostsDatabase {
 
     private companion object {
         // language=PostgreSQL
@@ -22,89 +30,232 @@ constructor(private val dataSource: DataSource): PostsDatabase {
         // language=PostgreSQL
         const val SQL_READ_NEW_FROM_USER = "SELECT * FROM posts_read_by_user_new(?, ?) LIMIT ? OFFSET ?;"
         // language=PostgreSQL
+        const val SQL_READ_TOP_AFTER = "SELECT * FROM posts_read_top_after(?, ?, ?, ?);"
+        // language=PostgreSQL
+        const val SQL_READ_TOP_FROM_USER_AFTER = "SELECT * FROM posts_read_by_user_top_after(?, ?, ?, ?, ?);"
+        // language=PostgreSQL
+        const val SQL_READ_NEW_AFTER = "SELECT * FROM posts_read_new_after(?, ?, ?, ?);"
+        // language=PostgreSQL
+        const val SQL_READ_NEW_FROM_USER_AFTER = "SELECT * FROM posts_read_by_user_new_after(?, ?, ?, ?, ?);"
+        // language=PostgreSQL
         const val SQL_READ_POST = "SELECT * FROM posts_read(?, ?);"
         // language=PostgreSQL
+        const val SQL_READ_POSTS = "SELECT * FROM posts_read_many(?, ?);"
+        // language=PostgreSQL
+        const val SQL_READ_VOTES = "SELECT * FROM post_votes_read(?, ?);"
+        // language=PostgreSQL
         const val SQL_INCREMENT_SCORE = "SELECT * FROM post_votes_upsert(?, ?, 1);"
         // language=PostgreSQL
         const val SQL_DECREMENT_SCORE = "SELECT * FROM post_votes_upsert(?, ?, -1);"
         // language=PostgreSQL
         const val SQL_REMOVE_SCORE = "SELECT * FROM post_votes_delete(?, ?);"
+        // language=PostgreSQL
+        const val SQL_WRITE_VOTES = "SELECT * FROM post_votes_write(?, ?, ?);"
+        // language=PostgreSQL
+        const val SQL_SET_VOTE = "SELECT * FROM post_votes_set(?, ?, ?);"
     }
 
     override fun create(userId: Int, title: String, text: String, url: String): Post? {
-        return dataSource.executeSingle(SQL_CREATE, {
+        return router.write(userId).executeSingleTransaction(SQL_CREATE, {
             it.setString(1, title)
             it.setString(2, text)
             it.setString(3, url)
             it.setInt(4, userId)
-        }, ResultSet::getPost)
+        }, ResultSet::getPost, { conn, post -> notifier.notify(conn, WriteNotifier.CHANNEL_POST, post.toByteArray()) })
     }
 
     override fun readTop(viewerId: Int, lim: Int, off: Int): Flowable<Post> {
-        return dataSource.executeFlowable(SQL_READ_TOP, {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_TOP, fetchSize, {
             it.setInt(1, viewerId)
             it.setInt(2, lim)
             it.setInt(3, off)
-        }, ResultSet::getPost)
+        }, { scores.postScore(it.getPost(), router.isReplica(source)) })
     }
 
     override fun readTop(viewerId: Int, userId: Int, lim: Int, off: Int): Flowable<Post> {
-        return dataSource.executeFlowable(SQL_READ_TOP_FROM_USER, {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_TOP_FROM_USER, fetchSize, {
             it.setInt(1, viewerId)
             it.setInt(2, userId)
             it.setInt(3, lim)
             it.setInt(4, off)
-        }, ResultSet::getPost)
+        }, { scores.postScore(it.getPost(), router.isReplica(source)) })
     }
 
     override fun readNew(viewerId: Int, lim: Int, off: Int): Flowable<Post> {
-        return dataSource.executeFlowable(SQL_READ_NEW, {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_NEW, fetchSize, {
             it.setInt(1, viewerId)
             it.setInt(2, lim)
             it.setInt(3, off)
-        }, ResultSet::getPost)
+        }, { scores.postScore(it.getPost(), router.isReplica(source)) })
     }
 
     override fun readNew(viewerId: Int, userId: Int, lim: Int, off: Int): Flowable<Post> {
-        return dataSource.executeFlowable(SQL_READ_NEW_FROM_USER, {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_NEW_FROM_USER, fetchSize, {
             it.setInt(1, viewerId)
             it.setInt(2, userId)
             it.setInt(3, lim)
             it.setInt(4, off)
-        }, ResultSet::getPost)
+        }, { scores.postScore(it.getPost(), router.isReplica(source)) })
+    }
+
+    override fun readTop(viewerId: Int, cursor: PostCursor, lim: Int): Flowable<Post> {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_TOP_AFTER, fetchSize, {
+            it.setInt(1, viewerId)
+            it.setCursor(2, cursor)
+            it.setInt(4, lim)
+        }, { scores.postScore(it.getPostWithCursor(), router.isReplica(source)) })
+    }
+
+    override fun readTop(viewerId: Int, userId: Int, cursor: PostCursor, lim: Int): Flowable<Post> {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_TOP_FROM_USER_AFTER, fetchSize, {
+            it.setInt(1, viewerId)
+            it.setInt(2, userId)
+            it.setCursor(3, cursor)
+            it.setInt(5, lim)
+        }, { scores.postScore(it.getPostWithCursor(), router.isReplica(source)) })
+    }
+
+    override fun readNew(viewerId: Int, cursor: PostCursor, lim: Int): Flowable<Post> {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_NEW_AFTER, fetchSize, {
+            it.setInt(1, viewerId)
+            it.setCursor(2, cursor)
+            it.setInt(4, lim)
+        }, { scores.postScore(it.getPostWithCursor(), router.isReplica(source)) })
+    }
+
+    override fun readNew(viewerId: Int, userId: Int, cursor: PostCursor, lim: Int): Flowable<Post> {
+        val source = router.read(viewerId)
+        return source.executeFlowable(SQL_READ_NEW_FROM_USER_AFTER, fetchSize, {
+            it.setInt(1, viewerId)
+            it.setInt(2, userId)
+            it.setCursor(3, cursor)
+            it.setInt(5, lim)
+        }, { scores.postScore(it.getPostWithCursor(), router.isReplica(source)) })
     }
 
     override fun read(viewerId: Int, postId: Int): Post? {
-        return dataSource.executeSingle(SQL_READ_POST, {
+        val source = router.read(viewerId)
+        return source.executeSingle(SQL_READ_POST, {
             it.setInt(1, viewerId)
             it.setInt(2, postId)
-        }, ResultSet::getPost)
+        }, { scores.postScore(it.getPost(), router.isReplica(source)) })
+    }
+
+    override fun readMany(viewerId: Int, postIds: IntArray): Map<Int, Post> {
+        val posts = HashMap<Int, Post>(postIds.size)
+        if (postIds.isEmpty()) return posts
+
+        val source = router.read(viewerId)
+        source.execute(SQL_READ_POSTS, {
+            it.setInt(1, viewerId)
+            it.setArray(2, it.connection.createArrayOf("int4", postIds.toTypedArray()))
+        }, {
+            while (it != null && it.next()) {
+                val post = scores.postScore(it.getPost(), router.isReplica(source))
+                posts.put(post.id, post)
+            }
+        })
+
+        return posts
+    }
+
+    override fun readVotes(viewerId: Int, postIds: IntArray): Map<Int, Int> {
+        val votes = HashMap<Int, Int>(postIds.size)
+        if (postIds.isEmpty()) return votes
+
+        router.read(viewerId).execute(SQL_READ_VOTES, {
+            it.setInt(1, viewerId)
+            it.setArray(2, it.connection.createArrayOf("int4", postIds.toTypedArray()))
+        }, {
+            while (it != null && it.next()) {
+                votes.put(it.getInt(1), it.getInt(2))
+            }
+        })
+
+        return votes
+    }
+
+    override fun readScore(postId: Int): Int? {
+        return readPrimary(postId)?.score
     }
 
     override fun incrementScore(viewerId: Int, postId: Int): Int? {
-        if (read(0, postId) == null) return null
+        if (scores.enabled) return setVote(viewerId, postId, 1)
+        if (readPrimary(postId) == null) return null
 
-        return dataSource.executeSingle(SQL_INCREMENT_SCORE, {
+        return router.write(viewerId).executeSingle(SQL_INCREMENT_SCORE, {
             it.setInt(1, viewerId)
             it.setInt(2, postId)
         }, ResultSet::getInt)
     }
 
     override fun decrementScore(viewerId: Int, postId: Int): Int? {
-        if (read(0, postId) == null) return null
+        if (scores.enabled) return setVote(viewerId, postId, -1)
+        if (readPrimary(postId) == null) return null
 
-        return dataSource.executeSingle(SQL_DECREMENT_SCORE, {
+        return router.write(viewerId).executeSingle(SQL_DECREMENT_SCORE, {
             it.setInt(1, viewerId)
             it.setInt(2, postId)
         }, ResultSet::getInt)
     }
 
     override fun removeScore(viewerId: Int, postId: Int): Int? {
-        if (read(0, postId) == null) return null
+        if (scores.enabled) return setVote(viewerId, postId, 0)
+        if (readPrimary(postId) == null) return null
 
-        return dataSource.executeSingle(SQL_REMOVE_SCORE, {
+        return router.write(viewerId).executeSingle(SQL_REMOVE_SCORE, {
             it.setInt(1, viewerId)
             it.setInt(2, postId)
         }, ResultSet::getInt)
     }
+
+    override fun writeVotes(votes: List<Vote>) {
+        if (votes.isEmpty()) return
+
+        votes.forEach { router.write(it.userId) }
+
+        router.primary.execute(SQL_WRITE_VOTES, {
+            it.setArray(1, it.connection.createArrayOf("int4", votes.map { it.userId }.toTypedArray()))
+            it.setArray(2, it.connection.createArrayOf("int4", votes.map { it.postId }.toTypedArray()))
+            it.setArray(3, it.connection.createArrayOf("int4", votes.map { it.value }.toTypedArray()))
+        }, { })
+    }
+
+    private fun readPrimary(postId: Int): Post? {
+        return router.primary.executeSingle(SQL_READ_POST, {
+            it.setInt(1, 0)
+            it.setInt(2, postId)
+        }, { scores.postScore(it.getPost(), false) })
+    }
+
+    private fun setVote(viewerId: Int, postId: Int, value: Int): Int? {
+        val post = readPrimary(postId) ?: return null
+
+        val delta = router.write(viewerId).executeSingle(SQL_SET_VOTE, {
+            it.setInt(1, viewerId)
+            it.setInt(2, postId)
+            it.setInt(3, value)
+        }, ResultSet::getInt) ?: 0
+
+        scores.addPost(postId, delta)
+
+        return post.score + delta
+    }
+
+    private fun PreparedStatement.setCursor(i: Int, cursor: PostCursor) {
+        if (cursor.id > 0) {
+            setDouble(i, cursor.rank)
+            setInt(i + 1, cursor.id)
+        } else {
+            setNull(i, Types.DOUBLE)
+            setNull(i + 1, Types.INTEGER)
+        }
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.Comment
 import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostCursor
 import com.asadmshah.hnclone.models.RefreshSession
 import com.asadmshah.hnclone.models.User
 import java.sql.ResultSet
@@ -41,6 +42,19 @@ internal fun ResultSet.getPost(): Post {
             .build()
 }
 
+internal fun ResultSet.getPostWithCursor(): Post {
+    val cursor = PostCursor
+            .newBuilder()
+            .setRank(getDouble(10))
+            .setId(getInt(1))
+            .build()
+
+    return getPost()
+            .toBuilder()
+            .setCursor(cursor.toByteString())
+            .build()
+}
+
 internal fun ResultSet.getComment(): Comment {
     return Comment
             .newBuilder()
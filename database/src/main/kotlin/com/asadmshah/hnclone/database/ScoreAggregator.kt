@@ -0,0 +1,10 @@
+package com.asadmshah.hnclone.database
+
+interface ScoreAggregator {
+
+    fun start()
+
+    fun stop()
+
+    fun reconcile()
+}
@@ -0,0 +1,168 @@
+package com.asadmshah.hnclone.database
+
+import com.asadmshah.hnclone.models.Comment
+import com.asadmshah.hnclone.models.Post
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import javax.sql.DataSource
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+internal class ScoreAggregatorImpl(private val dataSource: DataSource,
+                                   val enabled: Boolean,
+                                   stripes: Int,
+                                   private val interval: Long,
+                                   private val unit: TimeUnit) : ScoreAggregator {
+
+    private companion object {
+        // language=PostgreSQL
+        const val SQL_APPLY_POST_SCORES = "SELECT * FROM posts_scores_apply(?, ?);"
+        // language=PostgreSQL
+        const val SQL_APPLY_COMMENT_SCORES = "SELECT * FROM comments_scores_apply(?, ?);"
+    }
+
+    private val posts = Deltas(stripes, SQL_APPLY_POST_SCORES)
+    private val comments = Deltas(stripes, SQL_APPLY_COMMENT_SCORES)
+
+    private var executor: ScheduledExecutorService? = null
+
+    override fun start() {
+        if (!enabled || executor != null) return
+
+        val executor = Executors.newSingleThreadScheduledExecutor()
+        executor.scheduleWithFixedDelay({
+            try {
+                reconcile()
+            } catch (ignored: Exception) {
+
+            }
+        }, interval, interval, unit)
+        this.executor = executor
+    }
+
+    override fun stop() {
+        val executor = this.executor ?: return
+        this.executor = null
+
+        executor.shutdown()
+        try {
+            executor.awaitTermination(interval, unit)
+        } catch (ignored: InterruptedException) {
+
+        }
+
+        reconcile()
+    }
+
+    @Synchronized
+    override fun reconcile() {
+        posts.reconcile()
+        comments.reconcile()
+    }
+
+    fun addPost(postId: Int, delta: Int) {
+        posts.add(postId, delta.toLong())
+    }
+
+    fun addComment(commentId: Int, delta: Int) {
+        comments.add(commentId, delta.toLong())
+    }
+
+    /**
+     * Adds the deltas the row cannot include yet. Replica rows may already carry a batch that is still committing on the
+     * primary, so they only get the deltas that have not been drained.
+     */
+    fun postScore(post: Post, replica: Boolean): Post {
+        if (!enabled) return post
+
+        val delta = posts.get(post.id, replica)
+        if (delta == 0L) return post
+
+        return post.toBuilder().setScore((post.score + delta).toInt()).build()
+    }
+
+    fun commentScore(comment: Comment, replica: Boolean): Comment {
+        if (!enabled) return comment
+
+        val delta = comments.get(comment.id, replica)
+        if (delta == 0L) return comment
+
+        return comment.toBuilder().setScore((comment.score + delta).toInt()).build()
+    }
+
+    private inner class Deltas(stripes: Int, private val q: String) {
+
+        private val pending = StripedScoreCounter(stripes)
+
+        // Readers hold the read lock while summing, so a batch moves from pending to in flight, and from in flight to
+        // the committed row, in one step as far as they can tell.
+        private val lock = ReentrantReadWriteLock()
+        private var inFlight: StripedScoreCounter.Table? = null
+
+        fun add(id: Int, delta: Long) {
+            pending.add(id, delta)
+        }
+
+        fun get(id: Int, replica: Boolean): Long {
+            lock.read {
+                val delta = pending.get(id)
+                return if (replica) delta else delta + (inFlight?.get(id) ?: 0L)
+            }
+        }
+
+        fun reconcile() {
+            val drained = lock.write {
+                val drained = pending.drain()
+                if (drained.size > 0) inFlight = drained
+                drained
+            }
+            if (drained.size == 0) return
+
+            var conn: Connection? = null
+            try {
+                conn = dataSource.connection
+                conn.autoCommit = false
+                apply(conn, drained)
+                lock.write {
+                    conn!!.commit()
+                    inFlight = null
+                }
+            } catch (e: Exception) {
+                try { conn?.rollback() } catch (ignored: Exception) {  }
+                lock.write {
+                    pending.addAll(drained)
+                    inFlight = null
+                }
+                throw e
+            } finally {
+                try { conn?.autoCommit = true } catch (ignored: Exception) {  }
+                try { conn?.close() } catch (ignored: Exception) {  }
+            }
+        }
+
+        private fun apply(conn: Connection, table: StripedScoreCounter.Table) {
+            val ids = arrayOfNulls<Int>(table.size)
+            val deltas = arrayOfNulls<Long>(table.size)
+            var i = 0
+            table.forEach { id, delta ->
+                ids[i] = id
+                deltas[i] = delta
+                i++
+            }
+
+            var stmt: PreparedStatement? = null
+            try {
+                stmt = conn.prepareStatement(q)
+                stmt.setArray(1, conn.createArrayOf("int4", ids))
+                stmt.setArray(2, conn.createArrayOf("int8", deltas))
+                stmt.execute()
+            } finally {
+                try { stmt?.close() } catch (ignored: Exception) {  }
+            }
+        }
+    }
+}
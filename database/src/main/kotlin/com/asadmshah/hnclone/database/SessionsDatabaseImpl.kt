@@ -7,11 +7,12 @@ import java.time.LocalDateTime
 import java.time.ZoneOffset
 import java.util.*
 import javax.inject.Inject
+import javax.inject.Named
 import javax.sql.DataSource
 
 internal class SessionsDatabaseImpl
 @Inject
-constructor(private val dataSource: DataSource) : SessionsDatabase {
+constructor(private val dataSource: DataSource, @Named(DatabaseModule.FETCH_SIZE) private val fetchSize: Int) : SessionsDatabase {
 
     private companion object {
         // language=PostgreSQL
@@ -35,7 +36,7 @@ constructor(private val dataSource: DataSource) : SessionsDatabase {
     }
 
     override fun read(id: Int): Flowable<RefreshSession> {
-        return dataSource.executeFlowable(SQL_READ_ID, {
+        return dataSource.executeFlowable(SQL_READ_ID, fetchSize, {
             it.setInt(1, id)
         }, ResultSet::getRefreshSession)
     }
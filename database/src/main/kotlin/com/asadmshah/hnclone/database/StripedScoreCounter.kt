@@ -0,0 +1,162 @@
+package com.asadmshah.hnclone.database
+
+import java.util.concurrent.locks.ReentrantLock
+
+internal class StripedScoreCounter(stripes: Int) {
+
+    private val tables: Array<Table>
+    private val mask: Int
+
+    init {
+        var size = 1
+        while (size < stripes) size = size shl 1
+
+        tables = Array(size) { Table() }
+        mask = size - 1
+    }
+
+    fun add(id: Int, delta: Long) {
+        if (delta == 0L) return
+
+        val home = probe()
+        for (i in 0..mask) {
+            val table = tables[(home + i) and mask]
+            if (table.lock.tryLock()) {
+                try {
+                    table.add(id, delta)
+                } finally {
+                    table.lock.unlock()
+                }
+                return
+            }
+        }
+
+        val table = tables[home]
+        table.lock.lock()
+        try {
+            table.add(id, delta)
+        } finally {
+            table.lock.unlock()
+        }
+    }
+
+    fun get(id: Int): Long {
+        var sum = 0L
+        for (table in tables) {
+            table.lock.lock()
+            try {
+                sum += table.get(id)
+            } finally {
+                table.lock.unlock()
+            }
+        }
+        return sum
+    }
+
+    fun drain(): Table {
+        val drained = Table()
+        for (table in tables) {
+            table.lock.lock()
+            try {
+                table.drainTo(drained)
+            } finally {
+                table.lock.unlock()
+            }
+        }
+        return drained
+    }
+
+    fun addAll(table: Table) {
+        table.forEach { id, delta -> add(id, delta) }
+    }
+
+    private fun probe(): Int {
+        var h = Thread.currentThread().id.toInt()
+        h = h xor (h ushr 16)
+        h *= 0x45d9f3b
+        h = h xor (h ushr 16)
+        return h and mask
+    }
+
+    internal class Table {
+
+        internal val lock = ReentrantLock()
+
+        private var keys = IntArray(16)
+        private var values = LongArray(16)
+        private var count = 0
+
+        val size: Int
+            get() = count
+
+        fun add(id: Int, delta: Long) {
+            if (id <= 0) return
+
+            var i = index(id, keys.size)
+            while (true) {
+                val key = keys[i]
+                if (key == id) {
+                    values[i] += delta
+                    return
+                }
+                if (key == 0) {
+                    keys[i] = id
+                    values[i] = delta
+                    if (++count * 4 > keys.size * 3) resize()
+                    return
+                }
+                i = (i + 1) and (keys.size - 1)
+            }
+        }
+
+        fun get(id: Int): Long {
+            if (id <= 0 || count == 0) return 0L
+
+            var i = index(id, keys.size)
+            while (true) {
+                val key = keys[i]
+                if (key == id) return values[i]
+                if (key == 0) return 0L
+                i = (i + 1) and (keys.size - 1)
+            }
+        }
+
+        fun forEach(action: (Int, Long) -> Unit) {
+            for (i in keys.indices) {
+                if (keys[i] != 0) action(keys[i], values[i])
+            }
+        }
+
+        fun drainTo(table: Table) {
+            if (count == 0) return
+
+            forEach { id, delta -> table.add(id, delta) }
+
+            keys = IntArray(16)
+            values = LongArray(16)
+            count = 0
+        }
+
+        private fun resize() {
+            val oldKeys = keys
+            val oldValues = values
+
+            keys = IntArray(oldKeys.size * 2)
+            values = LongArray(oldValues.size * 2)
+
+            for (i in oldKeys.indices) {
+                val key = oldKeys[i]
+                if (key == 0) continue
+
+                var j = index(key, keys.size)
+                while (keys[j] != 0) j = (j + 1) and (keys.size - 1)
+                keys[j] = key
+                values[j] = oldValues[i]
+            }
+        }
+
+        private fun index(id: Int, length: Int): Int {
+            return (id * -0x61c88647) and (length - 1)
+        }
+    }
+}
@@ -1,18 +1,29 @@
 package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.User
+import java.util.concurrent.CompletionStage
 
 interface UsersDatabase {
 
     fun create(username: String, password: String, about: String = ""): User?
 
+    fun createAsync(username: String, password: String, about: String = ""): CompletionStage<User?>
+
     fun read(id: Int): User?
 
+    fun readMany(ids: IntArray): Map<Int, User>
+
     fun read(username: String): User?
 
     fun read(username: String, password: String): User?
 
+    fun readAsync(username: String, password: String): CompletionStage<User?>
+
     fun updateAbout(id: Int, about: String = ""): String?
 
     fun updatePassword(id: Int, password: String): Boolean?
+
+    fun updatePasswordAsync(id: Int, password: String): CompletionStage<Boolean?>
+
+    fun stop()
 }
@@ -1,15 +1,26 @@
 package com.asadmshah.hnclone.database
 
 import com.asadmshah.hnclone.models.User
-import org.mindrot.jbcrypt.BCrypt
+import com.google.common.util.concurrent.MoreExecutors
 import java.sql.ResultSet
 import java.sql.SQLException
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionStage
+import java.util.concurrent.ExecutorService
+import java.util.function.Function
+import java.util.function.Supplier
 import javax.inject.Inject
+import javax.inject.Named
 import javax.sql.DataSource
 
 internal class UsersDatabaseImpl
 @Inject
-constructor(private val dataSource: DataSource) : UsersDatabase {
+constructor(private val router: DataSourceRouter,
+            private val hasher: PasswordHasher,
+            @Named(DatabaseModule.USERS_EXECUTOR) private val executor: ExecutorService) : UsersDatabase {
+
+    constructor(router: DataSourceRouter) : this(router, PasswordHasher(0, 0, LOG_ROUNDS), MoreExecutors.newDirectExecutorService())
 
     companion object {
         // language=PostgreSQL
@@ -17,6 +28,8 @@ constructor(private val dataSource: DataSource) : UsersDatabase {
         // language=PostgreSQL
         private const val SQL_READ_ID = "SELECT * FROM users_read_id(?);"
         // language=PostgreSQL
+        private const val SQL_READ_IDS = "SELECT * FROM users_read_ids(?);"
+        // language=PostgreSQL
         private const val SQL_READ_USERNAME = "SELECT * FROM users_read_username(?);"
         // language=PostgreSQL
         private const val SQL_READ_PASSWORD = "SELECT * FROM users_read_password(?);"
@@ -29,46 +42,54 @@ constructor(private val dataSource: DataSource) : UsersDatabase {
     }
 
     override fun create(username: String, password: String, about: String): User? {
-        try {
-            return dataSource
-                    .executeSingle(SQL_CREATE, {
-                        it.setString(1, username)
-                        it.setString(2, hashString(password))
-                        it.setString(3, about)
-                    }, ResultSet::getUser)
-        } catch (e: SQLException) {
-            when (e.sqlState) {
-                "23505" -> throw UserExistsException()
-                else -> throw e
-            }
-        }
+        return insert(username, hasher.hash(password), about)
+    }
+
+    override fun createAsync(username: String, password: String, about: String): CompletionStage<User?> {
+        return hasher.hashAsync(password).thenApplyAsync(Function { insert(username, it, about) }, executor)
     }
 
     override fun read(id: Int): User? {
-        return dataSource
+        return router.read(id)
                 .executeSingle(SQL_READ_ID, {
                     it.setInt(1, id)
                 }, ResultSet::getUser)
     }
 
+    override fun readMany(ids: IntArray): Map<Int, User> {
+        val users = HashMap<Int, User>(ids.size)
+        if (ids.isEmpty()) return users
+
+        router.read(-1)
+                .execute(SQL_READ_IDS, {
+                    it.setArray(1, it.connection.createArrayOf("int4", ids.toTypedArray()))
+                }, {
+                    while (it != null && it.next()) {
+                        val user = it.getUser()
+                        users.put(user.id, user)
+                    }
+                })
+
+        return users
+    }
+
     override fun read(username: String): User? {
-        return dataSource
-                .executeSingle(SQL_READ_USERNAME, {
-                    it.setString(1, username)
-                }, ResultSet::getUser)
+        return read(router.read(-1), username)
     }
 
     override fun read(username: String, password: String): User? {
-        val hash = dataSource
-                .executeSingle(SQL_READ_PASSWORD, {
-                    it.setString(1, username)
-                }, ResultSet::getString) ?: ""
+        val hash = readPassword(username)
+        return if (hasher.check(password, hash)) read(router.primary, username) else null
+    }
 
-        return if (BCrypt.checkpw(password, hash)) read(username) else null
+    override fun readAsync(username: String, password: String): CompletionStage<User?> {
+        return CompletableFuture.supplyAsync(Supplier { readPassword(username) }, executor)
+                .thenCompose { hasher.checkAsync(password, it) }
+                .thenApplyAsync(Function { if (it) read(router.primary, username) else null }, executor)
     }
 
     override fun updateAbout(id: Int, about: String): String? {
-        return dataSource
+        return router.write(id)
                 .executeSingle(SQL_UPDATE_ABOUT, {
                     it.setInt(1, id)
                     it.setString(2, about)
@@ -76,14 +97,55 @@ constructor(private val dataSource: DataSource) : UsersDatabase {
     }
 
     override fun updatePassword(id: Int, password: String): Boolean? {
-        return dataSource
+        return update(id, hasher.hash(password))
+    }
+
+    override fun updatePasswordAsync(id: Int, password: String): CompletionStage<Boolean?> {
+        return hasher.hashAsync(password).thenApplyAsync(Function { update(id, it) }, executor)
+    }
+
+    override fun stop() {
+        hasher.stop()
+        executor.shutdown()
+    }
+
+    private fun insert(username: String, hash: String, about: String): User? {
+        try {
+            val user = router.primary
+                    .executeSingle(SQL_CREATE, {
+                        it.setString(1, username)
+                        it.setString(2, hash)
+                        it.setString(3, about)
+                    }, ResultSet::getUser)
+            if (user != null) router.write(user.id)
+            return user
+        } catch (e: SQLException) {
+            when (e.sqlState) {
+                "23505" -> throw UserExistsException()
+                else -> throw e
+            }
+        }
+    }
+
+    private fun update(id: Int, hash: String): Boolean? {
+        return router.write(id)
                 .executeSingle(SQL_UPDATE_PASSWORD, {
                     it.setInt(1, id)
-                    it.setString(2, hashString(password))
+                    it.setString(2, hash)
                 }, ResultSet::getBoolean)
     }
 
-    internal fun hashString(i: String): String {
-        return BCrypt.hashpw(i, BCrypt.gensalt(LOG_ROUNDS))
+    private fun readPassword(username: String): String {
+        return router.primary
+                .executeSingle(SQL_READ_PASSWORD, {
+                    it.setString(1, username)
+                }, ResultSet::getString) ?: ""
+    }
+
+    private fun read(dataSource: DataSource, username: String): User? {
+        return dataSource
+                .executeSingle(SQL_READ_USERNAME, {
+                    it.setString(1, username)
+                }, ResultSet::getUser)
     }
-}
\ No newline at end of file
+}
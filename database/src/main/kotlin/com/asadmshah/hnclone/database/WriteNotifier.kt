@@ -0,0 +1,40 @@
+package com.asadmshah.hnclone.database
+
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.util.Base64
+
+/**
+ * Sends a NOTIFY from inside the transaction that wrote the row, so listeners hear about a post or comment only once
+ * it has committed and a failed write never announces anything. The channel and the base64 protobuf payload match
+ * what the Postgres PubSub listens for.
+ */
+internal class WriteNotifier(val enabled: Boolean) {
+
+    companion object {
+        const val CHANNEL_POST = "post"
+        const val CHANNEL_COMMENTS = "comments"
+
+        private const val MAX_PAYLOAD = 7999
+
+        // language=PostgreSQL
+        private const val SQL_NOTIFY = "SELECT pg_notify(?, ?);"
+    }
+
+    fun notify(connection: Connection, channel: String, message: ByteArray) {
+        if (!enabled) return
+
+        val payload = Base64.getEncoder().encodeToString(message)
+        if (payload.length > MAX_PAYLOAD) return
+
+        var stmt: PreparedStatement? = null
+        try {
+            stmt = connection.prepareStatement(SQL_NOTIFY)
+            stmt.setString(1, channel)
+            stmt.setString(2, payload)
+            stmt.execute()
+        } finally {
+            try { stmt?.close() } catch (ignored: Exception) {  }
+        }
+    }
+}
@@ -6,10 +6,16 @@ import org.apache.commons.configuration2.builder.fluent.Configurations;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 class BaseDatabaseTest {
 
+    protected static final int FETCH_SIZE = 2;
+
     protected DataSource dataSource;
+    protected DataSourceRouter router;
+    protected ScoreAggregatorImpl scores;
+    protected WriteNotifier notifier;
 
     protected void init() throws Exception {
         Configuration configuration = new Configurations()
@@ -17,6 +23,9 @@ class BaseDatabaseTest {
 
         DatabaseModule module = new DatabaseModule();
         dataSource = module.providesDataSource(configuration);
+        router = new DataSourceRouter(dataSource);
+        scores = new ScoreAggregatorImpl(dataSource, false, 1, 1, TimeUnit.SECONDS);
+        notifier = new WriteNotifier(false);
 
         Connection connection = null;
         Statement statement = null;
@@ -9,6 +9,7 @@ import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -22,9 +23,9 @@ public class CommentsDatabaseTest extends BaseDatabaseTest {
 
     @Test
     public void test1() throws Exception {
-        UsersDatabase udb = new UsersDatabaseImpl(dataSource);
-        PostsDatabase pdb = new PostsDatabaseImpl(dataSource);
-        CommentsDatabase cdb = new CommentsDatabaseImpl(dataSource);
+        UsersDatabase udb = new UsersDatabaseImpl(router);
+        PostsDatabase pdb = new PostsDatabaseImpl(router, FETCH_SIZE, scores, notifier);
+        CommentsDatabase cdb = new CommentsDatabaseImpl(router, FETCH_SIZE, scores, notifier);
 
         User user1 = udb.create("Username 1", "Password 1", "");
         assertThat(user1).isNotNull();
@@ -96,6 +97,11 @@ public class CommentsDatabaseTest extends BaseDatabaseTest {
                 .toList()
                 .blockingGet();
         assertThat(commentsList2).containsExactly(10, 11, 12, 13, 16, 17, 14, 15, 1, 5, 8, 9, 6, 7, 2, 3, 4, 18).inOrder();
+
+        Map<Integer, Comment> comments = cdb.readMany(user3.getId(), new int[] { comment15.getId(), comment18.getId(), 999 });
+        assertThat(comments).hasSize(2);
+        assertThat(comments.get(comment15.getId())).isEqualTo(cdb.readComment(user3.getId(), post1.getId(), comment15.getId()));
+        assertThat(comments.get(comment18.getId()).getScore()).isEqualTo(-1);
     }
 
 }
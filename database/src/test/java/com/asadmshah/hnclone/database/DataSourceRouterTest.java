@@ -0,0 +1,80 @@
+package com.asadmshah.hnclone.database;
+
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DataSourceRouterTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private final DataSource replica2 = mock(DataSource.class);
+
+    @Test
+    public void read_shouldUsePrimaryWithoutReplicas() {
+        DataSourceRouter router = new DataSourceRouter(primary);
+
+        assertThat(router.read(-1)).isSameAs(primary);
+        assertThat(router.write(10)).isSameAs(primary);
+        assertThat(router.read(10)).isSameAs(primary);
+    }
+
+    @Test
+    public void read_shouldUseReplicas() {
+        DataSourceRouter router = new DataSourceRouter(primary, Arrays.asList(replica1, replica2), 1, TimeUnit.MINUTES);
+
+        assertThat(router.read(-1)).isNotSameAs(primary);
+        assertThat(router.read(10)).isNotSameAs(primary);
+        assertThat(router.read(10)).isNotSameAs(primary);
+    }
+
+    @Test
+    public void read_shouldStickToPrimaryAfterWrite() {
+        DataSourceRouter router = new DataSourceRouter(primary, Collections.singletonList(replica1), 1, TimeUnit.MINUTES);
+
+        assertThat(router.write(10)).isSameAs(primary);
+        assertThat(router.read(10)).isSameAs(primary);
+        assertThat(router.read(11)).isNotSameAs(primary);
+        assertThat(router.read(-1)).isNotSameAs(primary);
+    }
+
+    @Test
+    public void read_shouldPreferLeastLoadedReplica() throws Exception {
+        when(replica1.getConnection()).thenReturn(mock(Connection.class));
+        when(replica2.getConnection()).thenReturn(mock(Connection.class));
+
+        DataSourceRouter router = new DataSourceRouter(primary, Arrays.asList(replica1, replica2), 1, TimeUnit.MINUTES);
+
+        DataSource busy = router.read(-1);
+        Connection connection = busy.getConnection();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(router.read(-1)).isNotSameAs(busy);
+        }
+
+        connection.close();
+
+        DataSource first = router.read(-1);
+        DataSource second = router.read(-1);
+        assertThat(first).isNotSameAs(second);
+    }
+
+    @Test
+    public void read_shouldReturnToReplicaAfterStickiness() throws Exception {
+        DataSourceRouter router = new DataSourceRouter(primary, Collections.singletonList(replica1), 10, TimeUnit.MILLISECONDS);
+
+        router.write(10);
+        Thread.sleep(20);
+
+        assertThat(router.read(10)).isNotSameAs(primary);
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.asadmshah.hnclone.database;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PasswordHasherTest {
+
+    @Test
+    public void hash_shouldCheckInline() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(0, 0, 4);
+
+        String hash = hasher.hash("password");
+
+        assertThat(hasher.check("password", hash)).isTrue();
+        assertThat(hasher.check("wrong", hash)).isFalse();
+        assertThat(hasher.getCompleted()).isEqualTo(3L);
+    }
+
+    @Test
+    public void hash_shouldCheckOnPool() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(2, 4, 4);
+
+        String hash = hasher.hash("password");
+
+        assertThat(hash).startsWith("$2a$04$");
+        assertThat(hasher.check("password", hash)).isTrue();
+        assertThat(hasher.getCompleted()).isEqualTo(2L);
+        assertThat(hasher.getMaxHashLatencyMicros()).isAtLeast(hasher.getAverageHashLatencyMicros());
+
+        hasher.stop();
+    }
+
+    @Test
+    public void hashAsync_shouldNotBlockTheCaller() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(1, 4, 12);
+
+        CompletableFuture<String> hash = hasher.hashAsync("password");
+
+        assertThat(hash.isDone()).isFalse();
+        assertThat(hasher.checkAsync("password", hash.get(10, TimeUnit.SECONDS)).get(10, TimeUnit.SECONDS)).isTrue();
+
+        hasher.stop();
+    }
+
+    @Test
+    public void hashAsync_shouldFailWhenQueueFull() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(1, 1, 14);
+
+        hasher.hashAsync("password");
+        Thread.sleep(100);
+        hasher.hashAsync("password");
+
+        CompletableFuture<String> rejected = hasher.hashAsync("password");
+
+        assertThat(rejected.isCompletedExceptionally()).isTrue();
+        try {
+            rejected.get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(PasswordHasherBusyException.class);
+        }
+        assertThat(hasher.getRejected()).isEqualTo(1L);
+
+        hasher.stop();
+    }
+
+    @Test
+    public void hash_shouldRejectWhenQueueFull() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(1, 1, 14);
+
+        CountDownLatch latch = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            Thread thread = new Thread(() -> {
+                hasher.hash("password");
+                latch.countDown();
+            });
+            thread.setDaemon(true);
+            thread.start();
+            Thread.sleep(100);
+        }
+
+        PasswordHasherBusyException exception = null;
+        try {
+            hasher.hash("password");
+        } catch (PasswordHasherBusyException e) {
+            exception = e;
+        }
+
+        assertThat(exception).isNotNull();
+        assertThat(hasher.getRejected()).isEqualTo(1L);
+        assertThat(hasher.getQueueDepth()).isEqualTo(1);
+
+        hasher.stop();
+    }
+
+}
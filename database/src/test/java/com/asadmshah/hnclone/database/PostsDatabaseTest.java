@@ -1,6 +1,7 @@
 package com.asadmshah.hnclone.database;
 
 import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.PostCursor;
 import com.asadmshah.hnclone.models.User;
 import io.reactivex.Flowable;
 import org.junit.Before;
@@ -10,6 +11,7 @@ import org.junit.runners.MethodSorters;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -23,8 +25,8 @@ public class PostsDatabaseTest extends BaseDatabaseTest {
 
     @Test
     public void test1() throws Exception {
-        UsersDatabase udb = new UsersDatabaseImpl(dataSource);
-        PostsDatabase pdb = new PostsDatabaseImpl(dataSource);
+        UsersDatabase udb = new UsersDatabaseImpl(router);
+        PostsDatabase pdb = new PostsDatabaseImpl(router, FETCH_SIZE, scores, notifier);
 
         User user1 = udb.create("Username 1", "Password 1", "");
         assertThat(user1).isNotNull();
@@ -102,4 +104,76 @@ public class PostsDatabaseTest extends BaseDatabaseTest {
         assertThat(post.getId()).isEqualTo(posts.get(0).getId());
     }
 
-}
+    @Test
+    public void test2() throws Exception {
+        UsersDatabase udb = new UsersDatabaseImpl(router);
+        PostsDatabase pdb = new PostsDatabaseImpl(router, FETCH_SIZE, scores, notifier);
+
+        User user = udb.create("Username 1", "Password 1", "");
+        assertThat(user).isNotNull();
+
+        List<Post> posts = new ArrayList<>(5);
+        for (int i = 0; i < 5; i++) {
+            posts.add(pdb.create(user.getId(), "Title " + i, "Text " + i, "URL " + i));
+        }
+
+        List<Post> page1 = pdb.readNew(0, PostCursor.getDefaultInstance(), 2).toList().blockingGet();
+        assertThat(page1).hasSize(2);
+        assertThat(page1.get(0).getId()).isEqualTo(posts.get(4).getId());
+        assertThat(page1.get(1).getId()).isEqualTo(posts.get(3).getId());
+
+        PostCursor cursor = PostCursor.parseFrom(page1.get(1).getCursor());
+        assertThat(cursor.getId()).isEqualTo(posts.get(3).getId());
+
+        List<Post> page2 = pdb.readNew(0, cursor, 2).toList().blockingGet();
+        assertThat(page2).hasSize(2);
+        assertThat(page2.get(0).getId()).isEqualTo(posts.get(2).getId());
+        assertThat(page2.get(1).getId()).isEqualTo(posts.get(1).getId());
+
+        List<Post> page3 = pdb.readNew(0, user.getId(), PostCursor.parseFrom(page2.get(1).getCursor()), 2).toList().blockingGet();
+        assertThat(page3).hasSize(1);
+        assertThat(page3.get(0).getId()).isEqualTo(posts.get(0).getId());
+
+        pdb.incrementScore(user.getId(), posts.get(2).getId());
+
+        List<Post> top = pdb.readTop(0, PostCursor.getDefaultInstance(), 1).toList().blockingGet();
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).getId()).isEqualTo(posts.get(2).getId());
+
+        List<Post> rest = pdb.readTop(0, PostCursor.parseFrom(top.get(0).getCursor()), 10).toList().blockingGet();
+        assertThat(rest).hasSize(4);
+        for (Post post : rest) {
+            assertThat(post.getId()).isNotEqualTo(posts.get(2).getId());
+        }
+    }
+
+    @Test
+    public void test3() throws Exception {
+        UsersDatabase udb = new UsersDatabaseImpl(router);
+        PostsDatabase pdb = new PostsDatabaseImpl(router, FETCH_SIZE, scores, notifier);
+
+        User user = udb.create("Username 1", "Password 1", "");
+        assertThat(user).isNotNull();
+
+        for (int i = 0; i < 10; i++) {
+            pdb.create(user.getId(), "Title " + i, "Text " + i, "URL " + i);
+        }
+
+        Post first = pdb.readNew(0, 10, 0).take(1).blockingFirst();
+        assertThat(first).isNotNull();
+
+        Post post = pdb.read(0, first.getId());
+        assertThat(post).isNotNull();
+        assertThat(post.getId()).isEqualTo(first.getId());
+
+        List<Post> postsList = pdb.readNew(0, 10, 0).toList().blockingGet();
+        assertThat(postsList).hasSize(10);
+
+        Map<Integer, Post> many = pdb.readMany(0, new int[] { postsList.get(0).getId(), postsList.get(3).getId(), 999 });
+        assertThat(many).hasSize(2);
+        assertThat(many.get(postsList.get(0).getId())).isEqualTo(pdb.read(0, postsList.get(0).getId()));
+        assertThat(many.get(postsList.get(3).getId())).isEqualTo(pdb.read(0, postsList.get(3).getId()));
+        assertThat(pdb.readMany(0, new int[0])).isEmpty();
+    }
+
+}
\ No newline at end of file
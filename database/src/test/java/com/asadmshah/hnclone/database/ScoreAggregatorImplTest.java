@@ -0,0 +1,77 @@
+package com.asadmshah.hnclone.database;
+
+import com.asadmshah.hnclone.models.Post;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ScoreAggregatorImplTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private ScoreAggregatorImpl scores;
+
+    @Before
+    public void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+
+        scores = new ScoreAggregatorImpl(dataSource, true, 4, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void postScore_shouldCountInFlightDeltasUntilCommitted() throws Exception {
+        scores.addPost(1, 3);
+
+        int[] whileApplying = new int[2];
+        when(statement.execute()).thenAnswer(invocation -> {
+            whileApplying[0] = scores.postScore(post(1, 10), false).getScore();
+            whileApplying[1] = scores.postScore(post(1, 10), true).getScore();
+            return true;
+        });
+
+        assertThat(scores.postScore(post(1, 10), false).getScore()).isEqualTo(13);
+
+        scores.reconcile();
+
+        assertThat(whileApplying[0]).isEqualTo(13);
+        assertThat(whileApplying[1]).isEqualTo(10);
+        assertThat(scores.postScore(post(1, 13), false).getScore()).isEqualTo(13);
+        verify(connection).commit();
+    }
+
+    @Test
+    public void reconcile_shouldKeepDeltasWhenApplyFails() throws Exception {
+        scores.addPost(1, 3);
+        when(statement.execute()).thenThrow(new SQLException());
+
+        try {
+            scores.reconcile();
+        } catch (Exception ignored) {
+
+        }
+
+        assertThat(scores.postScore(post(1, 10), false).getScore()).isEqualTo(13);
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    private static Post post(int id, int score) {
+        return Post.newBuilder().setId(id).setScore(score).build();
+    }
+
+}
@@ -22,8 +22,8 @@ public class SessionsDatabaseTest extends BaseDatabaseTest {
 
     @Test
     public void test1() throws Exception {
-        UsersDatabase udb = new UsersDatabaseImpl(dataSource);
-        SessionsDatabase sdb = new SessionsDatabaseImpl(dataSource);
+        UsersDatabase udb = new UsersDatabaseImpl(router);
+        SessionsDatabase sdb = new SessionsDatabaseImpl(dataSource, FETCH_SIZE);
 
         User user1 = udb.create("Username 1", "Password 1", "");
         assertThat(user1).isNotNull();
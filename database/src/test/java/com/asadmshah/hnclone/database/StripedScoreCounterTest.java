@@ -0,0 +1,65 @@
+package com.asadmshah.hnclone.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StripedScoreCounterTest {
+
+    @Test
+    public void add_shouldSumAcrossThreads() throws Exception {
+        StripedScoreCounter counter = new StripedScoreCounter(4);
+
+        int threadCount = 8;
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    counter.add(1, 1);
+                    counter.add(2 + j % 100, -1);
+                }
+                latch.countDown();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        latch.await();
+
+        assertThat(counter.get(1)).isEqualTo(80_000L);
+        assertThat(counter.get(2)).isEqualTo(-800L);
+        assertThat(counter.get(500)).isEqualTo(0L);
+    }
+
+    @Test
+    public void drain_shouldResetCounters() throws Exception {
+        StripedScoreCounter counter = new StripedScoreCounter(2);
+        for (int i = 1; i <= 1000; i++) {
+            counter.add(i, i);
+        }
+
+        StripedScoreCounter.Table drained = counter.drain();
+
+        Map<Integer, Long> deltas = new HashMap<>();
+        drained.forEach((id, delta) -> {
+            deltas.put(id, delta);
+            return null;
+        });
+
+        assertThat(drained.getSize()).isEqualTo(1000);
+        assertThat(deltas).hasSize(1000);
+        assertThat(deltas.get(500)).isEqualTo(500L);
+        assertThat(counter.get(500)).isEqualTo(0L);
+
+        counter.addAll(drained);
+
+        assertThat(counter.get(500)).isEqualTo(500L);
+    }
+
+}
@@ -7,6 +7,7 @@ import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -20,8 +21,8 @@ public class UsersDatabaseTest extends BaseDatabaseTest {
 
     @Test
     public void test1() throws Exception {
-        UsersDatabase udb = new UsersDatabaseImpl(dataSource);
-        SessionsDatabase sdb = new SessionsDatabaseImpl(dataSource);
+        UsersDatabase udb = new UsersDatabaseImpl(router);
+        SessionsDatabase sdb = new SessionsDatabaseImpl(dataSource, FETCH_SIZE);
 
         User user1 = udb.create("Username 1", "Password 1", "About 1");
         assertThat(user1).isNotNull();
@@ -36,6 +37,11 @@ public class UsersDatabaseTest extends BaseDatabaseTest {
 
         assertThat(udb.read(-1)).isNull();
 
+        Map<Integer, User> users = udb.readMany(new int[] { user1.getId(), user3.getId(), -1 });
+        assertThat(users).hasSize(2);
+        assertThat(users.get(user1.getId())).isEqualTo(user1);
+        assertThat(users.get(user3.getId())).isEqualTo(user3);
+
         User user2Res = udb.read("Username 2");
         assertThat(user2Res).isNotNull();
         assertThat(user2Res).isEqualTo(user2);
@@ -60,7 +66,7 @@ public class UsersDatabaseTest extends BaseDatabaseTest {
 
     @Test(expected = UserExistsException.class)
     public void create_shouldThrowDuplicateUserException() throws Exception {
-        UsersDatabase udb = new UsersDatabaseImpl(dataSource);
+        UsersDatabase udb = new UsersDatabaseImpl(router);
 
         User user1 = udb.create("Username 1", "Password 1", "About 1");
         assertThat(user1).isNotNull();
@@ -0,0 +1,19 @@
+package com.asadmshah.hnclone.errors;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import javax.annotation.Nonnull;
+
+public final class BatchTooLargeStatusException extends StatusRuntimeException {
+
+    public BatchTooLargeStatusException() {
+        this(Status.INVALID_ARGUMENT.withDescription("Batch Too Large."), new Metadata());
+    }
+
+    private BatchTooLargeStatusException(Status status, @Nonnull Metadata trailers) {
+        super(status, trailers);
+        trailers.put(ServiceError.KEY, ServiceError.BATCH_TOO_LARGE.toCode());
+    }
+}
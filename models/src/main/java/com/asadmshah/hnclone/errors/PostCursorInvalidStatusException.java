@@ -0,0 +1,19 @@
+package com.asadmshah.hnclone.errors;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import javax.annotation.Nonnull;
+
+public final class PostCursorInvalidStatusException extends StatusRuntimeException {
+
+    public PostCursorInvalidStatusException() {
+        this(Status.INVALID_ARGUMENT.withDescription("Post Cursor Invalid."), new Metadata());
+    }
+
+    private PostCursorInvalidStatusException(Status status, @Nonnull Metadata trailers) {
+        super(status, trailers);
+        trailers.put(ServiceError.KEY, ServiceError.POSTS_CURSOR_INVALID.toCode());
+    }
+}
@@ -0,0 +1,19 @@
+package com.asadmshah.hnclone.errors;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import javax.annotation.Nonnull;
+
+public final class ServerBusyStatusException extends StatusRuntimeException {
+
+    public ServerBusyStatusException() {
+        this(Status.RESOURCE_EXHAUSTED.withDescription("Server Busy."), new Metadata());
+    }
+
+    private ServerBusyStatusException(Status status, @Nonnull Metadata trailers) {
+        super(status, trailers);
+        trailers.put(ServiceError.KEY, ServiceError.SERVER_BUSY.toCode());
+    }
+}
@@ -28,7 +28,12 @@ public enum ServiceError {
     USERS_USERNAME_INVALID,
     USERS_PASSWORD_INSECURE,
     USERS_ABOUT_TOO_LONG,
-    USERS_NOT_FOUND
+    USERS_NOT_FOUND,
+    POSTS_CURSOR_INVALID,
+    BATCH_TOO_LARGE,
+    SERVER_BUSY,
+    STREAM_RESUME_INVALID,
+    STREAM_RESUME_EXPIRED
     ;
 
     static final Metadata.Key<byte[]> KEY = Metadata.Key.of("error-code-bin", Metadata.BINARY_BYTE_MARSHALLER);
@@ -92,6 +97,16 @@ public enum ServiceError {
                 return new UserAboutTooLongStatusException();
             case USERS_NOT_FOUND:
                 return new UserNotFoundStatusException();
+            case POSTS_CURSOR_INVALID:
+                return new PostCursorInvalidStatusException();
+            case BATCH_TOO_LARGE:
+                return new BatchTooLargeStatusException();
+            case SERVER_BUSY:
+                return new ServerBusyStatusException();
+            case STREAM_RESUME_INVALID:
+                return new StreamResumeInvalidStatusException();
+            case STREAM_RESUME_EXPIRED:
+                return new StreamResumeExpiredStatusException();
             case UNKNOWN:
             default:
                 return new UnknownStatusException();
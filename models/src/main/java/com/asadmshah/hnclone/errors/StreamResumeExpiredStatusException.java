@@ -0,0 +1,19 @@
+package com.asadmshah.hnclone.errors;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import javax.annotation.Nonnull;
+
+public final class StreamResumeExpiredStatusException extends StatusRuntimeException {
+
+    public StreamResumeExpiredStatusException() {
+        this(Status.OUT_OF_RANGE.withDescription("Stream Resume Point Expired."), new Metadata());
+    }
+
+    private StreamResumeExpiredStatusException(Status status, @Nonnull Metadata trailers) {
+        super(status, trailers);
+        trailers.put(ServiceError.KEY, ServiceError.STREAM_RESUME_EXPIRED.toCode());
+    }
+}
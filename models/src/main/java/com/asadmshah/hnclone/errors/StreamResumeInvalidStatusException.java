@@ -0,0 +1,19 @@
+package com.asadmshah.hnclone.errors;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import javax.annotation.Nonnull;
+
+public final class StreamResumeInvalidStatusException extends StatusRuntimeException {
+
+    public StreamResumeInvalidStatusException() {
+        this(Status.INVALID_ARGUMENT.withDescription("Stream Resume Point Invalid."), new Metadata());
+    }
+
+    private StreamResumeInvalidStatusException(Status status, @Nonnull Metadata trailers) {
+        super(status, trailers);
+        trailers.put(ServiceError.KEY, ServiceError.STREAM_RESUME_INVALID.toCode());
+    }
+}
@@ -2,9 +2,12 @@ package com.asadmshah.hnclone.pubsub;
 
 import com.asadmshah.hnclone.models.Post;
 import com.asadmshah.hnclone.models.PostScore;
+import io.reactivex.disposables.Disposable;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @BenchmarkMode(Mode.Throughput)
@@ -64,4 +67,124 @@ public class LocalPubSubImplBenchmark {
         }
     }
 
+    @State(Scope.Thread)
+    public static class WatchedPosts {
+
+        @Param({"100", "1000"})
+        public int postCount;
+
+        @Param({"1", "10"})
+        public int watchersPerPost;
+
+        PubSub pubSub;
+        PostScore[] scores;
+
+        private final List<Disposable> disposables = new ArrayList<>();
+
+        void init() {
+            pubSub = new LocalPubSubImpl();
+            pubSub.start();
+
+            scores = new PostScore[postCount];
+            for (int i = 0; i < postCount; i++) {
+                scores[i] = PostScore.newBuilder().setId(i + 1).setScore(i).build();
+            }
+        }
+
+        void watchKeyed(Blackhole blackhole) {
+            for (int i = 1; i <= postCount; i++) {
+                for (int j = 0; j < watchersPerPost; j++) {
+                    disposables.add(pubSub.subPostScore(i).subscribe(blackhole::consume));
+                }
+            }
+        }
+
+        void watchFiltered(Blackhole blackhole) {
+            for (int i = 1; i <= postCount; i++) {
+                final int postId = i;
+                for (int j = 0; j < watchersPerPost; j++) {
+                    disposables.add(pubSub.subPostScore().filter(it -> it.getId() == postId).subscribe(blackhole::consume));
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            for (Disposable disposable : disposables) {
+                disposable.dispose();
+            }
+            disposables.clear();
+            pubSub.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KeyedWatchers extends WatchedPosts {
+
+        @Setup
+        public void setUp(Blackhole blackhole) {
+            init();
+            watchKeyed(blackhole);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FilteredWatchers extends WatchedPosts {
+
+        @Setup
+        public void setUp(Blackhole blackhole) {
+            init();
+            watchFiltered(blackhole);
+        }
+    }
+
+    @Benchmark
+    public void postScoreKeyedBenchmark(KeyedWatchers state) {
+        for (PostScore score : state.scores) {
+            state.pubSub.pubPostScore(score);
+        }
+    }
+
+    @Benchmark
+    public void postScoreFilteredBenchmark(FilteredWatchers state) {
+        for (PostScore score : state.scores) {
+            state.pubSub.pubPostScore(score);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedPubSub {
+
+        @Param({"BLOCKING", "SLEEPING", "YIELDING"})
+        public String waitStrategy;
+
+        LocalPubSubImpl pubSub;
+
+        private Disposable disposable;
+
+        @Setup
+        public void setUp(Blackhole blackhole) {
+            pubSub = new LocalPubSubImpl(65536, 256, WaitStrategy.valueOf(waitStrategy));
+            pubSub.start();
+            disposable = pubSub.subPostScore().subscribe(blackhole::consume);
+        }
+
+        @TearDown
+        public void tearDown() {
+            disposable.dispose();
+            pubSub.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PublisherScore {
+        final PostScore score = PostScore.newBuilder().setId(1).setScore(1).build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void postScoreConcurrentPublishersBenchmark(SharedPubSub state, PublisherScore score) {
+        state.pubSub.pubPostScore(score.score);
+    }
+
 }
@@ -7,4 +7,12 @@ internal object Channels {
     internal val COMMENTS = "COMMENTS".toByteArray()
     internal val COMMENT_SCORES = "COMMENT_SCORES".toByteArray()
 
-}
\ No newline at end of file
+    internal fun keyed(channel: ByteArray, key: Int): ByteArray {
+        return "${String(channel)}:$key".toByteArray()
+    }
+
+    internal fun pattern(channel: ByteArray): ByteArray {
+        return "${String(channel)}:*".toByteArray()
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.asadmshah.hnclone.pubsub
+
+import io.reactivex.BackpressureOverflowStrategy
+import io.reactivex.Flowable
+import io.reactivex.Scheduler
+import io.reactivex.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
+
+class Conflator @JvmOverloads constructor(private val window: Long,
+                                          private val unit: TimeUnit,
+                                          private val scheduler: Scheduler = Schedulers.computation()) {
+
+    companion object {
+        const val BUFFER_SIZE = 100L
+    }
+
+    fun <T> conflate(source: Flowable<T>, keyOf: (T) -> Int): Flowable<T> {
+        if (window <= 0) {
+            return source.onBackpressureBuffer(BUFFER_SIZE, null, BackpressureOverflowStrategy.DROP_OLDEST)
+        }
+
+        return FlowableConflate(source, window, unit, scheduler, keyOf).concatMapIterable({ it }, 1)
+    }
+}
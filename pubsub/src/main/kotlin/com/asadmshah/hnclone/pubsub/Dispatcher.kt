@@ -0,0 +1,121 @@
+package com.asadmshah.hnclone.pubsub
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+internal class Dispatcher(private val name: String, private val batchSize: Int, private val waitStrategy: WaitStrategy) {
+
+    inner class Channel<T>(capacity: Int, private val sink: (T) -> Unit) {
+
+        private val ring = RingBuffer<T>(capacity)
+
+        val dropped = AtomicLong()
+
+        fun publish(value: T) {
+            if (ring.offer(value)) {
+                wake()
+            } else {
+                dropped.incrementAndGet()
+            }
+        }
+
+        internal fun isEmpty(): Boolean {
+            return ring.isEmpty()
+        }
+
+        internal fun drain(): Int {
+            return ring.drain(batchSize) {
+                try {
+                    sink(it)
+                } catch (ignored: Exception) {
+
+                }
+            }
+        }
+    }
+
+    private val channels = CopyOnWriteArrayList<Channel<*>>()
+    private val parked = AtomicBoolean()
+
+    @Volatile private var running = false
+    @Volatile private var thread: Thread? = null
+
+    fun <T> channel(capacity: Int, sink: (T) -> Unit): Channel<T> {
+        val channel = Channel(capacity, sink)
+        channels.add(channel)
+        return channel
+    }
+
+    @Synchronized
+    fun start() {
+        if (thread != null) return
+
+        running = true
+        thread = Thread({ run() }, name)
+        thread?.isDaemon = true
+        thread?.start()
+    }
+
+    @Synchronized
+    fun stop() {
+        val thread = thread ?: return
+
+        running = false
+        LockSupport.unpark(thread)
+        thread.join()
+
+        this.thread = null
+    }
+
+    private fun wake() {
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(thread)
+        }
+    }
+
+    private fun isEmpty(): Boolean {
+        return channels.all { it.isEmpty() }
+    }
+
+    private fun run() {
+        var idleCount = 0
+        while (running) {
+            var drained = 0
+            for (channel in channels) {
+                drained += channel.drain()
+            }
+
+            if (drained > 0) {
+                idleCount = 0
+            } else {
+                idle(idleCount)
+                idleCount = Math.min(idleCount + 1, 1000)
+            }
+        }
+    }
+
+    private fun idle(count: Int) {
+        when (waitStrategy) {
+            WaitStrategy.BLOCKING -> {
+                parked.set(true)
+                if (running && isEmpty()) LockSupport.park(this)
+                parked.set(false)
+            }
+            WaitStrategy.SLEEPING -> {
+                if (count > 200) {
+                    LockSupport.parkNanos(this, 100)
+                } else if (count > 100) {
+                    Thread.`yield`()
+                }
+            }
+            WaitStrategy.YIELDING -> {
+                if (count > 100) Thread.`yield`()
+            }
+            WaitStrategy.BUSY_SPIN -> {
+
+            }
+        }
+    }
+}
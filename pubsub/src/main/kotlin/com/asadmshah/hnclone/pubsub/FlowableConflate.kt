@@ -0,0 +1,126 @@
+package com.asadmshah.hnclone.pubsub
+
+import io.reactivex.Flowable
+import io.reactivex.Scheduler
+import org.reactivestreams.Publisher
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import java.util.ArrayList
+import java.util.LinkedHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+internal class FlowableConflate<T>(private val source: Publisher<T>,
+                                   private val window: Long,
+                                   private val unit: TimeUnit,
+                                   private val scheduler: Scheduler,
+                                   private val keyOf: (T) -> Int) : Flowable<List<T>>() {
+
+    override fun subscribeActual(s: Subscriber<in List<T>>) {
+        source.subscribe(ConflateSubscriber(s, window, unit, scheduler.createWorker(), keyOf))
+    }
+
+    private class ConflateSubscriber<T>(private val actual: Subscriber<in List<T>>,
+                                        private val window: Long,
+                                        private val unit: TimeUnit,
+                                        private val worker: Scheduler.Worker,
+                                        private val keyOf: (T) -> Int) : Subscriber<T>, Subscription, Runnable {
+
+        private val pending = LinkedHashMap<Int, T>()
+        private val requested = AtomicLong()
+        private val wip = AtomicInteger()
+        private val due = AtomicBoolean()
+
+        private var upstream: Subscription? = null
+
+        @Volatile private var done = false
+        @Volatile private var cancelled = false
+        private var error: Throwable? = null
+
+        override fun onSubscribe(s: Subscription) {
+            upstream = s
+            actual.onSubscribe(this)
+            s.request(Long.MAX_VALUE)
+            worker.schedulePeriodically(this, window, window, unit)
+        }
+
+        override fun onNext(t: T) {
+            synchronized(pending) {
+                pending.put(keyOf(t), t)
+            }
+        }
+
+        override fun onError(t: Throwable) {
+            error = t
+            done = true
+            due.set(true)
+            drain()
+        }
+
+        override fun onComplete() {
+            done = true
+            due.set(true)
+            drain()
+        }
+
+        override fun run() {
+            due.set(true)
+            drain()
+        }
+
+        override fun request(n: Long) {
+            while (true) {
+                val current = requested.get()
+                val next = if (current + n < 0) Long.MAX_VALUE else current + n
+                if (requested.compareAndSet(current, next)) break
+            }
+            drain()
+        }
+
+        override fun cancel() {
+            cancelled = true
+            upstream?.cancel()
+            worker.dispose()
+        }
+
+        private fun drain() {
+            if (wip.getAndIncrement() != 0) return
+
+            var missed = 1
+            while (true) {
+                if (cancelled) return
+
+                if (due.get() && requested.get() > 0) {
+                    val batch = synchronized(pending) {
+                        val values = ArrayList(pending.values)
+                        pending.clear()
+                        values
+                    }
+
+                    due.set(false)
+
+                    if (batch.isNotEmpty()) {
+                        requested.decrementAndGet()
+                        actual.onNext(batch)
+                    }
+                }
+
+                if (done && isEmpty()) {
+                    worker.dispose()
+                    val error = error
+                    if (error != null) actual.onError(error) else actual.onComplete()
+                    return
+                }
+
+                missed = wip.addAndGet(-missed)
+                if (missed == 0) break
+            }
+        }
+
+        private fun isEmpty(): Boolean {
+            return synchronized(pending) { pending.isEmpty() }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.asadmshah.hnclone.pubsub
+
+import io.reactivex.Flowable
+import io.reactivex.processors.PublishProcessor
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+internal class KeyedProcessor<T> @JvmOverloads constructor(private val keyOf: (T) -> Int,
+                                                         private val onFirst: (Int) -> Unit = {},
+                                                         private val onLast: (Int) -> Unit = {}) {
+
+    private class Topic<T> {
+        val processor: PublishProcessor<T> = PublishProcessor.create<T>()
+        val ready = CountDownLatch(1)
+        var refs = 0
+    }
+
+    private val topics = ConcurrentHashMap<Int, Topic<T>>()
+    private val actions = ConcurrentLinkedQueue<() -> Unit>()
+    private val wip = AtomicInteger()
+
+    val size: Int
+        get() = topics.size
+
+    fun onNext(value: T) {
+        topics[keyOf(value)]?.processor?.onNext(value)
+    }
+
+    fun subscribe(key: Int): Flowable<T> {
+        return Flowable.defer {
+            val topic = acquire(key)
+            drain()
+            topic.ready.await()
+            topic.processor.doOnCancel {
+                release(key)
+                drain()
+            }
+        }
+    }
+
+    @Synchronized
+    private fun acquire(key: Int): Topic<T> {
+        var topic = topics[key]
+        if (topic == null) {
+            val created = Topic<T>()
+            actions.offer {
+                try {
+                    onFirst(key)
+                } finally {
+                    created.ready.countDown()
+                }
+            }
+            topic = created
+            topics.put(key, topic)
+        }
+        topic.refs++
+        return topic
+    }
+
+    @Synchronized
+    private fun release(key: Int) {
+        val topic = topics[key] ?: return
+        if (--topic.refs <= 0) {
+            topics.remove(key)
+            actions.offer { onLast(key) }
+        }
+    }
+
+    private fun drain() {
+        if (wip.getAndIncrement() != 0) return
+
+        var missed = 1
+        while (true) {
+            while (true) {
+                val action = actions.poll() ?: break
+                try {
+                    action()
+                } catch (ignored: Exception) {
+
+                }
+            }
+            missed = wip.addAndGet(-missed)
+            if (missed == 0) return
+        }
+    }
+}
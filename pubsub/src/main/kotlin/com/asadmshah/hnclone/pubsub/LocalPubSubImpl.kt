@@ -6,33 +6,74 @@ import com.asadmshah.hnclone.models.Post
 import com.asadmshah.hnclone.models.PostScore
 import io.reactivex.Flowable
 import io.reactivex.processors.PublishProcessor
+import org.apache.commons.configuration2.Configuration
 import javax.inject.Inject
 
-internal class LocalPubSubImpl @Inject constructor(): PubSub {
+internal class LocalPubSubImpl @JvmOverloads constructor(capacity: Int = 65536,
+                                                         batchSize: Int = 256,
+                                                         waitStrategy: WaitStrategy = WaitStrategy.BLOCKING) : PubSub {
+
+    @Inject
+    constructor(configuration: Configuration) : this(
+            configuration.getInt("pubsub.local.capacity", 65536),
+            configuration.getInt("pubsub.local.batch", 256),
+            WaitStrategy.valueOf(configuration.getString("pubsub.local.wait", "blocking").toUpperCase()))
 
     private val publisherPostScore = PublishProcessor.create<PostScore>()
     private val publisherPost = PublishProcessor.create<Post>()
     private val publisherComments = PublishProcessor.create<Comment>()
     private val publisherCommentScores = PublishProcessor.create<CommentScore>()
 
-    override fun start() {
+    private val keyedPostScore = KeyedProcessor<PostScore>({ it.id })
+    private val keyedComments = KeyedProcessor<Comment>({ it.postId })
+    private val keyedCommentScores = KeyedProcessor<CommentScore>({ it.postId })
+
+    private val dispatcher = Dispatcher("pubsub-local-dispatcher", batchSize, waitStrategy)
 
+    private val channelPostScore = dispatcher.channel<PostScore>(capacity) {
+        publisherPostScore.onNext(it)
+        keyedPostScore.onNext(it)
     }
 
-    override fun stop() {
+    private val channelPost = dispatcher.channel<Post>(capacity) {
+        publisherPost.onNext(it)
+    }
+
+    private val channelComments = dispatcher.channel<Comment>(capacity) {
+        publisherComments.onNext(it)
+        keyedComments.onNext(it)
+    }
+
+    private val channelCommentScores = dispatcher.channel<CommentScore>(capacity) {
+        publisherCommentScores.onNext(it)
+        keyedCommentScores.onNext(it)
+    }
+
+    val dropped: Long
+        get() = channelPostScore.dropped.get() + channelPost.dropped.get() + channelComments.dropped.get() + channelCommentScores.dropped.get()
 
+    override fun start() {
+        dispatcher.start()
+    }
+
+    override fun stop() {
+        dispatcher.stop()
     }
 
     override fun pubPostScore(postScore: PostScore) {
-        publisherPostScore.onNext(postScore)
+        channelPostScore.publish(postScore)
     }
 
     override fun subPostScore(): Flowable<PostScore> {
         return publisherPostScore
     }
 
+    override fun subPostScore(postId: Int): Flowable<PostScore> {
+        return keyedPostScore.subscribe(postId)
+    }
+
     override fun pubPost(post: Post) {
-        publisherPost.onNext(post)
+        channelPost.publish(post)
     }
 
     override fun subPost(): Flowable<Post> {
@@ -40,18 +81,26 @@ internal class LocalPubSubImpl @Inject constructor(): PubSub {
     }
 
     override fun pubComment(comment: Comment) {
-        publisherComments.onNext(comment)
+        channelComments.publish(comment)
     }
 
     override fun subComments(): Flowable<Comment> {
         return publisherComments
     }
 
+    override fun subComments(postId: Int): Flowable<Comment> {
+        return keyedComments.subscribe(postId)
+    }
+
     override fun pubCommentScore(commentScore: CommentScore) {
-        publisherCommentScores.onNext(commentScore)
+        channelCommentScores.publish(commentScore)
     }
 
     override fun subCommentScores(): Flowable<CommentScore> {
         return publisherCommentScores
     }
-}
\ No newline at end of file
+
+    override fun subCommentScores(postId: Int): Flowable<CommentScore> {
+        return keyedCommentScores.subscribe(postId)
+    }
+}
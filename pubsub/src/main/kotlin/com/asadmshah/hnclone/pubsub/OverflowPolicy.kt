@@ -0,0 +1,7 @@
+package com.asadmshah.hnclone.pubsub
+
+internal enum class OverflowPolicy {
+    BLOCK,
+    DROP,
+    DROP_OLDEST
+}
@@ -0,0 +1,284 @@
+package com.asadmshah.hnclone.pubsub
+
+import com.asadmshah.hnclone.models.Comment
+import com.asadmshah.hnclone.models.CommentScore
+import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostScore
+import com.impossibl.postgres.api.jdbc.PGConnection
+import com.impossibl.postgres.api.jdbc.PGNotificationListener
+import io.reactivex.Flowable
+import io.reactivex.processors.PublishProcessor
+import org.apache.commons.configuration2.Configuration
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.Statement
+import java.util.Base64
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.sql.DataSource
+
+internal class PostgresPubSubImpl
+@Inject
+constructor(private val dataSource: DataSource, configuration: Configuration) : PubSub {
+
+    companion object {
+        internal val CHANNEL_POST_SCORE = String(Channels.POST_SCORE).toLowerCase()
+        internal val CHANNEL_POST = String(Channels.POST).toLowerCase()
+        internal val CHANNEL_COMMENTS = String(Channels.COMMENTS).toLowerCase()
+        internal val CHANNEL_COMMENT_SCORES = String(Channels.COMMENT_SCORES).toLowerCase()
+
+        private val CHANNELS = listOf(CHANNEL_POST_SCORE, CHANNEL_POST, CHANNEL_COMMENTS, CHANNEL_COMMENT_SCORES)
+
+        private const val MAX_PAYLOAD = 7999
+
+        private const val SQL_NOTIFY = "SELECT pg_notify(?, ?);"
+
+        private const val CHECK_TIMEOUT = 2
+
+        fun encode(message: ByteArray): String {
+            return Base64.getEncoder().encodeToString(message)
+        }
+
+        fun decode(payload: String): ByteArray {
+            return Base64.getDecoder().decode(payload)
+        }
+    }
+
+    private class Notification(val channel: String, val payload: String)
+
+    val reconnects = AtomicLong()
+
+    private val publisherPostScore = PublishProcessor.create<PostScore>()
+    private val publisherPost = PublishProcessor.create<Post>()
+    private val publisherComments = PublishProcessor.create<Comment>()
+    private val publisherCommentScores = PublishProcessor.create<CommentScore>()
+
+    private val keyedPostScore = KeyedProcessor<PostScore>({ it.id })
+    private val keyedComments = KeyedProcessor<Comment>({ it.postId })
+    private val keyedCommentScores = KeyedProcessor<CommentScore>({ it.postId })
+
+    private val dispatcher = Dispatcher(
+            "pubsub-postgres-dispatcher",
+            configuration.getInt("pubsub.postgres.batch", 256),
+            WaitStrategy.BLOCKING)
+
+    private val capacity = configuration.getInt("pubsub.postgres.capacity", 65536)
+
+    private val channelPostScore = dispatcher.channel<PostScore>(capacity) {
+        publisherPostScore.onNext(it)
+        keyedPostScore.onNext(it)
+    }
+
+    private val channelPost = dispatcher.channel<Post>(capacity) {
+        publisherPost.onNext(it)
+    }
+
+    private val channelComments = dispatcher.channel<Comment>(capacity) {
+        publisherComments.onNext(it)
+        keyedComments.onNext(it)
+    }
+
+    private val channelCommentScores = dispatcher.channel<CommentScore>(capacity) {
+        publisherCommentScores.onNext(it)
+        keyedCommentScores.onNext(it)
+    }
+
+    private val listener = object : PGNotificationListener {
+        override fun notification(processId: Int, channelName: String, payload: String) {
+            onNotification(channelName, payload)
+        }
+    }
+
+    private val notifier = Dispatcher(
+            "pubsub-postgres-notifier",
+            configuration.getInt("pubsub.postgres.batch", 256),
+            WaitStrategy.BLOCKING)
+
+    private val outbox = notifier.channel<Notification>(capacity) { send(it) }
+
+    private val transactional = configuration.getBoolean("database.notify", true)
+
+    private val checkInterval = configuration.getLong("pubsub.postgres.check", 5000)
+
+    private var checker: ScheduledExecutorService? = null
+
+    @Volatile private var connection: Connection? = null
+
+    private var notifyConnection: Connection? = null
+
+    @Synchronized
+    override fun start() {
+        dispatcher.start()
+        notifier.start()
+
+        connection = listen()
+
+        val checker = Executors.newSingleThreadScheduledExecutor {
+            val thread = Thread(it, "pubsub-postgres-listener")
+            thread.isDaemon = true
+            thread
+        }
+        checker.scheduleWithFixedDelay({ checkListener() }, checkInterval, checkInterval, TimeUnit.MILLISECONDS)
+        this.checker = checker
+    }
+
+    @Synchronized
+    override fun stop() {
+        checker?.shutdownNow()
+        checker = null
+
+        val connection = connection
+        if (connection != null) {
+            var stmt: Statement? = null
+            try {
+                stmt = connection.createStatement()
+                stmt.execute("UNLISTEN *;")
+                connection.unwrap(PGConnection::class.java).removeNotificationListener(listener)
+            } catch (ignored: Exception) {
+
+            } finally {
+                try { stmt?.close() } catch (ignored: Exception) {  }
+                try { connection.close() } catch (ignored: Exception) {  }
+            }
+        }
+        this.connection = null
+
+        notifier.stop()
+        try { notifyConnection?.close() } catch (ignored: Exception) {  }
+        notifyConnection = null
+
+        dispatcher.stop()
+    }
+
+    /**
+     * The driver gives no callback when the LISTEN connection goes away, so it is probed on a timer and replaced when
+     * it no longer answers. Notifications sent while it was down are lost, as they would be for a Redis subscriber.
+     */
+    @Synchronized
+    fun checkListener() {
+        val current = connection
+        try {
+            if (current != null && current.isValid(CHECK_TIMEOUT)) return
+        } catch (ignored: Exception) {
+
+        }
+
+        try { current?.close() } catch (ignored: Exception) {  }
+        connection = null
+
+        try {
+            connection = listen()
+            reconnects.incrementAndGet()
+        } catch (ignored: Exception) {
+
+        }
+    }
+
+    private fun listen(): Connection {
+        val connection = dataSource.connection
+        try {
+            connection.autoCommit = true
+            connection.unwrap(PGConnection::class.java).addNotificationListener(listener)
+
+            var stmt: Statement? = null
+            try {
+                stmt = connection.createStatement()
+                CHANNELS.forEach { stmt?.execute("LISTEN $it;") }
+            } finally {
+                try { stmt?.close() } catch (ignored: Exception) {  }
+            }
+        } catch (e: Exception) {
+            try { connection.close() } catch (ignored: Exception) {  }
+            throw e
+        }
+        return connection
+    }
+
+    fun onNotification(channel: String, payload: String) {
+        try {
+            when (channel) {
+                CHANNEL_POST_SCORE -> channelPostScore.publish(PostScore.parseFrom(decode(payload)))
+                CHANNEL_POST -> channelPost.publish(Post.parseFrom(decode(payload)))
+                CHANNEL_COMMENTS -> channelComments.publish(Comment.parseFrom(decode(payload)))
+                CHANNEL_COMMENT_SCORES -> channelCommentScores.publish(CommentScore.parseFrom(decode(payload)))
+            }
+        } catch (ignored: Exception) {
+
+        }
+    }
+
+    private fun notify(channel: String, message: ByteArray) {
+        val payload = encode(message)
+        if (payload.length > MAX_PAYLOAD) return
+
+        outbox.publish(Notification(channel, payload))
+    }
+
+    private fun send(notification: Notification) {
+        var stmt: PreparedStatement? = null
+        try {
+            val conn = notifyConnection ?: dataSource.connection
+            notifyConnection = conn
+
+            stmt = conn.prepareStatement(SQL_NOTIFY)
+            stmt.setString(1, notification.channel)
+            stmt.setString(2, notification.payload)
+            stmt.execute()
+        } catch (e: Exception) {
+            try { notifyConnection?.close() } catch (ignored: Exception) {  }
+            notifyConnection = null
+            throw e
+        } finally {
+            try { stmt?.close() } catch (ignored: Exception) {  }
+        }
+    }
+
+    override fun pubPostScore(postScore: PostScore) {
+        notify(CHANNEL_POST_SCORE, postScore.toByteArray())
+    }
+
+    override fun subPostScore(): Flowable<PostScore> {
+        return publisherPostScore
+    }
+
+    override fun subPostScore(postId: Int): Flowable<PostScore> {
+        return keyedPostScore.subscribe(postId)
+    }
+
+    override fun pubPost(post: Post) {
+        if (transactional) return
+        notify(CHANNEL_POST, post.toByteArray())
+    }
+
+    override fun subPost(): Flowable<Post> {
+        return publisherPost
+    }
+
+    override fun pubComment(comment: Comment) {
+        if (transactional) return
+        notify(CHANNEL_COMMENTS, comment.toByteArray())
+    }
+
+    override fun subComments(): Flowable<Comment> {
+        return publisherComments
+    }
+
+    override fun subComments(postId: Int): Flowable<Comment> {
+        return keyedComments.subscribe(postId)
+    }
+
+    override fun pubCommentScore(commentScore: CommentScore) {
+        notify(CHANNEL_COMMENT_SCORES, commentScore.toByteArray())
+    }
+
+    override fun subCommentScores(): Flowable<CommentScore> {
+        return publisherCommentScores
+    }
+
+    override fun subCommentScores(postId: Int): Flowable<CommentScore> {
+        return keyedCommentScores.subscribe(postId)
+    }
+}
@@ -16,6 +16,12 @@ interface PubSub {
 
     fun subPostScore(): Flowable<PostScore>
 
+    fun subPostScore(postId: Int): Flowable<PostScore>
+
+    fun subPostScore(postId: Int, resumeFrom: String): Flowable<PostScore> {
+        return subPostScore(postId)
+    }
+
     fun pubPost(post: Post)
 
     fun subPost(): Flowable<Post>
@@ -24,7 +30,15 @@ interface PubSub {
 
     fun subComments(): Flowable<Comment>
 
+    fun subComments(postId: Int): Flowable<Comment>
+
+    fun subComments(postId: Int, resumeFrom: String): Flowable<Comment> {
+        return subComments(postId)
+    }
+
     fun pubCommentScore(commentScore: CommentScore)
 
     fun subCommentScores(): Flowable<CommentScore>
-}
\ No newline at end of file
+
+    fun subCommentScores(postId: Int): Flowable<CommentScore>
+}
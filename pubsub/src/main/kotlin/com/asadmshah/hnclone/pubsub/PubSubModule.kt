@@ -11,6 +11,8 @@ class PubSubModule {
     companion object {
         const val REDIS = "redis"
         const val LOCAL = "local"
+        const val STREAMS = "streams"
+        const val POSTGRES = "postgres"
     }
 
     @Provides
@@ -27,4 +29,18 @@ class PubSubModule {
         return pubSub
     }
 
-}
\ No newline at end of file
+    @Provides
+    @Singleton
+    @Named(STREAMS)
+    internal fun providesStreamsPubSub(pubSub: RedisStreamsPubSubImpl): PubSub {
+        return pubSub
+    }
+
+    @Provides
+    @Singleton
+    @Named(POSTGRES)
+    internal fun providesPostgresPubSub(pubSub: PostgresPubSubImpl): PubSub {
+        return pubSub
+    }
+
+}
@@ -14,21 +14,70 @@ import com.lambdaworks.redis.pubsub.api.rx.RedisPubSubReactiveCommands
 import io.reactivex.Flowable
 import io.reactivex.processors.PublishProcessor
 import org.apache.commons.configuration2.Configuration
-import rx.Subscriber
-import rx.Subscription
 import rx.subscriptions.CompositeSubscription
+import java.lang.management.ManagementFactory
+import java.util.Arrays
+import java.util.concurrent.TimeUnit
+import javax.management.ObjectName
 import javax.inject.Inject
 
 internal class RedisPubSubImpl
 @Inject
 constructor(private val configuration: Configuration) : PubSub {
 
-    private val publisherPostScore = PublishProcessor.create<PostScore>()
+    companion object {
+        private const val ALL = 0
+        private val MBEAN_NAME = ObjectName("com.asadmshah.hnclone.pubsub:type=RedisPublisher")
+    }
+
+    private inner class Topic<T>(private val channel: ByteArray, private val parser: (ByteArray) -> T, keyOf: (T) -> Int) {
+
+        private val prefix = String(channel) + ":"
+        private val pattern = Channels.pattern(channel)
+
+        val all = KeyedProcessor<T>({ ALL }, { subscribePattern(pattern) }, { unsubscribePattern(pattern) })
+        val keyed = KeyedProcessor<T>(keyOf, { subscribeChannel(Channels.keyed(channel, it)) }, { unsubscribeChannel(Channels.keyed(channel, it)) })
+
+        var queue: RedisPublisher.Queue? = null
+
+        fun publish(key: Int, message: ByteArray) {
+            publish(queue, Channels.keyed(channel, key), message)
+        }
+
+        fun onChannelMessage(channel: String, message: ByteArray): Boolean {
+            if (!channel.startsWith(prefix)) return false
+            parse(message)?.let { keyed.onNext(it) }
+            return true
+        }
+
+        fun onPatternMessage(pattern: ByteArray, message: ByteArray): Boolean {
+            if (!Arrays.equals(pattern, this.pattern)) return false
+            parse(message)?.let { all.onNext(it) }
+            return true
+        }
+
+        private fun parse(message: ByteArray): T? {
+            try {
+                return parser(message)
+            } catch (ignored: Exception) {
+                return null
+            }
+        }
+    }
+
     private val publisherPost = PublishProcessor.create<Post>()
-    private val publisherComments = PublishProcessor.create<Comment>()
-    private val publisherCommentScores = PublishProcessor.create<CommentScore>()
+
+    private val topicPostScore = Topic<PostScore>(Channels.POST_SCORE, PostScore::parseFrom, { it.id })
+    private val topicComments = Topic<Comment>(Channels.COMMENTS, Comment::parseFrom, { it.postId })
+    private val topicCommentScores = Topic<CommentScore>(Channels.COMMENT_SCORES, CommentScore::parseFrom, { it.postId })
+    private val topics = listOf(topicPostScore, topicComments, topicCommentScores)
+
     private val subscriptions = CompositeSubscription()
 
+    private var publisher: RedisPublisher? = null
+    private var connPublish: StatefulRedisConnection<ByteArray, ByteArray>? = null
+    private var queuePost: RedisPublisher.Queue? = null
+
     private var client: RedisClient? = null
     private var connBasic: StatefulRedisConnection<ByteArray, ByteArray>? = null
     private var commBasic: RedisCommands<ByteArray, ByteArray>? = null
@@ -48,16 +97,26 @@ constructor(private val configuration: Configuration) : PubSub {
         connBasic = client?.connect(ByteArrayCodec())
         commBasic = connBasic?.sync()
 
+        if (configuration.getBoolean("pubsub.redis.publish.async", true)) {
+            startPublisher()
+        }
+
         connSub = client?.connectPubSub(ByteArrayCodec())
         commSub = connSub?.reactive()
 
-        subscriptions.add(observe(Channels.POST_SCORE, PostScore::parseFrom, publisherPostScore))
-        subscriptions.add(observe(Channels.POST, Post::parseFrom, publisherPost))
-        subscriptions.add(observe(Channels.COMMENTS, Comment::parseFrom, publisherComments))
-        subscriptions.add(observe(Channels.COMMENT_SCORES, CommentScore::parseFrom, publisherCommentScores))
+        subscriptions.add(commSub!!
+                .observeChannels()
+                .subscribe({ onChannelMessage(it.channel, it.message) }, { publisherPost.onError(it) }, { publisherPost.onComplete() }))
+        subscriptions.add(commSub!!
+                .observePatterns()
+                .subscribe({ onPatternMessage(it.pattern, it.message) }, { }))
+
+        commSub!!.subscribe(Channels.POST).toBlocking().first()
     }
 
     override fun stop() {
+        stopPublisher()
+
         if (!subscriptions.isUnsubscribed) subscriptions.unsubscribe()
 
         commSub?.close()
@@ -69,39 +128,115 @@ constructor(private val configuration: Configuration) : PubSub {
         client?.shutdown()
     }
 
-    override fun pubPostScore(postScore: PostScore) {
-        commBasic?.publish(Channels.POST_SCORE, postScore.toByteArray())
+    private fun startPublisher() {
+        val connection = client!!.connect(ByteArrayCodec())
+        val capacity = configuration.getInt("pubsub.redis.publish.capacity", 10000)
+
+        val publisher = RedisPublisher(
+                connection,
+                configuration.getInt("pubsub.redis.publish.batch", 256),
+                configuration.getLong("pubsub.redis.publish.timeout", 1000),
+                TimeUnit.MILLISECONDS)
+
+        topicPostScore.queue = publisher.queue(capacity, overflow("post_score", OverflowPolicy.DROP_OLDEST))
+        topicComments.queue = publisher.queue(capacity, overflow("comments", OverflowPolicy.BLOCK))
+        topicCommentScores.queue = publisher.queue(capacity, overflow("comment_scores", OverflowPolicy.DROP_OLDEST))
+        queuePost = publisher.queue(capacity, overflow("post", OverflowPolicy.BLOCK))
+
+        publisher.start()
+
+        val server = ManagementFactory.getPlatformMBeanServer()
+        if (server.isRegistered(MBEAN_NAME)) server.unregisterMBean(MBEAN_NAME)
+        server.registerMBean(publisher, MBEAN_NAME)
+
+        this.publisher = publisher
+        this.connPublish = connection
     }
 
-    override fun subPostScore(): Flowable<PostScore> {
-        return publisherPostScore
+    private fun stopPublisher() {
+        val publisher = publisher ?: return
+
+        publisher.stop()
+
+        val server = ManagementFactory.getPlatformMBeanServer()
+        if (server.isRegistered(MBEAN_NAME)) server.unregisterMBean(MBEAN_NAME)
+
+        topics.forEach { it.queue = null }
+        queuePost = null
+        this.publisher = null
+
+        connPublish?.close()
+        connPublish = null
     }
 
-    internal fun <T> observe(channel: ByteArray, mapper: (ByteArray) -> T, processor: PublishProcessor<T>): Subscription {
-        if (commSub == null) throw RuntimeException("Redis client not connected.")
+    private fun overflow(channel: String, default: OverflowPolicy): OverflowPolicy {
+        return OverflowPolicy.valueOf(configuration.getString("pubsub.redis.publish.overflow.$channel", default.name).toUpperCase())
+    }
 
-        commSub!!.subscribe(channel).toBlocking().first()
-        return commSub!!
-                .observeChannels()
-                .map { it.message }
-                .map { mapper(it) }
-                .subscribe(object : Subscriber<T>() {
-                    override fun onCompleted() {
-                        processor.onComplete()
-                    }
+    private fun publish(queue: RedisPublisher.Queue?, channel: ByteArray, message: ByteArray) {
+        if (queue != null) {
+            queue.publish(channel, message)
+        } else {
+            commBasic?.publish(channel, message)
+        }
+    }
+
+    private fun onChannelMessage(channel: ByteArray, message: ByteArray) {
+        if (Arrays.equals(channel, Channels.POST)) {
+            try {
+                publisherPost.onNext(Post.parseFrom(message))
+            } catch (ignored: Exception) {
+
+            }
+            return
+        }
+
+        val name = String(channel)
+        for (topic in topics) {
+            if (topic.onChannelMessage(name, message)) return
+        }
+    }
+
+    private fun onPatternMessage(pattern: ByteArray, message: ByteArray) {
+        for (topic in topics) {
+            if (topic.onPatternMessage(pattern, message)) return
+        }
+    }
+
+    private fun commSub(): RedisPubSubReactiveCommands<ByteArray, ByteArray> {
+        return commSub ?: throw RuntimeException("Redis client not connected.")
+    }
+
+    private fun subscribeChannel(channel: ByteArray) {
+        commSub().subscribe(channel).subscribe({ }, { })
+    }
+
+    private fun unsubscribeChannel(channel: ByteArray) {
+        commSub?.unsubscribe(channel)?.subscribe({ }, { })
+    }
+
+    private fun subscribePattern(pattern: ByteArray) {
+        commSub().psubscribe(pattern).subscribe({ }, { })
+    }
+
+    private fun unsubscribePattern(pattern: ByteArray) {
+        commSub?.punsubscribe(pattern)?.subscribe({ }, { })
+    }
+
+    override fun pubPostScore(postScore: PostScore) {
+        topicPostScore.publish(postScore.id, postScore.toByteArray())
+    }
 
-                    override fun onError(e: Throwable) {
-                        processor.onError(e)
-                    }
+    override fun subPostScore(): Flowable<PostScore> {
+        return topicPostScore.all.subscribe(ALL)
+    }
 
-                    override fun onNext(t: T) {
-                        processor.onNext(t)
-                    }
-                })
+    override fun subPostScore(postId: Int): Flowable<PostScore> {
+        return topicPostScore.keyed.subscribe(postId)
     }
 
     override fun pubPost(post: Post) {
-        commBasic?.publish(Channels.POST, post.toByteArray())
+        publish(queuePost, Channels.POST, post.toByteArray())
     }
 
     override fun subPost(): Flowable<Post> {
@@ -109,18 +244,26 @@ constructor(private val configuration: Configuration) : PubSub {
     }
 
     override fun pubComment(comment: Comment) {
-        commBasic?.publish(Channels.COMMENTS, comment.toByteArray())
+        topicComments.publish(comment.postId, comment.toByteArray())
     }
 
     override fun subComments(): Flowable<Comment> {
-        return publisherComments
+        return topicComments.all.subscribe(ALL)
+    }
+
+    override fun subComments(postId: Int): Flowable<Comment> {
+        return topicComments.keyed.subscribe(postId)
     }
 
     override fun pubCommentScore(commentScore: CommentScore) {
-        commBasic?.publish(Channels.COMMENT_SCORES, commentScore.toByteArray())
+        topicCommentScores.publish(commentScore.postId, commentScore.toByteArray())
     }
 
     override fun subCommentScores(): Flowable<CommentScore> {
-        return publisherCommentScores
+        return topicCommentScores.all.subscribe(ALL)
+    }
+
+    override fun subCommentScores(postId: Int): Flowable<CommentScore> {
+        return topicCommentScores.keyed.subscribe(postId)
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+package com.asadmshah.hnclone.pubsub
+
+import com.lambdaworks.redis.LettuceFutures
+import com.lambdaworks.redis.RedisFuture
+import com.lambdaworks.redis.api.StatefulRedisConnection
+import java.util.ArrayList
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+internal class RedisPublisher(private val connection: StatefulRedisConnection<ByteArray, ByteArray>,
+                              private val batchSize: Int,
+                              private val timeout: Long,
+                              private val unit: TimeUnit) : RedisPublisherMXBean {
+
+    class Message(val channel: ByteArray, val payload: ByteArray)
+
+    inner class Queue(capacity: Int, private val policy: OverflowPolicy) {
+
+        val messages = ArrayBlockingQueue<Message>(capacity)
+
+        fun publish(channel: ByteArray, payload: ByteArray) {
+            if (stopped) {
+                droppedCount.incrementAndGet()
+                return
+            }
+
+            val message = Message(channel, payload)
+            when (policy) {
+                OverflowPolicy.BLOCK -> while (!messages.offer(message, timeout, unit)) {
+                    if (stopped) {
+                        droppedCount.incrementAndGet()
+                        return
+                    }
+                }
+                OverflowPolicy.DROP -> if (!messages.offer(message)) {
+                    droppedCount.incrementAndGet()
+                    return
+                }
+                OverflowPolicy.DROP_OLDEST -> while (!messages.offer(message)) {
+                    if (messages.poll() != null) droppedCount.incrementAndGet()
+                }
+            }
+            wake()
+        }
+    }
+
+    private val queues = ArrayList<Queue>()
+    private val parked = AtomicBoolean()
+
+    private val droppedCount = AtomicLong()
+    private val failedCount = AtomicLong()
+    private val flushCount = AtomicLong()
+    private val flushNanos = AtomicLong()
+    @Volatile private var lastFlushNanos = 0L
+    @Volatile private var maxFlushNanos = 0L
+
+    @Volatile private var running = false
+    @Volatile private var stopped = false
+    @Volatile private var thread: Thread? = null
+
+    fun queue(capacity: Int, policy: OverflowPolicy): Queue {
+        val queue = Queue(capacity, policy)
+        queues.add(queue)
+        return queue
+    }
+
+    @Synchronized
+    fun start() {
+        if (thread != null) return
+
+        connection.setAutoFlushCommands(false)
+
+        running = true
+        thread = Thread({ run() }, "pubsub-redis-publisher")
+        thread?.isDaemon = true
+        thread?.start()
+    }
+
+    @Synchronized
+    fun stop() {
+        stopped = true
+
+        val thread = thread ?: return
+
+        running = false
+        LockSupport.unpark(thread)
+        thread.join()
+
+        this.thread = null
+
+        for (queue in queues) {
+            droppedCount.addAndGet(queue.messages.size.toLong())
+            queue.messages.clear()
+        }
+    }
+
+    override val queueDepth: Int
+        get() = queues.sumBy { it.messages.size }
+
+    override val dropped: Long
+        get() = droppedCount.get()
+
+    override val failed: Long
+        get() = failedCount.get()
+
+    override val flushes: Long
+        get() = flushCount.get()
+
+    override val lastFlushLatencyMicros: Long
+        get() = TimeUnit.NANOSECONDS.toMicros(lastFlushNanos)
+
+    override val maxFlushLatencyMicros: Long
+        get() = TimeUnit.NANOSECONDS.toMicros(maxFlushNanos)
+
+    override val averageFlushLatencyMicros: Long
+        get() {
+            val count = flushCount.get()
+            return if (count == 0L) 0 else TimeUnit.NANOSECONDS.toMicros(flushNanos.get() / count)
+        }
+
+    private fun wake() {
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(thread)
+        }
+    }
+
+    private fun isEmpty(): Boolean {
+        return queues.all { it.messages.isEmpty() }
+    }
+
+    private fun run() {
+        val commands = connection.async()
+        val futures = ArrayList<RedisFuture<Long>>(batchSize)
+
+        while (running || !isEmpty()) {
+            for (queue in queues) {
+                while (futures.size < batchSize) {
+                    val message = queue.messages.poll() ?: break
+                    futures.add(commands.publish(message.channel, message.payload))
+                }
+            }
+
+            if (futures.isEmpty()) {
+                parked.set(true)
+                if (running && isEmpty()) LockSupport.park(this)
+                parked.set(false)
+                continue
+            }
+
+            val started = System.nanoTime()
+            connection.flushCommands()
+
+            try {
+                if (!LettuceFutures.awaitAll(timeout, unit, *futures.toTypedArray())) {
+                    failedCount.addAndGet(futures.size.toLong())
+                }
+            } catch (e: Exception) {
+                failedCount.addAndGet(futures.size.toLong())
+            }
+
+            val elapsed = System.nanoTime() - started
+            flushCount.incrementAndGet()
+            flushNanos.addAndGet(elapsed)
+            lastFlushNanos = elapsed
+            if (elapsed > maxFlushNanos) maxFlushNanos = elapsed
+
+            futures.clear()
+        }
+    }
+}
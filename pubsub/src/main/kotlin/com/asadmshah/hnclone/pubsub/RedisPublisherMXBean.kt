@@ -0,0 +1,18 @@
+package com.asadmshah.hnclone.pubsub
+
+interface RedisPublisherMXBean {
+
+    val queueDepth: Int
+
+    val dropped: Long
+
+    val failed: Long
+
+    val flushes: Long
+
+    val lastFlushLatencyMicros: Long
+
+    val maxFlushLatencyMicros: Long
+
+    val averageFlushLatencyMicros: Long
+}
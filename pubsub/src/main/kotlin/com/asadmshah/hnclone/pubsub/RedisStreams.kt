@@ -0,0 +1,138 @@
+package com.asadmshah.hnclone.pubsub
+
+import com.lambdaworks.redis.api.async.RedisAsyncCommands
+import com.lambdaworks.redis.api.sync.RedisCommands
+import com.lambdaworks.redis.codec.ByteArrayCodec
+import com.lambdaworks.redis.output.NestedMultiOutput
+import com.lambdaworks.redis.output.StatusOutput
+import com.lambdaworks.redis.protocol.CommandArgs
+import com.lambdaworks.redis.protocol.ProtocolKeyword
+import java.util.ArrayList
+import java.util.Arrays
+import java.util.HashMap
+
+internal class RedisStreams(private val commands: RedisCommands<ByteArray, ByteArray>) {
+
+    class Entry(val id: String, val payload: ByteArray)
+
+    private class Keyword(private val value: String) : ProtocolKeyword {
+
+        private val bytes = value.toByteArray()
+
+        override fun getBytes(): ByteArray {
+            return bytes
+        }
+
+        override fun name(): String {
+            return value
+        }
+    }
+
+    companion object {
+        private val XADD: ProtocolKeyword = Keyword("XADD")
+        private val XRANGE: ProtocolKeyword = Keyword("XRANGE")
+        private val XREVRANGE: ProtocolKeyword = Keyword("XREVRANGE")
+        private val XREAD: ProtocolKeyword = Keyword("XREAD")
+
+        private val FIELD = "p".toByteArray()
+
+        const val FIRST_ID = "0-0"
+
+        fun compare(id1: String, id2: String): Int {
+            val split1 = id1.indexOf('-')
+            val split2 = id2.indexOf('-')
+            val ms = java.lang.Long.compare(id1.substring(0, split1).toLong(), id2.substring(0, split2).toLong())
+            if (ms != 0) return ms
+            return java.lang.Long.compare(id1.substring(split1 + 1).toLong(), id2.substring(split2 + 1).toLong())
+        }
+
+        fun isValid(id: String): Boolean {
+            val split = id.indexOf('-')
+            if (split <= 0 || split == id.length - 1) return false
+            return id.all { it == '-' || it in '0'..'9' } && id.indexOf('-', split + 1) < 0
+        }
+
+        fun add(commands: RedisAsyncCommands<ByteArray, ByteArray>, key: ByteArray, maxLength: Long, payload: ByteArray) {
+            commands.dispatch(XADD, StatusOutput(ByteArrayCodec.INSTANCE), addArgs(key, maxLength, payload))
+        }
+
+        private fun addArgs(key: ByteArray, maxLength: Long, payload: ByteArray): CommandArgs<ByteArray, ByteArray> {
+            return CommandArgs(ByteArrayCodec.INSTANCE)
+                    .addKey(key)
+                    .add("MAXLEN")
+                    .add("~")
+                    .add(maxLength)
+                    .add("*")
+                    .add(FIELD)
+                    .addValue(payload)
+        }
+    }
+
+    fun add(key: ByteArray, maxLength: Long, payload: ByteArray): String {
+        return commands.dispatch(XADD, StatusOutput(ByteArrayCodec.INSTANCE), addArgs(key, maxLength, payload))
+    }
+
+    fun range(key: ByteArray, start: String, count: Int): List<Entry> {
+        val args = CommandArgs(ByteArrayCodec.INSTANCE)
+                .addKey(key)
+                .add(start)
+                .add("+")
+                .add("COUNT")
+                .add(count.toLong())
+
+        return entries(commands.dispatch(XRANGE, NestedMultiOutput(ByteArrayCodec.INSTANCE), args))
+    }
+
+    fun lastId(key: ByteArray): String {
+        val args = CommandArgs(ByteArrayCodec.INSTANCE)
+                .addKey(key)
+                .add("+")
+                .add("-")
+                .add("COUNT")
+                .add(1)
+
+        return entries(commands.dispatch(XREVRANGE, NestedMultiOutput(ByteArrayCodec.INSTANCE), args)).firstOrNull()?.id ?: FIRST_ID
+    }
+
+    fun read(keys: List<ByteArray>, ids: List<String>, count: Int, blockMillis: Long): Map<String, List<Entry>> {
+        val args = CommandArgs(ByteArrayCodec.INSTANCE)
+                .add("COUNT")
+                .add(count.toLong())
+                .add("BLOCK")
+                .add(blockMillis)
+                .add("STREAMS")
+                .addKeys(keys)
+        ids.forEach { args.add(it) }
+
+        val reply = commands.dispatch(XREAD, NestedMultiOutput(ByteArrayCodec.INSTANCE), args) ?: return emptyMap()
+
+        val results = HashMap<String, List<Entry>>()
+        for (stream in reply) {
+            if (stream !is List<*> || stream.size < 2) continue
+            val key = stream[0] as? ByteArray ?: continue
+            results.put(String(key), entries(stream[1] as? List<*>))
+        }
+        return results
+    }
+
+    private fun entries(reply: List<*>?): List<Entry> {
+        if (reply == null) return emptyList()
+
+        val entries = ArrayList<Entry>(reply.size)
+        for (entry in reply) {
+            if (entry !is List<*> || entry.size < 2) continue
+            val id = entry[0] as? ByteArray ?: continue
+            val fields = entry[1] as? List<*> ?: continue
+            var i = 0
+            while (i + 1 < fields.size) {
+                val field = fields[i] as? ByteArray
+                val value = fields[i + 1] as? ByteArray
+                if (field != null && value != null && Arrays.equals(field, FIELD)) {
+                    entries.add(Entry(String(id), value))
+                }
+                i += 2
+            }
+        }
+        return entries
+    }
+}
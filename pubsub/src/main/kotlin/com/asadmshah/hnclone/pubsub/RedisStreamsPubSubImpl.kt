@@ -0,0 +1,261 @@
+package com.asadmshah.hnclone.pubsub
+
+import com.asadmshah.hnclone.models.Comment
+import com.asadmshah.hnclone.models.CommentScore
+import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostScore
+import com.lambdaworks.redis.RedisClient
+import com.lambdaworks.redis.RedisURI
+import com.lambdaworks.redis.api.StatefulRedisConnection
+import com.lambdaworks.redis.api.async.RedisAsyncCommands
+import com.lambdaworks.redis.codec.ByteArrayCodec
+import io.reactivex.Flowable
+import org.apache.commons.configuration2.Configuration
+import java.util.ArrayList
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.LockSupport
+import javax.inject.Inject
+
+internal class RedisStreamsPubSubImpl
+@Inject
+constructor(private val configuration: Configuration) : PubSub {
+
+    companion object {
+        private const val ALL = 0
+    }
+
+    private class Watch(val key: ByteArray, @Volatile var cursor: String, val sink: (RedisStreams.Entry) -> Unit) {
+        val name = String(key)
+    }
+
+    private inner class Topic<T>(channel: ByteArray,
+                                 private val parser: (ByteArray) -> T,
+                                 private val withEventId: (T, String) -> T,
+                                 private val eventId: (T) -> String,
+                                 keyOf: (T) -> Int) {
+
+        private val global = channel
+
+        val all: KeyedProcessor<T> = KeyedProcessor({ ALL }, { watch(global) { emitAll(it) } }, { unwatch(global) })
+        val keyed: KeyedProcessor<T> = KeyedProcessor(keyOf, { watch(key(it)) { emitKeyed(it) } }, { unwatch(key(it)) })
+
+        fun publish(message: ByteArray) {
+            RedisStreams.add(async(), global, globalMaxLength, message)
+        }
+
+        fun publish(postId: Int, message: ByteArray) {
+            RedisStreams.add(async(), key(postId), maxLength, message)
+            RedisStreams.add(async(), global, globalMaxLength, message)
+        }
+
+        fun subscribe(postId: Int, resumeFrom: String): Flowable<T> {
+            if (!RedisStreams.isValid(resumeFrom)) return Flowable.error(StreamResumeInvalidException())
+
+            return Flowable.defer {
+                val live = keyed.subscribe(postId).replay(liveBuffer)
+                val connection = live.connect()
+
+                val missed = ArrayList<T>()
+                var last = resumeFrom
+                try {
+                    while (true) {
+                        val entries = streams().range(key(postId), last, replayLength)
+                        if (last == resumeFrom && entries.firstOrNull()?.id != resumeFrom) {
+                            throw StreamResumeExpiredException()
+                        }
+
+                        var added = 0
+                        for (entry in entries) {
+                            if (RedisStreams.compare(entry.id, last) <= 0) continue
+                            last = entry.id
+                            added++
+                            parse(entry)?.let { missed.add(it) }
+                        }
+                        if (entries.size < replayLength || added == 0) break
+                    }
+                } catch (e: Exception) {
+                    connection.dispose()
+                    throw e
+                }
+
+                val replayed = last
+                Flowable.fromIterable<T>(missed)
+                        .concatWith(live.filter { RedisStreams.compare(eventId(it), replayed) > 0 })
+                        .doOnCancel { connection.dispose() }
+            }
+        }
+
+        private fun key(postId: Int): ByteArray {
+            return Channels.keyed(global, postId)
+        }
+
+        private fun emitAll(entry: RedisStreams.Entry) {
+            parse(entry)?.let { all.onNext(it) }
+        }
+
+        private fun emitKeyed(entry: RedisStreams.Entry) {
+            parse(entry)?.let { keyed.onNext(it) }
+        }
+
+        private fun parse(entry: RedisStreams.Entry): T? {
+            try {
+                return withEventId(parser(entry.payload), entry.id)
+            } catch (ignored: Exception) {
+                return null
+            }
+        }
+    }
+
+    private val maxLength = configuration.getLong("pubsub.streams.maxlen", 1000)
+    private val globalMaxLength = configuration.getLong("pubsub.streams.global.maxlen", 100000)
+    private val replayLength = configuration.getInt("pubsub.streams.replay", 1000)
+    private val liveBuffer = configuration.getInt("pubsub.streams.buffer", 100)
+    private val readBatch = configuration.getInt("pubsub.streams.batch", 100)
+    private val readBlock = configuration.getLong("pubsub.streams.block", 100)
+
+    private val topicPostScore = Topic<PostScore>(Channels.POST_SCORE, PostScore::parseFrom, { v, id -> v.toBuilder().setEventId(id).build() }, { it.eventId }, { it.id })
+    private val topicPost = Topic<Post>(Channels.POST, Post::parseFrom, { v, id -> v }, { "" }, { it.id })
+    private val topicComments = Topic<Comment>(Channels.COMMENTS, Comment::parseFrom, { v, id -> v.toBuilder().setEventId(id).build() }, { it.eventId }, { it.postId })
+    private val topicCommentScores = Topic<CommentScore>(Channels.COMMENT_SCORES, CommentScore::parseFrom, { v, id -> v }, { "" }, { it.postId })
+
+    private val watched = ConcurrentHashMap<String, Watch>()
+
+    private var client: RedisClient? = null
+    private var connBasic: StatefulRedisConnection<ByteArray, ByteArray>? = null
+    private var connRead: StatefulRedisConnection<ByteArray, ByteArray>? = null
+    private var streams: RedisStreams? = null
+
+    @Volatile private var running = false
+    @Volatile private var reader: Thread? = null
+
+    override fun start() {
+        val uri = RedisURI.Builder
+                .redis(configuration.getString("redis.host", "localhost"), configuration.getInt("redis.port", 6379))
+                .withDatabase(configuration.getInt("redis.db", 0))
+                .withPassword(configuration.getString("redis.pass", ""))
+                .build()
+
+        client = RedisClient.create(uri)
+
+        connBasic = client?.connect(ByteArrayCodec())
+        streams = RedisStreams(connBasic!!.sync())
+
+        connRead = client?.connect(ByteArrayCodec())
+
+        running = true
+        reader = Thread({ read(RedisStreams(connRead!!.sync())) }, "pubsub-streams-reader")
+        reader?.isDaemon = true
+        reader?.start()
+    }
+
+    override fun stop() {
+        running = false
+        reader?.let {
+            LockSupport.unpark(it)
+            it.join()
+        }
+        reader = null
+
+        connRead?.close()
+        connBasic?.close()
+
+        client?.shutdown()
+    }
+
+    private fun streams(): RedisStreams {
+        return streams ?: throw RuntimeException("Redis client not connected.")
+    }
+
+    private fun async(): RedisAsyncCommands<ByteArray, ByteArray> {
+        return connBasic?.async() ?: throw RuntimeException("Redis client not connected.")
+    }
+
+    private fun watch(key: ByteArray, sink: (RedisStreams.Entry) -> Unit) {
+        val watch = Watch(key, streams().lastId(key), sink)
+        watched.put(watch.name, watch)
+        reader?.let { LockSupport.unpark(it) }
+    }
+
+    private fun unwatch(key: ByteArray) {
+        watched.remove(String(key))
+    }
+
+    private fun read(streams: RedisStreams) {
+        while (running) {
+            val watches = ArrayList(watched.values)
+            if (watches.isEmpty()) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(readBlock))
+                continue
+            }
+
+            val results = try {
+                streams.read(watches.map { it.key }, watches.map { it.cursor }, readBatch, readBlock)
+            } catch (e: Exception) {
+                if (running) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(readBlock))
+                continue
+            }
+
+            for (watch in watches) {
+                val entries = results[watch.name] ?: continue
+                for (entry in entries) {
+                    if (RedisStreams.compare(entry.id, watch.cursor) <= 0) continue
+                    watch.cursor = entry.id
+                    if (watched[watch.name] === watch) watch.sink(entry)
+                }
+            }
+        }
+    }
+
+    override fun pubPostScore(postScore: PostScore) {
+        topicPostScore.publish(postScore.id, postScore.toByteArray())
+    }
+
+    override fun subPostScore(): Flowable<PostScore> {
+        return topicPostScore.all.subscribe(ALL)
+    }
+
+    override fun subPostScore(postId: Int): Flowable<PostScore> {
+        return topicPostScore.keyed.subscribe(postId)
+    }
+
+    override fun subPostScore(postId: Int, resumeFrom: String): Flowable<PostScore> {
+        return topicPostScore.subscribe(postId, resumeFrom)
+    }
+
+    override fun pubPost(post: Post) {
+        topicPost.publish(post.toByteArray())
+    }
+
+    override fun subPost(): Flowable<Post> {
+        return topicPost.all.subscribe(ALL)
+    }
+
+    override fun pubComment(comment: Comment) {
+        topicComments.publish(comment.postId, comment.toByteArray())
+    }
+
+    override fun subComments(): Flowable<Comment> {
+        return topicComments.all.subscribe(ALL)
+    }
+
+    override fun subComments(postId: Int): Flowable<Comment> {
+        return topicComments.keyed.subscribe(postId)
+    }
+
+    override fun subComments(postId: Int, resumeFrom: String): Flowable<Comment> {
+        return topicComments.subscribe(postId, resumeFrom)
+    }
+
+    override fun pubCommentScore(commentScore: CommentScore) {
+        topicCommentScores.publish(commentScore.postId, commentScore.toByteArray())
+    }
+
+    override fun subCommentScores(): Flowable<CommentScore> {
+        return topicCommentScores.all.subscribe(ALL)
+    }
+
+    override fun subCommentScores(postId: Int): Flowable<CommentScore> {
+        return topicCommentScores.keyed.subscribe(postId)
+    }
+}
@@ -0,0 +1,62 @@
+package com.asadmshah.hnclone.pubsub
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+internal class RingBuffer<T>(capacity: Int) {
+
+    val capacity: Int = Integer.highestOneBit(Math.max(capacity, 2) - 1) shl 1
+
+    private val mask = this.capacity - 1L
+    private val slots = AtomicReferenceArray<T?>(this.capacity)
+    private val sequences = AtomicLongArray(this.capacity)
+    private val tail = AtomicLong()
+
+    private var head = 0L
+
+    init {
+        for (i in 0..this.capacity - 1) {
+            sequences.set(i, i.toLong())
+        }
+    }
+
+    fun offer(value: T): Boolean {
+        while (true) {
+            val position = tail.get()
+            val index = (position and mask).toInt()
+            val sequence = sequences.get(index)
+
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, value)
+                    sequences.set(index, position + 1)
+                    return true
+                }
+            } else if (sequence < position) {
+                return false
+            }
+        }
+    }
+
+    fun isEmpty(): Boolean {
+        return sequences.get((head and mask).toInt()) != head + 1
+    }
+
+    fun drain(max: Int, consumer: (T) -> Unit): Int {
+        var count = 0
+        while (count < max) {
+            val index = (head and mask).toInt()
+            if (sequences.get(index) != head + 1) break
+
+            val value = slots.get(index)
+            slots.lazySet(index, null)
+            sequences.lazySet(index, head + capacity)
+            head++
+            count++
+
+            consumer(value!!)
+        }
+        return count
+    }
+}
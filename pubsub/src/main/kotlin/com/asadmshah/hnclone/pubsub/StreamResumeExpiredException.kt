@@ -0,0 +1,3 @@
+package com.asadmshah.hnclone.pubsub
+
+class StreamResumeExpiredException internal constructor(message: String = "Stream resume point expired.") : RuntimeException(message)
\ No newline at end of file
@@ -0,0 +1,3 @@
+package com.asadmshah.hnclone.pubsub
+
+class StreamResumeInvalidException internal constructor(message: String = "Stream resume point invalid.") : RuntimeException(message)
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.asadmshah.hnclone.pubsub
+
+internal enum class WaitStrategy {
+    BLOCKING,
+    SLEEPING,
+    YIELDING,
+    BUSY_SPIN
+}
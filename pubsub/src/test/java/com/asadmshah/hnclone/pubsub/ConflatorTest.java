@@ -0,0 +1,93 @@
+package com.asadmshah.hnclone.pubsub;
+
+import com.asadmshah.hnclone.models.PostScore;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ConflatorTest {
+
+    private TestScheduler scheduler;
+    private PublishProcessor<PostScore> source;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new TestScheduler();
+        source = PublishProcessor.create();
+    }
+
+    private static PostScore score(int id, int score) {
+        return PostScore.newBuilder().setId(id).setScore(score).build();
+    }
+
+    @Test
+    public void conflate_shouldKeepLatestPerKeyWithinWindow() throws Exception {
+        Conflator conflator = new Conflator(100, TimeUnit.MILLISECONDS, scheduler);
+        TestSubscriber<PostScore> subscriber = conflator.conflate(source, PostScore::getId).test();
+
+        source.onNext(score(1, 1));
+        source.onNext(score(2, 1));
+        source.onNext(score(1, 2));
+        source.onNext(score(1, 3));
+
+        subscriber.assertNoValues();
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValues(score(1, 3), score(2, 1));
+
+        source.onNext(score(2, 2));
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValues(score(1, 3), score(2, 1), score(2, 2));
+    }
+
+    @Test
+    public void conflate_shouldHoldLatestForSlowSubscriber() throws Exception {
+        Conflator conflator = new Conflator(100, TimeUnit.MILLISECONDS, scheduler);
+        TestSubscriber<PostScore> subscriber = conflator.conflate(source, PostScore::getId).test(0);
+
+        for (int i = 1; i <= 50; i++) {
+            source.onNext(score(1, i));
+            scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        }
+
+        subscriber.assertNoValues();
+
+        subscriber.request(2);
+
+        subscriber.assertValues(score(1, 1), score(1, 50));
+    }
+
+    @Test
+    public void conflate_shouldFlushOnComplete() throws Exception {
+        Conflator conflator = new Conflator(100, TimeUnit.MILLISECONDS, scheduler);
+        TestSubscriber<PostScore> subscriber = conflator.conflate(source, PostScore::getId).test();
+
+        source.onNext(score(1, 1));
+        source.onNext(score(1, 2));
+        source.onComplete();
+
+        subscriber.assertValues(score(1, 2));
+        subscriber.assertComplete();
+        assertThat(source.hasSubscribers()).isFalse();
+    }
+
+    @Test
+    public void conflate_shouldPassThroughWithoutWindow() throws Exception {
+        Conflator conflator = new Conflator(0, TimeUnit.MILLISECONDS, scheduler);
+        TestSubscriber<PostScore> subscriber = conflator.conflate(source, PostScore::getId).test();
+
+        source.onNext(score(1, 1));
+        source.onNext(score(1, 2));
+
+        subscriber.assertValues(score(1, 1), score(1, 2));
+    }
+
+}
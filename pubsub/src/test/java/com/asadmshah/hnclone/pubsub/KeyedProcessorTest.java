@@ -0,0 +1,123 @@
+package com.asadmshah.hnclone.pubsub;
+
+import com.asadmshah.hnclone.models.PostScore;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import kotlin.Unit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class KeyedProcessorTest {
+
+    @Test
+    public void subscribe_shouldBeLazy() throws Exception {
+        KeyedProcessor<PostScore> processor = new KeyedProcessor<>(PostScore::getId);
+
+        Flowable<PostScore> flowable = processor.subscribe(1);
+
+        assertThat(processor.getSize()).isEqualTo(0);
+
+        Disposable disposable = flowable.subscribe();
+
+        assertThat(processor.getSize()).isEqualTo(1);
+
+        disposable.dispose();
+
+        assertThat(processor.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void subscribe_shouldShareTopicUntilLastCancel() throws Exception {
+        KeyedProcessor<PostScore> processor = new KeyedProcessor<>(PostScore::getId);
+
+        List<PostScore> results1 = new ArrayList<>();
+        List<PostScore> results2 = new ArrayList<>();
+
+        Disposable disposable1 = processor.subscribe(1).subscribe(results1::add);
+        Disposable disposable2 = processor.subscribe(1).subscribe(results2::add);
+
+        PostScore postScore1 = PostScore.newBuilder().setId(1).setScore(1).build();
+        PostScore postScore2 = PostScore.newBuilder().setId(1).setScore(2).build();
+        PostScore postScore3 = PostScore.newBuilder().setId(2).setScore(3).build();
+
+        processor.onNext(postScore1);
+        disposable1.dispose();
+        processor.onNext(postScore2);
+        processor.onNext(postScore3);
+
+        assertThat(results1).containsExactly(postScore1);
+        assertThat(results2).containsExactly(postScore1, postScore2).inOrder();
+        assertThat(processor.getSize()).isEqualTo(1);
+
+        disposable2.dispose();
+
+        assertThat(processor.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void subscribe_shouldNotifyFirstAndLast() throws Exception {
+        List<String> events = new ArrayList<>();
+        KeyedProcessor<PostScore> processor = new KeyedProcessor<>(PostScore::getId, key -> {
+            events.add("first " + key);
+            return Unit.INSTANCE;
+        }, key -> {
+            events.add("last " + key);
+            return Unit.INSTANCE;
+        });
+
+        Disposable disposable1 = processor.subscribe(1).subscribe();
+        Disposable disposable2 = processor.subscribe(1).subscribe();
+        Disposable disposable3 = processor.subscribe(2).subscribe();
+
+        disposable1.dispose();
+        disposable3.dispose();
+        disposable2.dispose();
+
+        assertThat(events).containsExactly("first 1", "first 2", "last 2", "last 1").inOrder();
+    }
+
+    @Test
+    public void subscribe_shouldNotHoldLockWhileNotifying() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> firsts = new ArrayList<>();
+        KeyedProcessor<PostScore> processor = new KeyedProcessor<>(PostScore::getId, key -> {
+            firsts.add(key);
+            if (key == 1) {
+                started.countDown();
+                try {
+                    release.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Unit.INSTANCE;
+        }, key -> Unit.INSTANCE);
+
+        Disposable disposable1 = processor.subscribe(2).subscribe();
+
+        Thread thread = new Thread(() -> processor.subscribe(1).subscribe());
+        thread.start();
+        started.await(1, TimeUnit.SECONDS);
+
+        Disposable disposable2 = processor.subscribe(2).subscribe();
+        disposable2.dispose();
+
+        assertThat(processor.getSize()).isEqualTo(2);
+        assertThat(thread.isAlive()).isTrue();
+
+        release.countDown();
+        thread.join(1000);
+
+        assertThat(firsts).containsExactly(2, 1).inOrder();
+
+        disposable1.dispose();
+    }
+
+}
@@ -4,12 +4,14 @@ import com.asadmshah.hnclone.models.Comment;
 import com.asadmshah.hnclone.models.CommentScore;
 import com.asadmshah.hnclone.models.Post;
 import com.asadmshah.hnclone.models.PostScore;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -43,9 +45,12 @@ public class LocalPubSubImplTest {
         pubSub.subPostScore().subscribeOn(Schedulers.io()).subscribe(results1::add);
         Thread.sleep(50);
         pubSub.pubPostScore(postScore1);
+        await(results1, 1);
         pubSub.subPostScore().subscribeOn(Schedulers.io()).subscribe(results2::add);
         Thread.sleep(50);
         pubSub.pubPostScore(postScore2);
+        await(results1, 2);
+        await(results2, 1);
 
         assertThat(results1).containsExactly(postScore1, postScore2);
         assertThat(results2).containsExactly(postScore2);
@@ -62,9 +67,12 @@ public class LocalPubSubImplTest {
         pubSub.subPost().subscribeOn(Schedulers.io()).subscribe(results1::add);
         Thread.sleep(50);
         pubSub.pubPost(post1);
+        await(results1, 1);
         pubSub.subPost().subscribeOn(Schedulers.io()).subscribe(results2::add);
         Thread.sleep(50);
         pubSub.pubPost(post2);
+        await(results1, 2);
+        await(results2, 1);
 
         assertThat(results1).containsExactly(post1, post2);
         assertThat(results2).containsExactly(post2);
@@ -121,4 +129,117 @@ public class LocalPubSubImplTest {
 
         assertThat(resCommentScores).containsExactlyElementsIn(expCommentScores).inOrder();
     }
+
+    @Test
+    public void pubSubPostScoreKeyed_shouldOnlyReceiveKey() throws Exception {
+        PostScore postScore1 = PostScore.newBuilder().setId(1).setScore(10).build();
+        PostScore postScore2 = PostScore.newBuilder().setId(2).setScore(20).build();
+        PostScore postScore3 = PostScore.newBuilder().setId(1).setScore(30).build();
+
+        List<PostScore> results1 = Collections.synchronizedList(new ArrayList<>());
+        List<PostScore> results2 = Collections.synchronizedList(new ArrayList<>());
+
+        pubSub.subPostScore(1).subscribe(results1::add);
+        pubSub.subPostScore(2).subscribe(results2::add);
+
+        pubSub.pubPostScore(postScore1);
+        pubSub.pubPostScore(postScore2);
+        pubSub.pubPostScore(postScore3);
+
+        await(results1, 2);
+        await(results2, 1);
+
+        assertThat(results1).containsExactly(postScore1, postScore3).inOrder();
+        assertThat(results2).containsExactly(postScore2);
+    }
+
+    @Test
+    public void pubSubCommentsKeyed_shouldOnlyReceiveKey() throws Exception {
+        List<Comment> expComments = new ArrayList<>();
+        List<Comment> resComments = Collections.synchronizedList(new ArrayList<>());
+
+        pubSub.subComments(1).subscribe(resComments::add);
+
+        for (int i = 0; i < 10; i++) {
+            Comment comment = Comment.newBuilder().setId(i+1).setPostId(i % 2 + 1).build();
+            if (comment.getPostId() == 1) {
+                expComments.add(comment);
+            }
+            pubSub.pubComment(comment);
+        }
+
+        await(resComments, expComments.size());
+
+        assertThat(resComments).containsExactlyElementsIn(expComments).inOrder();
+    }
+
+    @Test
+    public void pubSubCommentScoresKeyed_shouldReleaseOnCancel() throws Exception {
+        List<CommentScore> resCommentScores = Collections.synchronizedList(new ArrayList<>());
+
+        Disposable disposable = pubSub.subCommentScores(1).subscribe(resCommentScores::add);
+
+        CommentScore commentScore1 = CommentScore.newBuilder().setPostId(1).setCommentId(1).build();
+        CommentScore commentScore2 = CommentScore.newBuilder().setPostId(1).setCommentId(2).build();
+
+        pubSub.pubCommentScore(commentScore1);
+        await(resCommentScores, 1);
+        disposable.dispose();
+        pubSub.pubCommentScore(commentScore2);
+        Thread.sleep(50);
+
+        assertThat(resCommentScores).containsExactly(commentScore1);
+    }
+
+    @Test
+    public void pubPostScore_shouldDeliverFromConcurrentPublishers() throws Exception {
+        int publishers = 4;
+        int perPublisher = 1000;
+
+        List<PostScore> results = Collections.synchronizedList(new ArrayList<>());
+        pubSub.subPostScore().subscribe(results::add);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < publishers; i++) {
+            final int publisher = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < perPublisher; j++) {
+                    pubSub.pubPostScore(PostScore.newBuilder().setId(publisher).setScore(j).build());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        await(results, publishers * perPublisher);
+
+        assertThat(results).hasSize(publishers * perPublisher);
+
+        int[] last = new int[publishers];
+        Arrays.fill(last, -1);
+        synchronized (results) {
+            for (PostScore result : results) {
+                assertThat(result.getScore()).isEqualTo(last[result.getId()] + 1);
+                last[result.getId()] = result.getScore();
+            }
+        }
+    }
+
+    private static void await(List<?> results, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (results.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package com.asadmshah.hnclone.pubsub;
+
+import com.asadmshah.hnclone.models.Comment;
+import com.asadmshah.hnclone.models.CommentScore;
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.PostScore;
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import io.reactivex.subscribers.TestSubscriber;
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PostgresPubSubImplTest {
+
+    @Mock private DataSource dataSource;
+    @Mock private Connection connection;
+    @Mock private PGConnection pgConnection;
+    @Mock private Statement statement;
+    @Mock private PreparedStatement preparedStatement;
+
+    private PostgresPubSubImpl pubSub;
+
+    @Before
+    public void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(connection.createStatement()).thenReturn(statement);
+
+        pubSub = new PostgresPubSubImpl(dataSource, new BaseConfiguration());
+        pubSub.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pubSub.stop();
+    }
+
+    @Test
+    public void start_shouldListenOnAllChannels() throws Exception {
+        verify(pgConnection).addNotificationListener(any(PGNotificationListener.class));
+        verify(statement).execute("LISTEN post_score;");
+        verify(statement).execute("LISTEN post;");
+        verify(statement).execute("LISTEN comments;");
+        verify(statement).execute("LISTEN comment_scores;");
+    }
+
+    @Test
+    public void pubCommentScore_shouldNotifyEncodedPayloadOffTheCallerThread() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+
+        CommentScore commentScore = CommentScore.newBuilder().setPostId(1).setCommentId(2).setScore(3).build();
+
+        pubSub.pubCommentScore(commentScore);
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(preparedStatement, timeout(1000)).execute();
+        verify(preparedStatement).setString(1, "comment_scores");
+        verify(preparedStatement).setString(eq(2), payload.capture());
+
+        assertThat(CommentScore.parseFrom(PostgresPubSubImpl.Companion.decode(payload.getValue()))).isEqualTo(commentScore);
+    }
+
+    @Test
+    public void pubComment_shouldLeaveNotifyToTheWritingTransaction() throws Exception {
+        pubSub.pubComment(Comment.newBuilder().setPostId(1).setId(2).setText("text").build());
+        pubSub.pubPost(Post.newBuilder().setId(1).build());
+
+        verify(connection, after(100).never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void pubComment_shouldNotifyWhenTheDatabaseDoesNot() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty("database.notify", false);
+        PostgresPubSubImpl pubSub = new PostgresPubSubImpl(dataSource, configuration);
+        pubSub.start();
+
+        pubSub.pubComment(Comment.newBuilder().setPostId(1).setId(2).setText("text").build());
+
+        verify(preparedStatement, timeout(1000)).execute();
+        verify(preparedStatement).setString(1, "comments");
+
+        pubSub.stop();
+    }
+
+    @Test
+    public void checkListener_shouldRelistenWhenConnectionDrops() throws Exception {
+        when(connection.isValid(anyInt())).thenReturn(true);
+
+        pubSub.checkListener();
+
+        verify(statement, times(1)).execute("LISTEN post;");
+        assertThat(pubSub.getReconnects().get()).isEqualTo(0);
+
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        pubSub.checkListener();
+
+        verify(connection).close();
+        verify(statement, times(2)).execute("LISTEN post;");
+        verify(pgConnection, times(2)).addNotificationListener(any(PGNotificationListener.class));
+        assertThat(pubSub.getReconnects().get()).isEqualTo(1);
+    }
+
+    @Test
+    public void onNotification_shouldRouteToSubscribers() throws Exception {
+        PostScore postScore1 = PostScore.newBuilder().setId(1).setScore(1).build();
+        PostScore postScore2 = PostScore.newBuilder().setId(2).setScore(2).build();
+
+        TestSubscriber<PostScore> all = pubSub.subPostScore().test();
+        TestSubscriber<PostScore> keyed = pubSub.subPostScore(2).test();
+
+        pubSub.onNotification("post_score", PostgresPubSubImpl.Companion.encode(postScore1.toByteArray()));
+        pubSub.onNotification("post_score", "not base64");
+        pubSub.onNotification("unknown", PostgresPubSubImpl.Companion.encode(postScore1.toByteArray()));
+        pubSub.onNotification("post_score", PostgresPubSubImpl.Companion.encode(postScore2.toByteArray()));
+
+        await(all, 2);
+        await(keyed, 1);
+
+        all.assertValues(postScore1, postScore2);
+        keyed.assertValues(postScore2);
+    }
+
+    private static void await(TestSubscriber<?> subscriber, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (subscriber.valueCount() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+}
@@ -46,9 +46,11 @@ public class RedisPubSubImplTest {
         List<PostScore> results2 = Collections.synchronizedList(new ArrayList<>());
 
         pubSub.subPostScore().subscribeOn(Schedulers.io()).subscribe(results1::add);
+        Thread.sleep(50);
         pubSub.pubPostScore(postScore1);
         Thread.sleep(50);
         pubSub.subPostScore().subscribeOn(Schedulers.io()).subscribe(results2::add);
+        Thread.sleep(50);
         pubSub.pubPostScore(postScore2);
         Thread.sleep(50);
 
@@ -65,9 +67,11 @@ public class RedisPubSubImplTest {
         List<Post> results2 = Collections.synchronizedList(new ArrayList<>());
 
         pubSub.subPost().subscribeOn(Schedulers.io()).subscribe(results1::add);
+        Thread.sleep(50);
         pubSub.pubPost(post1);
         Thread.sleep(50);
         pubSub.subPost().subscribeOn(Schedulers.io()).subscribe(results2::add);
+        Thread.sleep(50);
         pubSub.pubPost(post2);
         Thread.sleep(50);
 
@@ -127,4 +131,44 @@ public class RedisPubSubImplTest {
         assertThat(resCommentScores).containsExactlyElementsIn(expCommentScores).inOrder();
     }
 
+    @Test
+    public void pubSubCommentsKeyed_shouldOnlyReceiveKey() throws Exception {
+        List<Comment> expComments = new ArrayList<>();
+        List<Comment> resComments = Collections.synchronizedList(new ArrayList<>());
+
+        pubSub.subComments(1).subscribe(resComments::add);
+        Thread.sleep(50);
+
+        for (int i = 0; i < 10; i++) {
+            Comment comment = Comment.newBuilder().setId(i+1).setPostId(i % 2 + 1).build();
+            if (comment.getPostId() == 1) {
+                expComments.add(comment);
+            }
+            pubSub.pubComment(comment);
+        }
+
+        Thread.sleep(100);
+
+        assertThat(resComments).containsExactlyElementsIn(expComments).inOrder();
+    }
+
+    @Test
+    public void pubSubPostScoreKeyed_shouldNotDuplicateWithPattern() throws Exception {
+        PostScore postScore = PostScore.newBuilder().setId(1).setScore(10).build();
+
+        List<PostScore> resAll = Collections.synchronizedList(new ArrayList<>());
+        List<PostScore> resKeyed = Collections.synchronizedList(new ArrayList<>());
+
+        pubSub.subPostScore().subscribe(resAll::add);
+        pubSub.subPostScore(1).subscribe(resKeyed::add);
+        Thread.sleep(50);
+
+        pubSub.pubPostScore(postScore);
+
+        Thread.sleep(100);
+
+        assertThat(resAll).containsExactly(postScore);
+        assertThat(resKeyed).containsExactly(postScore);
+    }
+
 }
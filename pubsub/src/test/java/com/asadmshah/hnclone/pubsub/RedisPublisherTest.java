@@ -0,0 +1,108 @@
+package com.asadmshah.hnclone.pubsub;
+
+import com.lambdaworks.redis.RedisFuture;
+import com.lambdaworks.redis.api.StatefulRedisConnection;
+import com.lambdaworks.redis.api.async.RedisAsyncCommands;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RedisPublisherTest {
+
+    @Mock private StatefulRedisConnection<byte[], byte[]> connection;
+    @Mock private RedisAsyncCommands<byte[], byte[]> commands;
+    @Mock private RedisFuture<Long> future;
+
+    private RedisPublisher publisher;
+
+    @Before
+    public void setUp() throws Exception {
+        publisher = new RedisPublisher(connection, 10, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void publish_shouldDropNewestWhenFull() throws Exception {
+        RedisPublisher.Queue queue = publisher.queue(2, OverflowPolicy.DROP);
+
+        queue.publish(bytes("a"), bytes("1"));
+        queue.publish(bytes("a"), bytes("2"));
+        queue.publish(bytes("a"), bytes("3"));
+
+        assertThat(publisher.getQueueDepth()).isEqualTo(2);
+        assertThat(publisher.getDropped()).isEqualTo(1);
+        assertThat(new String(queue.getMessages().peek().getPayload())).isEqualTo("1");
+    }
+
+    @Test
+    public void publish_shouldDropOldestWhenFull() throws Exception {
+        RedisPublisher.Queue queue = publisher.queue(2, OverflowPolicy.DROP_OLDEST);
+
+        queue.publish(bytes("a"), bytes("1"));
+        queue.publish(bytes("a"), bytes("2"));
+        queue.publish(bytes("a"), bytes("3"));
+
+        assertThat(publisher.getQueueDepth()).isEqualTo(2);
+        assertThat(publisher.getDropped()).isEqualTo(1);
+        assertThat(new String(queue.getMessages().peek().getPayload())).isEqualTo("2");
+    }
+
+    @Test
+    public void start_shouldPipelineAndFlush() throws Exception {
+        when(connection.async()).thenReturn(commands);
+        when(commands.publish(any(), any())).thenReturn(future);
+        when(future.get(anyLong(), any())).thenReturn(1L);
+
+        RedisPublisher.Queue queue = publisher.queue(100, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 25; i++) {
+            queue.publish(bytes("a"), bytes(String.valueOf(i)));
+        }
+
+        publisher.start();
+        publisher.stop();
+
+        InOrder inOrder = inOrder(connection, commands);
+        inOrder.verify(connection).setAutoFlushCommands(false);
+        inOrder.verify(commands, times(10)).publish(any(), any());
+        inOrder.verify(connection).flushCommands();
+
+        verify(commands, times(25)).publish(any(), any());
+        verify(connection, times(3)).flushCommands();
+
+        assertThat(publisher.getQueueDepth()).isEqualTo(0);
+        assertThat(publisher.getFlushes()).isEqualTo(3);
+        assertThat(publisher.getFailed()).isEqualTo(0);
+    }
+
+    @Test
+    public void publish_shouldRejectAfterStop() throws Exception {
+        when(connection.async()).thenReturn(commands);
+
+        RedisPublisher.Queue queue = publisher.queue(1, OverflowPolicy.BLOCK);
+
+        publisher.start();
+        publisher.stop();
+
+        queue.publish(bytes("a"), bytes("1"));
+        queue.publish(bytes("a"), bytes("2"));
+
+        assertThat(publisher.getQueueDepth()).isEqualTo(0);
+        assertThat(publisher.getDropped()).isEqualTo(2);
+        verify(commands, never()).publish(any(), any());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes();
+    }
+
+}
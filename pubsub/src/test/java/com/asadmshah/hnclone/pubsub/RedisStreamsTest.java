@@ -0,0 +1,81 @@
+package com.asadmshah.hnclone.pubsub;
+
+import com.lambdaworks.redis.api.sync.RedisCommands;
+import com.lambdaworks.redis.protocol.ProtocolKeyword;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RedisStreamsTest {
+
+    @Mock private RedisCommands<byte[], byte[]> commands;
+
+    @Test
+    public void compare_shouldOrderByTimeThenSequence() throws Exception {
+        assertThat(RedisStreams.Companion.compare("1-0", "1-0")).isEqualTo(0);
+        assertThat(RedisStreams.Companion.compare("1-1", "1-0")).isGreaterThan(0);
+        assertThat(RedisStreams.Companion.compare("2-0", "10-0")).isLessThan(0);
+        assertThat(RedisStreams.Companion.compare("1526919030474-55", "1526919030474-6")).isGreaterThan(0);
+    }
+
+    @Test
+    public void isValid_shouldRejectMalformedIds() throws Exception {
+        assertThat(RedisStreams.Companion.isValid("1526919030474-0")).isTrue();
+        assertThat(RedisStreams.Companion.isValid("")).isFalse();
+        assertThat(RedisStreams.Companion.isValid("$")).isFalse();
+        assertThat(RedisStreams.Companion.isValid("1-")).isFalse();
+        assertThat(RedisStreams.Companion.isValid("-1")).isFalse();
+        assertThat(RedisStreams.Companion.isValid("1-2-3")).isFalse();
+        assertThat(RedisStreams.Companion.isValid("a-1")).isFalse();
+    }
+
+    @Test
+    public void read_shouldParseEntriesPerStream() throws Exception {
+        List<Object> reply = Arrays.asList(
+                Arrays.asList(bytes("COMMENTS:1"), Arrays.asList(
+                        Arrays.asList(bytes("1-0"), Arrays.asList(bytes("p"), bytes("a"))),
+                        Arrays.asList(bytes("2-0"), Arrays.asList(bytes("p"), bytes("b"))))),
+                Arrays.asList(bytes("COMMENTS:2"), Arrays.asList(
+                        Arrays.asList(bytes("3-0"), Arrays.asList(bytes("x"), bytes("c"), bytes("p"), bytes("d"))))));
+
+        when(commands.<List<Object>>dispatch(any(ProtocolKeyword.class), any(), any())).thenReturn(reply);
+
+        RedisStreams streams = new RedisStreams(commands);
+        Map<String, List<RedisStreams.Entry>> results = streams.read(
+                Arrays.asList(bytes("COMMENTS:1"), bytes("COMMENTS:2")),
+                Arrays.asList("0-0", "0-0"),
+                10,
+                100);
+
+        assertThat(results.keySet()).containsExactly("COMMENTS:1", "COMMENTS:2");
+        assertThat(results.get("COMMENTS:1")).hasSize(2);
+        assertThat(results.get("COMMENTS:1").get(1).getId()).isEqualTo("2-0");
+        assertThat(new String(results.get("COMMENTS:1").get(1).getPayload())).isEqualTo("b");
+        assertThat(results.get("COMMENTS:2")).hasSize(1);
+        assertThat(new String(results.get("COMMENTS:2").get(0).getPayload())).isEqualTo("d");
+    }
+
+    @Test
+    public void lastId_shouldDefaultWhenEmpty() throws Exception {
+        when(commands.<List<Object>>dispatch(any(ProtocolKeyword.class), any(), any())).thenReturn(Arrays.asList());
+
+        RedisStreams streams = new RedisStreams(commands);
+
+        assertThat(streams.lastId(bytes("COMMENTS:1"))).isEqualTo(RedisStreams.FIRST_ID);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes();
+    }
+
+}
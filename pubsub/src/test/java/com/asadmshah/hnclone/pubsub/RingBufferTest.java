@@ -0,0 +1,61 @@
+package com.asadmshah.hnclone.pubsub;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RingBufferTest {
+
+    @Test
+    public void capacity_shouldRoundUpToPowerOfTwo() throws Exception {
+        assertThat(new RingBuffer<Integer>(1).getCapacity()).isEqualTo(2);
+        assertThat(new RingBuffer<Integer>(4).getCapacity()).isEqualTo(4);
+        assertThat(new RingBuffer<Integer>(5).getCapacity()).isEqualTo(8);
+    }
+
+    @Test
+    public void offer_shouldRejectWhenFull() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+
+        List<Integer> results = new ArrayList<>();
+        assertThat(ring.drain(1, collect(results))).isEqualTo(1);
+        assertThat(ring.offer(4)).isTrue();
+    }
+
+    @Test
+    public void drain_shouldPreserveOrderAcrossWraps() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        List<Integer> results = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(ring.offer(i)).isTrue();
+            assertThat(ring.offer(i + 100)).isTrue();
+            ring.drain(2, collect(results));
+        }
+
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(results).hasSize(20);
+        for (int i = 0; i < 10; i++) {
+            assertThat(results.get(i * 2)).isEqualTo(i);
+            assertThat(results.get(i * 2 + 1)).isEqualTo(i + 100);
+        }
+    }
+
+    private static Function1<Integer, Unit> collect(List<Integer> results) {
+        return value -> {
+            results.add(value);
+            return Unit.INSTANCE;
+        };
+    }
+
+}
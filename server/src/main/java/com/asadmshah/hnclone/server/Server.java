@@ -12,9 +12,11 @@ import java.io.IOException;
 
 public class Server {
 
+    private final ServerComponent component;
     private final io.grpc.Server grpcServer;
 
     public Server(ServerComponent component) {
+        this.component = component;
         this.grpcServer = ServerBuilder
                 .forPort(component.configuration().getInt("server.port"))
                 .addService(SessionsServiceEndpoint.create(component))
@@ -25,6 +27,14 @@ public class Server {
     }
 
     private void start() throws IOException {
+        component.scoreAggregator().start();
+        component.pubSub().start();
+        component.blockedSessionsCache().start();
+        component.feedCache().start();
+        component.postCache().start();
+        component.userCache().start();
+        component.votePipeline().start();
+
         grpcServer.start();
 
         System.out.println("Server Started on port " + grpcServer.getPort());
@@ -43,6 +53,15 @@ public class Server {
         if (grpcServer != null) {
             grpcServer.shutdown();
         }
+
+        component.votePipeline().stop();
+        component.userCache().stop();
+        component.postCache().stop();
+        component.feedCache().stop();
+        component.blockedSessionsCache().stop();
+        component.pubSub().stop();
+        component.scoreAggregator().stop();
+        component.usersDatabase().stop();
     }
 
     private void blockedStop() throws InterruptedException {
@@ -6,8 +6,17 @@ import com.asadmshah.hnclone.cache.CacheModule;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
 import com.asadmshah.hnclone.common.sessions.SessionManagerModule;
 import com.asadmshah.hnclone.database.*;
+import com.asadmshah.hnclone.pubsub.Conflator;
 import com.asadmshah.hnclone.pubsub.PubSub;
 import com.asadmshah.hnclone.pubsub.PubSubModule;
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.User;
+import com.asadmshah.hnclone.server.feeds.FeedCache;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.reads.ReadCoalescer;
+import com.asadmshah.hnclone.server.reads.ReadThroughCache;
+import com.asadmshah.hnclone.server.reads.SingleFlight;
+import com.asadmshah.hnclone.server.votes.VotePipeline;
 import dagger.Component;
 import org.apache.commons.configuration2.Configuration;
 
@@ -30,8 +39,18 @@ public interface ServerComponent {
     PostsDatabase postsDatabase();
     SessionsDatabase sessionsDatabase();
     CommentsDatabase commentsDatabase();
+    ScoreAggregator scoreAggregator();
     PubSub pubSub();
     BlockedSessionsCache blockedSessionsCache();
+    VerifiedSessionCache verifiedSessionCache();
     Cache cache();
+    FeedCache feedCache();
+    VotePipeline votePipeline();
+    ReadCoalescer<Post> postReads();
+    ReadCoalescer<User> userReads();
+    ReadThroughCache<Post> postCache();
+    ReadThroughCache<User> userCache();
+    SingleFlight singleFlight();
+    Conflator scoreConflator();
 
 }
@@ -1,13 +1,44 @@
 package com.asadmshah.hnclone.server;
 
+import com.asadmshah.hnclone.cache.Cache;
+import com.asadmshah.hnclone.cache.Zone;
+import com.asadmshah.hnclone.database.CommentsDatabase;
+import com.asadmshah.hnclone.database.PostsDatabase;
+import com.asadmshah.hnclone.database.UsersDatabase;
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.User;
+import com.asadmshah.hnclone.pubsub.Conflator;
 import com.asadmshah.hnclone.pubsub.PubSub;
 import com.asadmshah.hnclone.pubsub.PubSubModule;
+import com.asadmshah.hnclone.server.feeds.FeedCache;
+import com.asadmshah.hnclone.server.feeds.FeedCacheImpl;
+import com.asadmshah.hnclone.server.feeds.RankedFeedCacheImpl;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.reads.CachedPostReads;
+import com.asadmshah.hnclone.server.reads.ReadCoalescer;
+import com.asadmshah.hnclone.server.reads.ReadThroughCache;
+import com.asadmshah.hnclone.server.reads.SingleFlight;
+import com.asadmshah.hnclone.server.votes.DirectVotePipelineImpl;
+import com.asadmshah.hnclone.server.votes.VoteJournal;
+import com.asadmshah.hnclone.server.votes.VotePipeline;
+import com.asadmshah.hnclone.server.votes.WriteBehindVotePipelineImpl;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
 import dagger.Module;
 import dagger.Provides;
+import kotlin.jvm.functions.Function1;
 import org.apache.commons.configuration2.Configuration;
 
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Module
 public class ServerModule {
@@ -25,8 +56,142 @@ public class ServerModule {
 
     @Provides
     @Singleton
-    public PubSub providesPubSub(@Named(PubSubModule.REDIS) PubSub pubSub) {
-        return pubSub;
+    public PubSub providesPubSub(@Named(PubSubModule.REDIS) Provider<PubSub> redis,
+                                 @Named(PubSubModule.STREAMS) Provider<PubSub> streams,
+                                 @Named(PubSubModule.POSTGRES) Provider<PubSub> postgres) {
+        switch (configuration.getString("pubsub.impl", PubSubModule.REDIS)) {
+            case PubSubModule.STREAMS:
+                return streams.get();
+            case PubSubModule.POSTGRES:
+                return postgres.get();
+            default:
+                return redis.get();
+        }
+    }
+
+    @Provides
+    @Singleton
+    public VerifiedSessionCache providesVerifiedSessionCache() {
+        return new VerifiedSessionCache(configuration.getInt("auth.sessions.cache.size", 4096));
+    }
+
+    @Provides
+    @Singleton
+    public FeedCache providesFeedCache(PostsDatabase postsDatabase, PubSub pubSub) {
+        int size = configuration.getInt("feeds.cache.size", 100);
+        long refresh = configuration.getLong("feeds.cache.refresh", 1000);
+        long expire = configuration.getLong("feeds.cache.expire", 60000);
+        FeedCache feedCache = new FeedCacheImpl(postsDatabase, pubSub, size, refresh, expire, TimeUnit.MILLISECONDS);
+
+        if (!configuration.getBoolean("feeds.ranking.enabled", false)) {
+            return feedCache;
+        }
+
+        int maxPosts = configuration.getInt("feeds.ranking.size", 10000);
+        long window = configuration.getLong("feeds.ranking.window", TimeUnit.DAYS.toMillis(2));
+        long interval = configuration.getLong("feeds.ranking.refresh", 100);
+        long decay = configuration.getLong("feeds.ranking.decay", 60000);
+        double gravity = configuration.getDouble("feeds.ranking.gravity", 1.8);
+        return new RankedFeedCacheImpl(feedCache, postsDatabase, pubSub, maxPosts, window, interval, decay, TimeUnit.MILLISECONDS, gravity);
+    }
+
+    @Provides
+    @Singleton
+    public VotePipeline providesVotePipeline(PostsDatabase postsDatabase, CommentsDatabase commentsDatabase) {
+        if (!configuration.getBoolean("votes.pipeline.enabled", false)) {
+            return new DirectVotePipelineImpl(postsDatabase, commentsDatabase);
+        }
+
+        File directory = new File(configuration.getString("votes.journal.dir", "votes"));
+        boolean sync = configuration.getBoolean("votes.journal.sync", true);
+        int batchSize = configuration.getInt("votes.batch.size", 500);
+        long interval = configuration.getLong("votes.flush.interval", 1000);
+        int counters = configuration.getInt("votes.counters.size", 10000);
+        long counterTtl = configuration.getLong("votes.counters.ttl", 60000);
+        VoteJournal journal = new VoteJournal(directory, sync);
+        return new WriteBehindVotePipelineImpl(postsDatabase, commentsDatabase, journal, batchSize, interval, counters, counterTtl, TimeUnit.MILLISECONDS);
+    }
+
+    @Provides
+    @Singleton
+    public ReadThroughCache<Post> providesPostCache(PostsDatabase postsDatabase, PubSub pubSub, Provider<Cache> cache) {
+        ReadThroughCache<Post> postCache = readThroughCache(cache, Zone.POSTS, Post.parser(), Post::getId, id -> postsDatabase.read(-1, id), ids -> postsDatabase.readMany(-1, ids));
+        if (configuration.getBoolean("reads.cache.enabled", false)) {
+            postCache.patchOn(id -> pubSub.subPostScore(id), (post, postScore) -> post.toBuilder().setScore(postScore.getScore()).build());
+        }
+        return postCache;
+    }
+
+    @Provides
+    @Singleton
+    public ReadThroughCache<User> providesUserCache(UsersDatabase usersDatabase, Provider<Cache> cache) {
+        return readThroughCache(cache, Zone.USERS, User.parser(), User::getId, usersDatabase::read, usersDatabase::readMany);
+    }
+
+    @Provides
+    @Singleton
+    public ReadCoalescer<Post> providesPostReads(PostsDatabase postsDatabase, ReadThroughCache<Post> postCache) {
+        long window = configuration.getLong("reads.coalesce.window", 0);
+        int batchSize = configuration.getInt("reads.coalesce.batch.size", 100);
+
+        if (!configuration.getBoolean("reads.cache.enabled", false)) {
+            return new ReadCoalescer<>(window, TimeUnit.MILLISECONDS, batchSize, postsDatabase::read, postsDatabase::readMany);
+        }
+
+        CachedPostReads reads = new CachedPostReads(postsDatabase, postCache);
+        return new ReadCoalescer<>(window, TimeUnit.MILLISECONDS, batchSize, reads::read, reads::readMany);
+    }
+
+    @Provides
+    @Singleton
+    public ReadCoalescer<User> providesUserReads(ReadThroughCache<User> userCache) {
+        long window = configuration.getLong("reads.coalesce.window", 0);
+        int batchSize = configuration.getInt("reads.coalesce.batch.size", 100);
+        return new ReadCoalescer<>(window, TimeUnit.MILLISECONDS, batchSize, (viewerId, id) -> userCache.get(id), (viewerId, ids) -> userCache.getMany(ids));
+    }
+
+    @Provides
+    @Singleton
+    public SingleFlight providesSingleFlight() {
+        SingleFlight singleFlight = new SingleFlight(configuration.getBoolean("reads.singleflight.enabled", true));
+        registerMBean(singleFlight, "com.asadmshah.hnclone.server:type=SingleFlight");
+        return singleFlight;
+    }
+
+    @Provides
+    @Singleton
+    public Conflator providesScoreConflator() {
+        return new Conflator(configuration.getLong("pubsub.conflate.window", 0), TimeUnit.MILLISECONDS);
+    }
+
+    private <V extends MessageLite> ReadThroughCache<V> readThroughCache(Provider<Cache> cache,
+                                                                       Zone zone,
+                                                                       Parser<V> parser,
+                                                                       Function1<V, Integer> id,
+                                                                       Function1<Integer, V> single,
+                                                                       Function1<int[], Map<Integer, V>> many) {
+        if (!configuration.getBoolean("reads.cache.enabled", false)) {
+            return new ReadThroughCache<>(null, zone, parser, 0, 0, 0, TimeUnit.MILLISECONDS, id, single, many);
+        }
+
+        String prefix = "reads.cache." + zone.name().toLowerCase();
+        long size = configuration.getLong(prefix + ".size", 10000);
+        long localTtl = configuration.getLong(prefix + ".local.ttl", 5000);
+        long remoteTtl = configuration.getLong(prefix + ".remote.ttl", 60000);
+        ReadThroughCache<V> readThroughCache = new ReadThroughCache<>(cache.get(), zone, parser, size, localTtl, remoteTtl, TimeUnit.MILLISECONDS, id, single, many);
+        registerMBean(readThroughCache, "com.asadmshah.hnclone.server:type=ReadThroughCache,zone=" + zone.name());
+        return readThroughCache;
+    }
+
+    private static void registerMBean(Object bean, String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
     }
 
 }
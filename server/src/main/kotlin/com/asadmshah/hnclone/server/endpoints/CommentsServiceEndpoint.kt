@@ -5,6 +5,8 @@ import com.asadmshah.hnclone.errors.*
 import com.asadmshah.hnclone.models.Comment
 import com.asadmshah.hnclone.models.CommentScore
 import com.asadmshah.hnclone.models.RequestSession
+import com.asadmshah.hnclone.pubsub.StreamResumeExpiredException
+import com.asadmshah.hnclone.pubsub.StreamResumeInvalidException
 import com.asadmshah.hnclone.server.ServerComponent
 import com.asadmshah.hnclone.server.interceptors.SessionInterceptor
 import com.asadmshah.hnclone.services.*
@@ -13,6 +15,7 @@ import io.grpc.ServerServiceDefinition
 import io.grpc.stub.StreamObserver
 import io.reactivex.BackpressureOverflowStrategy
 import io.reactivex.Flowable
+import java.io.IOException
 import java.sql.SQLException
 
 class CommentsServiceEndpoint private constructor(component: ServerComponent) : CommentsServiceGrpc.CommentsServiceImplBase() {
@@ -25,10 +28,14 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
 
             return ServerInterceptors.intercept(endpoint, interceptor)
         }
+
+        private const val MAX_BATCH_SIZE = 100
     }
 
     private val commentsDatabase = component.commentsDatabase()
     private val pubSub = component.pubSub()
+    private val votePipeline = component.votePipeline()
+    private val scoreConflator = component.scoreConflator()
 
     override fun create(request: CommentCreateRequest, responseObserver: StreamObserver<Comment>) {
         val session: RequestSession? = SessionInterceptor.KEY_SESSION.get()
@@ -91,16 +98,37 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
         responseObserver.onCompleted()
     }
 
+    override fun readBatch(request: CommentReadBatchRequest, responseObserver: StreamObserver<Comment>) {
+        val viewerId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
+
+        if (request.commentIdsCount > MAX_BATCH_SIZE) {
+            responseObserver.onError(BatchTooLargeStatusException())
+            return
+        }
+
+        val ids = request.commentIdsList.distinct()
+
+        val comments: Map<Int, Comment>
+        try {
+            comments = commentsDatabase.readMany(viewerId, ids.toIntArray())
+        } catch (e: SQLException) {
+            responseObserver.onError(UnknownStatusException())
+            return
+        }
+
+        Flowable.fromIterable(ids.mapNotNull { comments[it] })
+                .subscribeStreamObserver(responseObserver)
+    }
+
     override fun readListFromPost(request: CommentReadListFromPostRequest, responseObserver: StreamObserver<Comment>) {
         val viewerId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
 
         commentsDatabase
                 .readComments(viewerId, request.postId)
-                .onBackpressureBuffer()
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error<Comment>(UnknownStatusException())
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun readListFromComment(request: CommentReadListFromCommentRequest, responseObserver: StreamObserver<Comment>) {
@@ -108,11 +136,10 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
 
         commentsDatabase
                 .readComments(viewerId, request.postId, request.commentId)
-                .onBackpressureBuffer()
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error<Comment>(UnknownStatusException())
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun voteIncrement(request: CommentVoteIncrementRequest, responseObserver: StreamObserver<CommentScoreResponse>) {
@@ -124,10 +151,13 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
 
         val score: Int?
         try {
-            score = commentsDatabase.incrementScore(session.id, request.postId, request.commentId)
+            score = votePipeline.voteComment(session.id, request.postId, request.commentId, 1)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
+        } catch (e: IOException) {
+            responseObserver.onError(UnknownStatusException())
+            return
         }
 
         if (score == null) {
@@ -165,10 +195,13 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
 
         val score: Int?
         try {
-            score = commentsDatabase.decrementScore(session.id, request.postId, request.commentId)
+            score = votePipeline.voteComment(session.id, request.postId, request.commentId, -1)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
+        } catch (e: IOException) {
+            responseObserver.onError(UnknownStatusException())
+            return
         }
 
         if (score == null) {
@@ -206,10 +239,13 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
 
         val score: Int?
         try {
-            score = commentsDatabase.removeScore(session.id, request.postId, request.commentId)
+            score = votePipeline.voteComment(session.id, request.postId, request.commentId, 0)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
+        } catch (e: IOException) {
+            responseObserver.onError(UnknownStatusException())
+            return
         }
 
         if (score == null) {
@@ -239,22 +275,29 @@ class CommentsServiceEndpoint private constructor(component: ServerComponent) :
     }
 
     override fun commentStream(request: CommentStreamRequest, responseObserver: StreamObserver<Comment>) {
-        pubSub.subComments()
+        val comments = if (request.resumeFrom.isEmpty()) {
+            pubSub.subComments(request.postId)
+        } else {
+            pubSub.subComments(request.postId, request.resumeFrom)
+        }
+
+        comments
                 .onBackpressureBuffer(100, null, BackpressureOverflowStrategy.DROP_OLDEST)
                 .onErrorResumeNext { it: Throwable ->
-                    Flowable.error(UnknownStatusException())
+                    when (it) {
+                        is StreamResumeInvalidException -> Flowable.error(StreamResumeInvalidStatusException())
+                        is StreamResumeExpiredException -> Flowable.error(StreamResumeExpiredStatusException())
+                        else -> Flowable.error(UnknownStatusException())
+                    }
                 }
-                .filter { it.postId == request.postId }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun commentScoreStream(request: CommentScoreStreamRequest, responseObserver: StreamObserver<CommentScore>) {
-        pubSub.subCommentScores()
-                .onBackpressureBuffer(100, null, BackpressureOverflowStrategy.DROP_OLDEST)
+        scoreConflator.conflate(pubSub.subCommentScores(request.postId), { it.commentId })
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error(UnknownStatusException())
                 }
-                .filter { it.postId == request.postId }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 }
\ No newline at end of file
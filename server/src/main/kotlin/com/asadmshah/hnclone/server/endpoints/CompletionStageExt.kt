@@ -0,0 +1,19 @@
+package com.asadmshah.hnclone.server.endpoints
+
+import java.util.concurrent.CompletionException
+import java.util.concurrent.CompletionStage
+
+internal fun <T> CompletionStage<T>.whenDone(onError: (Throwable) -> Unit, onSuccess: (T) -> Unit) {
+    whenComplete { value, error ->
+        if (error != null) {
+            onError(if (error is CompletionException) error.cause ?: error else error)
+            return@whenComplete
+        }
+
+        try {
+            onSuccess(value)
+        } catch (e: Exception) {
+            onError(e)
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.asadmshah.hnclone.server.endpoints
 
+import io.grpc.stub.ServerCallStreamObserver
 import io.grpc.stub.StreamObserver
 import io.reactivex.Flowable
 import org.reactivestreams.Subscriber
 import org.reactivestreams.Subscription
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+internal fun <T> Flowable<T>.subscribeStreamObserver(responseObserver: StreamObserver<T>) {
+    if (responseObserver !is ServerCallStreamObserver<T>) {
+        blockingSubscribeStreamObserver(responseObserver)
+        return
+    }
+
+    subscribe(ServerCallStreamSubscriber(responseObserver))
+}
 
 internal fun <T> Flowable<T>.blockingSubscribeStreamObserver(responseObserver: StreamObserver<T>) {
     blockingSubscribe(object : Subscriber<T> {
@@ -40,4 +52,73 @@ internal fun <T> Flowable<T>.blockingSubscribeStreamObserver(responseObserver: S
             this.subscription?.request(1)
         }
     })
-}
\ No newline at end of file
+}
+
+private class ServerCallStreamSubscriber<T>(private val responseObserver: ServerCallStreamObserver<T>) : Subscriber<T> {
+
+    private val subscription = AtomicReference<Subscription?>()
+    private val requested = AtomicBoolean()
+    private val cancelled = AtomicBoolean()
+
+    init {
+        responseObserver.setOnReadyHandler { requestIfReady() }
+        responseObserver.setOnCancelHandler { cancel() }
+    }
+
+    override fun onSubscribe(it: Subscription) {
+        if (!subscription.compareAndSet(null, it) || cancelled.get()) {
+            it.cancel()
+            return
+        }
+        requestIfReady()
+    }
+
+    override fun onNext(it: T) {
+        if (cancelled.get()) return
+
+        try {
+            responseObserver.onNext(it)
+        } catch (ignored: Exception) {
+            cancel()
+            return
+        }
+
+        requested.set(false)
+        requestIfReady()
+    }
+
+    override fun onError(it: Throwable) {
+        if (cancelled.get()) return
+
+        try {
+            responseObserver.onError(it)
+        } catch (ignored: Exception) {
+
+        }
+    }
+
+    override fun onComplete() {
+        if (cancelled.get()) return
+
+        try {
+            responseObserver.onCompleted()
+        } catch (ignored: Exception) {
+
+        }
+    }
+
+    private fun requestIfReady() {
+        val subscription = subscription.get() ?: return
+        if (cancelled.get() || !responseObserver.isReady) return
+
+        if (requested.compareAndSet(false, true)) {
+            subscription.request(1)
+        }
+    }
+
+    private fun cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            subscription.get()?.cancel()
+        }
+    }
+}
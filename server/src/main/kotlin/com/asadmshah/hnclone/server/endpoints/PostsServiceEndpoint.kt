@@ -5,18 +5,30 @@ import com.asadmshah.hnclone.common.tools.unescape
 import com.asadmshah.hnclone.database.PostsDatabase
 import com.asadmshah.hnclone.errors.*
 import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostCursor
 import com.asadmshah.hnclone.models.PostScore
 import com.asadmshah.hnclone.models.RequestSession
+import com.asadmshah.hnclone.pubsub.Conflator
 import com.asadmshah.hnclone.pubsub.PubSub
+import com.asadmshah.hnclone.pubsub.StreamResumeExpiredException
+import com.asadmshah.hnclone.pubsub.StreamResumeInvalidException
 import com.asadmshah.hnclone.server.ServerComponent
+import com.asadmshah.hnclone.server.feeds.FeedCache
+import com.asadmshah.hnclone.server.feeds.overlayVotes
 import com.asadmshah.hnclone.server.interceptors.SessionInterceptor
+import com.asadmshah.hnclone.server.reads.ReadCoalescer
+import com.asadmshah.hnclone.server.reads.ReadThroughCache
+import com.asadmshah.hnclone.server.reads.SingleFlight
+import com.asadmshah.hnclone.server.votes.VotePipeline
 import com.asadmshah.hnclone.services.*
+import com.google.protobuf.ByteString
+import com.google.protobuf.InvalidProtocolBufferException
 import io.grpc.ServerInterceptors
 import io.grpc.ServerServiceDefinition
 import io.grpc.stub.StreamObserver
-import io.reactivex.BackpressureOverflowStrategy
 import io.reactivex.Flowable
 import org.apache.commons.validator.routines.UrlValidator
+import java.io.IOException
 import java.sql.SQLException
 
 class PostsServiceEndpoint private constructor(component: ServerComponent) : PostsServiceGrpc.PostsServiceImplBase() {
@@ -31,14 +43,29 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
         }
 
         private val urlValidator = UrlValidator()
+
+        private const val MAX_BATCH_SIZE = 100
+        private const val MAX_SHARED_LIMIT = 100
     }
 
     private val postsDatabase: PostsDatabase
     private val pubSub: PubSub
+    private val feedCache: FeedCache
+    private val votePipeline: VotePipeline
+    private val postReads: ReadCoalescer<Post>
+    private val postCache: ReadThroughCache<Post>
+    private val scoreConflator: Conflator
+    private val singleFlight: SingleFlight
 
     init {
         this.postsDatabase = component.postsDatabase()
         this.pubSub = component.pubSub()
+        this.feedCache = component.feedCache()
+        this.votePipeline = component.votePipeline()
+        this.postReads = component.postReads()
+        this.postCache = component.postCache()
+        this.scoreConflator = component.scoreConflator()
+        this.singleFlight = component.singleFlight()
     }
 
     override fun create(request: PostCreateRequest, responseObserver: StreamObserver<Post>) {
@@ -97,6 +124,8 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
 
         responseObserver.onNext(post)
         responseObserver.onCompleted()
+
+        pubSub.pubPost(post)
     }
 
     override fun read(request: PostReadRequest, responseObserver: StreamObserver<Post>) {
@@ -104,7 +133,9 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
 
         val post: Post?
         try {
-            post = postsDatabase.read(userId, request.id)
+            post = singleFlight.execute(listOf("read", request.id)) { postReads.read(-1, request.id) }?.let {
+                postsDatabase.overlayVotes(userId, listOf(it))[0]
+            }
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
@@ -119,52 +150,124 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
         responseObserver.onCompleted()
     }
 
+    override fun readBatch(request: PostReadBatchRequest, responseObserver: StreamObserver<Post>) {
+        val userId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
+
+        if (request.idsCount > MAX_BATCH_SIZE) {
+            responseObserver.onError(BatchTooLargeStatusException())
+            return
+        }
+
+        val ids = request.idsList.distinct()
+
+        val posts: Map<Int, Post>
+        try {
+            posts = postsDatabase.readMany(userId, ids.toIntArray())
+        } catch (e: SQLException) {
+            responseObserver.onError(UnknownStatusException())
+            return
+        }
+
+        Flowable.fromIterable(ids.mapNotNull { posts[it] })
+                .subscribeStreamObserver(responseObserver)
+    }
+
     override fun readNewStream(request: PostReadListRequest, responseObserver: StreamObserver<Post>) {
         val userId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
 
-        postsDatabase
-                .readNew(userId, request.limit, request.offset)
-                .onBackpressureBuffer()
+        val posts: Flowable<Post>
+        if (request.pageCase == PostReadListRequest.PageCase.CURSOR) {
+            val cursor = parseCursor(request.cursor)
+            if (cursor == null) {
+                responseObserver.onError(PostCursorInvalidStatusException())
+                return
+            }
+            if (request.limit <= MAX_SHARED_LIMIT) {
+                posts = singleFlight.flowable(listOf("readNew", cursor, request.limit)) { postsDatabase.readNew(-1, cursor, request.limit) }
+                        .withVotes(userId)
+            } else {
+                posts = postsDatabase.readNew(userId, cursor, request.limit)
+            }
+        } else {
+            posts = feedCache.readNew(userId, request.limit, request.offset)
+        }
+
+        posts
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error(UnknownStatusException())
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun readHotStream(request: PostReadListRequest, responseObserver: StreamObserver<Post>) {
         val userId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
 
-        postsDatabase
-                .readTop(userId, request.limit, request.offset)
-                .onBackpressureBuffer()
+        val posts: Flowable<Post>
+        if (request.pageCase == PostReadListRequest.PageCase.CURSOR) {
+            val cursor = parseCursor(request.cursor)
+            if (cursor == null) {
+                responseObserver.onError(PostCursorInvalidStatusException())
+                return
+            }
+            if (request.limit <= MAX_SHARED_LIMIT) {
+                posts = singleFlight.flowable(listOf("readTop", cursor, request.limit)) { postsDatabase.readTop(-1, cursor, request.limit) }
+                        .withVotes(userId)
+            } else {
+                posts = postsDatabase.readTop(userId, cursor, request.limit)
+            }
+        } else {
+            posts = feedCache.readTop(userId, request.limit, request.offset)
+        }
+
+        posts
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error(UnknownStatusException())
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun readNewFromUserStream(request: PostReadListFromUserRequest, responseObserver: StreamObserver<Post>) {
         val viewerId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
 
-        postsDatabase
-                .readNew(viewerId, request.id, request.limit, request.offset)
-                .onBackpressureBuffer()
+        val posts: Flowable<Post>
+        if (request.pageCase == PostReadListFromUserRequest.PageCase.CURSOR) {
+            val cursor = parseCursor(request.cursor)
+            if (cursor == null) {
+                responseObserver.onError(PostCursorInvalidStatusException())
+                return
+            }
+            posts = postsDatabase.readNew(viewerId, request.id, cursor, request.limit)
+        } else {
+            posts = postsDatabase.readNew(viewerId, request.id, request.limit, request.offset)
+        }
+
+        posts
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error(UnknownStatusException())
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun readTopFromUserStream(request: PostReadListFromUserRequest, responseObserver: StreamObserver<Post>) {
         val viewerId = SessionInterceptor.KEY_SESSION.get()?.id ?: -1
 
-        postsDatabase
-                .readTop(viewerId, request.id, request.limit, request.offset)
-                .onBackpressureBuffer()
+        val posts: Flowable<Post>
+        if (request.pageCase == PostReadListFromUserRequest.PageCase.CURSOR) {
+            val cursor = parseCursor(request.cursor)
+            if (cursor == null) {
+                responseObserver.onError(PostCursorInvalidStatusException())
+                return
+            }
+            posts = postsDatabase.readTop(viewerId, request.id, cursor, request.limit)
+        } else {
+            posts = postsDatabase.readTop(viewerId, request.id, request.limit, request.offset)
+        }
+
+        posts
                 .onErrorResumeNext { it: Throwable ->
                     Flowable.error(UnknownStatusException())
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun voteDecrement(request: PostVoteDecrementRequest, responseObserver: StreamObserver<PostScoreResponse>) {
@@ -176,10 +279,13 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
 
         val newScore: Int?
         try {
-            newScore = postsDatabase.decrementScore(session.id, request.id)
+            newScore = votePipeline.votePost(session.id, request.id, -1)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
+        } catch (e: IOException) {
+            responseObserver.onError(UnknownStatusException())
+            return
         }
 
         if (newScore == null) {
@@ -197,6 +303,7 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
         responseObserver.onNext(response)
         responseObserver.onCompleted()
 
+        postCache.invalidateRemote(response.id)
         pubSub.pubPostScore(PostScore
                 .newBuilder()
                 .setId(response.id)
@@ -213,10 +320,13 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
 
         val newScore: Int?
         try {
-            newScore = postsDatabase.incrementScore(session.id, request.id)
+            newScore = votePipeline.votePost(session.id, request.id, 1)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
+        } catch (e: IOException) {
+            responseObserver.onError(UnknownStatusException())
+            return
         }
 
         if (newScore == null) {
@@ -234,6 +344,7 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
         responseObserver.onNext(response)
         responseObserver.onCompleted()
 
+        postCache.invalidateRemote(response.id)
         pubSub.pubPostScore(PostScore
                 .newBuilder()
                 .setId(response.id)
@@ -250,10 +361,13 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
 
         val newScore: Int?
         try {
-            newScore = postsDatabase.removeScore(session.id, request.id)
+            newScore = votePipeline.votePost(session.id, request.id, 0)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
+        } catch (e: IOException) {
+            responseObserver.onError(UnknownStatusException())
+            return
         }
 
         if (newScore == null) {
@@ -271,6 +385,7 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
         responseObserver.onNext(response)
         responseObserver.onCompleted()
 
+        postCache.invalidateRemote(response.id)
         pubSub.pubPostScore(PostScore
                 .newBuilder()
                 .setId(response.id)
@@ -279,14 +394,37 @@ class PostsServiceEndpoint private constructor(component: ServerComponent) : Pos
     }
 
     override fun postScoreChangeStream(request: PostScoreChangeRequest, responseObserver: StreamObserver<PostScore>) {
-        return pubSub
-                .subPostScore()
-                .onBackpressureBuffer(100, null, BackpressureOverflowStrategy.DROP_OLDEST)
-                .filter { request.id <= 0 || request.id == it.id }
+        val scores = if (request.id <= 0) {
+            pubSub.subPostScore()
+        } else if (request.resumeFrom.isEmpty()) {
+            pubSub.subPostScore(request.id)
+        } else {
+            pubSub.subPostScore(request.id, request.resumeFrom)
+        }
+
+        return scoreConflator
+                .conflate(scores, { it.id })
                 .onErrorResumeNext { it: Throwable ->
-                    Flowable.error(UnknownStatusException())
+                    when (it) {
+                        is StreamResumeInvalidException -> Flowable.error(StreamResumeInvalidStatusException())
+                        is StreamResumeExpiredException -> Flowable.error(StreamResumeExpiredStatusException())
+                        else -> Flowable.error(UnknownStatusException())
+                    }
                 }
-                .blockingSubscribeStreamObserver(responseObserver)
+                .subscribeStreamObserver(responseObserver)
+    }
+
+    private fun Flowable<Post>.withVotes(viewerId: Int): Flowable<Post> {
+        if (viewerId <= 0) return this
+        return toList().toFlowable().flatMapIterable { postsDatabase.overlayVotes(viewerId, it) }
+    }
+
+    private fun parseCursor(cursor: ByteString): PostCursor? {
+        try {
+            return PostCursor.parseFrom(cursor)
+        } catch (e: InvalidProtocolBufferException) {
+            return null
+        }
     }
 
 }
\ No newline at end of file
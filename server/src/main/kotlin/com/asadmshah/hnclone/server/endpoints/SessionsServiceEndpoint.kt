@@ -4,8 +4,10 @@ import com.asadmshah.hnclone.cache.BlockedSessionsCache
 import com.asadmshah.hnclone.common.sessions.ExpiredTokenException
 import com.asadmshah.hnclone.common.sessions.InvalidTokenException
 import com.asadmshah.hnclone.common.sessions.SessionManager
+import com.asadmshah.hnclone.database.PasswordHasherBusyException
 import com.asadmshah.hnclone.database.SessionsDatabase
 import com.asadmshah.hnclone.database.UsersDatabase
+import com.asadmshah.hnclone.errors.ServerBusyStatusException
 import com.asadmshah.hnclone.errors.SessionExpiredTokenStatusException
 import com.asadmshah.hnclone.errors.SessionInvalidTokenStatusException
 import com.asadmshah.hnclone.errors.UnknownStatusException
@@ -16,7 +18,6 @@ import com.asadmshah.hnclone.services.SessionCreateRequest
 import com.asadmshah.hnclone.services.SessionCreateResponse
 import com.asadmshah.hnclone.services.SessionsServiceGrpc
 import io.grpc.stub.StreamObserver
-import java.sql.SQLException
 import java.time.Instant
 import java.time.LocalDateTime
 import java.time.ZoneOffset
@@ -66,11 +67,15 @@ class SessionsServiceEndpoint private constructor(component: ServerComponent) :
     }
 
     override fun create(request: SessionCreateRequest, responseObserver: StreamObserver<SessionCreateResponse>) {
-        try {
-            val user = usersDatabase.read(request.username, request.password)
+        usersDatabase.readAsync(request.username, request.password).whenDone({
+            when (it) {
+                is PasswordHasherBusyException -> responseObserver.onError(ServerBusyStatusException())
+                else -> responseObserver.onError(UnknownStatusException())
+            }
+        }, { user ->
             if (user == null) {
                 responseObserver.onError(UserNotFoundStatusException())
-                return
+                return@whenDone
             }
 
             val sreq = sessions.createRequestToken(user.id)
@@ -79,8 +84,6 @@ class SessionsServiceEndpoint private constructor(component: ServerComponent) :
             val response = SessionCreateResponse.newBuilder().setRequest(sreq).setRefresh(sref).build()
             responseObserver.onNext(response)
             responseObserver.onCompleted()
-        } catch (e: SQLException) {
-            responseObserver.onError(UnknownStatusException())
-        }
+        })
     }
-}
\ No newline at end of file
+}
@@ -2,17 +2,21 @@ package com.asadmshah.hnclone.server.endpoints
 
 import com.asadmshah.hnclone.cache.BlockedSessionsCache
 import com.asadmshah.hnclone.common.tools.escape
+import com.asadmshah.hnclone.database.PasswordHasherBusyException
 import com.asadmshah.hnclone.database.UserExistsException
 import com.asadmshah.hnclone.database.UsersDatabase
 import com.asadmshah.hnclone.errors.*
 import com.asadmshah.hnclone.models.User
 import com.asadmshah.hnclone.server.ServerComponent
 import com.asadmshah.hnclone.server.interceptors.SessionInterceptor
+import com.asadmshah.hnclone.server.reads.ReadCoalescer
+import com.asadmshah.hnclone.server.reads.ReadThroughCache
 import com.asadmshah.hnclone.services.*
 import io.grpc.Context
 import io.grpc.ServerInterceptors
 import io.grpc.ServerServiceDefinition
 import io.grpc.stub.StreamObserver
+import io.reactivex.Flowable
 import org.apache.commons.lang3.StringUtils
 import java.sql.SQLException
 import java.util.regex.Pattern
@@ -29,14 +33,20 @@ class UsersServiceEndpoint private constructor(component: ServerComponent) : Use
         }
 
         private val patternUsername = Pattern.compile("^\\w{0,32}$")
+
+        private const val MAX_BATCH_SIZE = 100
     }
 
     private val usersDatabase: UsersDatabase
     private val blockedSessionsCache: BlockedSessionsCache
+    private val userReads: ReadCoalescer<User>
+    private val userCache: ReadThroughCache<User>
 
     init {
         this.usersDatabase = component.usersDatabase()
         this.blockedSessionsCache = component.blockedSessionsCache()
+        this.userReads = component.userReads()
+        this.userCache = component.userCache()
     }
 
     override fun create(request: UserCreateRequest, responseObserver: StreamObserver<User>) {
@@ -68,19 +78,34 @@ class UsersServiceEndpoint private constructor(component: ServerComponent) : Use
             return
         }
 
+        usersDatabase.createAsync(username, password, about).whenDone({
+            when (it) {
+                is UserExistsException -> responseObserver.onError(UsernameExistsStatusException())
+                is PasswordHasherBusyException -> responseObserver.onError(ServerBusyStatusException())
+                else -> responseObserver.onError(UnknownStatusException())
+            }
+        }, { user ->
+            if (user == null) {
+                responseObserver.onError(UnknownStatusException())
+                return@whenDone
+            }
+
+            responseObserver.onNext(user)
+            responseObserver.onCompleted()
+        })
+    }
+
+    override fun readUsingID(request: UserReadUsingIDRequest, responseObserver: StreamObserver<User>) {
         val user: User?
         try {
-            user = usersDatabase.create(username, password, about)
-        } catch (e: UserExistsException) {
-            responseObserver.onError(UsernameExistsStatusException())
-            return
+            user = userReads.read(0, request.id)
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
         }
 
         if (user == null) {
-            responseObserver.onError(UnknownStatusException())
+            responseObserver.onError(UserNotFoundStatusException())
             return
         }
 
@@ -88,28 +113,30 @@ class UsersServiceEndpoint private constructor(component: ServerComponent) : Use
         responseObserver.onCompleted()
     }
 
-    override fun readUsingID(request: UserReadUsingIDRequest, responseObserver: StreamObserver<User>) {
-        val user: User?
-        try {
-            user = usersDatabase.read(request.id)
-        } catch (e: SQLException) {
-            responseObserver.onError(UnknownStatusException())
+    override fun readBatch(request: UserReadBatchRequest, responseObserver: StreamObserver<User>) {
+        if (request.idsCount > MAX_BATCH_SIZE) {
+            responseObserver.onError(BatchTooLargeStatusException())
             return
         }
 
-        if (user == null) {
-            responseObserver.onError(UserNotFoundStatusException())
+        val ids = request.idsList.distinct()
+
+        val users: Map<Int, User>
+        try {
+            users = usersDatabase.readMany(ids.toIntArray())
+        } catch (e: SQLException) {
+            responseObserver.onError(UnknownStatusException())
             return
         }
 
-        responseObserver.onNext(user)
-        responseObserver.onCompleted()
+        Flowable.fromIterable(ids.mapNotNull { users[it] })
+                .subscribeStreamObserver(responseObserver)
     }
 
     override fun readUsingName(request: UserReadUsingNameRequest, responseObserver: StreamObserver<User>) {
         val user: User?
         try {
-            user = usersDatabase.read(request.username)
+            user = userCache.get(request.username) { usersDatabase.read(it) }
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
             return
@@ -142,6 +169,7 @@ class UsersServiceEndpoint private constructor(component: ServerComponent) : Use
             val s = usersDatabase.updateAbout(session.id, about)
             if (s != null) {
                 response = UserUpdateAboutResponse.newBuilder().setAbout(s).build()
+                userCache.invalidate(session.id)
             }
         } catch (e: SQLException) {
             responseObserver.onError(UnknownStatusException())
@@ -170,26 +198,22 @@ class UsersServiceEndpoint private constructor(component: ServerComponent) : Use
             return
         }
 
-        var response: UserUpdatePasswordResponse? = null
-        try {
-            val s = usersDatabase.updatePassword(session.id, password)
-            if (s != null && s) {
-                response = UserUpdatePasswordResponse.getDefaultInstance()
+        usersDatabase.updatePasswordAsync(session.id, password).whenDone({
+            when (it) {
+                is PasswordHasherBusyException -> responseObserver.onError(ServerBusyStatusException())
+                else -> responseObserver.onError(UnknownStatusException())
+            }
+        }, { updated ->
+            if (updated == null || !updated) {
+                responseObserver.onError(UnknownStatusException())
+                return@whenDone
             }
-        } catch (e: SQLException) {
-            responseObserver.onError(UnknownStatusException())
-            return
-        }
-
-        if (response == null) {
-            responseObserver.onError(UnknownStatusException())
-            return
-        }
 
-        blockedSessionsCache.put(session.id)
+            blockedSessionsCache.put(session.id)
 
-        responseObserver.onNext(response)
-        responseObserver.onCompleted()
+            responseObserver.onNext(UserUpdatePasswordResponse.getDefaultInstance())
+            responseObserver.onCompleted()
+        })
     }
 
-}
\ No newline at end of file
+}
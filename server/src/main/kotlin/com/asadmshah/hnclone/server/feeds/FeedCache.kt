@@ -0,0 +1,15 @@
+package com.asadmshah.hnclone.server.feeds
+
+import com.asadmshah.hnclone.models.Post
+import io.reactivex.Flowable
+
+interface FeedCache {
+
+    fun start()
+
+    fun stop()
+
+    fun readTop(viewerId: Int, lim: Int, off: Int): Flowable<Post>
+
+    fun readNew(viewerId: Int, lim: Int, off: Int): Flowable<Post>
+}
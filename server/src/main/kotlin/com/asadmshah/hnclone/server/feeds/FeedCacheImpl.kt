@@ -0,0 +1,120 @@
+package com.asadmshah.hnclone.server.feeds
+
+import com.asadmshah.hnclone.database.PostsDatabase
+import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostScore
+import com.asadmshah.hnclone.pubsub.PubSub
+import io.reactivex.Flowable
+import io.reactivex.disposables.CompositeDisposable
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.locks.ReentrantLock
+
+internal class FeedCacheImpl(private val postsDatabase: PostsDatabase,
+                             private val pubSub: PubSub,
+                             private val capacity: Int,
+                             refreshInterval: Long,
+                             expireInterval: Long,
+                             unit: TimeUnit) : FeedCache {
+
+    private val refreshMillis = unit.toMillis(refreshInterval)
+    private val expireMillis = unit.toMillis(expireInterval)
+
+    private val topFeed = Feed(true) { postsDatabase.readTop(-1, capacity, 0).toList().blockingGet() }
+    private val newFeed = Feed(false) { postsDatabase.readNew(-1, capacity, 0).toList().blockingGet() }
+
+    private val subscriptions = CompositeDisposable()
+
+    override fun start() {
+        topFeed.start()
+        newFeed.start()
+        subscriptions.add(pubSub.subPost().subscribe({
+            topFeed.invalidate()
+            newFeed.invalidate()
+        }, { }))
+    }
+
+    override fun stop() {
+        subscriptions.clear()
+        topFeed.stop()
+        newFeed.stop()
+    }
+
+    override fun readTop(viewerId: Int, lim: Int, off: Int): Flowable<Post> {
+        if (off + lim > capacity) return postsDatabase.readTop(viewerId, lim, off)
+
+        return Flowable.defer { Flowable.fromIterable(postsDatabase.overlayVotes(viewerId, topFeed.read().page(lim, off))) }
+    }
+
+    override fun readNew(viewerId: Int, lim: Int, off: Int): Flowable<Post> {
+        if (off + lim > capacity) return postsDatabase.readNew(viewerId, lim, off)
+
+        return Flowable.defer { Flowable.fromIterable(postsDatabase.overlayVotes(viewerId, newFeed.read().page(lim, off))) }
+    }
+
+    private class Snapshot(val posts: List<Post>, val loaded: Long, val dirty: Boolean)
+
+    private inner class Feed(private val ranked: Boolean, private val loader: () -> List<Post>) {
+
+        private val snapshot = AtomicReference<Snapshot?>()
+        private val lock = ReentrantLock()
+        private val watcher = PostScoreWatcher(pubSub) { patch(it) }
+
+        fun start() {
+            watcher.start()
+        }
+
+        fun stop() {
+            watcher.stop()
+        }
+
+        fun read(): List<Post> {
+            val current = snapshot.get()
+            if (current != null && !isStale(current)) return current.posts
+
+            if (current == null) {
+                lock.lock()
+            } else if (!lock.tryLock()) {
+                return current.posts
+            }
+
+            try {
+                val latest = snapshot.get()
+                if (latest != null && !isStale(latest)) return latest.posts
+
+                val posts = loader()
+                snapshot.set(Snapshot(posts, System.currentTimeMillis(), false))
+                watcher.watch(posts.map { it.id })
+                return posts
+            } finally {
+                lock.unlock()
+            }
+        }
+
+        fun patch(score: PostScore) {
+            while (true) {
+                val current = snapshot.get() ?: return
+                val index = current.posts.indexOfFirst { it.id == score.id }
+                if (index < 0) return
+
+                val posts = current.posts.toMutableList()
+                posts[index] = posts[index].toBuilder().setScore(score.score).build()
+
+                if (snapshot.compareAndSet(current, Snapshot(posts, current.loaded, current.dirty || ranked))) return
+            }
+        }
+
+        fun invalidate() {
+            while (true) {
+                val current = snapshot.get() ?: return
+                if (current.dirty) return
+                if (snapshot.compareAndSet(current, Snapshot(current.posts, current.loaded, true))) return
+            }
+        }
+
+        private fun isStale(snapshot: Snapshot): Boolean {
+            val age = System.currentTimeMillis() - snapshot.loaded
+            return age >= expireMillis || (snapshot.dirty && age >= refreshMillis)
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.asadmshah.hnclone.server.feeds
+
+import com.asadmshah.hnclone.database.PostsDatabase
+import com.asadmshah.hnclone.models.Post
+
+internal fun List<Post>.page(lim: Int, off: Int): List<Post> {
+    if (off >= size) return emptyList()
+    return subList(off, Math.min(off + lim, size))
+}
+
+internal fun PostsDatabase.overlayVotes(viewerId: Int, posts: List<Post>): List<Post> {
+    if (viewerId <= 0 || posts.isEmpty()) return posts
+
+    val votes = readVotes(viewerId, posts.map { it.id }.toIntArray())
+    if (votes.isEmpty()) return posts
+
+    return posts.map {
+        val vote = votes[it.id] ?: 0
+        if (vote == 0) it else it.toBuilder().setUpvoted(vote).build()
+    }
+}
@@ -0,0 +1,53 @@
+package com.asadmshah.hnclone.server.feeds
+
+import com.asadmshah.hnclone.models.PostScore
+import com.asadmshah.hnclone.pubsub.PubSub
+import io.reactivex.disposables.Disposable
+import java.util.*
+
+internal class PostScoreWatcher(private val pubSub: PubSub, private val onScore: (PostScore) -> Unit) {
+
+    private val watched = HashMap<Int, Disposable>()
+    private var ids: Collection<Int> = emptyList()
+    private var started = false
+
+    val size: Int
+        @Synchronized get() = watched.size
+
+    @Synchronized
+    fun start() {
+        started = true
+        sync()
+    }
+
+    @Synchronized
+    fun stop() {
+        started = false
+        watched.values.forEach { it.dispose() }
+        watched.clear()
+    }
+
+    @Synchronized
+    fun watch(ids: Collection<Int>) {
+        this.ids = ids
+        if (started) sync()
+    }
+
+    private fun sync() {
+        val wanted = HashSet(ids)
+
+        val iterator = watched.entries.iterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (!wanted.contains(entry.key)) {
+                entry.value.dispose()
+                iterator.remove()
+            }
+        }
+
+        for (id in wanted) {
+            if (id <= 0 || watched.containsKey(id)) continue
+            watched.put(id, pubSub.subPostScore(id).subscribe({ onScore(it) }, { }))
+        }
+    }
+}
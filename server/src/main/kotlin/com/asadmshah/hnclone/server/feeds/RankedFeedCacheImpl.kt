@@ -0,0 +1,126 @@
+package com.asadmshah.hnclone.server.feeds
+
+import com.asadmshah.hnclone.database.PostsDatabase
+import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.models.PostScore
+import com.asadmshah.hnclone.pubsub.PubSub
+import io.reactivex.Flowable
+import io.reactivex.disposables.CompositeDisposable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+internal class RankedFeedCacheImpl(private val delegate: FeedCache,
+                                   private val postsDatabase: PostsDatabase,
+                                   private val pubSub: PubSub,
+                                   private val maxPosts: Int,
+                                   window: Long,
+                                   private val refreshInterval: Long,
+                                   private val decayInterval: Long,
+                                   private val unit: TimeUnit,
+                                   gravity: Double) : FeedCache {
+
+    private val windowSeconds = unit.toSeconds(window)
+
+    private val ranked = RankedPosts(gravity)
+    private val events = ConcurrentLinkedQueue<Any>()
+    private val subscriptions = CompositeDisposable()
+    private val watcher = PostScoreWatcher(pubSub) { events.offer(it) }
+
+    @Volatile private var snapshot: List<Post>? = null
+    private var executor: ScheduledExecutorService? = null
+    private var bootstrapped = false
+
+    override fun start() {
+        delegate.start()
+
+        watcher.start()
+        subscriptions.add(pubSub.subPost().subscribe({ events.offer(it) }, { }))
+
+        val executor = Executors.newSingleThreadScheduledExecutor()
+        executor.execute { bootstrap() }
+        executor.scheduleWithFixedDelay({ refresh() }, refreshInterval, refreshInterval, unit)
+        executor.scheduleWithFixedDelay({ decay() }, decayInterval, decayInterval, unit)
+        this.executor = executor
+    }
+
+    override fun stop() {
+        subscriptions.clear()
+        watcher.stop()
+        executor?.shutdownNow()
+        executor = null
+        delegate.stop()
+    }
+
+    override fun readTop(viewerId: Int, lim: Int, off: Int): Flowable<Post> {
+        val posts = snapshot
+        if (posts == null || off + lim > posts.size) return delegate.readTop(viewerId, lim, off)
+
+        return Flowable.defer { Flowable.fromIterable(postsDatabase.overlayVotes(viewerId, posts.page(lim, off))) }
+    }
+
+    override fun readNew(viewerId: Int, lim: Int, off: Int): Flowable<Post> {
+        return delegate.readNew(viewerId, lim, off)
+    }
+
+    private fun bootstrap() {
+        try {
+            val now = now()
+            val cutoff = now - windowSeconds
+            postsDatabase
+                    .readNew(-1, maxPosts, 0)
+                    .takeWhile { it.timestamp >= cutoff }
+                    .blockingForEach { ranked.put(it) }
+            ranked.rerank(now, cutoff, maxPosts)
+            bootstrapped = true
+
+            drain()
+            updateSnapshot()
+        } catch (ignored: Exception) {
+            events.clear()
+        }
+    }
+
+    private fun refresh() {
+        if (!bootstrapped) return
+
+        if (drain()) updateSnapshot()
+    }
+
+    private fun decay() {
+        if (!bootstrapped) {
+            bootstrap()
+            return
+        }
+
+        val now = now()
+        drain()
+        ranked.rerank(now, now - windowSeconds, maxPosts)
+        updateSnapshot()
+    }
+
+    private fun updateSnapshot() {
+        val posts = ranked.snapshot()
+        snapshot = posts
+        watcher.watch(posts.map { it.id })
+    }
+
+    private fun drain(): Boolean {
+        var changed = false
+        while (true) {
+            val event = events.poll() ?: return changed
+            when (event) {
+                is PostScore -> changed = ranked.updateScore(event.id, event.score) || changed
+                is Post -> {
+                    ranked.put(event.toBuilder().clearUpvoted().build())
+                    changed = true
+                }
+            }
+        }
+    }
+
+    private fun now(): Long {
+        return System.currentTimeMillis() / 1000
+    }
+}
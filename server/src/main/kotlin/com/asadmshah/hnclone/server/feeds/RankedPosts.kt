@@ -0,0 +1,159 @@
+package com.asadmshah.hnclone.server.feeds
+
+import com.asadmshah.hnclone.models.Post
+import java.util.*
+
+internal class RankedPosts(private val gravity: Double) {
+
+    private companion object {
+        val ORDER = Comparator<Entry> { a, b ->
+            val c = java.lang.Double.compare(b.rank, a.rank)
+            if (c != 0) c else Integer.compare(b.post.id, a.post.id)
+        }
+    }
+
+    private class Entry(var post: Post, var rank: Double)
+
+    private var keys = IntArray(16)
+    private var entries = arrayOfNulls<Entry>(16)
+    private var count = 0
+
+    private val order = ArrayList<Entry>()
+
+    private var now = 0L
+
+    val size: Int
+        get() = order.size
+
+    operator fun contains(id: Int): Boolean {
+        return id > 0 && keys[slot(id)] != 0
+    }
+
+    fun put(post: Post) {
+        if (post.id <= 0) return
+
+        val i = slot(post.id)
+        val existing = entries[i]
+        if (existing != null) {
+            reposition(existing, post)
+            return
+        }
+
+        val entry = Entry(post, rank(post))
+        keys[i] = post.id
+        entries[i] = entry
+        if (++count * 4 > keys.size * 3) resize()
+
+        insert(entry)
+    }
+
+    fun updateScore(id: Int, score: Int): Boolean {
+        if (id <= 0) return false
+
+        val entry = entries[slot(id)] ?: return false
+        if (entry.post.score != score) {
+            reposition(entry, entry.post.toBuilder().setScore(score).build())
+        }
+        return true
+    }
+
+    fun rerank(now: Long, cutoff: Long, maxPosts: Int) {
+        this.now = now
+
+        val iterator = order.iterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.post.timestamp < cutoff) {
+                iterator.remove()
+                remove(entry.post.id)
+            } else {
+                entry.rank = rank(entry.post)
+            }
+        }
+
+        Collections.sort(order, ORDER)
+
+        while (order.size > maxPosts) {
+            remove(order.removeAt(order.size - 1).post.id)
+        }
+    }
+
+    fun snapshot(): List<Post> {
+        val posts = ArrayList<Post>(order.size)
+        for (entry in order) {
+            posts.add(entry.post)
+        }
+        return Collections.unmodifiableList(posts)
+    }
+
+    private fun rank(post: Post): Double {
+        val age = Math.max(0L, now - post.timestamp) / 3600.0
+        return post.score / Math.pow(age + 2.0, gravity)
+    }
+
+    private fun reposition(entry: Entry, post: Post) {
+        val index = Collections.binarySearch(order, entry, ORDER)
+        if (index >= 0) order.removeAt(index)
+
+        entry.post = post
+        entry.rank = rank(post)
+        insert(entry)
+    }
+
+    private fun insert(entry: Entry) {
+        val index = Collections.binarySearch(order, entry, ORDER)
+        order.add(if (index < 0) -index - 1 else index, entry)
+    }
+
+    private fun slot(id: Int): Int {
+        val mask = keys.size - 1
+        var i = hash(id) and mask
+        while (keys[i] != 0 && keys[i] != id) i = (i + 1) and mask
+        return i
+    }
+
+    private fun remove(id: Int) {
+        val mask = keys.size - 1
+        var i = slot(id)
+        if (keys[i] == 0) return
+
+        keys[i] = 0
+        entries[i] = null
+        count--
+
+        var j = i
+        while (true) {
+            j = (j + 1) and mask
+            if (keys[j] == 0) return
+
+            val k = hash(keys[j]) and mask
+            val inRange = if (i <= j) i < k && k <= j else i < k || k <= j
+            if (!inRange) {
+                keys[i] = keys[j]
+                entries[i] = entries[j]
+                keys[j] = 0
+                entries[j] = null
+                i = j
+            }
+        }
+    }
+
+    private fun resize() {
+        val oldKeys = keys
+        val oldEntries = entries
+
+        keys = IntArray(oldKeys.size * 2)
+        entries = arrayOfNulls<Entry>(oldEntries.size * 2)
+
+        for (i in oldKeys.indices) {
+            if (oldKeys[i] == 0) continue
+            val j = slot(oldKeys[i])
+            keys[j] = oldKeys[i]
+            entries[j] = oldEntries[i]
+        }
+    }
+
+    private fun hash(id: Int): Int {
+        return id * -0x61c88647
+    }
+}
@@ -31,14 +31,27 @@ class SessionInterceptor private constructor(component: ServerComponent) : Serve
 
     private val manager: SessionManager
     private val blocked: BlockedSessionsCache
+    private val verified: VerifiedSessionCache
 
     init {
         this.manager = component.sessionManager()
         this.blocked = component.blockedSessionsCache()
+        this.verified = component.verifiedSessionCache()
     }
 
     override fun <ReqT : Any, RespT : Any> interceptCall(call: ServerCall<ReqT, RespT>, headers: Metadata, next: ServerCallHandler<ReqT, RespT>): ServerCall.Listener<ReqT> {
         val value = headers.get(HEADER_KEY) ?: return Contexts.interceptCall(Context.current().withValue(KEY_SESSION, null), call, headers, next)
+
+        val cached = verified.get(value)
+        if (cached != null) {
+            if (blocked.contains(cached.session.id, cached.issued)) {
+                verified.remove(cached)
+                call.close(STATUS_INVALID_TOKEN, headers)
+                return NOOP as ServerCall.Listener<ReqT>
+            }
+            return Contexts.interceptCall(Context.current().withValue(KEY_SESSION, cached.session), call, headers, next)
+        }
+
         val context: Context
         try {
             val session = manager.parseRequestToken(value)
@@ -47,6 +60,7 @@ class SessionInterceptor private constructor(component: ServerComponent) : Serve
                 call.close(STATUS_INVALID_TOKEN, headers)
                 return NOOP as ServerCall.Listener<ReqT>
             }
+            verified.put(value, session, issued)
             context = Context.current().withValue(KEY_SESSION, session)
         } catch (e: ExpiredTokenException) {
             call.close(STATUS_EXPIRED_TOKEN, headers)
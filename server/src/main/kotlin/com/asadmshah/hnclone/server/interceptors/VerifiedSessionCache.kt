@@ -0,0 +1,57 @@
+package com.asadmshah.hnclone.server.interceptors
+
+import com.asadmshah.hnclone.models.RequestSession
+import java.time.LocalDateTime
+import java.util.Arrays
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+class VerifiedSessionCache(capacity: Int) {
+
+    class Entry internal constructor(internal val token: ByteArray, internal val hash: Int, val session: RequestSession, val issued: LocalDateTime)
+
+    private val entries: AtomicReferenceArray<Entry?>
+    private val mask: Int
+
+    init {
+        var size = 1
+        while (size < capacity) {
+            size = size shl 1
+        }
+        entries = AtomicReferenceArray(if (capacity > 0) size else 0)
+        mask = size - 1
+    }
+
+    fun get(token: ByteArray): Entry? {
+        if (entries.length() == 0) return null
+
+        val hash = hash(token)
+        val index = hash and mask
+        val entry = entries.get(index) ?: return null
+        if (entry.hash != hash || !Arrays.equals(entry.token, token)) return null
+
+        if (System.currentTimeMillis() > entry.session.expire) {
+            entries.compareAndSet(index, entry, null)
+            return null
+        }
+
+        return entry
+    }
+
+    fun put(token: ByteArray, session: RequestSession, issued: LocalDateTime) {
+        if (entries.length() == 0 || System.currentTimeMillis() > session.expire) return
+
+        val hash = hash(token)
+        entries.set(hash and mask, Entry(token, hash, session, issued))
+    }
+
+    fun remove(entry: Entry) {
+        if (entries.length() == 0) return
+
+        entries.compareAndSet(entry.hash and mask, entry, null)
+    }
+
+    private fun hash(token: ByteArray): Int {
+        val h = Arrays.hashCode(token) * -0x61c88647
+        return h xor (h ushr 16)
+    }
+}
\ No newline at end of file
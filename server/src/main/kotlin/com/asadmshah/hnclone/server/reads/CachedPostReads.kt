@@ -0,0 +1,25 @@
+package com.asadmshah.hnclone.server.reads
+
+import com.asadmshah.hnclone.database.PostsDatabase
+import com.asadmshah.hnclone.models.Post
+import com.asadmshah.hnclone.server.feeds.overlayVotes
+import java.util.*
+
+class CachedPostReads(private val postsDatabase: PostsDatabase, private val cache: ReadThroughCache<Post>) {
+
+    fun read(viewerId: Int, id: Int): Post? {
+        val post = cache.get(id) ?: return null
+        return postsDatabase.overlayVotes(viewerId, listOf(post))[0]
+    }
+
+    fun readMany(viewerId: Int, ids: IntArray): Map<Int, Post> {
+        val posts = cache.getMany(ids)
+        if (viewerId <= 0 || posts.isEmpty()) return posts
+
+        val results = HashMap<Int, Post>(posts.size)
+        for (post in postsDatabase.overlayVotes(viewerId, posts.values.toList())) {
+            results.put(post.id, post)
+        }
+        return results
+    }
+}
@@ -0,0 +1,111 @@
+package com.asadmshah.hnclone.server.reads
+
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+class ReadCoalescer<V>(window: Long,
+                       unit: TimeUnit,
+                       private val maxBatchSize: Int,
+                       private val single: (Int, Int) -> V?,
+                       private val many: (Int, IntArray) -> Map<Int, V>) {
+
+    private val windowNanos = unit.toNanos(window)
+    private val batches = ConcurrentHashMap<Int, Batch<V>>()
+
+    fun read(viewerId: Int, id: Int): V? {
+        if (windowNanos <= 0 || maxBatchSize <= 1) return single(viewerId, id)
+
+        while (true) {
+            val batch = batches[viewerId] ?: Batch<V>().let { batches.putIfAbsent(viewerId, it) ?: it }
+
+            val joined = batch.join(id, maxBatchSize)
+            if (joined == Batch.CLOSED) {
+                batches.remove(viewerId, batch)
+                continue
+            }
+
+            if (joined == Batch.LEADER) {
+                batch.await(windowNanos)
+                batches.remove(viewerId, batch)
+                load(viewerId, batch)
+            }
+
+            return batch.get(id)
+        }
+    }
+
+    private fun load(viewerId: Int, batch: Batch<V>) {
+        val ids = batch.close()
+        try {
+            if (ids.size == 1) {
+                val value = single(viewerId, ids[0])
+                batch.complete(if (value != null) Collections.singletonMap(ids[0], value) else emptyMap())
+            } else {
+                batch.complete(many(viewerId, ids))
+            }
+        } catch (e: Throwable) {
+            batch.fail(e)
+        }
+    }
+
+    private class Batch<V> {
+
+        companion object {
+            const val LEADER = 0
+            const val FOLLOWER = 1
+            const val CLOSED = 2
+        }
+
+        private val ids = LinkedHashSet<Int>()
+        private val full = CountDownLatch(1)
+        private val result = CompletableFuture<Map<Int, V>>()
+        private var closed = false
+
+        @Synchronized
+        fun join(id: Int, maxBatchSize: Int): Int {
+            if (closed) return CLOSED
+
+            val leader = ids.isEmpty()
+            ids.add(id)
+            if (ids.size >= maxBatchSize) {
+                closed = true
+                full.countDown()
+            }
+            return if (leader) LEADER else FOLLOWER
+        }
+
+        fun await(nanos: Long) {
+            try {
+                full.await(nanos, TimeUnit.NANOSECONDS)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+            }
+        }
+
+        @Synchronized
+        fun close(): IntArray {
+            closed = true
+            return ids.toIntArray()
+        }
+
+        fun complete(values: Map<Int, V>) {
+            result.complete(values)
+        }
+
+        fun fail(e: Throwable) {
+            result.completeExceptionally(e)
+        }
+
+        fun get(id: Int): V? {
+            try {
+                return result.get()[id]
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+    }
+}
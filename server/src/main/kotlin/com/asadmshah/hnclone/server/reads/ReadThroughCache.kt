@@ -0,0 +1,336 @@
+package com.asadmshah.hnclone.server.reads
+
+import com.asadmshah.hnclone.cache.Cache
+import com.asadmshah.hnclone.cache.Zone
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.RemovalCause
+import com.google.common.cache.RemovalListener
+import com.google.protobuf.MessageLite
+import com.google.protobuf.Parser
+import io.reactivex.Flowable
+import io.reactivex.disposables.CompositeDisposable
+import io.reactivex.disposables.Disposable
+import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.LongAdder
+
+class ReadThroughCache<V : MessageLite>(private val cache: Cache?,
+                                        private val zone: Zone,
+                                        private val parser: Parser<V>,
+                                        maxSize: Long,
+                                        localTtl: Long,
+                                        private val remoteTtl: Long,
+                                        private val unit: TimeUnit,
+                                        private val id: (V) -> Int,
+                                        private val single: (Int) -> V?,
+                                        private val many: (IntArray) -> Map<Int, V>) : ReadThroughCacheMXBean {
+
+    private companion object {
+        const val STAMPS = 1024
+    }
+
+    private val local = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, maxSize))
+            .apply { if (localTtl > 0) expireAfterWrite(localTtl, unit) }
+            .removalListener(RemovalListener<Int, V> { if (it.cause != RemovalCause.REPLACED) unwatch(it.key) })
+            .build<Int, V>()
+
+    private val aliases = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, maxSize))
+            .build<String, Int>()
+
+    private val remote = cache != null && remoteTtl > 0
+
+    private val flights = SingleFlight(true)
+
+    // Bumped by every patch so a load that raced with one can tell its result may predate it and skip the write-back.
+    private val stamps = AtomicLongArray(STAMPS)
+
+    // Keyed update subscriptions, held only for keys resident in the local tier.
+    private var watcher: ((Int) -> Disposable)? = null
+    private val watches = HashMap<Int, Disposable>()
+    private var started = false
+
+    private val subscriptions = CompositeDisposable()
+
+    private val localHitCount = LongAdder()
+    private val remoteHitCount = LongAdder()
+    private val missCount = LongAdder()
+    private val loadCount = LongAdder()
+    private val loadFailureCount = LongAdder()
+    private val remoteFailureCount = LongAdder()
+    private val loadNanos = LongAdder()
+
+    fun start() {
+        synchronized(watches) {
+            started = true
+            for (key in local.asMap().keys) {
+                watch(key)
+            }
+        }
+        if (remote) {
+            subscriptions.add(cache!!.subscribe(zone).subscribe({ onInvalidated(it) }, { }))
+        }
+    }
+
+    fun stop() {
+        subscriptions.clear()
+        synchronized(watches) {
+            started = false
+            watches.values.forEach { it.dispose() }
+            watches.clear()
+        }
+    }
+
+    fun <T> patchOn(updates: (Int) -> Flowable<T>, fn: (V, T) -> V) {
+        watcher = { key -> updates(key).subscribe({ update -> patch(key) { fn(it, update) } }, { }) }
+    }
+
+    fun get(key: Int): V? {
+        val cached = local.getIfPresent(key)
+        if (cached != null) {
+            localHitCount.increment()
+            return cached
+        }
+
+        return flights.execute(key) { resolve(key) }
+    }
+
+    private fun resolve(key: Int): V? {
+        val cached = local.getIfPresent(key)
+        if (cached != null) {
+            localHitCount.increment()
+            return cached
+        }
+
+        val stamp = stamp(key)
+
+        val stored = remoteGet(key)
+        if (stored != null) {
+            remoteHitCount.increment()
+            if (stamp(key) == stamp) store(key, stored)
+            return stored
+        }
+
+        missCount.increment()
+        val loaded = load { single(key) } ?: return null
+        if (stamp(key) == stamp) put(loaded)
+        return loaded
+    }
+
+    fun get(alias: String, loader: (String) -> V?): V? {
+        val key = aliases.getIfPresent(alias)
+        if (key != null) return get(key)
+
+        val loaded = loader(alias) ?: return null
+        aliases.put(alias, id(loaded))
+        put(loaded)
+        return loaded
+    }
+
+    fun getMany(keys: IntArray): Map<Int, V> {
+        val results = HashMap<Int, V>(keys.size)
+
+        val missing = ArrayList<Int>()
+        for (key in keys) {
+            val cached = local.getIfPresent(key)
+            if (cached != null) {
+                results.put(key, cached)
+            } else {
+                missing.add(key)
+            }
+        }
+        localHitCount.add(results.size.toLong())
+        if (missing.isEmpty()) return results
+
+        val seen = HashMap<Int, Long>(missing.size)
+        for (key in missing) {
+            seen.put(key, stamp(key))
+        }
+
+        val stored = remoteGetMany(missing)
+        for (entry in stored) {
+            val key = entry.key.toInt()
+            if (stamp(key) == seen[key]) store(key, entry.value)
+            results.put(key, entry.value)
+        }
+        remoteHitCount.add(stored.size.toLong())
+        if (results.size == keys.size) return results
+
+        val unresolved = missing.filter { !results.containsKey(it) }.toIntArray()
+        missCount.add(unresolved.size.toLong())
+
+        val loaded = load { many(unresolved) }
+        if (loaded.isNotEmpty()) {
+            putAll(loaded.filterKeys { stamp(it) == seen[it] })
+            results.putAll(loaded)
+        }
+        return results
+    }
+
+    fun put(value: V) {
+        val key = id(value)
+        store(key, value)
+        if (!remote) return
+
+        try {
+            cache!!.put(zone, key.toString(), value, remoteTtl, unit)
+        } catch (e: RuntimeException) {
+            remoteFailureCount.increment()
+        }
+    }
+
+    fun patch(key: Int, fn: (V) -> V) {
+        stamps.incrementAndGet(Math.floorMod(key, STAMPS))
+        local.asMap().computeIfPresent(key) { k, v -> fn(v) }
+    }
+
+    fun invalidateRemote(key: Int) {
+        remoteDelete(key)
+    }
+
+    fun invalidate(key: Int) {
+        local.invalidate(key)
+        remoteDelete(key)
+        if (!remote) return
+
+        try {
+            cache!!.publish(zone, key.toString())
+        } catch (e: RuntimeException) {
+            remoteFailureCount.increment()
+        }
+    }
+
+    fun onInvalidated(message: String) {
+        try {
+            local.invalidate(message.toInt())
+        } catch (ignored: NumberFormatException) {
+
+        }
+    }
+
+    private fun store(key: Int, value: V) {
+        local.put(key, value)
+        watch(key)
+    }
+
+    private fun watch(key: Int) {
+        val watcher = watcher ?: return
+        synchronized(watches) {
+            if (!started || watches.containsKey(key) || !local.asMap().containsKey(key)) return
+            watches.put(key, watcher(key))
+        }
+    }
+
+    private fun unwatch(key: Int) {
+        synchronized(watches) {
+            if (local.asMap().containsKey(key)) return
+            watches.remove(key)?.dispose()
+        }
+    }
+
+    private fun putAll(values: Map<Int, V>) {
+        for (entry in values) {
+            store(entry.key, entry.value)
+        }
+        if (!remote) return
+
+        val stored = HashMap<String, MessageLite>(values.size)
+        for (entry in values) {
+            stored.put(entry.key.toString(), entry.value)
+        }
+
+        try {
+            cache!!.putMany(zone, stored, remoteTtl, unit)
+        } catch (e: RuntimeException) {
+            remoteFailureCount.increment()
+        }
+    }
+
+    private fun remoteGet(key: Int): V? {
+        if (!remote) return null
+
+        try {
+            return cache!!.get(zone, key.toString(), parser)
+        } catch (e: RuntimeException) {
+            remoteFailureCount.increment()
+            return null
+        }
+    }
+
+    private fun remoteGetMany(keys: List<Int>): Map<String, V> {
+        if (!remote) return emptyMap()
+
+        try {
+            return cache!!.getMany(zone, keys.map { it.toString() }, parser)
+        } catch (e: RuntimeException) {
+            remoteFailureCount.increment()
+            return emptyMap()
+        }
+    }
+
+    private fun remoteDelete(key: Int) {
+        if (!remote) return
+
+        try {
+            cache!!.delete(zone, key.toString())
+        } catch (e: RuntimeException) {
+            remoteFailureCount.increment()
+        }
+    }
+
+    private fun stamp(key: Int): Long {
+        return stamps.get(Math.floorMod(key, STAMPS))
+    }
+
+    private inline fun <T> load(loader: () -> T): T {
+        val start = System.nanoTime()
+        loadCount.increment()
+        try {
+            return loader()
+        } catch (e: Throwable) {
+            loadFailureCount.increment()
+            throw e
+        } finally {
+            loadNanos.add(System.nanoTime() - start)
+        }
+    }
+
+    override val localHits: Long
+        get() = localHitCount.sum()
+
+    override val remoteHits: Long
+        get() = remoteHitCount.sum()
+
+    override val misses: Long
+        get() = missCount.sum()
+
+    override val loadFailures: Long
+        get() = loadFailureCount.sum()
+
+    override val remoteFailures: Long
+        get() = remoteFailureCount.sum()
+
+    override val averageLoadMicros: Long
+        get() {
+            val loads = loadCount.sum()
+            return if (loads == 0L) 0 else TimeUnit.NANOSECONDS.toMicros(loadNanos.sum()) / loads
+        }
+
+    override val hitRatio: Double
+        get() {
+            val hits = localHitCount.sum() + remoteHitCount.sum()
+            val total = hits + missCount.sum()
+            return if (total == 0L) 0.0 else hits.toDouble() / total
+        }
+
+    override val sharedLoads: Long
+        get() = flights.shared
+
+    override val localSize: Long
+        get() = local.size()
+
+    val watchedKeys: Int
+        get() = synchronized(watches) { watches.size }
+}
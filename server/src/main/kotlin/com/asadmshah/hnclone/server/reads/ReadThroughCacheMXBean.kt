@@ -0,0 +1,22 @@
+package com.asadmshah.hnclone.server.reads
+
+interface ReadThroughCacheMXBean {
+
+    val localHits: Long
+
+    val remoteHits: Long
+
+    val misses: Long
+
+    val loadFailures: Long
+
+    val remoteFailures: Long
+
+    val averageLoadMicros: Long
+
+    val hitRatio: Double
+
+    val sharedLoads: Long
+
+    val localSize: Long
+}
@@ -0,0 +1,107 @@
+package com.asadmshah.hnclone.server.reads
+
+import io.reactivex.BackpressureStrategy
+import io.reactivex.Flowable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.atomic.LongAdder
+
+class SingleFlight(private val enabled: Boolean) : SingleFlightMXBean {
+
+    private val calls = ConcurrentHashMap<Any, CompletableFuture<*>>()
+
+    private val executionCount = LongAdder()
+    private val sharedCount = LongAdder()
+
+    fun <T> execute(key: Any, loader: () -> T): T {
+        if (!enabled) return loader()
+
+        val future = CompletableFuture<T>()
+        val existing = calls.putIfAbsent(key, future)
+        if (existing != null) {
+            sharedCount.increment()
+            @Suppress("UNCHECKED_CAST")
+            return await(existing as CompletableFuture<T>)
+        }
+
+        executionCount.increment()
+        try {
+            val value = loader()
+            calls.remove(key, future)
+            future.complete(value)
+            return value
+        } catch (e: Throwable) {
+            calls.remove(key, future)
+            future.completeExceptionally(e)
+            throw e
+        }
+    }
+
+    /**
+     * Buffers the whole result before replaying it to every caller, so only use it for bounded pages.
+     */
+    fun <T> flowable(key: Any, source: () -> Flowable<T>): Flowable<T> {
+        if (!enabled) return source()
+
+        return Flowable.defer {
+            val future = CompletableFuture<List<T>>()
+            val existing = calls.putIfAbsent(key, future)
+
+            val shared: CompletableFuture<List<T>>
+            if (existing != null) {
+                sharedCount.increment()
+                @Suppress("UNCHECKED_CAST")
+                shared = existing as CompletableFuture<List<T>>
+            } else {
+                executionCount.increment()
+                shared = future
+                source().toList().subscribe({
+                    calls.remove(key, future)
+                    future.complete(it)
+                }, {
+                    calls.remove(key, future)
+                    future.completeExceptionally(it)
+                })
+            }
+
+            Flowable.create<T>({ emitter ->
+                shared.whenComplete { values, error ->
+                    if (error != null) {
+                        emitter.onError(error)
+                    } else {
+                        for (value in values) {
+                            if (emitter.isCancelled) return@whenComplete
+                            emitter.onNext(value)
+                        }
+                        emitter.onComplete()
+                    }
+                }
+            }, BackpressureStrategy.BUFFER)
+        }
+    }
+
+    private fun <T> await(future: CompletableFuture<T>): T {
+        try {
+            return future.get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    override val executions: Long
+        get() = executionCount.sum()
+
+    override val shared: Long
+        get() = sharedCount.sum()
+
+    override val dedupRatio: Double
+        get() {
+            val shared = sharedCount.sum()
+            val total = shared + executionCount.sum()
+            return if (total == 0L) 0.0 else shared.toDouble() / total
+        }
+
+    override val inFlight: Int
+        get() = calls.size
+}
@@ -0,0 +1,12 @@
+package com.asadmshah.hnclone.server.reads
+
+interface SingleFlightMXBean {
+
+    val executions: Long
+
+    val shared: Long
+
+    val dedupRatio: Double
+
+    val inFlight: Int
+}
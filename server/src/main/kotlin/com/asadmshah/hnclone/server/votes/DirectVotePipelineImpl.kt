@@ -0,0 +1,32 @@
+package com.asadmshah.hnclone.server.votes
+
+import com.asadmshah.hnclone.database.CommentsDatabase
+import com.asadmshah.hnclone.database.PostsDatabase
+
+internal class DirectVotePipelineImpl(private val postsDatabase: PostsDatabase,
+                                      private val commentsDatabase: CommentsDatabase) : VotePipeline {
+
+    override fun start() {
+
+    }
+
+    override fun stop() {
+
+    }
+
+    override fun votePost(userId: Int, postId: Int, value: Int): Int? {
+        return when {
+            value > 0 -> postsDatabase.incrementScore(userId, postId)
+            value < 0 -> postsDatabase.decrementScore(userId, postId)
+            else -> postsDatabase.removeScore(userId, postId)
+        }
+    }
+
+    override fun voteComment(userId: Int, postId: Int, commentId: Int, value: Int): Int? {
+        return when {
+            value > 0 -> commentsDatabase.incrementScore(userId, postId, commentId)
+            value < 0 -> commentsDatabase.decrementScore(userId, postId, commentId)
+            else -> commentsDatabase.removeScore(userId, postId, commentId)
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.asadmshah.hnclone.server.votes
+
+import com.asadmshah.hnclone.models.Vote
+import com.google.protobuf.InvalidProtocolBufferException
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.*
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+internal class VoteJournal(private val directory: File, private val sync: Boolean) {
+
+    private companion object {
+        const val PREFIX = "votes-"
+        const val SUFFIX = ".log"
+    }
+
+    private val sealed = ArrayList<File>()
+    private var sequence: Long
+    private var channel: FileChannel
+
+    // Appends are numbered so a caller can wait for its own to be on disk. One caller forces the channel for everyone
+    // who appended before it; the rest wait for that force instead of issuing their own.
+    private val lock = ReentrantLock()
+    private val forced = lock.newCondition()
+    private var written = 0L
+    private var synced = 0L
+    private var forcing = false
+
+    init {
+        if (!directory.isDirectory && !directory.mkdirs()) {
+            throw IOException("Unable to create vote journal directory $directory")
+        }
+
+        sealed.addAll(segments())
+        sequence = sealed.map { numberOf(it) }.max() ?: 0L
+        channel = open(++sequence)
+    }
+
+    fun append(vote: Vote) {
+        sync(write(vote))
+    }
+
+    fun write(vote: Vote): Long {
+        val bytes = ByteArrayOutputStream(16)
+        vote.writeDelimitedTo(bytes)
+
+        val buffer = ByteBuffer.wrap(bytes.toByteArray())
+        lock.withLock {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer)
+            }
+            return ++written
+        }
+    }
+
+    fun sync(ticket: Long) {
+        if (!sync) return
+
+        while (true) {
+            var target = 0L
+            var channel: FileChannel? = null
+            lock.withLock {
+                while (forcing && synced < ticket) forced.await()
+                if (synced >= ticket) return
+
+                forcing = true
+                target = written
+                channel = this.channel
+            }
+
+            var done = false
+            try {
+                channel!!.force(false)
+                done = true
+            } finally {
+                lock.withLock {
+                    forcing = false
+                    if (done && target > synced) synced = target
+                    forced.signalAll()
+                }
+            }
+        }
+    }
+
+    fun rotate(): List<File> {
+        lock.withLock {
+            while (forcing) forced.await()
+
+            if (sync) channel.force(false)
+            synced = written
+            channel.close()
+            sealed.add(segment(sequence))
+            channel = open(++sequence)
+            return ArrayList(sealed)
+        }
+    }
+
+    fun delete(segments: List<File>) {
+        lock.withLock {
+            segments.forEach { it.delete() }
+            sealed.removeAll(segments)
+        }
+    }
+
+    fun replay(): List<Vote> {
+        val votes = ArrayList<Vote>()
+        segments().forEach {
+            FileInputStream(it).use { input ->
+                try {
+                    while (true) {
+                        votes.add(Vote.parseDelimitedFrom(input) ?: break)
+                    }
+                } catch (ignored: InvalidProtocolBufferException) {
+
+                }
+            }
+        }
+        return votes
+    }
+
+    fun close() {
+        lock.withLock {
+            while (forcing) forced.await()
+            channel.close()
+        }
+    }
+
+    private fun segments(): List<File> {
+        val files = directory.listFiles { file -> file.name.startsWith(PREFIX) && file.name.endsWith(SUFFIX) } ?: return emptyList()
+        return files.sortedBy { numberOf(it) }
+    }
+
+    private fun segment(sequence: Long): File {
+        return File(directory, String.format("%s%019d%s", PREFIX, sequence, SUFFIX))
+    }
+
+    private fun numberOf(file: File): Long {
+        return file.name.substring(PREFIX.length, file.name.length - SUFFIX.length).toLong()
+    }
+
+    private fun open(sequence: Long): FileChannel {
+        return FileChannel.open(segment(sequence).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+    }
+}
@@ -0,0 +1,12 @@
+package com.asadmshah.hnclone.server.votes
+
+interface VotePipeline {
+
+    fun start()
+
+    fun stop()
+
+    fun votePost(userId: Int, postId: Int, value: Int): Int?
+
+    fun voteComment(userId: Int, postId: Int, commentId: Int, value: Int): Int?
+}
@@ -0,0 +1,185 @@
+package com.asadmshah.hnclone.server.votes
+
+import com.asadmshah.hnclone.database.CommentsDatabase
+import com.asadmshah.hnclone.database.PostsDatabase
+import com.asadmshah.hnclone.models.Vote
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.locks.ReentrantLock
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.withLock
+import kotlin.concurrent.write
+
+internal class WriteBehindVotePipelineImpl(private val postsDatabase: PostsDatabase,
+                                           private val commentsDatabase: CommentsDatabase,
+                                           private val journal: VoteJournal,
+                                           private val batchSize: Int,
+                                           private val flushInterval: Long,
+                                           private val maxCounters: Int,
+                                           counterTtl: Long,
+                                           private val unit: TimeUnit) : VotePipeline {
+
+    private data class Key(val userId: Int, val postId: Int, val commentId: Int)
+
+    private data class Target(val postId: Int, val commentId: Int)
+
+    // Stays resident after its votes are flushed, along with every vote it has seen, so repeat voters on a post need
+    // neither readScore nor readVotes. Evicted only once idle, after counterTtl or when over maxCounters.
+    private class Counter(var score: Int, val loadedAt: Long) {
+        val votes = HashMap<Int, Int>()
+        var pending = 0
+        var retired = false
+        @Volatile var usedAt = loadedAt
+    }
+
+    private val counterTtlNanos = unit.toNanos(counterTtl)
+    private val pending = ConcurrentHashMap<Key, Vote>()
+    private val counters = ConcurrentHashMap<Target, Counter>()
+    private val flushRequested = AtomicBoolean()
+    private val flushLock = ReentrantLock()
+    private val journalLock = ReentrantReadWriteLock()
+    private val executor = Executors.newSingleThreadScheduledExecutor()
+
+    override fun start() {
+        journal.replay().forEach { pending.put(it.key(), it) }
+        flush()
+        journal.delete(journal.rotate())
+
+        executor.scheduleWithFixedDelay({ flushQuietly() }, flushInterval, flushInterval, unit)
+    }
+
+    override fun stop() {
+        executor.shutdown()
+        try {
+            executor.awaitTermination(flushInterval, unit)
+        } catch (ignored: InterruptedException) {
+
+        }
+
+        flushQuietly()
+        journal.close()
+    }
+
+    override fun votePost(userId: Int, postId: Int, value: Int): Int? {
+        return vote(Key(userId, postId, 0), value,
+                { postsDatabase.readScore(postId) },
+                { postsDatabase.readVotes(userId, intArrayOf(postId))[postId] ?: 0 })
+    }
+
+    override fun voteComment(userId: Int, postId: Int, commentId: Int, value: Int): Int? {
+        return vote(Key(userId, postId, commentId), value,
+                { commentsDatabase.readScore(postId, commentId) },
+                { commentsDatabase.readVotes(userId, intArrayOf(commentId))[commentId] ?: 0 })
+    }
+
+    private fun vote(key: Key, value: Int, scoreLoader: () -> Int?, voteLoader: () -> Int): Int? {
+        val target = Target(key.postId, key.commentId)
+        val vote = Vote
+                .newBuilder()
+                .setUserId(key.userId)
+                .setPostId(key.postId)
+                .setCommentId(key.commentId)
+                .setValue(value)
+                .build()
+
+        while (true) {
+            val counter = counters[target] ?: Counter(scoreLoader() ?: return null, System.nanoTime()).let { counters.putIfAbsent(target, it) ?: it }
+            val known = synchronized(counter) { counter.votes[key.userId] }
+            val loaded = if (known != null) known else voteLoader()
+
+            var ticket = 0L
+            val score: Int? = journalLock.read {
+                ticket = journal.write(vote)
+                synchronized(counter) {
+                    if (counter.retired) {
+                        null
+                    } else {
+                        if (pending.put(key, vote) == null) counter.pending++
+                        counter.score += value - (counter.votes.put(key.userId, value) ?: loaded)
+                        counter.usedAt = System.nanoTime()
+                        counter.score
+                    }
+                }
+            }
+
+            if (score != null) {
+                journal.sync(ticket)
+
+                if (pending.size >= batchSize && !executor.isShutdown && flushRequested.compareAndSet(false, true)) {
+                    executor.execute { flushQuietly() }
+                }
+                return score
+            }
+        }
+    }
+
+    private fun flushQuietly() {
+        flushRequested.set(false)
+        try {
+            flush()
+        } catch (ignored: Exception) {
+
+        }
+        evict()
+    }
+
+    private fun flush() {
+        flushLock.withLock {
+            if (pending.isEmpty()) return
+
+            val batch = ArrayList<Vote>()
+            val segments = journalLock.write {
+                batch.addAll(pending.values)
+                journal.rotate()
+            }
+
+            postsDatabase.writeVotes(batch.filter { it.commentId == 0 })
+            commentsDatabase.writeVotes(batch.filter { it.commentId != 0 })
+
+            batch.forEach {
+                val counter = counters[Target(it.postId, it.commentId)]
+                if (counter == null) {
+                    pending.remove(it.key(), it)
+                } else {
+                    synchronized(counter) {
+                        if (pending.remove(it.key(), it)) counter.pending--
+                    }
+                }
+            }
+
+            journal.delete(segments)
+        }
+    }
+
+    private fun evict() {
+        val now = System.nanoTime()
+        val live = ArrayList<Map.Entry<Target, Counter>>()
+        for (entry in counters.entries) {
+            if (now - entry.value.loadedAt < counterTtlNanos || !retire(entry.key, entry.value)) live.add(entry)
+        }
+
+        if (live.size <= maxCounters) return
+
+        var excess = live.size - maxCounters
+        for ((entry, usedAt) in live.map { Pair(it, it.value.usedAt) }.sortedBy { it.second }) {
+            if (excess <= 0) break
+            if (retire(entry.key, entry.value)) excess--
+        }
+    }
+
+    private fun retire(target: Target, counter: Counter): Boolean {
+        synchronized(counter) {
+            if (counter.pending > 0) return false
+            counter.retired = true
+            return counters.remove(target, counter)
+        }
+    }
+
+    private fun Vote.key(): Key {
+        return Key(userId, postId, commentId)
+    }
+}
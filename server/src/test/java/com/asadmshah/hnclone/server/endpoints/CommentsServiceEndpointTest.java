@@ -3,13 +3,18 @@ package com.asadmshah.hnclone.server.endpoints;
 import com.asadmshah.hnclone.cache.BlockedSessionsCache;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
 import com.asadmshah.hnclone.database.CommentsDatabase;
+import com.asadmshah.hnclone.database.PostsDatabase;
 import com.asadmshah.hnclone.errors.*;
 import com.asadmshah.hnclone.models.Comment;
 import com.asadmshah.hnclone.models.CommentScore;
 import com.asadmshah.hnclone.models.RequestSession;
+import com.asadmshah.hnclone.pubsub.Conflator;
 import com.asadmshah.hnclone.pubsub.PubSub;
+import com.asadmshah.hnclone.pubsub.StreamResumeInvalidException;
 import com.asadmshah.hnclone.server.ServerComponent;
 import com.asadmshah.hnclone.server.interceptors.SessionInterceptor;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.votes.DirectVotePipelineImpl;
 import com.asadmshah.hnclone.services.*;
 import com.asadmshah.hnclone.services.CommentsServiceGrpc.CommentsServiceBlockingStub;
 import com.google.common.collect.Lists;
@@ -55,6 +60,7 @@ public class CommentsServiceEndpointTest {
     @Mock private SessionManager sessionManager;
     @Mock private CommentsDatabase commentsDatabase;
     @Mock private ServerComponent component;
+    @Mock private PostsDatabase postsDatabase;
     @Mock private PubSub pubSub;
     @Mock private BlockedSessionsCache blockedSessionsCache;
 
@@ -63,7 +69,10 @@ public class CommentsServiceEndpointTest {
         when(component.sessionManager()).thenReturn(sessionManager);
         when(component.commentsDatabase()).thenReturn(commentsDatabase);
         when(component.pubSub()).thenReturn(pubSub);
+        when(component.scoreConflator()).thenReturn(new Conflator(0, TimeUnit.MILLISECONDS));
+        when(component.votePipeline()).thenReturn(new DirectVotePipelineImpl(postsDatabase, commentsDatabase));
         when(component.blockedSessionsCache()).thenReturn(blockedSessionsCache);
+        when(component.verifiedSessionCache()).thenReturn(new VerifiedSessionCache(0));
 
         inProcessChannel = InProcessChannelBuilder
                 .forName(SERVER_NAME)
@@ -895,7 +904,7 @@ public class CommentsServiceEndpointTest {
 
     @Test
     public void commentsStream_shouldThrowError() throws Exception {
-        when(pubSub.subComments()).thenReturn(Flowable.error(RuntimeException::new));
+        when(pubSub.subComments(anyInt())).thenReturn(Flowable.error(RuntimeException::new));
 
         StatusRuntimeException exception = null;
         try {
@@ -917,7 +926,7 @@ public class CommentsServiceEndpointTest {
         Comment cs4 = Comment.newBuilder().setPostId(2).setId(4).build();
         Comment cs5 = Comment.newBuilder().setPostId(1).setId(5).build();
 
-        when(pubSub.subComments()).thenReturn(Flowable.just(cs1, cs2, cs3, cs4, cs5).concatMap(it -> Flowable.just(it).delay(50, TimeUnit.MILLISECONDS)));
+        when(pubSub.subComments(1)).thenReturn(Flowable.just(cs1, cs3, cs5).concatMap(it -> Flowable.just(it).delay(50, TimeUnit.MILLISECONDS)));
 
         CommentStreamRequest request = CommentStreamRequest.newBuilder().setPostId(1).build();
 
@@ -926,9 +935,39 @@ public class CommentsServiceEndpointTest {
         assertThat(response).containsExactly(cs1, cs3, cs5).inOrder();
     }
 
+    @Test
+    public void commentsStream_shouldResumeFromEventId() throws Exception {
+        Comment cs1 = Comment.newBuilder().setPostId(1).setId(3).setEventId("2-0").build();
+        Comment cs2 = Comment.newBuilder().setPostId(1).setId(5).setEventId("3-0").build();
+
+        when(pubSub.subComments(1, "1-0")).thenReturn(Flowable.just(cs1, cs2));
+
+        CommentStreamRequest request = CommentStreamRequest.newBuilder().setPostId(1).setResumeFrom("1-0").build();
+
+        List<Comment> response = Lists.newArrayList(inProcessStub.commentStream(request));
+
+        assertThat(response).containsExactly(cs1, cs2).inOrder();
+    }
+
+    @Test
+    public void commentsStream_shouldRejectInvalidResumePoint() throws Exception {
+        when(pubSub.subComments(1, "junk")).thenReturn(Flowable.error(new StreamResumeInvalidException("junk")));
+
+        StatusRuntimeException exception = null;
+        try {
+            Iterator<Comment> iterator = inProcessStub.commentStream(CommentStreamRequest.newBuilder().setPostId(1).setResumeFrom("junk").build());
+            iterator.next();
+        } catch (StatusRuntimeException e) {
+            exception = ServiceError.restore(e);
+        }
+
+        assertThat(exception).isNotNull();
+        assertThat(exception).isInstanceOf(StreamResumeInvalidStatusException.class);
+    }
+
     @Test
     public void commentScoresStream_shouldThrowError() throws Exception {
-        when(pubSub.subCommentScores()).thenReturn(Flowable.error(RuntimeException::new));
+        when(pubSub.subCommentScores(anyInt())).thenReturn(Flowable.error(RuntimeException::new));
 
         StatusRuntimeException exception = null;
         try {
@@ -950,7 +989,7 @@ public class CommentsServiceEndpointTest {
         CommentScore cs4 = CommentScore.newBuilder().setPostId(2).setCommentId(4).build();
         CommentScore cs5 = CommentScore.newBuilder().setPostId(1).setCommentId(5).build();
 
-        when(pubSub.subCommentScores()).thenReturn(Flowable.just(cs1, cs2, cs3, cs4, cs5).concatMap(it -> Flowable.just(it).delay(50, TimeUnit.MILLISECONDS)));
+        when(pubSub.subCommentScores(1)).thenReturn(Flowable.just(cs1, cs3, cs5).concatMap(it -> Flowable.just(it).delay(50, TimeUnit.MILLISECONDS)));
 
         CommentScoreStreamRequest request = CommentScoreStreamRequest.newBuilder().setPostId(1).build();
 
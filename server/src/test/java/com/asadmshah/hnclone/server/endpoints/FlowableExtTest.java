@@ -0,0 +1,137 @@
+package com.asadmshah.hnclone.server.endpoints;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FlowableExtTest {
+
+    @Test
+    public void subscribeStreamObserver_shouldWaitForReady() {
+        TestObserver<Integer> observer = new TestObserver<>();
+
+        FlowableExtKt.subscribeStreamObserver(Flowable.range(1, 5), observer);
+
+        assertThat(observer.values).isEmpty();
+
+        observer.ready = true;
+        observer.onReadyHandler.run();
+
+        assertThat(observer.values).containsExactly(1, 2, 3, 4, 5).inOrder();
+        assertThat(observer.completed).isTrue();
+    }
+
+    @Test
+    public void subscribeStreamObserver_shouldPauseWhenNotReady() {
+        TestObserver<Integer> observer = new TestObserver<>();
+        observer.ready = true;
+        observer.readyAfterNext = false;
+
+        FlowableExtKt.subscribeStreamObserver(Flowable.range(1, 5), observer);
+
+        assertThat(observer.values).containsExactly(1);
+
+        observer.onReadyHandler.run();
+
+        assertThat(observer.values).containsExactly(1);
+
+        observer.ready = true;
+        observer.onReadyHandler.run();
+
+        assertThat(observer.values).containsExactly(1, 2).inOrder();
+        assertThat(observer.completed).isFalse();
+    }
+
+    @Test
+    public void subscribeStreamObserver_shouldCancelUpstream() {
+        TestObserver<Integer> observer = new TestObserver<>();
+        observer.ready = true;
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        PublishProcessor<Integer> source = PublishProcessor.create();
+
+        FlowableExtKt.subscribeStreamObserver(source.doOnCancel(() -> cancelled.set(true)), observer);
+
+        source.onNext(1);
+        observer.onCancelHandler.run();
+        source.onNext(2);
+
+        assertThat(observer.values).containsExactly(1);
+        assertThat(cancelled.get()).isTrue();
+        assertThat(source.hasSubscribers()).isFalse();
+    }
+
+    private static class TestObserver<T> extends ServerCallStreamObserver<T> {
+
+        final List<T> values = new ArrayList<>();
+        boolean completed;
+        boolean ready;
+        boolean readyAfterNext = true;
+        Runnable onReadyHandler;
+        Runnable onCancelHandler;
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+            this.onCancelHandler = onCancelHandler;
+        }
+
+        @Override
+        public void setCompression(String compression) {
+
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+
+        }
+
+        @Override
+        public void request(int count) {
+
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+
+        }
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+            ready = readyAfterNext;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+
+}
@@ -1,18 +1,31 @@
 package com.asadmshah.hnclone.server.endpoints;
 
 import com.asadmshah.hnclone.cache.BlockedSessionsCache;
+import com.asadmshah.hnclone.cache.Cache;
+import com.asadmshah.hnclone.cache.Zone;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
 import com.asadmshah.hnclone.common.tools.StringExtKt;
+import com.asadmshah.hnclone.database.CommentsDatabase;
 import com.asadmshah.hnclone.database.PostsDatabase;
 import com.asadmshah.hnclone.errors.*;
 import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.PostCursor;
 import com.asadmshah.hnclone.models.PostScore;
 import com.asadmshah.hnclone.models.RequestSession;
+import com.asadmshah.hnclone.pubsub.Conflator;
 import com.asadmshah.hnclone.pubsub.PubSub;
+import com.asadmshah.hnclone.pubsub.StreamResumeExpiredException;
 import com.asadmshah.hnclone.server.ServerComponent;
+import com.asadmshah.hnclone.server.feeds.FeedCache;
 import com.asadmshah.hnclone.server.interceptors.SessionInterceptor;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.reads.ReadCoalescer;
+import com.asadmshah.hnclone.server.reads.ReadThroughCache;
+import com.asadmshah.hnclone.server.reads.SingleFlight;
+import com.asadmshah.hnclone.server.votes.DirectVotePipelineImpl;
 import com.asadmshah.hnclone.services.*;
 import com.asadmshah.hnclone.services.PostsServiceGrpc.PostsServiceBlockingStub;
+import com.google.protobuf.ByteString;
 import io.grpc.*;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
@@ -31,8 +44,12 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -54,8 +71,11 @@ public class PostsServiceEndpointTest {
     @Mock private SessionManager sessionManager;
     @Mock private PostsDatabase postsDatabase;
     @Mock private ServerComponent component;
+    @Mock private CommentsDatabase commentsDatabase;
     @Mock private BlockedSessionsCache blockedSessionsCache;
     @Mock private PubSub pubSub;
+    @Mock private FeedCache feedCache;
+    @Mock private Cache cache;
 
     @Captor private ArgumentCaptor<Integer> uidCaptor;
     @Captor private ArgumentCaptor<String> pscTitleCaptor;
@@ -74,7 +94,14 @@ public class PostsServiceEndpointTest {
         when(component.sessionManager()).thenReturn(sessionManager);
         when(component.postsDatabase()).thenReturn(postsDatabase);
         when(component.blockedSessionsCache()).thenReturn(blockedSessionsCache);
+        when(component.verifiedSessionCache()).thenReturn(new VerifiedSessionCache(0));
         when(component.pubSub()).thenReturn(pubSub);
+        when(component.scoreConflator()).thenReturn(new Conflator(0, TimeUnit.MILLISECONDS));
+        when(component.votePipeline()).thenReturn(new DirectVotePipelineImpl(postsDatabase, commentsDatabase));
+        when(component.feedCache()).thenReturn(feedCache);
+        when(component.postReads()).thenReturn(new ReadCoalescer<>(0, TimeUnit.MILLISECONDS, 1, postsDatabase::read, postsDatabase::readMany));
+        when(component.singleFlight()).thenReturn(new SingleFlight(true));
+        when(component.postCache()).thenReturn(new ReadThroughCache<>(cache, Zone.POSTS, Post.parser(), 0, 0, 60, TimeUnit.SECONDS, Post::getId, id -> null, ids -> Collections.emptyMap()));
 
         when(blockedSessionsCache.contains(anyInt(), any(LocalDateTime.class))).thenReturn(false);
 
@@ -136,6 +163,8 @@ public class PostsServiceEndpointTest {
         assertThat(pscTitleCaptor.getValue()).isEqualTo(StringExtKt.escape(req.getTitle()));
         assertThat(pscTextCaptor.getValue()).isEqualTo(StringExtKt.escape(req.getText()));
         assertThat(pscUrlCaptor.getValue()).isEqualTo(StringExtKt.escape(req.getUrl()));
+
+        verify(pubSub).pubPost(expPost);
     }
 
     @Test
@@ -497,6 +526,7 @@ public class PostsServiceEndpointTest {
                 .build();
 
         when(postsDatabase.read(anyInt(), anyInt())).thenReturn(exp);
+        when(postsDatabase.readVotes(anyInt(), any(int[].class))).thenReturn(Collections.singletonMap(exp.getId(), 1));
 
         Metadata metadata = new Metadata();
         metadata.put(SessionInterceptor.Companion.getHEADER_KEY(), " ".getBytes());
@@ -511,11 +541,12 @@ public class PostsServiceEndpointTest {
 
         verify(postsDatabase).read(uidCaptor.capture(), psrIdCaptor.capture());
 
-        assertThat(uidCaptor.getValue()).isEqualTo(session.getId());
+        assertThat(uidCaptor.getValue()).isLessThan(1);
         assertThat(psrIdCaptor.getValue()).isEqualTo(exp.getId());
+        verify(postsDatabase).readVotes(session.getId(), new int[] { exp.getId() });
 
         assertThat(res).isNotNull();
-        assertThat(res).isEqualTo(exp);
+        assertThat(res).isEqualTo(exp.toBuilder().setUpvoted(1).build());
     }
 
     @Test
@@ -553,6 +584,51 @@ public class PostsServiceEndpointTest {
         assertThat(exception).isInstanceOf(UnknownStatusException.class);
     }
 
+    @Test
+    public void readBatch_shouldCompleteInRequestOrder() {
+        Post post1 = Post.newBuilder().setId(1).build();
+        Post post3 = Post.newBuilder().setId(3).build();
+
+        Map<Integer, Post> posts = new HashMap<>();
+        posts.put(post1.getId(), post1);
+        posts.put(post3.getId(), post3);
+
+        when(postsDatabase.readMany(anyInt(), any(int[].class))).thenReturn(posts);
+
+        PostReadBatchRequest req = PostReadBatchRequest
+                .newBuilder()
+                .addAllIds(Arrays.asList(3, 2, 1, 3))
+                .build();
+
+        List<Post> res = new ArrayList<>();
+        inProcessStub.readBatch(req).forEachRemaining(res::add);
+
+        ArgumentCaptor<int[]> idsCaptor = ArgumentCaptor.forClass(int[].class);
+        verify(postsDatabase).readMany(uidCaptor.capture(), idsCaptor.capture());
+
+        assertThat(uidCaptor.getValue()).isLessThan(1);
+        assertThat(idsCaptor.getValue()).asList().containsExactly(3, 2, 1).inOrder();
+        assertThat(res).containsExactly(post3, post1).inOrder();
+    }
+
+    @Test
+    public void readBatch_shouldThrowBatchTooLargeError() {
+        PostReadBatchRequest.Builder req = PostReadBatchRequest.newBuilder();
+        for (int i = 1; i <= 101; i++) {
+            req.addIds(i);
+        }
+
+        StatusRuntimeException exception = null;
+        try {
+            inProcessStub.readBatch(req.build()).hasNext();
+        } catch (StatusRuntimeException e) {
+            exception = ServiceError.restore(e);
+        }
+
+        assertThat(exception).isNotNull();
+        assertThat(exception).isInstanceOf(BatchTooLargeStatusException.class);
+    }
+
     @Test
     public void voteDecrement_shouldThrowUnauthenticatedError() {
         PostVoteDecrementRequest request = PostVoteDecrementRequest.getDefaultInstance();
@@ -895,7 +971,7 @@ public class PostsServiceEndpointTest {
         Post post2 = Post.newBuilder().setId(2).build();
         Post post3 = Post.newBuilder().setId(3).build();
 
-        when(postsDatabase.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
+        when(feedCache.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
 
         PostReadListRequest request = PostReadListRequest
                 .newBuilder()
@@ -909,7 +985,7 @@ public class PostsServiceEndpointTest {
         assertThat(response.next()).isEqualTo(post3);
         assertThat(response.hasNext()).isFalse();
 
-        verify(postsDatabase).readNew(-1, request.getLimit(), request.getOffset());
+        verify(feedCache).readNew(-1, request.getLimit(), request.getOffset());
     }
 
     @Test
@@ -921,7 +997,7 @@ public class PostsServiceEndpointTest {
         Post post3 = Post.newBuilder().setId(3).build();
 
         when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
-        when(postsDatabase.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
+        when(feedCache.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
 
         PostReadListRequest request = PostReadListRequest
                 .newBuilder()
@@ -939,12 +1015,12 @@ public class PostsServiceEndpointTest {
         assertThat(response.next()).isEqualTo(post3);
         assertThat(response.hasNext()).isFalse();
 
-        verify(postsDatabase).readNew(session.getId(), request.getLimit(), request.getOffset());
+        verify(feedCache).readNew(session.getId(), request.getLimit(), request.getOffset());
     }
 
     @Test
     public void readNewStream_shouldThrowSQLException() {
-        when(postsDatabase.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new SQLException()));
+        when(feedCache.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new SQLException()));
 
         StatusRuntimeException exception = null;
         try {
@@ -959,7 +1035,7 @@ public class PostsServiceEndpointTest {
 
     @Test
     public void readNewStream_shouldThrowException() {
-        when(postsDatabase.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new IllegalStateException()));
+        when(feedCache.readNew(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new IllegalStateException()));
 
         StatusRuntimeException exception = null;
         try {
@@ -972,9 +1048,149 @@ public class PostsServiceEndpointTest {
         assertThat(exception).isInstanceOf(UnknownStatusException.class);
     }
 
+    @Test
+    public void readNewStream_shouldCompleteWithCursor() {
+        PostCursor cursor = PostCursor.newBuilder().setRank(100).setId(4).build();
+
+        Post post1 = Post.newBuilder().setId(3).build();
+        Post post2 = Post.newBuilder().setId(2).build();
+
+        when(postsDatabase.readNew(anyInt(), any(PostCursor.class), anyInt())).thenReturn(Flowable.just(post1, post2));
+
+        PostReadListRequest request = PostReadListRequest
+                .newBuilder()
+                .setLimit(5)
+                .setCursor(cursor.toByteString())
+                .build();
+
+        Iterator<Post> response = inProcessStub.readNewStream(request);
+        assertThat(response.next()).isEqualTo(post1);
+        assertThat(response.next()).isEqualTo(post2);
+        assertThat(response.hasNext()).isFalse();
+
+        verify(postsDatabase).readNew(-1, cursor, request.getLimit());
+        verify(feedCache, never()).readNew(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void readNewStream_shouldShareCursorPageAndOverlayViewerVotes() {
+        RequestSession session = RequestSession.newBuilder().setId(100).build();
+        when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
+
+        Metadata metadata = new Metadata();
+        metadata.put(SessionInterceptor.Companion.getHEADER_KEY(), " ".getBytes());
+        inProcessStub = MetadataUtils.attachHeaders(inProcessStub, metadata);
+
+        PostCursor cursor = PostCursor.newBuilder().setRank(100).setId(4).build();
+
+        Post post1 = Post.newBuilder().setId(3).build();
+        Post post2 = Post.newBuilder().setId(2).build();
+
+        when(postsDatabase.readNew(anyInt(), any(PostCursor.class), anyInt())).thenReturn(Flowable.just(post1, post2));
+        when(postsDatabase.readVotes(anyInt(), any(int[].class))).thenReturn(Collections.singletonMap(2, 1));
+
+        PostReadListRequest request = PostReadListRequest
+                .newBuilder()
+                .setLimit(5)
+                .setCursor(cursor.toByteString())
+                .build();
+
+        Iterator<Post> response = inProcessStub.readNewStream(request);
+        assertThat(response.next()).isEqualTo(post1);
+        assertThat(response.next()).isEqualTo(post2.toBuilder().setUpvoted(1).build());
+        assertThat(response.hasNext()).isFalse();
+
+        verify(postsDatabase).readNew(-1, cursor, request.getLimit());
+        verify(postsDatabase).readVotes(session.getId(), new int[] { 3, 2 });
+    }
+
+    @Test
+    public void readNewStream_shouldStreamLargeCursorPagesDirectly() {
+        RequestSession session = RequestSession.newBuilder().setId(100).build();
+        when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
+
+        Metadata metadata = new Metadata();
+        metadata.put(SessionInterceptor.Companion.getHEADER_KEY(), " ".getBytes());
+        inProcessStub = MetadataUtils.attachHeaders(inProcessStub, metadata);
+
+        PostCursor cursor = PostCursor.newBuilder().setRank(100).setId(4).build();
+
+        when(postsDatabase.readNew(anyInt(), any(PostCursor.class), anyInt())).thenReturn(Flowable.<Post>empty());
+
+        PostReadListRequest request = PostReadListRequest
+                .newBuilder()
+                .setLimit(1000)
+                .setCursor(cursor.toByteString())
+                .build();
+
+        assertThat(inProcessStub.readNewStream(request).hasNext()).isFalse();
+
+        verify(postsDatabase).readNew(session.getId(), cursor, request.getLimit());
+        verify(postsDatabase, never()).readVotes(anyInt(), any(int[].class));
+    }
+
+    @Test
+    public void readNewStream_shouldCompleteWithEmptyCursor() {
+        when(postsDatabase.readNew(anyInt(), any(PostCursor.class), anyInt())).thenReturn(Flowable.<Post>empty());
+
+        PostReadListRequest request = PostReadListRequest
+                .newBuilder()
+                .setLimit(5)
+                .setCursor(ByteString.EMPTY)
+                .build();
+
+        Iterator<Post> response = inProcessStub.readNewStream(request);
+        assertThat(response.hasNext()).isFalse();
+
+        verify(postsDatabase).readNew(-1, PostCursor.getDefaultInstance(), request.getLimit());
+    }
+
+    @Test
+    public void readHotStream_shouldThrowOnInvalidCursor() {
+        PostReadListRequest request = PostReadListRequest
+                .newBuilder()
+                .setLimit(5)
+                .setCursor(ByteString.copyFromUtf8("invalid"))
+                .build();
+
+        StatusRuntimeException exception = null;
+        try {
+            inProcessStub.readHotStream(request).next();
+        } catch (StatusRuntimeException e) {
+            exception = ServiceError.restore(e);
+        }
+
+        verify(postsDatabase, never()).readTop(anyInt(), any(PostCursor.class), anyInt());
+
+        assertThat(exception).isNotNull();
+        assertThat(exception).isInstanceOf(PostCursorInvalidStatusException.class);
+    }
+
+    @Test
+    public void readTopFromUserStream_shouldCompleteWithCursor() {
+        PostCursor cursor = PostCursor.newBuilder().setRank(1.5).setId(7).build();
+
+        Post post1 = Post.newBuilder().setId(6).build();
+
+        when(postsDatabase.readTop(anyInt(), anyInt(), any(PostCursor.class), anyInt())).thenReturn(Flowable.just(post1));
+
+        PostReadListFromUserRequest request = PostReadListFromUserRequest
+                .newBuilder()
+                .setId(2)
+                .setLimit(5)
+                .setCursor(cursor.toByteString())
+                .build();
+
+        Iterator<Post> response = inProcessStub.readTopFromUserStream(request);
+        assertThat(response.next()).isEqualTo(post1);
+        assertThat(response.hasNext()).isFalse();
+
+        verify(postsDatabase).readTop(-1, request.getId(), cursor, request.getLimit());
+    }
+
     @Test
     public void readHotStream_shouldThrowSQLException() {
-        when(postsDatabase.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new SQLException()));
+        when(feedCache.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new SQLException()));
 
         StatusRuntimeException exception = null;
         try {
@@ -989,7 +1205,7 @@ public class PostsServiceEndpointTest {
 
     @Test
     public void readHotStream_shouldThrowException() {
-        when(postsDatabase.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new IllegalStateException()));
+        when(feedCache.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.error(new IllegalStateException()));
 
         StatusRuntimeException exception = null;
         try {
@@ -1008,7 +1224,7 @@ public class PostsServiceEndpointTest {
         Post post2 = Post.newBuilder().setId(2).build();
         Post post3 = Post.newBuilder().setId(3).build();
 
-        when(postsDatabase.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
+        when(feedCache.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
 
         PostReadListRequest request = PostReadListRequest
                 .newBuilder()
@@ -1022,7 +1238,7 @@ public class PostsServiceEndpointTest {
         assertThat(response.next()).isEqualTo(post3);
         assertThat(response.hasNext()).isFalse();
 
-        verify(postsDatabase).readTop(-1, request.getLimit(), request.getOffset());
+        verify(feedCache).readTop(-1, request.getLimit(), request.getOffset());
     }
 
     @Test
@@ -1034,7 +1250,7 @@ public class PostsServiceEndpointTest {
         Post post3 = Post.newBuilder().setId(3).build();
 
         when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
-        when(postsDatabase.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
+        when(feedCache.readTop(anyInt(), anyInt(), anyInt())).thenReturn(Flowable.just(post1, post2, post3));
 
         PostReadListRequest request = PostReadListRequest
                 .newBuilder()
@@ -1052,7 +1268,7 @@ public class PostsServiceEndpointTest {
         assertThat(response.next()).isEqualTo(post3);
         assertThat(response.hasNext()).isFalse();
 
-        verify(postsDatabase).readTop(session.getId(), request.getLimit(), request.getOffset());
+        verify(feedCache).readTop(session.getId(), request.getLimit(), request.getOffset());
     }
 
     @Test
@@ -1320,7 +1536,7 @@ public class PostsServiceEndpointTest {
 
         PostScore expScore = scores.get(5);
 
-        when(pubSub.subPostScore()).thenReturn(Flowable.fromIterable(scores).concatMap(it -> Flowable.just(it).delay(100, TimeUnit.MILLISECONDS)));
+        when(pubSub.subPostScore(expScore.getId())).thenReturn(Flowable.just(expScore).concatMap(it -> Flowable.just(it).delay(100, TimeUnit.MILLISECONDS)));
 
         CountDownLatch counter = new CountDownLatch(1);
 
@@ -1356,6 +1572,61 @@ public class PostsServiceEndpointTest {
         assertThat(resScores.get(0)).isEqualTo(expScore);
     }
 
+    @Test
+    public void postScoreChangeStreamResume_shouldReportExpiredResumePoint() throws Exception {
+        when(pubSub.subPostScore(6, "1-0")).thenReturn(Flowable.error(new StreamResumeExpiredException("1-0")));
+
+        StatusRuntimeException exception = null;
+        try {
+            Iterator<PostScore> iterator = inProcessStub.postScoreChangeStream(PostScoreChangeRequest.newBuilder().setId(6).setResumeFrom("1-0").build());
+            iterator.next();
+        } catch (StatusRuntimeException e) {
+            exception = ServiceError.restore(e);
+        }
+
+        assertThat(exception).isNotNull();
+        assertThat(exception).isInstanceOf(StreamResumeExpiredStatusException.class);
+    }
+
+    @Test
+    public void postScoreChangeStreamResume_shouldComplete() throws Exception {
+        PostScore expScore = PostScore.newBuilder().setId(6).setScore(2).setEventId("2-0").build();
+
+        when(pubSub.subPostScore(expScore.getId(), "1-0")).thenReturn(Flowable.just(expScore).concatMap(it -> Flowable.just(it).delay(100, TimeUnit.MILLISECONDS)));
+
+        CountDownLatch counter = new CountDownLatch(1);
+
+        List<PostScore> resScores = new ArrayList<>();
+
+        final ClientCall<PostScoreChangeRequest, PostScore> call = inProcessChannel.newCall(PostsServiceGrpc.METHOD_POST_SCORE_CHANGE_STREAM, CallOptions.DEFAULT);
+        call.start(new ClientCall.Listener<PostScore>() {
+            @Override
+            public void onMessage(PostScore message) {
+                resScores.add(message);
+                counter.countDown();
+                call.request(1);
+            }
+
+            @Override
+            public void onReady() {
+                call.sendMessage(PostScoreChangeRequest.newBuilder().setId(expScore.getId()).setResumeFrom("1-0").build());
+                call.halfClose();
+                call.request(1);
+            }
+
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+
+            }
+        }, new Metadata());
+
+        counter.await();
+
+        call.cancel("Cancel", null);
+
+        assertThat(resScores).containsExactly(expScore);
+    }
+
     @Test
     public void voteIncrement_shouldPublishEvent() throws Exception {
         RequestSession session = RequestSession.newBuilder().setId(1).build();
@@ -1376,6 +1647,8 @@ public class PostsServiceEndpointTest {
         ArgumentCaptor<PostScore> captor = ArgumentCaptor.forClass(PostScore.class);
         verify(pubSub).pubPostScore(captor.capture());
         assertThat(captor.getValue()).isEqualTo(expect);
+
+        verify(cache).delete(Zone.POSTS, "0");
     }
 
     @Test
@@ -4,6 +4,7 @@ import com.asadmshah.hnclone.cache.BlockedSessionsCache;
 import com.asadmshah.hnclone.common.sessions.ExpiredTokenException;
 import com.asadmshah.hnclone.common.sessions.InvalidTokenException;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
+import com.asadmshah.hnclone.database.PasswordHasherBusyException;
 import com.asadmshah.hnclone.database.SessionsDatabase;
 import com.asadmshah.hnclone.database.UsersDatabase;
 import com.asadmshah.hnclone.errors.*;
@@ -18,6 +19,7 @@ import com.asadmshah.hnclone.services.SessionsServiceGrpc.SessionsServiceBlockin
 import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
@@ -32,6 +34,7 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -153,7 +156,7 @@ public class SessionsServiceEndpointTest {
     public void create_shouldReturnUserNotFoundException() {
         SessionCreateRequest request = SessionCreateRequest.getDefaultInstance();
 
-        when(usersDatabase.read(anyString(), anyString())).thenReturn(null);
+        when(usersDatabase.readAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
         StatusRuntimeException exception = null;
         try {
@@ -170,7 +173,7 @@ public class SessionsServiceEndpointTest {
     public void create_shouldThrowSQLException() {
         SessionCreateRequest request = SessionCreateRequest.getDefaultInstance();
 
-        when(usersDatabase.read(anyString(), anyString())).thenThrow(SQLException.class);
+        when(usersDatabase.readAsync(anyString(), anyString())).thenReturn(failed(new SQLException()));
 
         StatusRuntimeException exception = null;
         try {
@@ -183,6 +186,24 @@ public class SessionsServiceEndpointTest {
         assertThat(exception).isInstanceOf(UnknownStatusException.class);
     }
 
+    @Test
+    public void create_shouldThrowServerBusyException() {
+        SessionCreateRequest request = SessionCreateRequest.getDefaultInstance();
+
+        when(usersDatabase.readAsync(anyString(), anyString())).thenReturn(failed(new PasswordHasherBusyException()));
+
+        StatusRuntimeException exception = null;
+        try {
+            inProcessStub.create(request);
+        } catch (StatusRuntimeException e) {
+            exception = ServiceError.restore(e);
+        }
+
+        assertThat(exception).isNotNull();
+        assertThat(exception).isInstanceOf(ServerBusyStatusException.class);
+        assertThat(exception.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+    }
+
     @Test
     public void create_shouldComplete() {
         SessionCreateRequest request = SessionCreateRequest
@@ -196,13 +217,13 @@ public class SessionsServiceEndpointTest {
         SessionToken requestToken = SessionToken.newBuilder().setData(ByteString.copyFromUtf8("Request")).build();
         SessionToken refreshToken = SessionToken.newBuilder().setData(ByteString.copyFromUtf8("Refresh")).build();
 
-        when(usersDatabase.read(anyString(), anyString())).thenReturn(user);
+        when(usersDatabase.readAsync(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(user));
         when(sessionManager.createRequestToken(anyInt())).thenReturn(requestToken);
         when(sessionManager.createRefreshToken(anyInt())).thenReturn(refreshToken);
 
         SessionCreateResponse response = inProcessStub.create(request);
 
-        verify(usersDatabase).read(request.getUsername(), request.getPassword());
+        verify(usersDatabase).readAsync(request.getUsername(), request.getPassword());
         verify(sessionManager).createRequestToken(user.getId());
         verify(sessionManager).createRefreshToken(user.getId());
 
@@ -219,4 +240,10 @@ public class SessionsServiceEndpointTest {
                 .build();
     }
 
+    private static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
 }
@@ -1,6 +1,7 @@
 package com.asadmshah.hnclone.server.endpoints;
 
 import com.asadmshah.hnclone.cache.BlockedSessionsCache;
+import com.asadmshah.hnclone.cache.Zone;
 import com.asadmshah.hnclone.common.sessions.SessionManager;
 import com.asadmshah.hnclone.database.UserExistsException;
 import com.asadmshah.hnclone.database.UsersDatabase;
@@ -9,6 +10,9 @@ import com.asadmshah.hnclone.models.RequestSession;
 import com.asadmshah.hnclone.models.User;
 import com.asadmshah.hnclone.server.ServerComponent;
 import com.asadmshah.hnclone.server.interceptors.SessionInterceptor;
+import com.asadmshah.hnclone.server.interceptors.VerifiedSessionCache;
+import com.asadmshah.hnclone.server.reads.ReadCoalescer;
+import com.asadmshah.hnclone.server.reads.ReadThroughCache;
 import com.asadmshah.hnclone.services.*;
 import io.grpc.ManagedChannel;
 import io.grpc.Metadata;
@@ -29,6 +33,11 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -59,6 +68,9 @@ public class UsersServiceEndpointTest {
         when(component.sessionManager()).thenReturn(sessionManager);
         when(component.usersDatabase()).thenReturn(usersDatabase);
         when(component.blockedSessionsCache()).thenReturn(blockedSessionsCache);
+        when(component.verifiedSessionCache()).thenReturn(new VerifiedSessionCache(0));
+        when(component.userReads()).thenReturn(new ReadCoalescer<>(0, TimeUnit.MILLISECONDS, 1, (viewerId, id) -> usersDatabase.read(id), (viewerId, ids) -> usersDatabase.readMany(ids)));
+        when(component.userCache()).thenReturn(new ReadThroughCache<>(null, Zone.USERS, User.parser(), 0, 0, 0, TimeUnit.MILLISECONDS, User::getId, id -> usersDatabase.read(id), usersDatabase::readMany));
 
         when(blockedSessionsCache.contains(anyInt(), any(LocalDateTime.class))).thenReturn(false);
 
@@ -155,11 +167,11 @@ public class UsersServiceEndpointTest {
                 .setAbout(expAbout)
                 .build();
 
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenReturn(expUser);
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(expUser));
 
         User resUser = inProcessStub.create(request);
 
-        verify(usersDatabase).create(expName, expPass, expAbout);
+        verify(usersDatabase).createAsync(expName, expPass, expAbout);
 
         assertThat(resUser).isEqualTo(expUser);
     }
@@ -205,7 +217,7 @@ public class UsersServiceEndpointTest {
 
     @Test
     public void create_shouldThrowUserExistsException() {
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenThrow(UserExistsException.class);
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(failed(new UserExistsException()));
 
         UserCreateRequest request = UserCreateRequest
                 .newBuilder()
@@ -226,7 +238,7 @@ public class UsersServiceEndpointTest {
 
     @Test
     public void create_shouldThrowSQLException() {
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenThrow(SQLException.class);
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(failed(new SQLException()));
 
         UserCreateRequest request = UserCreateRequest
                 .newBuilder()
@@ -247,7 +259,7 @@ public class UsersServiceEndpointTest {
 
     @Test
     public void create_shouldThrowUnknownException() {
-        when(usersDatabase.create(anyString(), anyString(), anyString())).thenReturn(null);
+        when(usersDatabase.createAsync(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
         UserCreateRequest request = UserCreateRequest
                 .newBuilder()
@@ -289,7 +301,7 @@ public class UsersServiceEndpointTest {
         ArgumentCaptor<String> passCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> aboutCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(usersDatabase.create(nameCaptor.capture(), passCaptor.capture(), aboutCaptor.capture())).thenReturn(expUser);
+        when(usersDatabase.createAsync(nameCaptor.capture(), passCaptor.capture(), aboutCaptor.capture())).thenReturn(CompletableFuture.completedFuture(expUser));
 
         User resUser = inProcessStub.create(req);
 
@@ -355,6 +367,27 @@ public class UsersServiceEndpointTest {
         assertThat(idCaptor.getValue()).isEqualTo(exp.getId());
     }
 
+    @Test
+    public void readBatch_shouldComplete() {
+        User exp = User
+                .newBuilder()
+                .setId(10)
+                .build();
+
+        when(usersDatabase.readMany(any(int[].class))).thenReturn(Collections.singletonMap(exp.getId(), exp));
+
+        UserReadBatchRequest req = UserReadBatchRequest
+                .newBuilder()
+                .addIds(11)
+                .addIds(exp.getId())
+                .build();
+
+        List<User> res = new ArrayList<>();
+        inProcessStub.readBatch(req).forEachRemaining(res::add);
+
+        assertThat(res).containsExactly(exp);
+    }
+
     @Test
     public void readUsingName_shouldThrowSQLException() {
         when(usersDatabase.read(anyString())).thenThrow(SQLException.class);
@@ -547,7 +580,7 @@ public class UsersServiceEndpointTest {
         RequestSession session = RequestSession.getDefaultInstance();
 
         when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
-        when(usersDatabase.updatePassword(anyInt(), anyString())).thenThrow(SQLException.class);
+        when(usersDatabase.updatePasswordAsync(anyInt(), anyString())).thenReturn(failed(new SQLException()));
 
         Metadata metadata = new Metadata();
         metadata.put(SessionInterceptor.Companion.getHEADER_KEY(), " ".getBytes());
@@ -574,7 +607,7 @@ public class UsersServiceEndpointTest {
         RequestSession session = RequestSession.getDefaultInstance();
 
         when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
-        when(usersDatabase.updatePassword(anyInt(), anyString())).thenReturn(null);
+        when(usersDatabase.updatePasswordAsync(anyInt(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
 
         Metadata metadata = new Metadata();
         metadata.put(SessionInterceptor.Companion.getHEADER_KEY(), " ".getBytes());
@@ -604,7 +637,7 @@ public class UsersServiceEndpointTest {
                 .build();
 
         when(sessionManager.parseRequestToken(any(byte[].class))).thenReturn(session);
-        when(usersDatabase.updatePassword(anyInt(), anyString())).thenReturn(true);
+        when(usersDatabase.updatePasswordAsync(anyInt(), anyString())).thenReturn(CompletableFuture.completedFuture(true));
 
         Metadata metadata = new Metadata();
         metadata.put(SessionInterceptor.Companion.getHEADER_KEY(), " ".getBytes());
@@ -617,10 +650,16 @@ public class UsersServiceEndpointTest {
 
         UserUpdatePasswordResponse response = inProcessStub.updatePassword(request);
 
-        verify(usersDatabase).updatePassword(session.getId(), request.getPassword());
+        verify(usersDatabase).updatePasswordAsync(session.getId(), request.getPassword());
         verify(blockedSessionsCache).put(session.getId());
 
         assertThat(response).isNotNull();
     }
 
+    private static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
 }
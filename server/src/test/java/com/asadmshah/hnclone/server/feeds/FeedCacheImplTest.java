@@ -0,0 +1,144 @@
+package com.asadmshah.hnclone.server.feeds;
+
+import com.asadmshah.hnclone.database.PostsDatabase;
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.PostScore;
+import com.asadmshah.hnclone.pubsub.PubSub;
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FeedCacheImplTest {
+
+    @Mock private PostsDatabase postsDatabase;
+    @Mock private PubSub pubSub;
+
+    private PublishProcessor<PostScore> postScores;
+    private PublishProcessor<Post> posts;
+
+    private FeedCacheImpl feedCache;
+
+    private Post post1;
+    private Post post2;
+    private Post post3;
+
+    @Before
+    public void setUp() throws Exception {
+        postScores = PublishProcessor.create();
+        posts = PublishProcessor.create();
+
+        post1 = Post.newBuilder().setId(1).setScore(10).build();
+        post2 = Post.newBuilder().setId(2).setScore(5).build();
+        post3 = Post.newBuilder().setId(3).setScore(1).build();
+
+        feedCache = new FeedCacheImpl(postsDatabase, pubSub, 3, 0, 1, TimeUnit.MINUTES);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        feedCache.stop();
+    }
+
+    @Test
+    public void readTop_shouldLoadOnce() {
+        when(postsDatabase.readTop(-1, 3, 0)).thenReturn(Flowable.just(post1, post2, post3));
+
+        List<Post> page1 = feedCache.readTop(-1, 2, 0).toList().blockingGet();
+        List<Post> page2 = feedCache.readTop(-1, 1, 2).toList().blockingGet();
+
+        assertThat(page1).containsExactly(post1, post2).inOrder();
+        assertThat(page2).containsExactly(post3);
+
+        verify(postsDatabase, times(1)).readTop(-1, 3, 0);
+    }
+
+    @Test
+    public void readNew_shouldBypassBeyondCapacity() {
+        when(postsDatabase.readNew(10, 2, 2)).thenReturn(Flowable.just(post3));
+
+        List<Post> page = feedCache.readNew(10, 2, 2).toList().blockingGet();
+
+        assertThat(page).containsExactly(post3);
+
+        verify(postsDatabase, never()).readNew(-1, 3, 0);
+    }
+
+    @Test
+    public void readTop_shouldOverlayViewerVotes() {
+        when(postsDatabase.readTop(-1, 3, 0)).thenReturn(Flowable.just(post1, post2, post3));
+        when(postsDatabase.readVotes(eq(10), any(int[].class))).thenReturn(Collections.singletonMap(2, 1));
+
+        List<Post> page = feedCache.readTop(10, 3, 0).toList().blockingGet();
+
+        assertThat(page.get(0).getUpvoted()).isEqualTo(0);
+        assertThat(page.get(1).getUpvoted()).isEqualTo(1);
+        assertThat(page.get(2).getUpvoted()).isEqualTo(0);
+
+        List<Post> anonymous = feedCache.readTop(-1, 3, 0).toList().blockingGet();
+
+        assertThat(anonymous).containsExactly(post1, post2, post3).inOrder();
+
+        verify(postsDatabase, times(1)).readVotes(anyInt(), any(int[].class));
+    }
+
+    @Test
+    public void readNew_shouldPatchScores() {
+        when(pubSub.subPostScore(anyInt())).thenAnswer(it -> postScores.filter(score -> score.getId() == (int) it.getArgument(0)));
+        when(pubSub.subPost()).thenReturn(posts);
+        when(postsDatabase.readNew(-1, 3, 0)).thenReturn(Flowable.just(post3, post2, post1));
+
+        feedCache.start();
+        feedCache.readNew(-1, 3, 0).toList().blockingGet();
+
+        postScores.onNext(PostScore.newBuilder().setId(2).setScore(50).build());
+
+        List<Post> page = feedCache.readNew(-1, 3, 0).toList().blockingGet();
+
+        assertThat(page.get(1).getId()).isEqualTo(2);
+        assertThat(page.get(1).getScore()).isEqualTo(50);
+
+        verify(postsDatabase, times(1)).readNew(-1, 3, 0);
+        verify(pubSub).subPostScore(2);
+        verify(pubSub, never()).subPostScore();
+    }
+
+    @Test
+    public void readNew_shouldReloadOnNewPost() {
+        Post post4 = Post.newBuilder().setId(4).build();
+
+        when(pubSub.subPostScore(anyInt())).thenReturn(postScores);
+        when(pubSub.subPost()).thenReturn(posts);
+        when(postsDatabase.readNew(-1, 3, 0))
+                .thenReturn(Flowable.just(post3, post2, post1))
+                .thenReturn(Flowable.just(post4, post3, post2));
+
+        feedCache.start();
+        feedCache.readNew(-1, 3, 0).toList().blockingGet();
+
+        posts.onNext(post4);
+
+        List<Post> page = feedCache.readNew(-1, 3, 0).toList().blockingGet();
+
+        assertThat(page).containsExactly(post4, post3, post2).inOrder();
+
+        verify(postsDatabase, times(2)).readNew(-1, 3, 0);
+        verify(pubSub).subPostScore(4);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.asadmshah.hnclone.server.feeds;
+
+import com.asadmshah.hnclone.models.PostScore;
+import com.asadmshah.hnclone.pubsub.PubSub;
+import io.reactivex.processors.PublishProcessor;
+import kotlin.Unit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PostScoreWatcherTest {
+
+    @Mock private PubSub pubSub;
+
+    private PublishProcessor<PostScore> postScores;
+    private List<PostScore> results;
+    private PostScoreWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        postScores = PublishProcessor.create();
+        results = new ArrayList<>();
+        watcher = new PostScoreWatcher(pubSub, score -> {
+            results.add(score);
+            return Unit.INSTANCE;
+        });
+    }
+
+    @Test
+    public void watch_shouldSubscribeOnlyAfterStart() throws Exception {
+        when(pubSub.subPostScore(anyInt())).thenAnswer(it -> postScores.filter(score -> score.getId() == (int) it.getArgument(0)));
+
+        watcher.watch(Arrays.asList(1, 2));
+
+        verify(pubSub, never()).subPostScore(anyInt());
+
+        watcher.start();
+
+        assertThat(watcher.getSize()).isEqualTo(2);
+
+        postScores.onNext(PostScore.newBuilder().setId(2).setScore(5).build());
+        postScores.onNext(PostScore.newBuilder().setId(3).setScore(5).build());
+
+        assertThat(results).containsExactly(PostScore.newBuilder().setId(2).setScore(5).build());
+
+        watcher.stop();
+
+        assertThat(watcher.getSize()).isEqualTo(0);
+        assertThat(postScores.hasSubscribers()).isFalse();
+    }
+
+    @Test
+    public void watch_shouldDropIdsThatLeaveTheSet() throws Exception {
+        when(pubSub.subPostScore(anyInt())).thenAnswer(it -> postScores.filter(score -> score.getId() == (int) it.getArgument(0)));
+
+        watcher.start();
+        watcher.watch(Arrays.asList(1, 2));
+        watcher.watch(Arrays.asList(2, 3));
+
+        postScores.onNext(PostScore.newBuilder().setId(1).setScore(1).build());
+
+        assertThat(results).isEmpty();
+        assertThat(watcher.getSize()).isEqualTo(2);
+        verify(pubSub, times(1)).subPostScore(2);
+
+        watcher.watch(Collections.emptyList());
+
+        assertThat(postScores.hasSubscribers()).isFalse();
+    }
+
+}
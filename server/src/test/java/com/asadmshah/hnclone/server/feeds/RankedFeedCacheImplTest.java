@@ -0,0 +1,125 @@
+package com.asadmshah.hnclone.server.feeds;
+
+import com.asadmshah.hnclone.database.PostsDatabase;
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.PostScore;
+import com.asadmshah.hnclone.pubsub.PubSub;
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RankedFeedCacheImplTest {
+
+    @Mock private FeedCache delegate;
+    @Mock private PostsDatabase postsDatabase;
+    @Mock private PubSub pubSub;
+
+    private PublishProcessor<PostScore> postScores;
+    private PublishProcessor<Post> posts;
+
+    private RankedFeedCacheImpl feedCache;
+
+    private Post post1;
+    private Post post2;
+    private Post post3;
+
+    @Before
+    public void setUp() throws Exception {
+        postScores = PublishProcessor.create();
+        posts = PublishProcessor.create();
+
+        long now = System.currentTimeMillis() / 1000;
+        post1 = Post.newBuilder().setId(1).setScore(10).setTimestamp(now).build();
+        post2 = Post.newBuilder().setId(2).setScore(5).setTimestamp(now - 60).build();
+        post3 = Post.newBuilder().setId(3).setScore(50).setTimestamp(now - TimeUnit.DAYS.toSeconds(3)).build();
+
+        when(pubSub.subPostScore(anyInt())).thenAnswer(it -> postScores.filter(score -> score.getId() == (int) it.getArgument(0)));
+        when(pubSub.subPost()).thenReturn(posts);
+        when(postsDatabase.readNew(-1, 100, 0)).thenReturn(Flowable.just(post1, post2, post3));
+
+        feedCache = new RankedFeedCacheImpl(delegate, postsDatabase, pubSub, 100, TimeUnit.DAYS.toMillis(2), 5, 60000, TimeUnit.MILLISECONDS, 1.8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        feedCache.stop();
+    }
+
+    @Test
+    public void readTop_shouldServeBootstrappedWindow() throws Exception {
+        feedCache.start();
+
+        List<Post> page = awaitTop(2, page1 -> page1.size() == 2);
+
+        assertThat(page).containsExactly(post1, post2).inOrder();
+
+        verify(postsDatabase, times(1)).readNew(-1, 100, 0);
+        verify(postsDatabase, never()).readTop(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void readTop_shouldRerankOnScoreChange() throws Exception {
+        feedCache.start();
+        awaitTop(2, page -> page.size() == 2);
+
+        postScores.onNext(PostScore.newBuilder().setId(2).setScore(100).build());
+
+        List<Post> page = awaitTop(2, page1 -> page1.get(0).getId() == 2);
+
+        assertThat(page.get(0).getScore()).isEqualTo(100);
+        assertThat(page.get(1)).isEqualTo(post1);
+    }
+
+    @Test
+    public void readTop_shouldIncludeNewPosts() throws Exception {
+        feedCache.start();
+        awaitTop(2, page -> page.size() == 2);
+
+        Post post4 = Post.newBuilder().setId(4).setScore(20).setTimestamp(System.currentTimeMillis() / 1000).build();
+        posts.onNext(post4);
+
+        List<Post> page = awaitTop(3, page1 -> page1.size() == 3);
+
+        assertThat(page).containsExactly(post4, post1, post2).inOrder();
+    }
+
+    @Test
+    public void readTop_shouldFallBackBeyondSnapshot() throws Exception {
+        when(delegate.readTop(10, 5, 0)).thenReturn(Flowable.just(post3));
+
+        feedCache.start();
+        awaitTop(2, page -> page.size() == 2);
+
+        assertThat(feedCache.readTop(10, 5, 0).toList().blockingGet()).containsExactly(post3);
+    }
+
+    private interface Condition {
+        boolean test(List<Post> page);
+    }
+
+    private List<Post> awaitTop(int lim, Condition condition) throws Exception {
+        when(delegate.readTop(-1, lim, 0)).thenReturn(Flowable.empty());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (true) {
+            List<Post> page = feedCache.readTop(-1, lim, 0).toList().blockingGet();
+            if (condition.test(page) || System.currentTimeMillis() > deadline) {
+                return page;
+            }
+            Thread.sleep(5);
+        }
+    }
+
+}
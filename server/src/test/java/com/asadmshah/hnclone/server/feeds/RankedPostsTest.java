@@ -0,0 +1,74 @@
+package com.asadmshah.hnclone.server.feeds;
+
+import com.asadmshah.hnclone.models.Post;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RankedPostsTest {
+
+    private static final long NOW = 1_000_000;
+
+    private static Post post(int id, int score, long ageHours) {
+        return Post.newBuilder().setId(id).setScore(score).setTimestamp(NOW - ageHours * 3600).build();
+    }
+
+    private static List<Integer> ids(RankedPosts ranked) {
+        List<Integer> ids = new ArrayList<>();
+        for (Post post : ranked.snapshot()) {
+            ids.add(post.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void rerank_shouldOrderByDecayedScore() {
+        RankedPosts ranked = new RankedPosts(1.8);
+        ranked.put(post(1, 10, 0));
+        ranked.put(post(2, 40, 20));
+        ranked.put(post(3, 30, 1));
+
+        ranked.rerank(NOW, 0, 10);
+
+        assertThat(ids(ranked)).containsExactly(3, 1, 2).inOrder();
+    }
+
+    @Test
+    public void updateScore_shouldReposition() {
+        RankedPosts ranked = new RankedPosts(1.8);
+        ranked.put(post(1, 10, 0));
+        ranked.put(post(2, 5, 0));
+        ranked.put(post(3, 1, 0));
+        ranked.rerank(NOW, 0, 10);
+
+        assertThat(ranked.updateScore(3, 20)).isTrue();
+        assertThat(ranked.updateScore(4, 20)).isFalse();
+
+        assertThat(ids(ranked)).containsExactly(3, 1, 2).inOrder();
+        assertThat(ranked.snapshot().get(0).getScore()).isEqualTo(20);
+
+        ranked.put(post(4, 7, 0));
+
+        assertThat(ids(ranked)).containsExactly(3, 1, 4, 2).inOrder();
+    }
+
+    @Test
+    public void rerank_shouldEvictExpiredAndOverflow() {
+        RankedPosts ranked = new RankedPosts(1.8);
+        for (int i = 1; i <= 100; i++) {
+            ranked.put(post(i, i, i % 2 == 0 ? 0 : 100));
+        }
+
+        ranked.rerank(NOW, NOW - 50 * 3600, 10);
+
+        assertThat(ranked.getSize()).isEqualTo(10);
+        assertThat(ids(ranked)).containsExactly(100, 98, 96, 94, 92, 90, 88, 86, 84, 82).inOrder();
+        for (int i = 1; i <= 100; i++) {
+            assertThat(ranked.contains(i)).isEqualTo(i >= 82 && i % 2 == 0);
+        }
+    }
+
+}
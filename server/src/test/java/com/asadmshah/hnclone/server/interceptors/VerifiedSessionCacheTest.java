@@ -0,0 +1,65 @@
+package com.asadmshah.hnclone.server.interceptors;
+
+import com.asadmshah.hnclone.models.RequestSession;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class VerifiedSessionCacheTest {
+
+    private static RequestSession session(int id, long expire) {
+        return RequestSession.newBuilder().setId(id).setExpire(expire).build();
+    }
+
+    @Test
+    public void get_shouldReturnCachedSessionForSameBytes() throws Exception {
+        VerifiedSessionCache cache = new VerifiedSessionCache(16);
+        RequestSession session = session(1, System.currentTimeMillis() + 60000);
+        LocalDateTime issued = LocalDateTime.now();
+
+        cache.put("token".getBytes(), session, issued);
+
+        VerifiedSessionCache.Entry entry = cache.get("token".getBytes());
+        assertThat(entry).isNotNull();
+        assertThat(entry.getSession()).isEqualTo(session);
+        assertThat(entry.getIssued()).isEqualTo(issued);
+        assertThat(cache.get("other".getBytes())).isNull();
+    }
+
+    @Test
+    public void get_shouldNotReturnExpiredSession() throws Exception {
+        VerifiedSessionCache cache = new VerifiedSessionCache(16);
+
+        cache.put("expired".getBytes(), session(1, System.currentTimeMillis() - 1), LocalDateTime.now());
+        cache.put("expiring".getBytes(), session(2, System.currentTimeMillis() + 50), LocalDateTime.now());
+
+        assertThat(cache.get("expired".getBytes())).isNull();
+        assertThat(cache.get("expiring".getBytes())).isNotNull();
+
+        Thread.sleep(100);
+
+        assertThat(cache.get("expiring".getBytes())).isNull();
+    }
+
+    @Test
+    public void remove_shouldEvictEntry() throws Exception {
+        VerifiedSessionCache cache = new VerifiedSessionCache(16);
+
+        cache.put("token".getBytes(), session(1, System.currentTimeMillis() + 60000), LocalDateTime.now());
+        cache.remove(cache.get("token".getBytes()));
+
+        assertThat(cache.get("token".getBytes())).isNull();
+    }
+
+    @Test
+    public void put_shouldBeNoopWhenDisabled() throws Exception {
+        VerifiedSessionCache cache = new VerifiedSessionCache(0);
+
+        cache.put("token".getBytes(), session(1, System.currentTimeMillis() + 60000), LocalDateTime.now());
+
+        assertThat(cache.get("token".getBytes())).isNull();
+    }
+
+}
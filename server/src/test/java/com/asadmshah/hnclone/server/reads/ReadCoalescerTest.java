@@ -0,0 +1,78 @@
+package com.asadmshah.hnclone.server.reads;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ReadCoalescerTest {
+
+    @Test
+    public void read_shouldUseSingleWithoutWindow() throws Exception {
+        AtomicInteger manyCalls = new AtomicInteger();
+        ReadCoalescer<String> coalescer = new ReadCoalescer<>(0, TimeUnit.MILLISECONDS, 10,
+                (viewerId, id) -> viewerId + ":" + id,
+                (viewerId, ids) -> {
+                    manyCalls.incrementAndGet();
+                    return Collections.emptyMap();
+                });
+
+        assertThat(coalescer.read(1, 2)).isEqualTo("1:2");
+        assertThat(manyCalls.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void read_shouldMergeConcurrentReads() throws Exception {
+        List<int[]> batches = Collections.synchronizedList(new ArrayList<>());
+        ReadCoalescer<String> coalescer = new ReadCoalescer<>(200, TimeUnit.MILLISECONDS, 4,
+                (viewerId, id) -> {
+                    throw new AssertionError();
+                },
+                (viewerId, ids) -> {
+                    batches.add(ids);
+                    Map<Integer, String> values = new HashMap<>();
+                    for (int id : ids) {
+                        if (id != 3) values.put(id, viewerId + ":" + id);
+                    }
+                    return values;
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            int id = i;
+            futures.add(executor.submit(() -> coalescer.read(7, id)));
+        }
+
+        assertThat(futures.get(0).get(1, TimeUnit.SECONDS)).isEqualTo("7:1");
+        assertThat(futures.get(1).get(1, TimeUnit.SECONDS)).isEqualTo("7:2");
+        assertThat(futures.get(2).get(1, TimeUnit.SECONDS)).isNull();
+        assertThat(futures.get(3).get(1, TimeUnit.SECONDS)).isEqualTo("7:4");
+        executor.shutdown();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).asList().containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    public void read_shouldPropagateFailures() throws Exception {
+        ReadCoalescer<String> coalescer = new ReadCoalescer<>(1, TimeUnit.MILLISECONDS, 4,
+                (viewerId, id) -> {
+                    throw new IllegalStateException();
+                },
+                (viewerId, ids) -> Collections.emptyMap());
+
+        Exception exception = null;
+        try {
+            coalescer.read(1, 1);
+        } catch (IllegalStateException e) {
+            exception = e;
+        }
+
+        assertThat(exception).isNotNull();
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.asadmshah.hnclone.server.reads;
+
+import com.asadmshah.hnclone.cache.Cache;
+import com.asadmshah.hnclone.cache.Zone;
+import com.asadmshah.hnclone.models.Post;
+import com.asadmshah.hnclone.models.PostScore;
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadThroughCacheTest {
+
+    @Mock private Cache cache;
+
+    private AtomicInteger singleCalls;
+    private AtomicInteger manyCalls;
+
+    @Before
+    public void setUp() throws Exception {
+        singleCalls = new AtomicInteger();
+        manyCalls = new AtomicInteger();
+    }
+
+    @Test
+    public void get_shouldLoadOnceThenHitLocally() throws Exception {
+        ReadThroughCache<Post> posts = create(null);
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 10));
+        assertThat(posts.get(1)).isEqualTo(post(1, 10));
+        assertThat(posts.get(404)).isNull();
+
+        assertThat(singleCalls.get()).isEqualTo(2);
+        assertThat(posts.getLocalHits()).isEqualTo(1);
+        assertThat(posts.getMisses()).isEqualTo(2);
+        assertThat(posts.getHitRatio()).isWithin(0.001).of(1.0 / 3);
+    }
+
+    @Test
+    public void getMany_shouldLoadOnlyMissing() throws Exception {
+        ReadThroughCache<Post> posts = create(null);
+        posts.get(1);
+
+        Map<Integer, Post> results = posts.getMany(new int[]{1, 2, 3, 404});
+
+        assertThat(results).containsExactly(1, post(1, 10), 2, post(2, 20), 3, post(3, 30));
+        assertThat(manyCalls.get()).isEqualTo(1);
+        assertThat(posts.getLocalHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_shouldPreferRemoteBeforeLoading() throws Exception {
+        when(cache.get(eq(Zone.POSTS), eq("1"), any())).thenReturn(post(1, 99));
+
+        ReadThroughCache<Post> posts = create(cache);
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 99));
+        assertThat(posts.get(1)).isEqualTo(post(1, 99));
+
+        assertThat(singleCalls.get()).isEqualTo(0);
+        assertThat(posts.getRemoteHits()).isEqualTo(1);
+        assertThat(posts.getLocalHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_shouldFallBackToLoaderWhenRemoteFails() throws Exception {
+        when(cache.get(eq(Zone.POSTS), eq("1"), any())).thenThrow(new RuntimeException());
+        doThrow(new RuntimeException()).when(cache).put(eq(Zone.POSTS), eq("1"), any(Post.class), anyLong(), any(TimeUnit.class));
+
+        ReadThroughCache<Post> posts = create(cache);
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 10));
+        assertThat(posts.getRemoteFailures()).isEqualTo(2);
+    }
+
+    @Test
+    public void getMany_shouldWriteLoadedValuesToRemote() throws Exception {
+        when(cache.getMany(eq(Zone.POSTS), any(), any())).thenReturn(Collections.singletonMap("2", post(2, 99)));
+
+        ReadThroughCache<Post> posts = create(cache);
+
+        assertThat(posts.getMany(new int[]{1, 2})).containsExactly(1, post(1, 10), 2, post(2, 99));
+
+        verify(cache).putMany(eq(Zone.POSTS), eq(Collections.singletonMap("1", post(1, 10))), eq(60L), eq(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void patchOn_shouldPatchCachedEntries() throws Exception {
+        Map<Integer, PublishProcessor<PostScore>> scores = new HashMap<>();
+
+        ReadThroughCache<Post> posts = create(null);
+        posts.patchOn(id -> scores.computeIfAbsent(id, k -> PublishProcessor.create()), (post, score) -> post.toBuilder().setScore(score.getScore()).build());
+        posts.start();
+        posts.get(1);
+
+        assertThat(scores.keySet()).containsExactly(1);
+
+        scores.get(1).onNext(PostScore.newBuilder().setId(1).setScore(11).build());
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 11));
+        assertThat(singleCalls.get()).isEqualTo(1);
+
+        posts.stop();
+    }
+
+    @Test
+    public void patchOn_shouldWatchOnlyResidentKeys() throws Exception {
+        Map<Integer, PublishProcessor<PostScore>> scores = new HashMap<>();
+
+        ReadThroughCache<Post> posts = create(null);
+        posts.patchOn(id -> scores.computeIfAbsent(id, k -> PublishProcessor.create()), (post, score) -> post.toBuilder().setScore(score.getScore()).build());
+        posts.get(1);
+
+        assertThat(scores).isEmpty();
+
+        posts.start();
+        posts.getMany(new int[]{2, 3});
+
+        assertThat(posts.getWatchedKeys()).isEqualTo(3);
+        assertThat(scores.get(2).hasSubscribers()).isTrue();
+
+        posts.onInvalidated("2");
+
+        assertThat(posts.getWatchedKeys()).isEqualTo(2);
+        assertThat(scores.get(2).hasSubscribers()).isFalse();
+
+        posts.stop();
+
+        assertThat(posts.getWatchedKeys()).isEqualTo(0);
+        assertThat(scores.get(1).hasSubscribers()).isFalse();
+    }
+
+    @Test
+    public void patch_shouldSkipWriteBackWhenItRacesALoad() throws Exception {
+        AtomicReference<ReadThroughCache<Post>> holder = new AtomicReference<>();
+        ReadThroughCache<Post> posts = new ReadThroughCache<>(cache, Zone.POSTS, Post.parser(), 100, 60, 60, TimeUnit.SECONDS, Post::getId,
+                id -> {
+                    singleCalls.incrementAndGet();
+                    holder.get().patch(id, post -> post.toBuilder().setScore(11).build());
+                    return post(id, 10);
+                },
+                ids -> Collections.emptyMap());
+        holder.set(posts);
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 10));
+        assertThat(posts.get(1)).isEqualTo(post(1, 10));
+
+        assertThat(singleCalls.get()).isEqualTo(2);
+        verify(cache, never()).put(eq(Zone.POSTS), eq("1"), eq(post(1, 10)), anyLong(), any(TimeUnit.class));
+        verify(cache, never()).delete(any(), any());
+    }
+
+    @Test
+    public void patch_shouldLeaveRemoteAlone() throws Exception {
+        ReadThroughCache<Post> posts = create(cache);
+        posts.get(1);
+
+        posts.patch(1, post -> post.toBuilder().setScore(11).build());
+        posts.patch(2, post -> post.toBuilder().setScore(21).build());
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 11));
+        verify(cache).get(eq(Zone.POSTS), eq("1"), any());
+        verify(cache).put(Zone.POSTS, "1", post(1, 10), 60L, TimeUnit.SECONDS);
+        verifyNoMoreInteractions(cache);
+    }
+
+    @Test
+    public void invalidateRemote_shouldDeleteOnlyTheSharedEntry() throws Exception {
+        ReadThroughCache<Post> posts = create(cache);
+        posts.get(1);
+
+        posts.invalidateRemote(1);
+
+        assertThat(posts.get(1)).isEqualTo(post(1, 10));
+        assertThat(singleCalls.get()).isEqualTo(1);
+        verify(cache).delete(Zone.POSTS, "1");
+        verify(cache, never()).publish(any(), any());
+    }
+
+    @Test
+    public void invalidate_shouldDropLocalAndNotifyRemote() throws Exception {
+        when(cache.get(eq(Zone.POSTS), any(), any())).thenReturn(null);
+        when(cache.subscribe(Zone.POSTS)).thenReturn(Flowable.never());
+
+        ReadThroughCache<Post> posts = create(cache);
+        posts.start();
+        posts.get(1);
+        posts.invalidate(1);
+        posts.get(1);
+
+        assertThat(singleCalls.get()).isEqualTo(2);
+        verify(cache).delete(Zone.POSTS, "1");
+        verify(cache).publish(Zone.POSTS, "1");
+
+        posts.stop();
+    }
+
+    @Test
+    public void onInvalidated_shouldDropLocalEntry() throws Exception {
+        ReadThroughCache<Post> posts = create(null);
+        posts.get(1);
+
+        posts.onInvalidated("1");
+        posts.onInvalidated("junk");
+        posts.get(1);
+
+        assertThat(singleCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getAlias_shouldResolveThroughKey() throws Exception {
+        AtomicInteger aliasCalls = new AtomicInteger();
+        ReadThroughCache<Post> posts = create(null);
+
+        assertThat(posts.get("one", alias -> {
+            aliasCalls.incrementAndGet();
+            return post(1, 10);
+        })).isEqualTo(post(1, 10));
+        assertThat(posts.get("one", alias -> {
+            throw new AssertionError();
+        })).isEqualTo(post(1, 10));
+
+        assertThat(aliasCalls.get()).isEqualTo(1);
+        assertThat(singleCalls.get()).isEqualTo(0);
+    }
+
+    private ReadThroughCache<Post> create(Cache cache) {
+        return new ReadThroughCache<>(cache, Zone.POSTS, Post.parser(), 100, 60, 60, TimeUnit.SECONDS, Post::getId,
+                id -> {
+                    singleCalls.incrementAndGet();
+                    return id > 100 ? null : post(id, id * 10);
+                },
+                ids -> {
+                    manyCalls.incrementAndGet();
+                    Map<Integer, Post> values = new HashMap<>();
+                    for (int id : ids) {
+                        if (id <= 100) values.put(id, post(id, id * 10));
+                    }
+                    return values;
+                });
+    }
+
+    private static Post post(int id, int score) {
+        return Post.newBuilder().setId(id).setScore(score).build();
+    }
+
+}
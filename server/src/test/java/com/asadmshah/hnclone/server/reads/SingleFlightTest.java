@@ -0,0 +1,148 @@
+package com.asadmshah.hnclone.server.reads;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SingleFlightTest {
+
+    @Test
+    public void execute_shouldShareConcurrentLoads() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> singleFlight.execute(Arrays.asList("read", 1), () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        })));
+        started.await(1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute(Arrays.asList("read", 1), () -> {
+                loads.incrementAndGet();
+                return "other";
+            })));
+        }
+        while (singleFlight.getShared() < 3) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            assertThat(future.get(1, TimeUnit.SECONDS)).isEqualTo("value");
+        }
+        executor.shutdown();
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(singleFlight.getExecutions()).isEqualTo(1);
+        assertThat(singleFlight.getDedupRatio()).isWithin(0.001).of(0.75);
+        assertThat(singleFlight.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void execute_shouldNotReuseCompletedResults() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(true);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(singleFlight.execute("key", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(singleFlight.execute("key", loads::incrementAndGet)).isEqualTo(2);
+        assertThat(singleFlight.getShared()).isEqualTo(0);
+    }
+
+    @Test
+    public void execute_shouldPropagateFailureToAllWaiters() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException();
+        }));
+        started.await(1, TimeUnit.SECONDS);
+
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("key", () -> "other"));
+        while (singleFlight.getShared() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertThat(cause(leader)).isInstanceOf(IllegalStateException.class);
+        assertThat(cause(follower)).isInstanceOf(IllegalStateException.class);
+        executor.shutdown();
+
+        assertThat(singleFlight.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void flowable_shouldShareOneSubscription() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(true);
+        AtomicInteger subscriptions = new AtomicInteger();
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+
+        Flowable<Integer> source = Flowable.fromFuture(gate)
+                .flatMap(it -> Flowable.just(it, it + 1))
+                .subscribeOn(Schedulers.io())
+                .doOnSubscribe(it -> subscriptions.incrementAndGet());
+
+        TestSubscriber<Integer> first = singleFlight.flowable("page", () -> source).test();
+        TestSubscriber<Integer> second = singleFlight.flowable("page", () -> source).test();
+
+        gate.complete(1);
+
+        first.await(1, TimeUnit.SECONDS);
+        second.await(1, TimeUnit.SECONDS);
+
+        first.assertValues(1, 2).assertComplete();
+        second.assertValues(1, 2).assertComplete();
+        assertThat(subscriptions.get()).isEqualTo(1);
+        assertThat(singleFlight.getShared()).isEqualTo(1);
+    }
+
+    @Test
+    public void disabled_shouldPassThrough() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(false);
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("key", loads::incrementAndGet);
+        singleFlight.flowable("key", () -> Flowable.just(1)).test().assertValues(1);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(singleFlight.getExecutions()).isEqualTo(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Throwable cause(Future<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+}
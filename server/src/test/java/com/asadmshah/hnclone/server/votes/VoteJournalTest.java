@@ -0,0 +1,43 @@
+package com.asadmshah.hnclone.server.votes;
+
+import com.asadmshah.hnclone.models.Vote;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class VoteJournalTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sync_shouldCoverEveryConcurrentWrite() throws Exception {
+        VoteJournal journal = new VoteJournal(folder.getRoot(), true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            Vote vote = Vote.newBuilder().setUserId(i).setPostId(1).setValue(1).build();
+            futures.add(executor.submit(() -> {
+                journal.sync(journal.write(vote));
+                return null;
+            }));
+            if (i == 100) journal.rotate();
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        journal.close();
+
+        assertThat(new VoteJournal(folder.getRoot(), true).replay()).hasSize(200);
+    }
+
+}
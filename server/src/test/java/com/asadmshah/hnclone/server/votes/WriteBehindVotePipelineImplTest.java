@@ -0,0 +1,172 @@
+package com.asadmshah.hnclone.server.votes;
+
+import com.asadmshah.hnclone.database.CommentsDatabase;
+import com.asadmshah.hnclone.database.PostsDatabase;
+import com.asadmshah.hnclone.models.Vote;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WriteBehindVotePipelineImplTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock private PostsDatabase postsDatabase;
+    @Mock private CommentsDatabase commentsDatabase;
+
+    @Captor private ArgumentCaptor<List<Vote>> votesCaptor;
+
+    private WriteBehindVotePipelineImpl create(File directory, int batchSize) throws Exception {
+        return create(directory, batchSize, 100);
+    }
+
+    private WriteBehindVotePipelineImpl create(File directory, int batchSize, int maxCounters) throws Exception {
+        return new WriteBehindVotePipelineImpl(postsDatabase, commentsDatabase, new VoteJournal(directory, false), batchSize, 1, maxCounters, 1, TimeUnit.HOURS);
+    }
+
+    @Test
+    public void votePost_shouldCoalescePerUser() throws Exception {
+        when(postsDatabase.readScore(anyInt())).thenReturn(10);
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 100);
+        pipeline.start();
+
+        assertThat(pipeline.votePost(1, 2, 1)).isEqualTo(11);
+        assertThat(pipeline.votePost(1, 2, -1)).isEqualTo(9);
+        assertThat(pipeline.votePost(3, 2, 1)).isEqualTo(10);
+
+        verify(postsDatabase, never()).writeVotes(anyList());
+        verify(postsDatabase, times(1)).readScore(anyInt());
+        verify(postsDatabase, times(2)).readVotes(anyInt(), any());
+
+        pipeline.stop();
+
+        verify(postsDatabase).writeVotes(votesCaptor.capture());
+        verify(postsDatabase, never()).incrementScore(anyInt(), anyInt());
+
+        assertThat(votesCaptor.getValue()).containsExactly(
+                Vote.newBuilder().setUserId(1).setPostId(2).setValue(-1).build(),
+                Vote.newBuilder().setUserId(3).setPostId(2).setValue(1).build());
+    }
+
+    @Test
+    public void votePost_shouldReturnNullOnMissingPost() throws Exception {
+        when(postsDatabase.readScore(anyInt())).thenReturn(null);
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 100);
+        pipeline.start();
+
+        assertThat(pipeline.votePost(1, 2, 1)).isNull();
+
+        pipeline.stop();
+
+        verify(postsDatabase, never()).writeVotes(anyList());
+    }
+
+    @Test
+    public void voteComment_shouldUseExistingVote() throws Exception {
+        when(commentsDatabase.readScore(2, 5)).thenReturn(4);
+        when(commentsDatabase.readVotes(eq(1), aryEq(new int[]{5}))).thenReturn(Collections.singletonMap(5, 1));
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 100);
+        pipeline.start();
+
+        assertThat(pipeline.voteComment(1, 2, 5, 0)).isEqualTo(3);
+
+        pipeline.stop();
+
+        verify(commentsDatabase).writeVotes(Collections.singletonList(Vote.newBuilder().setUserId(1).setPostId(2).setCommentId(5).build()));
+        verify(postsDatabase).writeVotes(Collections.<Vote>emptyList());
+    }
+
+    @Test
+    public void votePost_shouldKeepCounterAfterFlush() throws Exception {
+        when(postsDatabase.readScore(anyInt())).thenReturn(10);
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 1);
+        pipeline.start();
+
+        assertThat(pipeline.votePost(1, 2, 1)).isEqualTo(11);
+        verify(postsDatabase, timeout(1000)).writeVotes(anyList());
+
+        assertThat(pipeline.votePost(1, 2, 0)).isEqualTo(10);
+
+        verify(postsDatabase, times(1)).readScore(anyInt());
+        verify(postsDatabase, times(1)).readVotes(anyInt(), any());
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void votePost_shouldReloadEvictedCounter() throws Exception {
+        when(postsDatabase.readScore(anyInt())).thenReturn(10, 11);
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 1, 0);
+        pipeline.start();
+
+        assertThat(pipeline.votePost(1, 2, 1)).isEqualTo(11);
+        verify(postsDatabase, timeout(1000)).writeVotes(anyList());
+        Thread.sleep(100);
+
+        assertThat(pipeline.votePost(3, 2, 1)).isEqualTo(12);
+
+        verify(postsDatabase, times(2)).readScore(anyInt());
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void votePost_shouldFlushWhenBatchIsFull() throws Exception {
+        when(postsDatabase.readScore(anyInt())).thenReturn(0);
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 2);
+        pipeline.start();
+
+        pipeline.votePost(1, 2, 1);
+        pipeline.votePost(3, 2, 1);
+
+        verify(postsDatabase, timeout(1000)).writeVotes(votesCaptor.capture());
+        assertThat(votesCaptor.getValue()).hasSize(2);
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void start_shouldReplayJournal() throws Exception {
+        Vote vote1 = Vote.newBuilder().setUserId(1).setPostId(2).setValue(1).build();
+        Vote vote2 = Vote.newBuilder().setUserId(1).setPostId(2).setValue(-1).build();
+
+        VoteJournal journal = new VoteJournal(folder.getRoot(), false);
+        journal.append(vote1);
+        journal.append(vote2);
+        journal.close();
+
+        WriteBehindVotePipelineImpl pipeline = create(folder.getRoot(), 100);
+        pipeline.start();
+
+        verify(postsDatabase).writeVotes(Collections.singletonList(vote2));
+        assertThat(new VoteJournal(folder.getRoot(), false).replay()).isEmpty();
+
+        pipeline.stop();
+    }
+
+}